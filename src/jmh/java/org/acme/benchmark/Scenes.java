@@ -0,0 +1,60 @@
+package org.acme.benchmark;
+
+import org.acme.model.ParticleStore;
+
+import java.util.Random;
+
+/**
+ * Reproducible particle scenes shared by the benchmarks.
+ */
+public final class Scenes {
+
+    /**
+     * World area per particle of a sparse scene: a particle has about 0.25 neighbours within collision range.
+     */
+    public static final double SPARSE_AREA = 50;
+
+    /**
+     * World area per particle of a dense cluster: a particle has about 8 neighbours within collision range, so most
+     * of the collision time goes to resolving pairs.
+     */
+    public static final double CLUSTER_AREA = 1.5;
+
+    private Scenes() {
+    }
+
+    /**
+     * Creates a named scene.
+     *
+     * @param scene {@code sparse} or {@code cluster}
+     * @param count the number of particles
+     * @return the particles
+     */
+    public static ParticleStore create(String scene, int count) {
+        return switch (scene) {
+            case "sparse" -> uniform(count, SPARSE_AREA);
+            case "cluster" -> uniform(count, CLUSTER_AREA);
+            default -> throw new IllegalArgumentException("Unknown scene: " + scene);
+        };
+    }
+
+    /**
+     * Spreads particles uniformly over a square centered on the origin, sized so the density does not depend on the
+     * particle count, with random velocities in [-1, 1] and masses in [1, 11] like {@code /simulation/start}.
+     *
+     * @param count           the number of particles
+     * @param areaPerParticle the world area per particle
+     * @return the particles
+     */
+    public static ParticleStore uniform(int count, double areaPerParticle) {
+        Random random = new Random(42);
+        double half = Math.sqrt(count * areaPerParticle) / 2;
+        ParticleStore store = new ParticleStore();
+        store.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            store.add((random.nextDouble() * 2 - 1) * half, (random.nextDouble() * 2 - 1) * half,
+                    random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 10 + 1);
+        }
+        return store;
+    }
+}
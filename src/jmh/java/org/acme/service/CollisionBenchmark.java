@@ -0,0 +1,70 @@
+package org.acme.service;
+
+import org.acme.benchmark.Scenes;
+import org.acme.model.ParticleStore;
+import org.acme.service.collision.PairConsumer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the collision phase of a tick in isolation, on a sparse scene and on a dense cluster where most pairs
+ * need resolving.
+ * <p>
+ * {@link #findPairs()} only runs the broadphase; {@link #detectAndResolveCollisions()} also resolves the pairs.
+ * Resolving changes the velocities, so they are restored before every invocation, outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class CollisionBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int particleCount;
+
+    @Param({"sparse", "cluster"})
+    String scene;
+
+    private SimulationService service;
+    private ParticleStore store;
+    private double[] initialVxs;
+    private double[] initialVys;
+    private long pairs;
+    private final PairConsumer pairCounter = (i, j) -> pairs++;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new SimulationService();
+        service.addParticles(Scenes.create(scene, particleCount));
+        store = service.getStore();
+        initialVxs = Arrays.copyOf(store.getVxs(), particleCount);
+        initialVys = Arrays.copyOf(store.getVys(), particleCount);
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreVelocities() {
+        System.arraycopy(initialVxs, 0, store.getVxs(), 0, particleCount);
+        System.arraycopy(initialVys, 0, store.getVys(), 0, particleCount);
+    }
+
+    @Benchmark
+    public long findPairs() {
+        pairs = 0;
+        service.getBroadphase().findPairs(store.getXs(), store.getYs(), store.getSize(), 2.0, pairCounter);
+        return pairs;
+    }
+
+    @Benchmark
+    public void detectAndResolveCollisions() {
+        service.getLock().lock();
+        try {
+            service.detectAndResolveCollisions();
+        } finally {
+            service.getLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.acme.service;
+
+import org.acme.benchmark.Scenes;
+import org.acme.service.physics.KernelType;
+import org.acme.service.physics.StepKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole tick: the step kernel across the parallel executor, collisions and the snapshot publication, with
+ * either step kernel. The scene is rebuilt before every iteration so the particles do not drift into the black hole
+ * over a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SimulationTickBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int particleCount;
+
+    @Param({"scalar", "vector"})
+    String kernel;
+
+    private SimulationService service;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        KernelType type = KernelType.valueOf(kernel.toUpperCase(Locale.ROOT));
+        if (type == KernelType.VECTOR && !StepKernels.isVectorApiAvailable()) {
+            throw new IllegalStateException("The vector kernel needs --add-modules jdk.incubator.vector");
+        }
+        service = new SimulationService();
+        service.setStepKernel(StepKernels.create(type));
+        service.addParticles(Scenes.uniform(particleCount, Scenes.SPARSE_AREA));
+    }
+
+    @Benchmark
+    public void updateSimulation() {
+        service.updateSimulation();
+    }
+}
@@ -0,0 +1,44 @@
+package org.acme.service.physics;
+
+import org.acme.benchmark.Scenes;
+import org.acme.model.ParticleStore;
+import org.acme.service.ParallelRangeExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Barnes-Hut mutual gravity alone, i.e. the tree build and the force walk of one tick, for several
+ * opening angles. Only velocities change, and the tree only depends on positions, so invocations need no reset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GravityBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int particleCount;
+
+    @Param({"0.3", "0.5", "1"})
+    double theta;
+
+    private ParticleStore store;
+    private BarnesHutGravity gravity;
+    private ParallelRangeExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = Scenes.create("sparse", particleCount);
+        gravity = new BarnesHutGravity(theta, 0.007, 1);
+        executor = new ParallelRangeExecutor(ForkJoinPool.commonPool(), 8192, 20000);
+    }
+
+    @Benchmark
+    public void apply() {
+        gravity.apply(store, 0.01, executor);
+    }
+}
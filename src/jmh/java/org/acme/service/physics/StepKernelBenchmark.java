@@ -0,0 +1,50 @@
+package org.acme.service.physics;
+
+import org.acme.benchmark.Scenes;
+import org.acme.model.ParticleStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the step kernels alone, scalar against vector, stepping every particle on one thread. Divide the score by
+ * the particle count for the time per particle. The scene is rebuilt before every iteration so the particles do not
+ * drift into the black hole over a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class StepKernelBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int particleCount;
+
+    @Param({"scalar", "vector"})
+    String kernel;
+
+    private ParticleStore store;
+    private StepKernel stepKernel;
+
+    @Setup(Level.Trial)
+    public void setUpKernel() {
+        KernelType type = KernelType.valueOf(kernel.toUpperCase(Locale.ROOT));
+        if (type == KernelType.VECTOR && !StepKernels.isVectorApiAvailable()) {
+            throw new IllegalStateException("The vector kernel needs --add-modules jdk.incubator.vector");
+        }
+        stepKernel = StepKernels.create(type);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpScene() {
+        store = Scenes.create("sparse", particleCount);
+    }
+
+    @Benchmark
+    public void step() {
+        stepKernel.step(store, 0, store.getSize(), 0.01);
+    }
+}
@@ -0,0 +1,60 @@
+package org.acme.websocket;
+
+import org.acme.benchmark.Scenes;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.websocket.protocol.StreamFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization of a broadcast: {@link ParticleBroadcaster#encode} of a whole snapshot, once per
+ * negotiated format. Frames alternate between two snapshots a small step apart, so delta streams always have
+ * particles to send. Binary frames reuse pooled buffers, as in a steady broadcast.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class BroadcastEncodingBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int particleCount;
+
+    @Param({"json", "f32", "i16", "delta"})
+    String format;
+
+    private ParticleBroadcaster broadcaster;
+    private StreamKey key;
+    private SimulationSnapshot[] snapshots;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broadcaster = new ParticleBroadcaster(null, null, BroadcastSettings.DEFAULTS);
+        key = new StreamKey(StreamFormat.negotiate(null, Map.of("format", List.of(format))), null);
+
+        ParticleStore store = Scenes.uniform(particleCount, Scenes.SPARSE_AREA);
+        SimulationSnapshot first = SimulationSnapshot.of(store, 0, 0L);
+        double[] xs = store.getXs();
+        for (int i = 0; i < particleCount; i++) {
+            xs[i] += 0.05;
+        }
+        snapshots = new SimulationSnapshot[]{first, SimulationSnapshot.of(store, 1, 0L)};
+    }
+
+    @Benchmark
+    public Object encode() {
+        Object encoded = broadcaster.encode(key, snapshots[frame++ & 1]);
+        // Binary frames go back to the pool, as they would once every session sent them.
+        if (encoded instanceof PooledFrame pooled) {
+            pooled.release();
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,80 @@
+package org.acme.loadtest;
+
+/**
+ * A small log-linear histogram of non-negative values: exact below 16, then 16 buckets per power of two, so any
+ * recorded value is known within about 6%. One histogram takes 8 KiB whatever the range, so every client keeps its
+ * own and they are merged for the scenario.
+ * <p>
+ * Not thread-safe.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    /**
+     * @param value the value to record, negative values counting as 0
+     */
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts[index(v)]++;
+        count++;
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    /**
+     * @param quantile the quantile, between 0 and 1
+     * @return the lower bound of the bucket holding the quantile, or {@code -1} if nothing was recorded
+     */
+    long percentile(double quantile) {
+        if (count == 0) return -1;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(lowerBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+}
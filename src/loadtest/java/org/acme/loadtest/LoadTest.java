@@ -0,0 +1,289 @@
+package org.acme.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.acme.service.ingest.BinaryParticleReader;
+import org.acme.websocket.protocol.StreamFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures how many concurrent WebSocket viewers a running node sustains. For every particle count, fills a
+ * simulation instance, then for every client count opens that many {@link ViewerClient}s on virtual threads and
+ * consumes their frames during a measurement window.
+ * <p>
+ * Options, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code url}: the node, default {@code http://localhost:8080}</li>
+ *     <li>{@code instance}: the simulation instance to load, default {@code loadtest}</li>
+ *     <li>{@code particles}: comma-separated particle counts, default {@code 1000,10000,100000}</li>
+ *     <li>{@code clients}: comma-separated client counts, default {@code 1,10,50,100}</li>
+ *     <li>{@code format}: the WebSocket subprotocol, default {@value StreamFormat#SUBPROTOCOL_FLOAT32}</li>
+ *     <li>{@code query}: the query string of the handshake, default {@code lod=particles}</li>
+ *     <li>{@code warmup} and {@code duration}: the seconds before and of the measurement, default 5 and 20</li>
+ *     <li>{@code output}: the JSON results file, default {@code build/results/loadtest/results.json}</li>
+ * </ul>
+ * Server CPU, bytes sent and missed tick deadlines are read from the Prometheus endpoint of the node.
+ */
+public final class LoadTest {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+    private static final double SPARSE_AREA = 50;
+
+    private static final String ROW = "%9d %8d %9d %8d %8.1f %8.1f %8.2f %8.2f %8.2f %8.2f %10.2f %8.1f %6.1f%n";
+    private static final String HEADER = String.format("%9s %8s %9s %8s %8s %8s %8s %8s %8s %8s %10s %8s %6s",
+            "particles", "clients", "connected", "rejected", "mean fps", "min fps", "p50 ms", "p90 ms", "p99 ms",
+            "max ms", "client MB/s", "srv MB/s", "cpu %");
+
+    private final Options options;
+    private final HttpClient http;
+    private final ServerMetrics metrics;
+    private boolean metricsAvailable = true;
+
+    private LoadTest(Options options, HttpClient http) {
+        this.options = options;
+        this.http = http;
+        this.metrics = new ServerMetrics(http, options.url());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        List<ScenarioResult> results = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(threads).connectTimeout(CONNECT_TIMEOUT).build()) {
+            LoadTest test = new LoadTest(options, http);
+            System.out.println(HEADER);
+            for (int particles : options.particles()) {
+                test.fill(particles);
+                for (int clients : options.clients()) {
+                    ScenarioResult result = test.run(particles, clients);
+                    results.add(result);
+                    System.out.printf(ROW, result.particles(), result.clients(), result.connected(),
+                            result.rejected(), result.meanFps(), result.minFps(), result.latencyP50Millis(),
+                            result.latencyP90Millis(), result.latencyP99Millis(), result.latencyMaxMillis(),
+                            result.clientBytesPerSecond() / 1e6, result.serverBytesPerSecond() / 1e6,
+                            result.serverCpu() * 100);
+                }
+            }
+        }
+
+        File output = new File(options.output());
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, results);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    /**
+     * Replaces the particles of the instance with a reproducible sparse scene, through the binary ingest endpoint.
+     */
+    private void fill(int particles) throws IOException, InterruptedException {
+        String simulation = options.url() + "/simulation/" + options.instance();
+        post(simulation + "/reset", "application/json", HttpRequest.BodyPublishers.noBody());
+
+        Random random = new Random(42);
+        double half = Math.sqrt(particles * SPARSE_AREA) / 2;
+        ByteBuffer body = ByteBuffer.allocate(particles * BinaryParticleReader.RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < particles; i++) {
+            body.putDouble((random.nextDouble() * 2 - 1) * half)
+                    .putDouble((random.nextDouble() * 2 - 1) * half)
+                    .putDouble(random.nextDouble() * 2 - 1)
+                    .putDouble(random.nextDouble() * 2 - 1)
+                    .putDouble(random.nextDouble() * 10 + 1);
+        }
+        post(simulation + "/ingest", "application/octet-stream",
+                HttpRequest.BodyPublishers.ofByteArray(body.array()));
+    }
+
+    /**
+     * Runs one scenario: connects the clients, waits for the warmup, then measures.
+     */
+    private ScenarioResult run(int particles, int clients) throws InterruptedException {
+        URI uri = URI.create(options.url().replaceFirst("^http", "ws") + "/ws/particles/" + options.instance()
+                + (options.query().isEmpty() ? "" : "?" + options.query()));
+        List<ViewerClient> viewers = new ArrayList<>(clients);
+        List<CompletableFuture<WebSocket>> connecting = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            ViewerClient viewer = new ViewerClient();
+            viewers.add(viewer);
+            connecting.add(http.newWebSocketBuilder()
+                    .subprotocols(options.format())
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .buildAsync(uri, viewer));
+        }
+
+        Map<ViewerClient, WebSocket> sockets = new HashMap<>();
+        for (int i = 0; i < clients; i++) {
+            try {
+                sockets.put(viewers.get(i),
+                        connecting.get(i).get(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException | TimeoutException e) {
+                connecting.get(i).cancel(true);
+            }
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmup()));
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.duration());
+        sockets.keySet().forEach(viewer -> viewer.measure(start, end));
+
+        String before = scrape();
+        double cpuSum = 0;
+        double cpuMax = 0;
+        int cpuSamples = 0;
+        while (System.nanoTime() - end < 0) {
+            Thread.sleep(Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            double cpu = ServerMetrics.value(scrape(), "process_cpu_usage", null);
+            if (!Double.isNaN(cpu)) {
+                cpuSum += cpu;
+                cpuMax = Math.max(cpuMax, cpu);
+                cpuSamples++;
+            }
+        }
+        String after = scrape();
+
+        ScenarioResult result = summarize(particles, clients, sockets, before, after,
+                cpuSamples > 0 ? cpuSum / cpuSamples : Double.NaN, cpuSamples > 0 ? cpuMax : Double.NaN);
+        close(sockets);
+        return result;
+    }
+
+    private ScenarioResult summarize(int particles, int clients, Map<ViewerClient, WebSocket> sockets, String before,
+                                     String after, double cpu, double cpuMax) {
+        double seconds = options.duration();
+        LatencyHistogram latencies = new LatencyHistogram();
+        long frames = 0;
+        long bytes = 0;
+        int connected = 0;
+        double fpsSum = 0;
+        double minFps = Double.NaN;
+        long worstP99 = -1;
+        for (ViewerClient viewer : sockets.keySet()) {
+            frames += viewer.frames();
+            bytes += viewer.bytes();
+            LatencyHistogram clientLatencies = viewer.latencies();
+            latencies.add(clientLatencies);
+            worstP99 = Math.max(worstP99, clientLatencies.percentile(0.99));
+            if (viewer.closed().isDone()) continue;
+            connected++;
+            double fps = viewer.frames() / seconds;
+            fpsSum += fps;
+            minFps = Double.isNaN(minFps) ? fps : Math.min(minFps, fps);
+        }
+
+        String label = "simulation=\"" + options.instance() + "\"";
+        double serverBytes = ServerMetrics.value(after, "simulation_frame_bytes_total", label)
+                - ServerMetrics.value(before, "simulation_frame_bytes_total", label);
+        double missed = ServerMetrics.value(after, "simulation_deadlines_missed_total", label)
+                - ServerMetrics.value(before, "simulation_deadlines_missed_total", label);
+        return new ScenarioResult(particles, clients, connected, clients - connected, frames,
+                connected > 0 ? fpsSum / connected : 0, minFps, millis(latencies.percentile(0.5)),
+                millis(latencies.percentile(0.9)), millis(latencies.percentile(0.99)), millis(latencies.max()),
+                millis(worstP99), bytes / seconds, serverBytes / seconds, cpu, cpuMax, missed / seconds);
+    }
+
+    /**
+     * Closes every session and waits for the server to acknowledge, so the next scenario starts from scratch.
+     */
+    private static void close(Map<ViewerClient, WebSocket> sockets) throws InterruptedException {
+        sockets.values().forEach(socket -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        for (Map.Entry<ViewerClient, WebSocket> entry : sockets.entrySet()) {
+            try {
+                entry.getKey().closed().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                entry.getValue().abort();
+            }
+        }
+    }
+
+    /**
+     * @return the Prometheus exposition of the node, or an empty one if it cannot be read
+     */
+    private String scrape() throws InterruptedException {
+        if (!metricsAvailable) return "";
+        try {
+            return metrics.scrape();
+        } catch (IOException e) {
+            System.err.println("Server metrics unavailable, only client measurements are reported: "
+                    + e.getMessage());
+            metricsAvailable = false;
+            return "";
+        }
+    }
+
+    private void post(String url, String contentType, HttpRequest.BodyPublisher body)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("POST " + url + " failed: HTTP " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros < 0 ? Double.NaN : micros / 1000.0;
+    }
+
+    /**
+     * The options of a run, see {@link LoadTest}.
+     */
+    record Options(String url, String instance, int[] particles, int[] clients, String format, String query,
+                   long warmup, long duration, String output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            Options options = new Options(
+                    values.getOrDefault("url", "http://localhost:8080").replaceAll("/+$", ""),
+                    values.getOrDefault("instance", "loadtest"),
+                    counts(values.getOrDefault("particles", "1000,10000,100000")),
+                    counts(values.getOrDefault("clients", "1,10,50,100")),
+                    values.getOrDefault("format", StreamFormat.SUBPROTOCOL_FLOAT32),
+                    values.getOrDefault("query", "lod=particles"),
+                    Long.parseLong(values.getOrDefault("warmup", "5")),
+                    Long.parseLong(values.getOrDefault("duration", "20")),
+                    values.getOrDefault("output", "build/results/loadtest/results.json"));
+            if (options.duration() <= 0 || options.warmup() < 0) {
+                throw new IllegalArgumentException("Invalid warmup or duration: " + options.warmup() + ", "
+                        + options.duration());
+            }
+            return options;
+        }
+
+        private static int[] counts(String list) {
+            return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+    }
+}
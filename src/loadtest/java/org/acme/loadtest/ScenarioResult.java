@@ -0,0 +1,30 @@
+package org.acme.loadtest;
+
+/**
+ * The measurements of one scenario of the load test.
+ *
+ * @param particles             the particles of the simulation
+ * @param clients               the clients the scenario opened
+ * @param connected             the clients still connected at the end of the window
+ * @param rejected              the clients that could not connect or that the server closed, e.g. beyond the
+ *                              session limit
+ * @param frames                the frames received by every client during the window
+ * @param meanFps               the frames per second delivered to a connected client, on average
+ * @param minFps                the frames per second delivered to the slowest connected client
+ * @param latencyP50Millis      the median frame latency, over the frames of every client
+ * @param latencyP90Millis      the 90th percentile frame latency
+ * @param latencyP99Millis      the 99th percentile frame latency
+ * @param latencyMaxMillis      the highest frame latency
+ * @param worstClientP99Millis  the 99th percentile frame latency of the client with the highest one
+ * @param clientBytesPerSecond  the bytes per second received by every client together
+ * @param serverBytesPerSecond  the bytes per second the server reports sending, {@code NaN} without metrics
+ * @param serverCpu             the mean CPU usage of the server process, between 0 and 1 for all of its cores
+ * @param serverCpuMax          the highest CPU usage of the server process sampled during the window
+ * @param missedDeadlinesPerSecond the tick deadlines the simulation missed per second
+ */
+record ScenarioResult(int particles, int clients, int connected, int rejected, long frames, double meanFps,
+                      double minFps, double latencyP50Millis, double latencyP90Millis, double latencyP99Millis,
+                      double latencyMaxMillis, double worstClientP99Millis, double clientBytesPerSecond,
+                      double serverBytesPerSecond, double serverCpu, double serverCpuMax,
+                      double missedDeadlinesPerSecond) {
+}
@@ -0,0 +1,59 @@
+package org.acme.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Reads meters of the node under test from its Prometheus endpoint, {@code /q/metrics}.
+ */
+final class ServerMetrics {
+
+    private final HttpClient http;
+    private final URI endpoint;
+
+    ServerMetrics(HttpClient http, String baseUrl) {
+        this.http = http;
+        this.endpoint = URI.create(baseUrl + "/q/metrics");
+    }
+
+    /**
+     * @return the current Prometheus exposition of the node
+     * @throws IOException if the endpoint cannot be read
+     */
+    String scrape() throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(endpoint).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Cannot read " + endpoint + ": HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    /**
+     * Finds the value of a sample.
+     *
+     * @param exposition a Prometheus exposition
+     * @param name       the sample name, e.g. {@code process_cpu_usage}
+     * @param label      a {@code name="value"} label the sample must have, or {@code null}
+     * @return the value of the first matching sample, or {@code NaN} if there is none
+     */
+    static double value(String exposition, String name, String label) {
+        for (String line : exposition.split("\n")) {
+            if (line.startsWith("#") || !line.startsWith(name)) continue;
+            String rest = line.substring(name.length());
+            if (!rest.startsWith("{") && !rest.startsWith(" ")) continue;
+            if (label != null && !rest.contains(label)) continue;
+            // A sample is "name{labels} value", optionally followed by a timestamp.
+            String sample = rest.substring(rest.startsWith("{") ? rest.lastIndexOf('}') + 1 : 0).trim();
+            try {
+                return Double.parseDouble(sample.split("\\s+")[0]);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+}
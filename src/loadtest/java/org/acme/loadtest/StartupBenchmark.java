@@ -0,0 +1,297 @@
+package org.acme.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time-to-first-broadcast of the packaged application: the time from launching the process to
+ * receiving its first frame on {@code /ws/particles}, polling the endpoint until it accepts the session. Every
+ * variant is launched and killed {@code runs} times in turn, each on a fresh process.
+ * <p>
+ * Variants:
+ * <ul>
+ *     <li>{@code jvm}: {@code quarkus-run.jar} of the fast-jar, as {@code Dockerfile.jvm} runs it</li>
+ *     <li>{@code appcds}: the same with {@code -XX:SharedArchiveFile=app-cds.jsa}, recorded by
+ *     {@code ./gradlew build -PfastStartup}, as {@code Dockerfile.jvm-appcds} runs it</li>
+ *     <li>{@code native}: the executable of {@code ./gradlew build -Dquarkus.native.enabled=true}, as
+ *     {@code Dockerfile.native} runs it</li>
+ * </ul>
+ * Variants whose artifacts are missing are skipped.
+ * <p>
+ * Options, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code variants}: comma-separated variants, default {@code jvm,appcds,native}</li>
+ *     <li>{@code runs}: the launches per variant, default 5</li>
+ *     <li>{@code port}: the HTTP port of the launched processes, default 8089</li>
+ *     <li>{@code app}: the fast-jar directory, default {@code build/quarkus-app}</li>
+ *     <li>{@code runner}: the native executable, default the {@code build/*-runner} file</li>
+ *     <li>{@code timeout}: the seconds a launch may take to broadcast, default 60</li>
+ *     <li>{@code output}: the JSON results file, default {@code build/results/startup/results.json}</li>
+ * </ul>
+ * The processes run without checkpoints, so they start from the same empty world, and their output is written next
+ * to the results, one log file per variant.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(1);
+    private static final long POLL_MILLIS = 5;
+    private static final long STOP_SECONDS = 10;
+
+    private static final String ROW = "%-8s %5d %10.1f %10.1f %10.1f%n";
+    private static final String HEADER = String.format("%-8s %5s %10s %10s %10s", "variant", "runs", "min ms",
+            "median ms", "max ms");
+
+    private final Options options;
+    private final HttpClient http;
+
+    private StartupBenchmark(Options options, HttpClient http) {
+        this.options = options;
+        this.http = http;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        File output = new File(options.output());
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+
+        List<StartupResult> results = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(threads).connectTimeout(CONNECT_TIMEOUT).build()) {
+            StartupBenchmark benchmark = new StartupBenchmark(options, http);
+            System.out.println(HEADER);
+            for (String variant : options.variants()) {
+                Optional<List<String>> command = benchmark.command(variant);
+                if (command.isEmpty()) continue;
+                File log = new File(output.getParentFile(), variant + ".log");
+                StartupResult result = benchmark.run(variant, command.get(), log);
+                results.add(result);
+                System.out.printf(ROW, result.variant(), result.runs(), result.minMillis(), result.medianMillis(),
+                        result.maxMillis());
+            }
+        }
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, results);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    /**
+     * @return the command line of a variant, or empty if its artifacts are missing
+     * @throws IllegalArgumentException if the variant is unknown
+     */
+    private Optional<List<String>> command(String variant) throws IOException {
+        Path app = Path.of(options.app());
+        Path jar = app.resolve("quarkus-run.jar");
+        List<String> command = new ArrayList<>();
+        switch (variant) {
+            case "jvm", "appcds" -> {
+                if (!Files.isRegularFile(jar)) {
+                    return skip(variant, jar + " not found, run ./gradlew build");
+                }
+                command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+                if (variant.equals("appcds")) {
+                    Path archive = app.resolve("app-cds.jsa");
+                    if (!Files.isRegularFile(archive)) {
+                        return skip(variant, archive + " not found, run ./gradlew build -PfastStartup");
+                    }
+                    command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+                }
+                command.add("--add-modules=jdk.incubator.vector");
+                command.add("-Djava.util.logging.manager=org.jboss.logmanager.LogManager");
+                command.addAll(applicationArgs());
+                command.add("-jar");
+                command.add(jar.toAbsolutePath().toString());
+            }
+            case "native" -> {
+                Optional<Path> runner = options.runner().isEmpty()
+                        ? findRunner()
+                        : Optional.of(Path.of(options.runner()));
+                if (runner.isEmpty() || !Files.isExecutable(runner.get())) {
+                    return skip(variant, "no native executable, run ./gradlew build -Dquarkus.native.enabled=true");
+                }
+                command.add(runner.get().toAbsolutePath().toString());
+                command.addAll(applicationArgs());
+            }
+            default -> throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+        return Optional.of(command);
+    }
+
+    private List<String> applicationArgs() {
+        return List.of("-Dquarkus.http.port=" + options.port(),
+                "-Dsimulation.checkpoint.restore-on-start=false",
+                "-Dsimulation.checkpoint.interval-ms=0");
+    }
+
+    private static Optional<Path> findRunner() throws IOException {
+        Path build = Path.of("build");
+        if (!Files.isDirectory(build)) return Optional.empty();
+        try (Stream<Path> files = Files.list(build)) {
+            return files.filter(file -> file.getFileName().toString().endsWith("-runner")).findFirst();
+        }
+    }
+
+    private static Optional<List<String>> skip(String variant, String reason) {
+        System.out.printf("%-8s skipped: %s%n", variant, reason);
+        return Optional.empty();
+    }
+
+    /**
+     * Launches a variant {@code runs} times, measuring each launch.
+     */
+    private StartupResult run(String variant, List<String> command, File log)
+            throws IOException, InterruptedException {
+        double[] millis = new double[options.runs()];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = launch(command, log) / 1e6;
+        }
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        double median = sorted.length % 2 == 1
+                ? sorted[sorted.length / 2]
+                : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+        return new StartupResult(variant, String.join(" ", command), millis.length, sorted[0], median,
+                sorted[sorted.length - 1], millis);
+    }
+
+    /**
+     * Launches the process, waits for its first frame, then stops it.
+     *
+     * @return the nanoseconds from launching the process to receiving its first frame
+     * @throws IOException if the process exits or does not broadcast within the timeout
+     */
+    private long launch(List<String> command, File log) throws IOException, InterruptedException {
+        URI uri = URI.create("ws://localhost:" + options.port() + "/ws/particles");
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(options.timeout());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        try {
+            while (System.nanoTime() - deadline < 0) {
+                if (!process.isAlive()) {
+                    throw new IOException("Process exited with " + process.exitValue() + ", see " + log);
+                }
+                FirstFrame listener = new FirstFrame();
+                WebSocket socket;
+                try {
+                    socket = http.newWebSocketBuilder()
+                            .connectTimeout(CONNECT_TIMEOUT)
+                            .buildAsync(uri, listener)
+                            .get(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    // Not listening yet.
+                    Thread.sleep(POLL_MILLIS);
+                    continue;
+                }
+                try {
+                    return listener.received.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            - start;
+                } catch (ExecutionException | TimeoutException e) {
+                    break;
+                } finally {
+                    socket.abort();
+                }
+            }
+            throw new IOException("No frame within " + options.timeout() + " s, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(STOP_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Completes with the {@link System#nanoTime()} of the first frame of a session.
+     */
+    private static final class FirstFrame implements WebSocket.Listener {
+
+        private final CompletableFuture<Long> received = new CompletableFuture<>();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            return frame(webSocket, last);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            return frame(webSocket, last);
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            received.completeExceptionally(error);
+        }
+
+        private CompletionStage<?> frame(WebSocket webSocket, boolean last) {
+            if (last) {
+                received.complete(System.nanoTime());
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+
+    /**
+     * The options of a run, see {@link StartupBenchmark}.
+     */
+    record Options(List<String> variants, int runs, int port, String app, String runner, long timeout,
+                   String output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            Options options = new Options(
+                    Arrays.stream(values.getOrDefault("variants", "jvm,appcds,native").split(","))
+                            .map(String::trim).toList(),
+                    Integer.parseInt(values.getOrDefault("runs", "5")),
+                    Integer.parseInt(values.getOrDefault("port", "8089")),
+                    values.getOrDefault("app", "build/quarkus-app"),
+                    values.getOrDefault("runner", ""),
+                    Long.parseLong(values.getOrDefault("timeout", "60")),
+                    values.getOrDefault("output", "build/results/startup/results.json"));
+            if (options.runs() <= 0 || options.timeout() <= 0) {
+                throw new IllegalArgumentException("Invalid runs or timeout: " + options.runs() + ", "
+                        + options.timeout());
+            }
+            return options;
+        }
+    }
+}
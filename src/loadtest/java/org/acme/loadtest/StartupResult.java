@@ -0,0 +1,16 @@
+package org.acme.loadtest;
+
+/**
+ * The time-to-first-broadcast measurements of one variant of the startup benchmark.
+ *
+ * @param variant      the variant: {@code jvm}, {@code appcds} or {@code native}
+ * @param command      the command line the variant was launched with
+ * @param runs         the launches measured
+ * @param minMillis    the fastest time from launching the process to receiving its first frame
+ * @param medianMillis the median time to the first frame
+ * @param maxMillis    the slowest time to the first frame
+ * @param runMillis    the time to the first frame of every launch, in order
+ */
+record StartupResult(String variant, String command, int runs, double minMillis, double medianMillis,
+                     double maxMillis, double[] runMillis) {
+}
@@ -0,0 +1,129 @@
+package org.acme.loadtest;
+
+import org.acme.websocket.protocol.BinaryFrameEncoder;
+
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * One simulated viewer: consumes the frames of a WebSocket session as fast as they come, recording how many it
+ * received, their size and their latency.
+ * <p>
+ * The latency of a binary frame is the time from the server time in its header, stamped when the tick was
+ * published, to the reception of its last byte. The server stamps frames in milliseconds, so latencies are only
+ * accurate to a millisecond and client and server must share a clock. JSON frames carry no server time and only
+ * count frames and bytes. Only the frames completed within the measurement window, see {@link #measure}, are
+ * recorded.
+ */
+final class ViewerClient implements WebSocket.Listener {
+
+    private static final int TIME_OFFSET = 24;
+
+    private final CompletableFuture<Integer> closed = new CompletableFuture<>();
+
+    private final ByteBuffer header = ByteBuffer.allocate(BinaryFrameEncoder.HEADER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long messageBytes;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long frames;
+    private long bytes;
+
+    private boolean measuring;
+    private long windowStart;
+    private long windowEnd;
+
+    /**
+     * Sets the measurement window.
+     *
+     * @param start the {@link System#nanoTime()} the measurement starts at
+     * @param end   the {@link System#nanoTime()} the measurement ends at
+     */
+    synchronized void measure(long start, long end) {
+        measuring = true;
+        windowStart = start;
+        windowEnd = end;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+        messageBytes += data.remaining();
+        while (header.hasRemaining() && data.hasRemaining()) {
+            header.put(data.get());
+        }
+        if (last) {
+            long serverMillis = header.position() >= TIME_OFFSET + Long.BYTES ? header.getLong(TIME_OFFSET) : -1;
+            frameReceived(messageBytes, serverMillis);
+            header.clear();
+            messageBytes = 0;
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        messageBytes += data.length();
+        if (last) {
+            frameReceived(messageBytes, -1);
+            messageBytes = 0;
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        closed.complete(statusCode);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        closed.completeExceptionally(error);
+    }
+
+    /**
+     * @return completed with the close status code once the server closed the session
+     */
+    CompletableFuture<Integer> closed() {
+        return closed;
+    }
+
+    synchronized long frames() {
+        return frames;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return a copy of the latencies, in microseconds
+     */
+    synchronized LatencyHistogram latencies() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(latencies);
+        return copy;
+    }
+
+    private synchronized void frameReceived(long size, long serverMillis) {
+        long now = System.nanoTime();
+        if (!measuring || now - windowStart < 0 || now - windowEnd > 0) return;
+        frames++;
+        bytes += size;
+        if (serverMillis > 0) {
+            latencies.record(ChronoUnit.MICROS.between(Instant.ofEpochMilli(serverMillis), Instant.now()));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.acme.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated view of the particles for clients that cannot render them all: a square grid of {@code side * side}
+ * cells over the bounds of the particles, with the particle count, the total mass and the mean velocity of each cell.
+ * <p>
+ * Its size only depends on the grid side, however many particles there are. Cells are stored row by row from the
+ * origin, the bottom left corner; the arrays are kept between computations and only valid up to
+ * {@code side * side}.
+ */
+@Getter
+public class DensityGrid {
+
+    private int side;
+    private double originX;
+    private double originY;
+    private double cellSize;
+    private int particleCount;
+    private int[] counts = new int[0];
+    private double[] masses = new double[0];
+    private double[] meanVxs = new double[0];
+    private double[] meanVys = new double[0];
+
+    /**
+     * Aggregates the particles of a store.
+     *
+     * @param store the particles
+     * @param side  the number of cells per side of the grid
+     */
+    public void compute(ParticleStore store, int side) {
+        int n = store.getSize();
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] vxs = store.getVxs();
+        double[] vys = store.getVys();
+        double[] particleMasses = store.getMasses();
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        if (!(minX <= maxX) || !(minY <= maxY)) {
+            minX = minY = maxX = maxY = 0;
+        }
+        double extent = Math.max(maxX - minX, maxY - minY);
+
+        resize(side);
+        this.originX = minX;
+        this.originY = minY;
+        this.cellSize = extent > 0 && Double.isFinite(extent) ? extent / side : 1;
+        this.particleCount = n;
+
+        double inverseCellSize = 1 / cellSize;
+        for (int i = 0; i < n; i++) {
+            int cx = clamp((xs[i] - minX) * inverseCellSize);
+            int cy = clamp((ys[i] - minY) * inverseCellSize);
+            int cell = cy * side + cx;
+            counts[cell]++;
+            masses[cell] += particleMasses[i];
+            meanVxs[cell] += vxs[i];
+            meanVys[cell] += vys[i];
+        }
+        for (int cell = 0, cells = side * side; cell < cells; cell++) {
+            if (counts[cell] > 0) {
+                meanVxs[cell] /= counts[cell];
+                meanVys[cell] /= counts[cell];
+            }
+        }
+    }
+
+    /**
+     * Makes this grid a copy of another one.
+     *
+     * @param other the grid to copy, or {@code null} to empty this one
+     */
+    public void copyFrom(DensityGrid other) {
+        if (other == null) {
+            side = 0;
+            particleCount = 0;
+            return;
+        }
+        resize(other.side);
+        int cells = side * side;
+        System.arraycopy(other.counts, 0, counts, 0, cells);
+        System.arraycopy(other.masses, 0, masses, 0, cells);
+        System.arraycopy(other.meanVxs, 0, meanVxs, 0, cells);
+        System.arraycopy(other.meanVys, 0, meanVys, 0, cells);
+        originX = other.originX;
+        originY = other.originY;
+        cellSize = other.cellSize;
+        particleCount = other.particleCount;
+    }
+
+    /**
+     * @return whether the grid holds no aggregate
+     */
+    public boolean isEmpty() {
+        return side == 0;
+    }
+
+    private void resize(int side) {
+        if (side <= 0) {
+            throw new IllegalArgumentException("Invalid density grid side: " + side);
+        }
+        int cells = side * side;
+        if (counts.length < cells) {
+            counts = new int[cells];
+            masses = new double[cells];
+            meanVxs = new double[cells];
+            meanVys = new double[cells];
+        } else {
+            Arrays.fill(counts, 0, cells, 0);
+            Arrays.fill(masses, 0, cells, 0);
+            Arrays.fill(meanVxs, 0, cells, 0);
+            Arrays.fill(meanVys, 0, cells, 0);
+        }
+        this.side = side;
+    }
+
+    private int clamp(double cell) {
+        return (int) Math.max(0, Math.min(side - 1, Math.floor(cell)));
+    }
+}
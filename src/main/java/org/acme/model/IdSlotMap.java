@@ -0,0 +1,126 @@
+package org.acme.model;
+
+import java.util.Arrays;
+
+/**
+ * Map from particle ids to their slot in a {@link ParticleStore}, with primitive keys and values so lookups and
+ * updates do not allocate. Open addressing with linear probing; removals shift the following entries back instead of
+ * leaving tombstones, so the table never degrades under churn.
+ */
+final class IdSlotMap {
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IdSlotMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param id a particle id
+     * @return the slot of the particle, or -1 if the id is unknown
+     */
+    int get(int id) {
+        int slot = find(id);
+        return slot < 0 ? -1 : values[slot];
+    }
+
+    /**
+     * Sets the slot of a particle.
+     *
+     * @param id    a non-negative particle id
+     * @param value the slot of the particle
+     */
+    void put(int id, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int slot = hash(id) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Forgets a particle.
+     *
+     * @param id a particle id
+     * @return the slot the particle had, or -1 if the id is unknown
+     */
+    int remove(int id) {
+        int gap = find(id);
+        if (gap < 0) return -1;
+        int removed = values[gap];
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // The entry may fill the gap if the gap lies between its home slot and its current slot.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Forgets every particle, keeping the allocated capacity.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int id) {
+        int slot = hash(id) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -6,6 +6,10 @@ import lombok.Setter;
 @Getter
 @Setter
 public class Particle {
+    /**
+     * Stable id assigned by the simulation when the particle is added; ignored in requests.
+     */
+    private int id;
     private double x, y;
     private double vx, vy;
     private double mass;
@@ -20,6 +24,11 @@ public class Particle {
         this.mass = mass;
     }
 
+    public Particle(int id, double x, double y, double vx, double vy, double mass) {
+        this(x, y, vx, vy, mass);
+        this.id = id;
+    }
+
     public void update(double dt) {
         x += vx * dt;
         y += vy * dt;
@@ -0,0 +1,339 @@
+package org.acme.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays particle storage: one contiguous primitive array per field instead of one object per particle.
+ * <p>
+ * The arrays are exposed directly so the physics kernels can run on them without indirection.
+ * They are only valid up to {@link #getSize()} and are replaced when the store grows,
+ * so callers must not keep a reference across calls that add particles.
+ * <p>
+ * Every particle gets a stable id when added, never reused by the store. Indices are dense and change when
+ * particles are removed, ids do not: an id-to-slot map finds a particle by id in constant time. Particles taken over
+ * from another store keep their ids, so those meant to be new get a block from {@link #reserveIds} first.
+ */
+@Getter
+public class ParticleStore {
+
+    /**
+     * Capacities are always a multiple of this number of particles.
+     */
+    public static final int CHUNK_SIZE = 4096;
+
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] vxs = new double[0];
+    private double[] vys = new double[0];
+    private double[] masses = new double[0];
+    private int[] ids = new int[0];
+    private int size;
+
+    @Getter(AccessLevel.NONE)
+    private IdSlotMap slots = new IdSlotMap();
+
+    /**
+     * The id of the next added particle.
+     */
+    @Getter(AccessLevel.NONE)
+    private int nextId;
+
+    /**
+     * Incremented whenever particles are added, removed or reordered, so consumers
+     * tracking particles by index know their indices are stale.
+     */
+    private long structureVersion;
+
+    /**
+     * Appends a particle with a new id.
+     *
+     * @return the index of the new particle
+     */
+    public int add(double x, double y, double vx, double vy, double mass) {
+        ensureCapacity(size + 1);
+        int index = size;
+        assignId(index);
+        size++;
+        structureVersion++;
+        xs[index] = x;
+        ys[index] = y;
+        vxs[index] = vx;
+        vys[index] = vy;
+        masses[index] = mass;
+        return index;
+    }
+
+    /**
+     * Appends a copy of the given particle.
+     *
+     * @param p the particle to copy
+     * @return the index of the new particle
+     */
+    public int add(Particle p) {
+        return add(p.getX(), p.getY(), p.getVx(), p.getVy(), p.getMass());
+    }
+
+    /**
+     * Appends the first particles of another store with new ids, one array copy per field.
+     *
+     * @param other the particles to copy
+     * @param count the number of particles to copy from the start of {@code other}
+     * @throws IndexOutOfBoundsException if {@code other} holds fewer than {@code count} particles
+     */
+    public void addAll(ParticleStore other, int count) {
+        if (count < 0 || count > other.size) {
+            throw new IndexOutOfBoundsException("Invalid particle count: " + count);
+        }
+        if (count == 0) return;
+        ensureCapacity(size + count);
+        System.arraycopy(other.xs, 0, xs, size, count);
+        System.arraycopy(other.ys, 0, ys, size, count);
+        System.arraycopy(other.vxs, 0, vxs, size, count);
+        System.arraycopy(other.vys, 0, vys, size, count);
+        System.arraycopy(other.masses, 0, masses, size, count);
+        for (int i = size; i < size + count; i++) {
+            assignId(i);
+        }
+        size += count;
+        structureVersion++;
+    }
+
+    /**
+     * Removes a particle in constant time by moving the last particle into its slot.
+     *
+     * @param index the index of the particle to remove
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        slots.remove(ids[index]);
+        int last = size - 1;
+        if (index != last) {
+            xs[index] = xs[last];
+            ys[index] = ys[last];
+            vxs[index] = vxs[last];
+            vys[index] = vys[last];
+            masses[index] = masses[last];
+            ids[index] = ids[last];
+            slots.put(ids[index], index);
+        }
+        size--;
+        structureVersion++;
+    }
+
+    /**
+     * Removes a particle by id.
+     *
+     * @param id the id of the particle to remove
+     * @return whether the particle existed
+     */
+    public boolean removeById(int id) {
+        int index = slots.get(id);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Removes many particles by id; unknown ids are ignored.
+     *
+     * @param particleIds the ids of the particles to remove
+     * @return the number of particles removed
+     */
+    public int removeAllById(int[] particleIds) {
+        int removed = 0;
+        for (int id : particleIds) {
+            if (removeById(id)) removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Finds a particle by id.
+     *
+     * @param id a particle id
+     * @return the current index of the particle, or -1 if no particle has this id
+     */
+    public int indexOf(int id) {
+        return slots.get(id);
+    }
+
+    /**
+     * Copies a particle out of the store.
+     *
+     * @param index the index of the particle
+     * @return a detached copy of the particle
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public Particle get(int index) {
+        checkIndex(index);
+        return new Particle(ids[index], xs[index], ys[index], vxs[index], vys[index], masses[index]);
+    }
+
+    /**
+     * Copies every particle out of the store.
+     *
+     * @return detached copies of all particles, in index order
+     */
+    public List<Particle> toParticles() {
+        List<Particle> particles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            particles.add(new Particle(ids[i], xs[i], ys[i], vxs[i], vys[i], masses[i]));
+        }
+        return particles;
+    }
+
+    /**
+     * Replaces the particles with those of another store in constant time, by taking over its arrays; the other
+     * store is left empty with the previous arrays of this one. Ids keep increasing past those of both stores.
+     *
+     * @param other the particles to take over
+     */
+    public void replaceWith(ParticleStore other) {
+        double[] swap = xs;
+        xs = other.xs;
+        other.xs = swap;
+        swap = ys;
+        ys = other.ys;
+        other.ys = swap;
+        swap = vxs;
+        vxs = other.vxs;
+        other.vxs = swap;
+        swap = vys;
+        vys = other.vys;
+        other.vys = swap;
+        swap = masses;
+        masses = other.masses;
+        other.masses = swap;
+        int[] swapIds = ids;
+        ids = other.ids;
+        other.ids = swapIds;
+        IdSlotMap swapSlots = slots;
+        slots = other.slots;
+        other.slots = swapSlots;
+
+        size = other.size;
+        if (nextId >= 0 && (other.nextId < 0 || other.nextId > nextId)) {
+            nextId = other.nextId;
+        }
+        structureVersion++;
+        other.clear();
+    }
+
+    /**
+     * Takes the first {@code count} particles written straight into the arrays, e.g. when reading a checkpoint,
+     * keeping their ids. The arrays must have been grown with {@link #ensureCapacity} before being written. The
+     * particles replace the current ones, and the next added particle gets an id above all of them.
+     *
+     * @param count the number of particles written
+     * @throws IndexOutOfBoundsException if the arrays cannot hold {@code count} particles
+     * @throws IllegalArgumentException  if an id is negative or appears twice, leaving the store empty
+     */
+    public void restore(int count) {
+        if (count < 0 || count > xs.length) {
+            throw new IndexOutOfBoundsException("Invalid particle count: " + count);
+        }
+        slots.clear();
+        size = 0;
+        structureVersion++;
+        int maxId = -1;
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            if (id < 0 || slots.get(id) >= 0) {
+                slots.clear();
+                throw new IllegalArgumentException("Invalid or duplicate particle id: " + id);
+            }
+            slots.put(id, i);
+            maxId = Math.max(maxId, id);
+        }
+        size = count;
+        if (nextId >= 0 && maxId >= nextId) {
+            // Past Integer.MAX_VALUE, nextId wraps negative and the store refuses new particles.
+            nextId = maxId + 1;
+        }
+    }
+
+    /**
+     * Reserves a block of ids no particle added to this store will get, e.g. to give to particles built elsewhere
+     * before taking them over with {@link #replaceWith}.
+     *
+     * @param count the number of ids
+     * @return the first id of the block, the others following it
+     * @throws IllegalArgumentException if the count is negative
+     * @throws IllegalStateException    if fewer than {@code count} ids are left
+     */
+    public int reserveIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid id count: " + count);
+        }
+        if (nextId < 0 || nextId > Integer.MAX_VALUE - count) {
+            throw new IllegalStateException("Particle ids exhausted");
+        }
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    /**
+     * Gives the particles consecutive ids from {@code firstId}, in index order, e.g. a block from
+     * {@link #reserveIds} of the store that will take them over.
+     *
+     * @param firstId the id of the first particle
+     * @throws IllegalArgumentException if the ids would not all be non-negative
+     */
+    public void renumberIds(int firstId) {
+        if (firstId < 0 || firstId > Integer.MAX_VALUE - size) {
+            throw new IllegalArgumentException("Invalid first id: " + firstId);
+        }
+        for (int i = 0; i < size; i++) {
+            ids[i] = firstId + i;
+        }
+        restore(size);
+    }
+
+    /**
+     * Removes all particles, keeping the allocated capacity. Ids keep increasing.
+     */
+    public void clear() {
+        slots.clear();
+        size = 0;
+        structureVersion++;
+    }
+
+    /**
+     * Grows the arrays so they can hold at least {@code capacity} particles.
+     *
+     * @param capacity the number of particles to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) return;
+        int grown = Math.max(capacity, xs.length + (xs.length >> 1));
+        int chunked = (int) Math.min(Integer.MAX_VALUE - 8, ((long) grown + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE);
+        xs = Arrays.copyOf(xs, chunked);
+        ys = Arrays.copyOf(ys, chunked);
+        vxs = Arrays.copyOf(vxs, chunked);
+        vys = Arrays.copyOf(vys, chunked);
+        masses = Arrays.copyOf(masses, chunked);
+        ids = Arrays.copyOf(ids, chunked);
+    }
+
+    private void assignId(int index) {
+        if (nextId < 0) {
+            throw new IllegalStateException("Particle ids exhausted");
+        }
+        int id = nextId++;
+        ids[index] = id;
+        slots.put(id, index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid particle index: " + index);
+        }
+    }
+}
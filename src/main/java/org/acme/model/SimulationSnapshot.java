@@ -0,0 +1,180 @@
+package org.acme.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable copy of the particles at the end of a tick, published through a {@link SnapshotBuffer}.
+ * <p>
+ * A snapshot is only written while no reader holds it: readers obtain it from {@link SnapshotBuffer#acquire()}
+ * and must {@link #close()} it when done, after which its buffers may be reused for a later tick.
+ * The arrays are exposed for fast encoding and must not be modified; they are only valid up to {@link #getSize()}.
+ */
+@Getter
+public class SimulationSnapshot implements AutoCloseable {
+
+    private static final int WRITING = -1;
+
+    private long tick;
+    private long timestamp;
+    private int size;
+    private long structureVersion;
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] vxs = new double[0];
+    private double[] vys = new double[0];
+    private double[] masses = new double[0];
+    private int[] ids = new int[0];
+
+    /**
+     * The aggregated particles, empty when the simulation does not compute them.
+     */
+    private final DensityGrid density = new DensityGrid();
+
+    /**
+     * Number of readers holding the snapshot, or {@value #WRITING} while the writer fills it.
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Creates a standalone snapshot of the store, outside of any {@link SnapshotBuffer}.
+     *
+     * @param store     the particles
+     * @param tick      the tick the particles belong to
+     * @param timestamp the server time of the tick, in epoch milliseconds
+     * @return the snapshot
+     */
+    public static SimulationSnapshot of(ParticleStore store, long tick, long timestamp) {
+        return of(store, null, tick, timestamp);
+    }
+
+    /**
+     * Creates a standalone snapshot of the store and of its aggregates, outside of any {@link SnapshotBuffer}.
+     *
+     * @param store     the particles
+     * @param density   the aggregated particles, may be {@code null}
+     * @param tick      the tick the particles belong to
+     * @param timestamp the server time of the tick, in epoch milliseconds
+     * @return the snapshot
+     */
+    public static SimulationSnapshot of(ParticleStore store, DensityGrid density, long tick, long timestamp) {
+        SimulationSnapshot snapshot = new SimulationSnapshot();
+        snapshot.copyFrom(store, density, tick, timestamp);
+        return snapshot;
+    }
+
+    /**
+     * Creates a standalone snapshot of some of the particles of this one, e.g. those inside a viewport.
+     * Its structure version is a hash of the selected indices, so consumers tracking particles by index see a
+     * structure change whenever particles enter or leave the selection.
+     *
+     * @param indices the indices of the particles to keep, in the order to keep them
+     * @return the snapshot
+     */
+    public SimulationSnapshot select(int[] indices) {
+        SimulationSnapshot selection = new SimulationSnapshot();
+        int count = indices.length;
+        selection.xs = new double[count];
+        selection.ys = new double[count];
+        selection.vxs = new double[count];
+        selection.vys = new double[count];
+        selection.masses = new double[count];
+        selection.ids = new int[count];
+        long version = structureVersion * 0x9E3779B97F4A7C15L + count;
+        for (int k = 0; k < count; k++) {
+            int i = indices[k];
+            selection.xs[k] = xs[i];
+            selection.ys[k] = ys[i];
+            selection.vxs[k] = vxs[i];
+            selection.vys[k] = vys[i];
+            selection.masses[k] = masses[i];
+            selection.ids[k] = ids[i];
+            version = (version ^ i) * 0xC2B2AE3D27D4EB4FL;
+        }
+        selection.size = count;
+        selection.tick = tick;
+        selection.timestamp = timestamp;
+        selection.structureVersion = version;
+        return selection;
+    }
+
+    /**
+     * Copies a particle out of the snapshot.
+     *
+     * @param index the index of the particle
+     * @return a detached copy of the particle
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public Particle get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid particle index: " + index);
+        }
+        return new Particle(ids[index], xs[index], ys[index], vxs[index], vys[index], masses[index]);
+    }
+
+    /**
+     * Copies every particle out of the snapshot.
+     *
+     * @return detached copies of all particles, in index order
+     */
+    public List<Particle> toParticles() {
+        List<Particle> particles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            particles.add(new Particle(ids[i], xs[i], ys[i], vxs[i], vys[i], masses[i]));
+        }
+        return particles;
+    }
+
+    /**
+     * Releases the snapshot so its buffers can be reused.
+     */
+    @Override
+    public void close() {
+        references.decrementAndGet();
+    }
+
+    boolean tryRetain() {
+        while (true) {
+            int current = references.get();
+            if (current == WRITING) return false;
+            if (references.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    boolean tryClaimForWriting() {
+        return references.compareAndSet(0, WRITING);
+    }
+
+    void copyFrom(ParticleStore store, DensityGrid density, long tick, long timestamp) {
+        int count = store.getSize();
+        if (xs.length < count) {
+            int capacity = store.getXs().length;
+            xs = new double[capacity];
+            ys = new double[capacity];
+            vxs = new double[capacity];
+            vys = new double[capacity];
+            masses = new double[capacity];
+            ids = new int[capacity];
+        }
+        System.arraycopy(store.getXs(), 0, xs, 0, count);
+        System.arraycopy(store.getYs(), 0, ys, 0, count);
+        System.arraycopy(store.getVxs(), 0, vxs, 0, count);
+        System.arraycopy(store.getVys(), 0, vys, 0, count);
+        System.arraycopy(store.getMasses(), 0, masses, 0, count);
+        System.arraycopy(store.getIds(), 0, ids, 0, count);
+        this.size = count;
+        this.tick = tick;
+        this.timestamp = timestamp;
+        this.structureVersion = store.getStructureVersion();
+        this.density.copyFrom(density);
+    }
+
+    void finishWriting() {
+        references.set(0);
+    }
+}
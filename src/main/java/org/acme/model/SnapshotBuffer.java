@@ -0,0 +1,54 @@
+package org.acme.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free double buffer of {@link SimulationSnapshot}s: a single writer publishes a snapshot after each tick while
+ * any number of readers consume the latest one.
+ * <p>
+ * The writer fills the snapshot that was published before the current one, unless a slow reader still holds it,
+ * in which case it fills a fresh one. Readers therefore never see a snapshot change under them and never make
+ * the writer wait.
+ */
+public class SnapshotBuffer {
+
+    private final AtomicReference<SimulationSnapshot> published = new AtomicReference<>(new SimulationSnapshot());
+    private SimulationSnapshot spare;
+
+    /**
+     * Copies the store into a snapshot and makes it the latest one. Must only be called by the single writer.
+     *
+     * @param store     the particles
+     * @param density   the aggregated particles, may be {@code null}
+     * @param tick      the tick the particles belong to
+     * @param timestamp the server time of the tick, in epoch milliseconds
+     */
+    public void publish(ParticleStore store, DensityGrid density, long tick, long timestamp) {
+        SimulationSnapshot target = spare;
+        if (target == null || !target.tryClaimForWriting()) {
+            target = new SimulationSnapshot();
+            target.tryClaimForWriting();
+        }
+        target.copyFrom(store, density, tick, timestamp);
+        target.finishWriting();
+        spare = published.getAndSet(target);
+    }
+
+    /**
+     * Retains the latest snapshot. The caller must close it when done.
+     *
+     * @return the latest published snapshot
+     */
+    public SimulationSnapshot acquire() {
+        while (true) {
+            SimulationSnapshot snapshot = published.get();
+            if (snapshot.tryRetain()) {
+                if (published.get() == snapshot) {
+                    return snapshot;
+                }
+                snapshot.close();
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
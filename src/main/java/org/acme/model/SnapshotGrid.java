@@ -0,0 +1,113 @@
+package org.acme.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of a {@link SimulationSnapshot}: a uniform grid over the bounds of its particles, bucketed with a
+ * counting sort, answering rectangle queries without scanning every particle.
+ * <p>
+ * Built once per snapshot and shared by every query on it. The grid has about {@value #PARTICLES_PER_CELL}
+ * particles per cell on average.
+ */
+public class SnapshotGrid {
+
+    private static final int PARTICLES_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    @Getter
+    private final SimulationSnapshot snapshot;
+    private final double originX;
+    private final double originY;
+    private final double inverseCellSize;
+    private final int side;
+    private final int[] cellStart;
+    private final int[] sorted;
+
+    /**
+     * @param snapshot the snapshot to index; it must stay open while the grid is in use
+     */
+    public SnapshotGrid(SimulationSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int n = snapshot.getSize();
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        if (!(minX <= maxX) || !(minY <= maxY)) {
+            minX = minY = maxX = maxY = 0;
+        }
+        side = (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.ceil(Math.sqrt((double) n / PARTICLES_PER_CELL))));
+        double extent = Math.max(maxX - minX, maxY - minY);
+        originX = minX;
+        originY = minY;
+        inverseCellSize = extent > 0 && Double.isFinite(extent) ? side / extent : 0;
+
+        cellStart = new int[side * side + 1];
+        sorted = new int[n];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            int cell = cellY(ys[i]) * side + cellX(xs[i]);
+            cellOf[i] = cell;
+            cellStart[cell]++;
+        }
+        // Inclusive prefix sum, then filling each cell from its end keeps indices ascending within a cell.
+        for (int c = 1; c < cellStart.length - 1; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        cellStart[cellStart.length - 1] = n;
+        for (int i = n - 1; i >= 0; i--) {
+            sorted[--cellStart[cellOf[i]]] = i;
+        }
+    }
+
+    /**
+     * Finds the particles inside a rectangle, bounds included.
+     *
+     * @return the indices of the particles found, in ascending order
+     */
+    public int[] query(double minX, double minY, double maxX, double maxY) {
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+        int fromX = cellX(minX), toX = cellX(maxX);
+        int fromY = cellY(minY), toY = cellY(maxY);
+
+        int[] found = new int[16];
+        int count = 0;
+        for (int cy = fromY; cy <= toY; cy++) {
+            for (int k = cellStart[cy * side + fromX], end = cellStart[cy * side + toX + 1]; k < end; k++) {
+                int i = sorted[k];
+                double x = xs[i];
+                double y = ys[i];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = i;
+                }
+            }
+        }
+        Arrays.sort(found, 0, count);
+        return Arrays.copyOf(found, count);
+    }
+
+    private int cellX(double x) {
+        return clampCell((x - originX) * inverseCellSize);
+    }
+
+    private int cellY(double y) {
+        return clampCell((y - originY) * inverseCellSize);
+    }
+
+    private int clampCell(double cell) {
+        return (int) Math.max(0, Math.min(side - 1, Math.floor(cell)));
+    }
+}
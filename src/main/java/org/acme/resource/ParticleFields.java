@@ -0,0 +1,70 @@
+package org.acme.resource;
+
+import java.util.Locale;
+
+/**
+ * The particle fields a client asked for, e.g. {@code ?fields=position} for positions only.
+ * <p>
+ * Fields are {@code id}, {@code x}, {@code y}, {@code vx}, {@code vy} and {@code mass}, plus the groups
+ * {@code position} ({@code x,y}) and {@code velocity} ({@code vx,vy}). The mask bits double as the field mask of
+ * binary pages, see {@link ParticlePage}.
+ *
+ * @param mask the requested fields, a combination of {@link #ID}, {@link #X}, {@link #Y}, {@link #VX}, {@link #VY}
+ *             and {@link #MASS}
+ */
+public record ParticleFields(int mask) {
+
+    public static final int ID = 1;
+    public static final int X = 1 << 1;
+    public static final int Y = 1 << 2;
+    public static final int VX = 1 << 3;
+    public static final int VY = 1 << 4;
+    public static final int MASS = 1 << 5;
+
+    public static final ParticleFields ALL = new ParticleFields(ID | X | Y | VX | VY | MASS);
+
+    /**
+     * Parses a comma-separated list of fields.
+     *
+     * @param fields the fields, or {@code null} or blank for every field
+     * @return the projection
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static ParticleFields parse(String fields) {
+        if (fields == null || fields.isBlank()) return ALL;
+        int mask = 0;
+        for (String field : fields.split(",")) {
+            mask |= switch (field.trim().toLowerCase(Locale.ROOT)) {
+                case "id" -> ID;
+                case "x" -> X;
+                case "y" -> Y;
+                case "vx" -> VX;
+                case "vy" -> VY;
+                case "mass" -> MASS;
+                case "position" -> X | Y;
+                case "velocity" -> VX | VY;
+                case "" -> 0;
+                default -> throw new IllegalArgumentException("Unknown particle field: " + field.trim());
+            };
+        }
+        if (mask == 0) {
+            throw new IllegalArgumentException("No particle field requested");
+        }
+        return new ParticleFields(mask);
+    }
+
+    /**
+     * @param field a field bit
+     * @return whether the field is requested
+     */
+    public boolean has(int field) {
+        return (mask & field) != 0;
+    }
+
+    /**
+     * @return the size of a particle record of a binary page, in bytes
+     */
+    public int recordSize() {
+        return (has(ID) ? 4 : 0) + 8 * Integer.bitCount(mask & ~ID);
+    }
+}
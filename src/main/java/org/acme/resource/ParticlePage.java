@@ -0,0 +1,144 @@
+package org.acme.resource;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.acme.model.SimulationSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+/**
+ * A range of the particles of a snapshot, streamed straight from its arrays as the response is written, so the
+ * memory used does not depend on the number of particles. The snapshot is released once written.
+ * <p>
+ * JSON pages are an array of particle objects holding the requested fields. Binary pages ({@value #BINARY_TYPE})
+ * are little-endian, starting with a {@value #HEADER_SIZE}-byte header:
+ * <pre>
+ *  0  u32  field mask, see {@link ParticleFields}
+ *  4  u32  particle count n of the page
+ *  8  u32  offset of the page
+ * 12  u32  total particle count
+ * 16  i64  tick
+ * </pre>
+ * followed by n records, one per particle: a u32 id if requested, then a f64 for each other requested field in the
+ * order x, y, vx, vy, mass.
+ */
+public class ParticlePage implements StreamingOutput {
+
+    public static final String BINARY_TYPE = "application/x-particles";
+
+    public static final int HEADER_SIZE = 24;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final JsonGeneratorFactory GENERATORS = Json.createGeneratorFactory(Map.of());
+
+    private final SimulationSnapshot snapshot;
+    private final int from;
+    private final int to;
+    private final ParticleFields fields;
+    private final boolean binary;
+
+    /**
+     * @param snapshot a retained snapshot, released by {@link #write(OutputStream)}
+     * @param from     the index of the first particle of the page
+     * @param to       the index after the last particle of the page
+     * @param fields   the fields to write
+     * @param binary   whether to write a binary page instead of JSON
+     */
+    public ParticlePage(SimulationSnapshot snapshot, int from, int to, ParticleFields fields, boolean binary) {
+        this.snapshot = snapshot;
+        this.from = from;
+        this.to = to;
+        this.fields = fields;
+        this.binary = binary;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        try {
+            if (binary) {
+                writeBinary(output);
+            } else {
+                writeJson(output);
+            }
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    private void writeJson(OutputStream output) {
+        int[] ids = snapshot.getIds();
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+        double[] vxs = snapshot.getVxs();
+        double[] vys = snapshot.getVys();
+        double[] masses = snapshot.getMasses();
+
+        JsonGenerator json = GENERATORS.createGenerator(output);
+        json.writeStartArray();
+        for (int i = from; i < to; i++) {
+            json.writeStartObject();
+            if (fields.has(ParticleFields.ID)) json.write("id", ids[i]);
+            if (fields.has(ParticleFields.X)) writeNumber(json, "x", xs[i]);
+            if (fields.has(ParticleFields.Y)) writeNumber(json, "y", ys[i]);
+            if (fields.has(ParticleFields.VX)) writeNumber(json, "vx", vxs[i]);
+            if (fields.has(ParticleFields.VY)) writeNumber(json, "vy", vys[i]);
+            if (fields.has(ParticleFields.MASS)) writeNumber(json, "mass", masses[i]);
+            json.writeEnd();
+        }
+        json.writeEnd();
+        json.flush();
+    }
+
+    private void writeBinary(OutputStream output) throws IOException {
+        int recordSize = fields.recordSize();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(CHUNK_SIZE, HEADER_SIZE + recordSize))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(fields.mask())
+                .putInt(to - from)
+                .putInt(from)
+                .putInt(snapshot.getSize())
+                .putLong(snapshot.getTick());
+
+        int[] ids = snapshot.getIds();
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+        double[] vxs = snapshot.getVxs();
+        double[] vys = snapshot.getVys();
+        double[] masses = snapshot.getMasses();
+        for (int i = from; i < to; i++) {
+            if (buffer.remaining() < recordSize) {
+                flush(buffer, output);
+            }
+            if (fields.has(ParticleFields.ID)) buffer.putInt(ids[i]);
+            if (fields.has(ParticleFields.X)) buffer.putDouble(xs[i]);
+            if (fields.has(ParticleFields.Y)) buffer.putDouble(ys[i]);
+            if (fields.has(ParticleFields.VX)) buffer.putDouble(vxs[i]);
+            if (fields.has(ParticleFields.VY)) buffer.putDouble(vys[i]);
+            if (fields.has(ParticleFields.MASS)) buffer.putDouble(masses[i]);
+        }
+        flush(buffer, output);
+        output.flush();
+    }
+
+    private static void flush(ByteBuffer buffer, OutputStream output) throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * Writes a number, or {@code null} for the non-finite values JSON cannot represent.
+     */
+    private static void writeNumber(JsonGenerator json, String name, double value) {
+        if (Double.isFinite(value)) {
+            json.write(name, value);
+        } else {
+            json.writeNull(name);
+        }
+    }
+}
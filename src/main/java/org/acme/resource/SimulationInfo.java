@@ -0,0 +1,27 @@
+package org.acme.resource;
+
+import org.acme.service.QualityLevel;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationService;
+
+/**
+ * Summary of a simulation instance.
+ *
+ * @param id          the instance id
+ * @param particles   the number of particles
+ * @param tick        the number of steps computed so far
+ * @param running     whether the simulation is playing
+ * @param ticking     whether the tick loop runs, i.e. whether WebSocket sessions subscribe to the instance
+ * @param subscribers the number of subscribed WebSocket sessions
+ * @param quality     the current quality level, lowered while ticks exceed their budget
+ */
+public record SimulationInfo(String id, int particles, long tick, boolean running, boolean ticking,
+                             int subscribers, QualityLevel quality) {
+
+    static SimulationInfo of(SimulationInstance instance) {
+        SimulationService service = instance.getService();
+        return new SimulationInfo(instance.getId(), service.getStore().getSize(), service.getTick(),
+                service.isRunning(), instance.getLoop().isRunning(), instance.getSubscribers(),
+                service.getBudget().getLevel());
+    }
+}
@@ -1,40 +1,117 @@
 package org.acme.resource;
 
 import org.acme.model.Particle;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationRegistry;
 import org.acme.service.SimulationService;
+import org.acme.service.checkpoint.CheckpointReport;
+import org.acme.service.checkpoint.CheckpointService;
+import org.acme.service.ingest.IngestFormat;
+import org.acme.service.ingest.IngestReport;
+import org.acme.service.ingest.ParticleIngestor;
+import org.acme.service.scene.SceneGenerator;
+import org.acme.service.scene.ScenePreset;
+import org.acme.websocket.ParticleStreams;
+import org.acme.websocket.SessionStats;
+import org.acme.websocket.recording.RecordingInfo;
+import org.acme.websocket.recording.RecordingService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * REST API for managing the simulation (Adding/Removing particles, Play/Pause, Start/Reset).
  * The actual simulation updates will be handled by WebSockets.
+ * <p>
+ * Every operation exists for the default simulation, e.g. {@code /simulation/add}, and for named simulation
+ * instances, e.g. {@code /simulation/{id}/add}, which are created on first use.
  */
 @Path("/simulation")
 @Produces(MediaType.TEXT_PLAIN)
 @Consumes(MediaType.APPLICATION_JSON)
 public class SimulationResource {
 
+    private static final MediaType BINARY_STATE_TYPE = MediaType.valueOf(ParticlePage.BINARY_TYPE);
+    private static final List<Variant> STATE_VARIANTS =
+            Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, BINARY_STATE_TYPE).build();
+
     @Inject
     SimulationService simulationService;
 
+    @Inject
+    SimulationRegistry registry;
+
+    @Inject
+    ParticleStreams streams;
+
+    @Inject
+    ParticleIngestor ingestor;
+
+    @Inject
+    CheckpointService checkpoints;
+
+    @Inject
+    RecordingService recordings;
+
     /**
      * Adds a new particle to the simulation.
      *
      * @param p the particle to add
-     * @return A success message
+     * @return A success message, or an error message if the simulation is full
      */
     @POST
     @Path("/add")
     public String addParticle(Particle p) {
-        simulationService.addParticle(p);
-        return "Particle added successfully";
+        return addParticle(simulationService, p);
+    }
+
+    @POST
+    @Path("/{id}/add")
+    public String addParticle(@PathParam("id") String id, Particle p) {
+        return addParticle(instance(id), p);
     }
 
     /**
-     * Removes a particle from the simulation by its index.
+     * Appends many particles at once. The body is a JSON array of particles ({@code application/json}), one JSON
+     * particle per line ({@code application/x-ndjson}) or packed binary records ({@code application/octet-stream}),
+     * parsed as it arrives and appended in batches between ticks.
+     *
+     * @param headers the request headers, giving the body format
+     * @param body    the particles
+     * @return the number of particles appended, the throughput of every batch and the error that stopped the ingest,
+     * if any
+     * @throws IOException if the body cannot be read
+     */
+    @POST
+    @Path("/ingest")
+    @Consumes({MediaType.APPLICATION_JSON, IngestFormat.NDJSON_TYPE, MediaType.APPLICATION_OCTET_STREAM})
+    @Produces(MediaType.APPLICATION_JSON)
+    public IngestReport ingestParticles(@Context HttpHeaders headers, InputStream body) throws IOException {
+        return ingestParticles(simulationService, headers, body);
+    }
+
+    @POST
+    @Path("/{id}/ingest")
+    @Consumes({MediaType.APPLICATION_JSON, IngestFormat.NDJSON_TYPE, MediaType.APPLICATION_OCTET_STREAM})
+    @Produces(MediaType.APPLICATION_JSON)
+    public IngestReport ingestParticles(@PathParam("id") String id, @Context HttpHeaders headers, InputStream body)
+            throws IOException {
+        return ingestParticles(instance(id), headers, body);
+    }
+
+    /**
+     * Removes a particle from the simulation by its index. The last particle takes its index; prefer removing by id.
      *
      * @param index the index of the particle to remove
      * @return A success message, or an error message if the index is invalid
@@ -42,39 +119,71 @@ public class SimulationResource {
     @DELETE
     @Path("/remove/{index}")
     public String removeParticle(@PathParam("index") int index) {
-        try {
-            simulationService.removeParticle(index);
-            return "Particle removed successfully";
-        } catch (IndexOutOfBoundsException e) {
-            return "Invalid particle index: " + index;
-        }
+        return removeParticle(simulationService, index);
+    }
+
+    @DELETE
+    @Path("/{id}/remove/{index}")
+    public String removeParticle(@PathParam("id") String id, @PathParam("index") int index) {
+        return removeParticle(instance(id), index);
+    }
+
+    /**
+     * Removes a particle from the simulation by its stable id.
+     *
+     * @param particleId the id of the particle to remove
+     * @return A success message, or an error message if no particle has this id
+     */
+    @DELETE
+    @Path("/particles/{particleId}")
+    public String removeParticleById(@PathParam("particleId") int particleId) {
+        return removeParticleById(simulationService, particleId);
+    }
+
+    @DELETE
+    @Path("/{id}/particles/{particleId}")
+    public String removeParticleById(@PathParam("id") String id, @PathParam("particleId") int particleId) {
+        return removeParticleById(instance(id), particleId);
     }
 
     /**
-     * Starts the simulation by adding a given number of randomly generated particles.
+     * Removes many particles at once by id. Unknown ids are ignored.
+     *
+     * @param particleIds a JSON array of particle ids
+     * @return the number of particles removed
+     */
+    @POST
+    @Path("/remove")
+    public String removeParticles(int[] particleIds) {
+        return removeParticles(simulationService, particleIds);
+    }
+
+    @POST
+    @Path("/{id}/remove")
+    public String removeParticles(@PathParam("id") String id, int[] particleIds) {
+        return removeParticles(instance(id), particleIds);
+    }
+
+    /**
+     * Starts the simulation by replacing its particles with a randomly generated scene, see {@link SceneGenerator}.
      *
      * @param numParticles Number of particles to add.
+     * @param preset       The layout of the scene, {@code square} by default, see {@link ScenePreset}
+     * @param seed         The seed of the scene, which a later start with the same seed reproduces; random if absent
      * @return A success message
      */
     @POST
     @Path("/start/{numParticles}")
-    public String startSimulation(@PathParam("numParticles") int numParticles) {
-        if (numParticles <= 0) {
-            return "Invalid number of particles: " + numParticles;
-        }
-
-        simulationService.resetSimulation();
-        for (int i = 0; i < numParticles; i++) {
-            double x = Math.random() * 100 - 50;
-            double y = Math.random() * 100 - 50;
-            double vx = Math.random() * 2 - 1;
-            double vy = Math.random() * 2 - 1;
-            double mass = Math.random() * 10 + 1;
-
-            simulationService.addParticle(new Particle(x, y, vx, vy, mass));
-        }
+    public String startSimulation(@PathParam("numParticles") int numParticles, @QueryParam("preset") String preset,
+                                  @QueryParam("seed") Long seed) {
+        return startSimulation(simulationService, numParticles, preset, seed);
+    }
 
-        return "Simulation started with " + numParticles + " particles.";
+    @POST
+    @Path("/{id}/start/{numParticles}")
+    public String startSimulation(@PathParam("id") String id, @PathParam("numParticles") int numParticles,
+                                  @QueryParam("preset") String preset, @QueryParam("seed") Long seed) {
+        return startSimulation(instance(id), numParticles, preset, seed);
     }
 
     /**
@@ -85,8 +194,13 @@ public class SimulationResource {
     @POST
     @Path("/toggle")
     public String togglePlayPause() {
-        simulationService.togglePlayPause();
-        return "Simulation is now: " + (simulationService.isRunning() ? "Running" : "Paused");
+        return togglePlayPause(simulationService);
+    }
+
+    @POST
+    @Path("/{id}/toggle")
+    public String togglePlayPause(@PathParam("id") String id) {
+        return togglePlayPause(instance(id));
     }
 
     /**
@@ -101,9 +215,369 @@ public class SimulationResource {
         return "Simulation reset successfully";
     }
 
+    @POST
+    @Path("/{id}/reset")
+    public String resetSimulation(@PathParam("id") String id) {
+        instance(id).resetSimulation();
+        return "Simulation reset successfully";
+    }
+
+    /**
+     * Streams the particles of the latest snapshot as JSON or, with {@code Accept: application/x-particles}, as a
+     * binary page (see {@link ParticlePage}). The response is written straight from the snapshot in chunks, so its
+     * memory use does not grow with the number of particles.
+     * <p>
+     * {@code offset} and {@code limit} select a page; the {@code X-Total-Count}, {@code X-Simulation-Tick} and, when
+     * more particles follow, {@code X-Next-Offset} headers drive the pagination. {@code fields} projects the
+     * particles, e.g. {@code fields=position} for positions only.
+     *
+     * @param offset  the index of the first particle to return
+     * @param limit   the most particles to return, all of them if absent
+     * @param fields  the comma-separated fields to return, all of them if absent
+     * @param request the request, to negotiate the content type
+     * @return the page of particles
+     */
     @GET
     @Path("/state")
-    public List<Particle> getSimulationState() {
-        return simulationService.getParticles();
+    @Produces({MediaType.APPLICATION_JSON, ParticlePage.BINARY_TYPE})
+    public Response getSimulationState(@QueryParam("offset") @DefaultValue("0") int offset,
+                                       @QueryParam("limit") Integer limit, @QueryParam("fields") String fields,
+                                       @Context Request request) {
+        return getSimulationState(simulationService, offset, limit, fields, request);
+    }
+
+    @GET
+    @Path("/{id}/state")
+    @Produces({MediaType.APPLICATION_JSON, ParticlePage.BINARY_TYPE})
+    public Response getSimulationState(@PathParam("id") String id,
+                                       @QueryParam("offset") @DefaultValue("0") int offset,
+                                       @QueryParam("limit") Integer limit, @QueryParam("fields") String fields,
+                                       @Context Request request) {
+        return getSimulationState(existing(id).getService(), offset, limit, fields, request);
+    }
+
+    /**
+     * Lists the flow control counters of the connected WebSocket sessions.
+     *
+     * @return one entry per session
+     */
+    @GET
+    @Path("/sessions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<SessionStats> getSessionStats() {
+        return streams.sessionStats(SimulationRegistry.DEFAULT_ID);
+    }
+
+    @GET
+    @Path("/{id}/sessions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<SessionStats> getSessionStats(@PathParam("id") String id) {
+        return streams.sessionStats(existing(id).getId());
+    }
+
+    /**
+     * Lists the simulation instances.
+     *
+     * @return one entry per instance
+     */
+    @GET
+    @Path("/instances")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<SimulationInfo> getInstances() {
+        return registry.list().stream().map(SimulationInfo::of).toList();
+    }
+
+    /**
+     * Writes a checkpoint of the simulation, see {@link CheckpointService}.
+     *
+     * @return the particles written and the time taken
+     * @throws NotFoundException if the simulation does not exist, or was removed meanwhile
+     * @throws IOException       if the checkpoint cannot be written
+     */
+    @POST
+    @Path("/checkpoint")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CheckpointReport checkpoint() throws IOException {
+        return checkpoint(existing(SimulationRegistry.DEFAULT_ID));
+    }
+
+    @POST
+    @Path("/{id}/checkpoint")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CheckpointReport checkpoint(@PathParam("id") String id) throws IOException {
+        return checkpoint(existing(id));
+    }
+
+    /**
+     * Replaces the particles of the simulation with those of its last checkpoint, creating the simulation if it has a
+     * checkpoint but does not exist, e.g. one left in the directory while {@code restore-on-start} is off. A simulation
+     * being recorded is not restored, as its ticks would go backwards in the recording.
+     *
+     * @return the particles restored and the time taken
+     * @throws NotFoundException       if the simulation has no checkpoint
+     * @throws WebApplicationException 409 if the simulation is being recorded or the checkpoint holds too many
+     *                                 particles
+     * @throws IOException             if the checkpoint cannot be read or is corrupt
+     */
+    @POST
+    @Path("/restore")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CheckpointReport restore() throws IOException {
+        return restore(lookup(SimulationRegistry.DEFAULT_ID));
+    }
+
+    @POST
+    @Path("/{id}/restore")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CheckpointReport restore(@PathParam("id") String id) throws IOException {
+        return restore(checkpoints.exists(id) ? lookup(id) : existing(id));
+    }
+
+    /**
+     * Starts recording every tick of the simulation, see {@link RecordingService}. The simulation keeps ticking while
+     * it is recorded, and the recording can be replayed over {@code /ws/particles/replay/{name}}.
+     *
+     * @param name the name of the recording, by default the simulation id followed by the current time
+     * @return the new recording
+     * @throws IOException if the recording cannot be created
+     */
+    @POST
+    @Path("/recording/start")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RecordingInfo startRecording(@QueryParam("name") String name) throws IOException {
+        return startRecording(SimulationRegistry.DEFAULT_ID, name);
+    }
+
+    @POST
+    @Path("/{id}/recording/start")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RecordingInfo startRecording(@PathParam("id") String id, @QueryParam("name") String name)
+            throws IOException {
+        SimulationInstance instance = lookup(id);
+        try {
+            return recordings.start(instance.getId(),
+                    name != null ? name : instance.getId() + "-" + System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.CONFLICT);
+        }
+    }
+
+    /**
+     * Stops recording the simulation.
+     *
+     * @return the finished recording
+     * @throws NotFoundException if the simulation is not recorded
+     * @throws IOException       if the recording cannot be read back
+     */
+    @POST
+    @Path("/recording/stop")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RecordingInfo stopRecording() throws IOException {
+        return stopRecording(SimulationRegistry.DEFAULT_ID);
+    }
+
+    @POST
+    @Path("/{id}/recording/stop")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RecordingInfo stopRecording(@PathParam("id") String id) throws IOException {
+        return recordings.stop(id)
+                .orElseThrow(() -> new NotFoundException("Simulation " + id + " is not recording"));
+    }
+
+    /**
+     * Lists the recordings.
+     *
+     * @return one entry per recording
+     * @throws IOException if the recordings cannot be listed
+     */
+    @GET
+    @Path("/recordings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<RecordingInfo> getRecordings() throws IOException {
+        return recordings.list();
+    }
+
+    /**
+     * Describes a simulation instance.
+     *
+     * @param id the instance id
+     * @return the instance
+     * @throws NotFoundException if the instance does not exist
+     */
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SimulationInfo getInstance(@PathParam("id") String id) {
+        return SimulationInfo.of(existing(id));
+    }
+
+    /**
+     * Removes a simulation instance without WebSocket sessions.
+     *
+     * @param id the instance id
+     * @return A success message, or an error message if the instance cannot be removed
+     */
+    @DELETE
+    @Path("/{id}")
+    public String removeInstance(@PathParam("id") String id) {
+        try {
+            return registry.remove(id)
+                    ? "Simulation " + id + " removed successfully"
+                    : "Simulation " + id + " does not exist or has sessions";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private SimulationService instance(String id) {
+        return lookup(id).getService();
+    }
+
+    /**
+     * @return the instance, created if needed
+     * @throws BadRequestException     if the id is invalid
+     * @throws WebApplicationException if the instance limit is reached
+     */
+    private SimulationInstance lookup(String id) {
+        try {
+            return registry.get(id);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Gets an instance for a request that must not create it. The default instance always exists.
+     *
+     * @return the instance
+     * @throws NotFoundException if the instance does not exist
+     */
+    private SimulationInstance existing(String id) {
+        if (SimulationRegistry.DEFAULT_ID.equals(id)) {
+            return lookup(id);
+        }
+        return registry.use(id)
+                .orElseThrow(() -> new NotFoundException("Simulation " + id + " does not exist"));
+    }
+
+    private CheckpointReport checkpoint(SimulationInstance instance) throws IOException {
+        try {
+            return checkpoints.checkpoint(instance);
+        } catch (IllegalStateException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    private CheckpointReport restore(SimulationInstance instance) throws IOException {
+        try {
+            return checkpoints.restore(instance)
+                    .orElseThrow(() -> new NotFoundException("No checkpoint for simulation " + instance.getId()));
+        } catch (IllegalStateException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.CONFLICT);
+        }
+    }
+
+    private static Response getSimulationState(SimulationService service, int offset, Integer limit, String fields,
+                                               Request request) {
+        if (offset < 0 || (limit != null && limit < 0)) {
+            throw new BadRequestException("Invalid page: offset " + offset + ", limit " + limit);
+        }
+        ParticleFields projection;
+        try {
+            projection = ParticleFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        Variant variant = request.selectVariant(STATE_VARIANTS);
+        if (variant == null) {
+            throw new NotAcceptableException();
+        }
+        boolean binary = variant.getMediaType().isCompatible(BINARY_STATE_TYPE);
+
+        SimulationSnapshot snapshot = service.acquireSnapshot();
+        int total = snapshot.getSize();
+        int from = Math.min(offset, total);
+        int to = limit == null ? total : (int) Math.min(total, (long) from + limit);
+        Response.ResponseBuilder response = Response
+                .ok(new ParticlePage(snapshot, from, to, projection, binary), variant.getMediaType())
+                .header("X-Total-Count", total)
+                .header("X-Simulation-Tick", snapshot.getTick());
+        if (to < total) {
+            response.header("X-Next-Offset", to);
+        }
+        return response.build();
+    }
+
+    private static String addParticle(SimulationService service, Particle p) {
+        try {
+            service.addParticle(p);
+            return "Particle added successfully";
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+    }
+
+    private IngestReport ingestParticles(SimulationService service, HttpHeaders headers, InputStream body)
+            throws IOException {
+        MediaType type = headers.getMediaType();
+        IngestFormat format;
+        try {
+            format = IngestFormat.fromMediaType(type == null ? null : type.getType() + "/" + type.getSubtype());
+        } catch (IllegalArgumentException e) {
+            throw new NotSupportedException(e.getMessage());
+        }
+        return ingestor.ingest(format.open(body), service);
+    }
+
+    private static String removeParticle(SimulationService service, int index) {
+        try {
+            service.removeParticle(index);
+            return "Particle removed successfully";
+        } catch (IndexOutOfBoundsException e) {
+            return "Invalid particle index: " + index;
+        }
+    }
+
+    private static String removeParticleById(SimulationService service, int particleId) {
+        return service.removeParticleById(particleId)
+                ? "Particle removed successfully"
+                : "Unknown particle id: " + particleId;
+    }
+
+    private static String removeParticles(SimulationService service, int[] particleIds) {
+        if (particleIds == null) {
+            return "Invalid particle ids";
+        }
+        int removed = service.removeParticles(particleIds);
+        return "Removed " + removed + " of " + particleIds.length + " particles";
+    }
+
+    private static String startSimulation(SimulationService service, int numParticles, String preset, Long seed) {
+        if (numParticles <= 0) {
+            return "Invalid number of particles: " + numParticles;
+        }
+        if (numParticles > service.getMaxParticles()) {
+            return "Too many particles: " + numParticles + ", the limit is " + service.getMaxParticles();
+        }
+        ScenePreset scene;
+        try {
+            scene = preset == null ? ScenePreset.SQUARE : ScenePreset.fromName(preset);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
+        service.replaceParticles(SceneGenerator.generate(scene, numParticles,
+                seed != null ? seed : ThreadLocalRandom.current().nextLong(), service.getParallelExecutor()));
+
+        return "Simulation started with " + numParticles + " particles.";
+    }
+
+    private static String togglePlayPause(SimulationService service) {
+        service.togglePlayPause();
+        return "Simulation is now: " + (service.isRunning() ? "Running" : "Paused");
     }
-}
\ No newline at end of file
+}
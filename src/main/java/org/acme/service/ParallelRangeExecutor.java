@@ -0,0 +1,140 @@
+package org.acme.service;
+
+import lombok.Getter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a per-particle kernel over an index range, split into partitions executed on a ForkJoin pool.
+ * <p>
+ * Kernels must only write to the particles of the range they are given, so the parallel result
+ * is identical to running the whole range sequentially.
+ */
+public class ParallelRangeExecutor {
+
+    /**
+     * A kernel applied to the particles of a half-open index range.
+     */
+    @FunctionalInterface
+    public interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    @Getter
+    private final int partitionSize;
+    @Getter
+    private final int sequentialThreshold;
+
+    /**
+     * @param pool                the pool running the partitions, or {@code null} to always run sequentially
+     * @param partitionSize       the largest number of particles handled by a single task
+     * @param sequentialThreshold ranges up to this size run on the calling thread
+     */
+    public ParallelRangeExecutor(ForkJoinPool pool, int partitionSize, int sequentialThreshold) {
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Invalid partition size: " + partitionSize);
+        }
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Creates an executor that always runs on the calling thread.
+     *
+     * @return a sequential executor
+     */
+    public static ParallelRangeExecutor sequential() {
+        return new ParallelRangeExecutor(null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an executor from the {@code simulation.parallel.*} settings.
+     *
+     * @param config the parallel settings
+     * @return the executor
+     */
+    public static ParallelRangeExecutor fromConfig(SimulationConfig.Parallel config) {
+        if (!config.enabled()) {
+            return sequential();
+        }
+        ForkJoinPool pool = config.parallelism() > 0
+                ? new ForkJoinPool(config.parallelism())
+                : ForkJoinPool.commonPool();
+        return new ParallelRangeExecutor(pool, config.partitionSize(), config.sequentialThreshold());
+    }
+
+    /**
+     * @return whether ranges can be split across threads at all
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Applies the action to every index in {@code [0, count)}, in parallel when the range is large enough.
+     * Returns once the whole range has been processed.
+     *
+     * @param count  the number of particles
+     * @param action the kernel to apply
+     */
+    public void forEachRange(int count, RangeAction action) {
+        if (pool == null || count <= sequentialThreshold || count <= partitionSize) {
+            action.run(0, count);
+            return;
+        }
+        pool.invoke(new RangeTask(action, 0, count, partitionSize));
+    }
+
+    /**
+     * Runs {@code count} independent tasks, in parallel whenever the executor is parallel. Unlike
+     * {@link #forEachRange}, every index is a task large enough to be worth a thread of its own, e.g. one partition
+     * of the particles, so the particle thresholds do not apply. Returns once every task has run.
+     *
+     * @param count  the number of tasks
+     * @param action the tasks to run, given a range of task indices
+     */
+    public void forEachTask(int count, RangeAction action) {
+        if (pool == null || count <= 1) {
+            action.run(0, count);
+            return;
+        }
+        pool.invoke(new RangeTask(action, 0, count, 1));
+    }
+
+    /**
+     * Shuts down the pool if it was created for this executor.
+     */
+    public void shutdown() {
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+
+        RangeTask(RangeAction action, int from, int to, int partitionSize) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= partitionSize) {
+                action.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, middle, partitionSize),
+                    new RangeTask(action, middle, to, partitionSize));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.acme.service;
+
+import lombok.Getter;
+
+/**
+ * How much work a simulation does per tick and per broadcast, from full quality down, chosen by its
+ * {@link TickBudgetController}.
+ */
+@Getter
+public enum QualityLevel {
+    /**
+     * Collisions every tick and every broadcast.
+     */
+    FULL(1, 1, false),
+    /**
+     * Collisions every second tick and every second broadcast.
+     */
+    REDUCED(2, 2, false),
+    /**
+     * Collisions every fourth tick, every third broadcast, and density frames rather than particles for the sessions
+     * in automatic level of detail.
+     */
+    LOW(4, 3, true),
+    /**
+     * Collisions every eighth tick, every fourth broadcast, and density frames for the sessions in automatic level of
+     * detail.
+     */
+    MINIMAL(8, 4, true);
+
+    /**
+     * Collisions are detected once every this many ticks.
+     */
+    private final int collisionInterval;
+
+    /**
+     * Only one scheduled broadcast in this many runs.
+     */
+    private final int broadcastInterval;
+
+    /**
+     * Whether sessions in automatic level of detail get density frames whatever they see.
+     */
+    private final boolean densityFrames;
+
+    QualityLevel(int collisionInterval, int broadcastInterval, boolean densityFrames) {
+        this.collisionInterval = collisionInterval;
+        this.broadcastInterval = broadcastInterval;
+        this.densityFrames = densityFrames;
+    }
+
+    /**
+     * @return the next lower level, or this one if it is the lowest
+     */
+    public QualityLevel lower() {
+        return this == MINIMAL ? this : values()[ordinal() + 1];
+    }
+
+    /**
+     * @return the next higher level, or this one if it is the highest
+     */
+    public QualityLevel higher() {
+        return this == FULL ? this : values()[ordinal() - 1];
+    }
+}
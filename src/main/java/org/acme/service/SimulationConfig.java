@@ -0,0 +1,360 @@
+package org.acme.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import org.acme.service.collision.BroadphaseType;
+import org.acme.service.physics.GravityMode;
+import org.acme.service.physics.KernelType;
+
+/**
+ * Simulation settings read from the {@code simulation.*} properties.
+ */
+@ConfigMapping(prefix = "simulation")
+public interface SimulationConfig {
+
+    /**
+     * @return the kernel running the per-particle phase
+     */
+    @WithDefault("auto")
+    KernelType kernel();
+
+    /**
+     * @return the collision detection settings
+     */
+    Collision collision();
+
+    /**
+     * @return the multi-core stepping settings
+     */
+    Parallel parallel();
+
+    /**
+     * @return the simulation loop settings
+     */
+    Loop loop();
+
+    /**
+     * @return the WebSocket stream settings
+     */
+    Stream stream();
+
+    /**
+     * @return the level of detail settings
+     */
+    Lod lod();
+
+    /**
+     * @return the simulation instance settings
+     */
+    Instances instances();
+
+    /**
+     * @return the bulk ingest settings
+     */
+    Ingest ingest();
+
+    /**
+     * @return the checkpoint settings
+     */
+    Checkpoint checkpoint();
+
+    /**
+     * @return the frame recording and replay settings
+     */
+    Recording recording();
+
+    /**
+     * @return the gravity settings
+     */
+    Gravity gravity();
+
+    /**
+     * @return the startup training settings
+     */
+    Startup startup();
+
+    /**
+     * @return the tick budget settings
+     */
+    Budget budget();
+
+    interface Collision {
+
+        /**
+         * @return the broadphase used to find colliding pairs
+         */
+        @WithDefault("grid")
+        BroadphaseType broadphase();
+    }
+
+    interface Parallel {
+
+        /**
+         * @return whether the per-particle phase may be split across a ForkJoin pool
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * @return the number of worker threads, or 0 to share the common ForkJoin pool
+         */
+        @WithDefault("0")
+        int parallelism();
+
+        /**
+         * @return the largest number of particles stepped by a single task
+         */
+        @WithDefault("8192")
+        int partitionSize();
+
+        /**
+         * @return particle counts up to this value are always stepped sequentially
+         */
+        @WithDefault("20000")
+        int sequentialThreshold();
+    }
+
+    interface Loop {
+
+        /**
+         * @return the period between two ticks, in milliseconds
+         */
+        @WithDefault("16")
+        long tickPeriodMs();
+
+        /**
+         * @return the most ticks run back to back to catch up; further missed ticks are dropped
+         */
+        @WithDefault("4")
+        int maxCatchUpTicks();
+    }
+
+    interface Stream {
+
+        /**
+         * @return the period between two broadcasts of the latest snapshot, in milliseconds
+         */
+        @WithDefault("16")
+        long broadcastPeriodMs();
+
+        /**
+         * @return the maximum number of frames between two keyframes of a delta stream
+         */
+        @WithDefault("60")
+        int keyframeInterval();
+
+        /**
+         * @return the position quantization step of delta streams, in world units
+         */
+        @WithDefault("0.00390625")
+        double deltaQuantum();
+
+        /**
+         * @return the movement, in quanta, under which a particle is left out of a delta frame
+         */
+        @WithDefault("1")
+        int deltaThreshold();
+
+        /**
+         * @return the longest pause between two frames sent to a slow session, in milliseconds
+         */
+        @WithDefault("1000")
+        long maxFrameIntervalMs();
+    }
+
+    interface Lod {
+
+        /**
+         * @return whether the ticks aggregate the particles into a density grid, while a session may receive density
+         * frames
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * @return the number of cells per side of the density grid
+         */
+        @WithDefault("64")
+        int gridSize();
+
+        /**
+         * @return the visible particle count above which sessions in automatic mode receive density frames
+         */
+        @WithDefault("50000")
+        int maxParticles();
+
+        /**
+         * @return the estimated send time of a particle frame above which sessions in automatic mode receive
+         * density frames, in milliseconds
+         */
+        @WithDefault("100")
+        long maxFrameTimeMs();
+    }
+
+    interface Instances {
+
+        /**
+         * @return the most simulation instances, the default one included
+         */
+        @WithDefault("16")
+        int maxInstances();
+
+        /**
+         * @return the most particles of a simulation instance
+         */
+        @WithDefault("1000000")
+        int maxParticles();
+
+        /**
+         * @return the most WebSocket sessions subscribed to a simulation instance
+         */
+        @WithDefault("100")
+        int maxSessions();
+
+        /**
+         * @return the time after which an instance without sessions nor requests is evicted, in milliseconds
+         */
+        @WithDefault("600000")
+        long idleTimeoutMs();
+
+        /**
+         * @return the threads ticking and broadcasting every instance, or 0 for one per available processor
+         */
+        @WithDefault("0")
+        int workerThreads();
+    }
+
+    interface Ingest {
+
+        /**
+         * @return the most particles appended to a simulation in one step by a bulk ingest
+         */
+        @WithDefault("16384")
+        int batchSize();
+    }
+
+    interface Checkpoint {
+
+        /**
+         * @return the directory of the checkpoint files, one per simulation instance
+         */
+        @WithDefault("checkpoints")
+        String directory();
+
+        /**
+         * @return the period of the automatic checkpoints of every instance, in milliseconds, or 0 to only write
+         * checkpoints on demand
+         */
+        @WithDefault("60000")
+        long intervalMs();
+
+        /**
+         * @return whether to restore the checkpoints of the directory at startup
+         */
+        @WithDefault("true")
+        boolean restoreOnStart();
+    }
+
+    interface Recording {
+
+        /**
+         * @return the directory of the recordings, one subdirectory per recording
+         */
+        @WithDefault("recordings")
+        String directory();
+
+        /**
+         * @return the size after which a recording starts a new segment file, in bytes
+         */
+        @WithDefault("268435456")
+        long segmentSize();
+
+        /**
+         * @return whether recorded frames carry int16 positions instead of float32 ones, halving their size
+         */
+        @WithDefault("false")
+        boolean int16();
+
+        /**
+         * @return the most WebSocket sessions replaying recordings at once
+         */
+        @WithDefault("1000")
+        int maxReplaySessions();
+    }
+
+    interface Gravity {
+
+        /**
+         * @return the gravity model: the central black hole alone, or with the mutual gravity of the particles
+         */
+        @WithDefault("central")
+        GravityMode mode();
+
+        /**
+         * @return the Barnes-Hut opening angle: lower is more accurate and slower, 0 computes every pair exactly
+         */
+        @WithDefault("0.5")
+        double theta();
+
+        /**
+         * @return the gravitational constant of the mutual gravity
+         */
+        @WithDefault("0.007")
+        double constant();
+
+        /**
+         * @return the softening length of the mutual gravity, keeping the force between close particles finite
+         */
+        @WithDefault("1")
+        double softening();
+    }
+
+    interface Startup {
+
+        /**
+         * @return the ticks of the training pass run before the application starts serving, or 0 to skip it
+         */
+        @WithDefault("0")
+        int trainingTicks();
+
+        /**
+         * @return the particles of the simulation ticked by the training pass
+         */
+        @WithDefault("5000")
+        int trainingParticles();
+
+        /**
+         * @return whether the application exits once trained, to record an AppCDS archive of the classes it loaded
+         */
+        @WithDefault("false")
+        boolean exitAfterTraining();
+    }
+
+    interface Budget {
+
+        /**
+         * @return whether simulations lower their quality when their ticks exceed the budget
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * @return the time a tick period may cost, ticks and broadcasts included, in milliseconds; keep it under
+         * {@code simulation.loop.tick-period-ms}, since the workers also run the other instances
+         */
+        @WithDefault("12")
+        long tickBudgetMs();
+
+        /**
+         * @return the fraction of the budget the cost of a higher quality level must fit in to restore it
+         */
+        @WithDefault("0.5")
+        double restoreRatio();
+
+        /**
+         * @return the fewest ticks at a quality level before restoring a higher one
+         */
+        @WithDefault("120")
+        int restoreAfterTicks();
+    }
+}
@@ -0,0 +1,68 @@
+package org.acme.service;
+
+import lombok.Getter;
+
+/**
+ * A named simulation managed by the {@link SimulationRegistry}: its own particles, tick loop and subscribers.
+ * <p>
+ * The loop only ticks while at least one WebSocket session subscribes to the instance.
+ */
+public class SimulationInstance {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final SimulationService service;
+    @Getter
+    private final SimulationLoop loop;
+    private int subscribers;
+
+    /**
+     * Last time the instance was used, as a {@link System#nanoTime()}.
+     */
+    @Getter
+    private volatile long lastUsed;
+
+    SimulationInstance(String id, SimulationService service, SimulationLoop loop) {
+        this.id = id;
+        this.service = service;
+        this.loop = loop;
+        this.lastUsed = System.nanoTime();
+    }
+
+    /**
+     * Records a use of the instance, postponing its eviction.
+     */
+    public void touch() {
+        lastUsed = System.nanoTime();
+    }
+
+    /**
+     * @return the number of subscribed WebSocket sessions
+     */
+    public synchronized int getSubscribers() {
+        return subscribers;
+    }
+
+    synchronized void subscribe() {
+        touch();
+        if (subscribers++ == 0) {
+            loop.start();
+        }
+    }
+
+    synchronized void unsubscribe() {
+        touch();
+        if (subscribers > 0 && --subscribers == 0) {
+            loop.stop();
+        }
+    }
+
+    /**
+     * @return whether the instance has no subscriber and was last used more than {@code timeoutNanos} before
+     * {@code now}
+     */
+    synchronized boolean isIdle(long now, long timeoutNanos) {
+        return subscribers == 0 && now - lastUsed > timeoutNanos;
+    }
+}
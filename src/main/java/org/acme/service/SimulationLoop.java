@@ -0,0 +1,112 @@
+package org.acme.service;
+
+import lombok.Getter;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steps a {@link SimulationService} at a fixed timestep on a shared scheduler, so many simulations can tick on
+ * a bounded pool of threads.
+ * <p>
+ * Ticks are scheduled against absolute deadlines, so the time spent in a tick does not accumulate as drift.
+ * A loop running late catches up by ticking back to back, but never more than {@code maxCatchUpTicks} ticks:
+ * beyond that the missed ticks are dropped and the schedule restarts from now, instead of falling further behind.
+ * Each tick is a separate task, so a loop catching up still lets the other simulations of the pool tick.
+ */
+public class SimulationLoop {
+
+    private static final Logger LOG = Logger.getLogger(SimulationLoop.class);
+
+    private final SimulationService simulationService;
+    private final ScheduledExecutorService scheduler;
+    private final long periodNanos;
+    private final int maxCatchUpTicks;
+
+    private boolean running;
+    private long generation;
+    private long deadline;
+    private ScheduledFuture<?> next;
+
+    /**
+     * Number of ticks dropped because the loop fell too far behind.
+     */
+    @Getter
+    private volatile long missedTicks;
+
+    /**
+     * @param simulationService the simulation to step
+     * @param scheduler         the scheduler running the ticks
+     * @param periodMillis      the tick period, in milliseconds
+     * @param maxCatchUpTicks   the most ticks run back to back to catch up after a slow tick
+     */
+    public SimulationLoop(SimulationService simulationService, ScheduledExecutorService scheduler, long periodMillis,
+                          int maxCatchUpTicks) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Invalid tick period: " + periodMillis);
+        }
+        this.simulationService = simulationService;
+        this.scheduler = scheduler;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.maxCatchUpTicks = Math.max(1, maxCatchUpTicks);
+    }
+
+    /**
+     * Starts ticking, if not already started.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        long current = ++generation;
+        deadline = System.nanoTime();
+        next = scheduler.schedule(() -> tick(current), 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops ticking after the current tick.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+
+    /**
+     * @return whether the loop is ticking
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    private void tick(long tickGeneration) {
+        try {
+            simulationService.updateSimulation();
+        } catch (RuntimeException e) {
+            simulationService.getMetrics().getTickErrors().increment();
+            LOG.error("Error during simulation tick", e);
+        }
+
+        synchronized (this) {
+            // A tick of a stopped, or stopped and restarted, loop must not schedule another one.
+            if (!running || generation != tickGeneration) return;
+            deadline += periodNanos;
+            long now = System.nanoTime();
+            long lag = now - deadline;
+            SimulationMetrics metrics = simulationService.getMetrics();
+            if (lag > 0) {
+                metrics.getMissedDeadlines().increment();
+            }
+            if (lag > periodNanos * maxCatchUpTicks) {
+                long dropped = lag / periodNanos;
+                missedTicks += dropped;
+                metrics.getDroppedTicks().increment(dropped);
+                deadline = now;
+            }
+            next = scheduler.schedule(() -> tick(tickGeneration), Math.max(0, deadline - now), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package org.acme.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Micrometer meters of one simulation instance, all tagged with {@code simulation=<id>} and scraped from the
+ * Prometheus endpoint.
+ * <p>
+ * Timers publish percentile histograms, so latencies can be aggregated across instances and nodes:
+ * <ul>
+ *     <li>{@code simulation.tick} and {@code simulation.tick.phase}
+ *     ({@code phase=gravity|step|collisions|snapshot|listener}), {@code gravity} being the Barnes-Hut pass, only
+ *     recorded when enabled, and {@code listener} the time spent handing the snapshot to the {@link TickListener},
+ *     e.g. a recording</li>
+ *     <li>{@code simulation.broadcast} and {@code simulation.broadcast.phase}
+ *     ({@code phase=snapshot|cull|encode|send}), {@code send} being the time spent handing frames to the
+ *     WebSocket container</li>
+ *     <li>{@code simulation.frame.send}: from the start of a send to its completion</li>
+ * </ul>
+ * Counters: {@code simulation.deadlines.missed}, {@code simulation.ticks.dropped}, {@code simulation.frames}
+ * ({@code outcome=sent|coalesced|dropped}), {@code simulation.frame.bytes}, {@code simulation.recording.dropped} and
+ * {@code simulation.errors} ({@code source=tick|broadcast|send}). Gauges: {@code simulation.particles},
+ * {@code simulation.sessions} and {@code simulation.quality}, the ordinal of the {@link QualityLevel}, 0 being full
+ * quality.
+ */
+public class SimulationMetrics {
+
+    /**
+     * Meters registered nowhere, for simulations created outside of the application, e.g. in tests.
+     */
+    public static final SimulationMetrics NOOP = new SimulationMetrics(new CompositeMeterRegistry(), "none");
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final List<Meter> meters = new ArrayList<>();
+
+    @Getter
+    private final Timer tick;
+    private final Timer gravityPhase;
+    private final Timer stepPhase;
+    private final Timer collisionPhase;
+    private final Timer tickSnapshotPhase;
+    private final Timer listenerPhase;
+
+    @Getter
+    private final Timer broadcast;
+    private final Timer broadcastSnapshotPhase;
+    private final Timer cullPhase;
+    private final Timer encodePhase;
+    private final Timer sendPhase;
+    @Getter
+    private final Timer frameSend;
+
+    @Getter
+    private final Counter missedDeadlines;
+    @Getter
+    private final Counter droppedTicks;
+    @Getter
+    private final Counter sentFrames;
+    @Getter
+    private final Counter sentBytes;
+    @Getter
+    private final Counter coalescedFrames;
+    @Getter
+    private final Counter droppedFrames;
+    @Getter
+    private final Counter droppedRecordingFrames;
+    @Getter
+    private final Counter tickErrors;
+    @Getter
+    private final Counter broadcastErrors;
+    @Getter
+    private final Counter sendErrors;
+
+    /**
+     * Registers the meters of a simulation.
+     *
+     * @param registry   the registry to register the meters in
+     * @param simulation the simulation instance id
+     */
+    public SimulationMetrics(MeterRegistry registry, String simulation) {
+        this.registry = registry;
+        this.tags = Tags.of("simulation", simulation);
+
+        tick = timer("simulation.tick", "Duration of a simulation tick", tags);
+        gravityPhase = timer("simulation.tick.phase", "Duration of a phase of a tick",
+                tags.and("phase", "gravity"));
+        stepPhase = timer("simulation.tick.phase", "Duration of a phase of a tick", tags.and("phase", "step"));
+        collisionPhase = timer("simulation.tick.phase", "Duration of a phase of a tick",
+                tags.and("phase", "collisions"));
+        tickSnapshotPhase = timer("simulation.tick.phase", "Duration of a phase of a tick",
+                tags.and("phase", "snapshot"));
+        listenerPhase = timer("simulation.tick.phase", "Duration of a phase of a tick",
+                tags.and("phase", "listener"));
+
+        broadcast = timer("simulation.broadcast", "Duration of a broadcast to every session", tags);
+        broadcastSnapshotPhase = timer("simulation.broadcast.phase", "Duration of a phase of a broadcast",
+                tags.and("phase", "snapshot"));
+        cullPhase = timer("simulation.broadcast.phase", "Duration of a phase of a broadcast",
+                tags.and("phase", "cull"));
+        encodePhase = timer("simulation.broadcast.phase", "Duration of a phase of a broadcast",
+                tags.and("phase", "encode"));
+        sendPhase = timer("simulation.broadcast.phase", "Duration of a phase of a broadcast",
+                tags.and("phase", "send"));
+        frameSend = timer("simulation.frame.send", "Time for a frame to reach a session", tags);
+
+        missedDeadlines = counter("simulation.deadlines.missed", "Ticks that ended after the deadline of the next one",
+                tags);
+        droppedTicks = counter("simulation.ticks.dropped", "Ticks skipped because the loop fell too far behind", tags);
+        sentFrames = counter("simulation.frames", "Frames offered to sessions", tags.and("outcome", "sent"));
+        coalescedFrames = counter("simulation.frames", "Frames offered to sessions",
+                tags.and("outcome", "coalesced"));
+        droppedFrames = counter("simulation.frames", "Frames offered to sessions", tags.and("outcome", "dropped"));
+        sentBytes = counter("simulation.frame.bytes", "Bytes of the frames sent to sessions", tags);
+        droppedRecordingFrames = counter("simulation.recording.dropped",
+                "Ticks left out of a recording because the disk fell behind", tags);
+        tickErrors = counter("simulation.errors", "Failures", tags.and("source", "tick"));
+        broadcastErrors = counter("simulation.errors", "Failures", tags.and("source", "broadcast"));
+        sendErrors = counter("simulation.errors", "Failures", tags.and("source", "send"));
+    }
+
+    /**
+     * Registers the particle, session and quality gauges of an instance.
+     *
+     * @param instance the instance
+     */
+    void bind(SimulationInstance instance) {
+        meters.add(Gauge.builder("simulation.particles", instance.getService(), s -> s.getStore().getSize())
+                .description("Particles of the simulation")
+                .tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("simulation.sessions", instance, SimulationInstance::getSubscribers)
+                .description("WebSocket sessions streaming the simulation")
+                .tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("simulation.quality", instance.getService(),
+                        s -> s.getBudget().getLevel().ordinal())
+                .description("Quality level of the simulation, 0 being full quality")
+                .tags(tags)
+                .register(registry));
+    }
+
+    /**
+     * Removes the meters from the registry, once the instance is removed.
+     */
+    void close() {
+        meters.forEach(registry::remove);
+        meters.clear();
+    }
+
+    /**
+     * Records the phases of a tick that stepped the simulation or published a snapshot; the loop iterations of a paused
+     * simulation with nothing to publish are not ticks.
+     *
+     * @param gravityNanos   the time spent applying the mutual gravity, 0 if disabled or the simulation is paused
+     * @param stepNanos      the time spent in the step kernel, 0 if the simulation is paused
+     * @param collisionNanos the time spent detecting and resolving collisions, 0 if the simulation is paused
+     * @param snapshotNanos  the time spent publishing the snapshot, 0 if none was published
+     * @param listenerNanos  the time spent in the tick listener, 0 without a listener
+     */
+    void recordTick(long gravityNanos, long stepNanos, long collisionNanos, long snapshotNanos, long listenerNanos) {
+        if (gravityNanos > 0) {
+            gravityPhase.record(gravityNanos, TimeUnit.NANOSECONDS);
+        }
+        if (stepNanos > 0 || collisionNanos > 0) {
+            stepPhase.record(stepNanos, TimeUnit.NANOSECONDS);
+            collisionPhase.record(collisionNanos, TimeUnit.NANOSECONDS);
+        }
+        if (snapshotNanos > 0) {
+            tickSnapshotPhase.record(snapshotNanos, TimeUnit.NANOSECONDS);
+        }
+        if (listenerNanos > 0) {
+            listenerPhase.record(listenerNanos, TimeUnit.NANOSECONDS);
+        }
+        tick.record(gravityNanos + stepNanos + collisionNanos + snapshotNanos + listenerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the phases of a broadcast.
+     *
+     * @param snapshotNanos the time spent acquiring the snapshot
+     * @param cullNanos     the time spent culling the snapshot to the viewports of the sessions
+     * @param encodeNanos   the time spent encoding frames
+     * @param sendNanos     the time spent handing frames to the WebSocket container
+     * @param totalNanos    the duration of the whole broadcast
+     */
+    public void recordBroadcast(long snapshotNanos, long cullNanos, long encodeNanos, long sendNanos,
+                                long totalNanos) {
+        broadcastSnapshotPhase.record(snapshotNanos, TimeUnit.NANOSECONDS);
+        cullPhase.record(cullNanos, TimeUnit.NANOSECONDS);
+        encodePhase.record(encodeNanos, TimeUnit.NANOSECONDS);
+        sendPhase.record(sendNanos, TimeUnit.NANOSECONDS);
+        broadcast.record(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String description, Tags timerTags) {
+        Timer timer = Timer.builder(name)
+                .description(description)
+                .tags(timerTags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+        meters.add(timer);
+        return timer;
+    }
+
+    private Counter counter(String name, String description, Tags counterTags) {
+        Counter counter = Counter.builder(name)
+                .description(description)
+                .tags(counterTags)
+                .register(registry);
+        meters.add(counter);
+        return counter;
+    }
+}
@@ -0,0 +1,318 @@
+package org.acme.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The named simulation instances of the application, each with its own particles, tick loop and subscribers.
+ * <p>
+ * Every instance ticks and broadcasts on one bounded pool of worker threads, so many independent simulations share
+ * the cores of the node. Instances are created on first use, up to a limit, and evicted once idle. The
+ * {@value #DEFAULT_ID} instance is the application-scoped {@link SimulationService} and is never evicted.
+ * <p>
+ * Each instance registers its {@link SimulationMetrics} when created and unregisters them when removed, and the
+ * {@linkplain #addRemovalListener removal listeners} are told of every instance removed, explicitly or once idle.
+ */
+@ApplicationScoped
+public class SimulationRegistry {
+
+    public static final String DEFAULT_ID = "default";
+
+    private static final Logger LOG = Logger.getLogger(SimulationRegistry.class);
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /**
+     * The first segments of the literal routes under {@code /simulation}, which would shadow the instances of the same
+     * id, e.g. {@code GET /simulation/state} never describes an instance named {@code state}.
+     */
+    private static final Set<String> RESERVED_IDS = Set.of("add", "ingest", "remove", "particles", "start", "toggle",
+            "reset", "state", "sessions", "instances", "checkpoint", "restore", "recording", "recordings");
+
+    @Inject
+    SimulationService defaultService;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<String, SimulationInstance> instances = new ConcurrentHashMap<>();
+    private final List<Consumer<SimulationInstance>> removalListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The number of instances, reserved before one is created so concurrent creations of different ids never exceed
+     * the instance limit, which the size of the map alone cannot tell.
+     */
+    private final AtomicInteger slots = new AtomicInteger();
+
+    /**
+     * The threads ticking and broadcasting every instance.
+     */
+    @Getter
+    private final ScheduledThreadPoolExecutor workers = createWorkers();
+
+    private Supplier<SimulationService> serviceFactory = SimulationService::new;
+    @Getter
+    private int maxInstances = 16;
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+    private long tickPeriodMs = 16;
+    private int maxCatchUpTicks = 4;
+
+    /**
+     * Applies the configured settings and starts evicting idle instances.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        SimulationConfig.Instances settings = config.instances();
+        workers.setCorePoolSize(settings.workerThreads() > 0
+                ? settings.workerThreads()
+                : Runtime.getRuntime().availableProcessors());
+        maxInstances = settings.maxInstances();
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMs());
+        tickPeriodMs = config.loop().tickPeriodMs();
+        maxCatchUpTicks = config.loop().maxCatchUpTicks();
+        serviceFactory = () -> {
+            SimulationService service = new SimulationService();
+            service.applySettings(config);
+            service.setParallelExecutor(defaultService.getParallelExecutor());
+            return service;
+        };
+
+        long evictionPeriod = Math.max(1000, Math.min(60_000, settings.idleTimeoutMs() / 4));
+        workers.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdle(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOG.error("Error evicting idle simulations", e);
+            }
+        }, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops every instance and the worker threads.
+     */
+    @PreDestroy
+    void shutdown() {
+        instances.values().forEach(instance -> instance.getLoop().stop());
+        workers.shutdownNow();
+    }
+
+    /**
+     * Gets an instance, creating it if needed. It is marked used within the same atomic update, so it cannot be
+     * evicted before the caller uses it.
+     *
+     * @param id the instance id
+     * @return the instance
+     * @throws IllegalArgumentException if the id is invalid
+     * @throws IllegalStateException    if the instance does not exist and the instance limit is reached
+     */
+    public SimulationInstance get(String id) {
+        return instances.compute(validate(id), (key, existing) -> {
+            SimulationInstance instance = existing != null ? existing : create(key);
+            instance.touch();
+            return instance;
+        });
+    }
+
+    /**
+     * Gets an instance without creating it, and marks it used like {@link #get(String)}.
+     *
+     * @param id the instance id
+     * @return the instance, if it exists
+     */
+    public Optional<SimulationInstance> use(String id) {
+        return Optional.ofNullable(instances.computeIfPresent(id, (key, instance) -> {
+            instance.touch();
+            return instance;
+        }));
+    }
+
+    /**
+     * Gets an instance without creating it.
+     *
+     * @param id the instance id
+     * @return the instance, if it exists
+     */
+    public Optional<SimulationInstance> find(String id) {
+        return Optional.ofNullable(instances.get(id));
+    }
+
+    /**
+     * @return every instance
+     */
+    public List<SimulationInstance> list() {
+        return new ArrayList<>(instances.values());
+    }
+
+    /**
+     * Adds a listener told of every instance removed, explicitly or once idle, after it left the registry.
+     *
+     * @param listener the listener
+     */
+    public void addRemovalListener(Consumer<SimulationInstance> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * Subscribes a WebSocket session to an instance, creating it if needed. The instance ticks while it has
+     * subscribers and is never evicted.
+     *
+     * @param id the instance id
+     * @return the instance
+     * @throws IllegalArgumentException if the id is invalid
+     * @throws IllegalStateException    if the instance does not exist and the instance limit is reached
+     */
+    public SimulationInstance subscribe(String id) {
+        return instances.compute(validate(id), (key, existing) -> {
+            SimulationInstance instance = existing != null ? existing : create(key);
+            instance.subscribe();
+            return instance;
+        });
+    }
+
+    /**
+     * Unsubscribes a WebSocket session from an instance.
+     *
+     * @param instance the instance the session subscribed to
+     */
+    public void unsubscribe(SimulationInstance instance) {
+        instance.unsubscribe();
+    }
+
+    /**
+     * Removes an instance without subscribers.
+     *
+     * @param id the instance id
+     * @return whether the instance was removed
+     * @throws IllegalArgumentException if the id is the default instance
+     */
+    public boolean remove(String id) {
+        if (DEFAULT_ID.equals(id)) {
+            throw new IllegalArgumentException("The default simulation cannot be removed");
+        }
+        List<SimulationInstance> removed = new ArrayList<>(1);
+        instances.computeIfPresent(id, (key, instance) -> {
+            if (instance.getSubscribers() > 0) return instance;
+            close(instance);
+            removed.add(instance);
+            return null;
+        });
+        removed.forEach(this::notifyRemoved);
+        return !removed.isEmpty();
+    }
+
+    /**
+     * Removes the instances without subscribers that were not used for the idle timeout.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return the number of instances removed
+     */
+    public int evictIdle(long now) {
+        List<SimulationInstance> evicted = new ArrayList<>();
+        for (String id : instances.keySet()) {
+            if (DEFAULT_ID.equals(id)) continue;
+            instances.computeIfPresent(id, (key, instance) -> {
+                if (!instance.isIdle(now, idleTimeoutNanos)) return instance;
+                close(instance);
+                evicted.add(instance);
+                return null;
+            });
+        }
+        evicted.forEach(this::notifyRemoved);
+        return evicted.size();
+    }
+
+    /**
+     * Creates a simulation configured like the instances and sharing their parallel executor, but neither
+     * registered nor ticked, e.g. for the startup training pass.
+     *
+     * @return the simulation
+     */
+    public SimulationService newService() {
+        return serviceFactory.get();
+    }
+
+    private SimulationInstance create(String id) {
+        if (slots.incrementAndGet() > maxInstances) {
+            slots.decrementAndGet();
+            throw new IllegalStateException("Too many simulation instances: " + maxInstances);
+        }
+        try {
+            return newInstance(id);
+        } catch (RuntimeException e) {
+            slots.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private SimulationInstance newInstance(String id) {
+        SimulationService service = DEFAULT_ID.equals(id) && defaultService != null
+                ? defaultService
+                : serviceFactory.get();
+        SimulationInstance instance = new SimulationInstance(id, service,
+                new SimulationLoop(service, workers, tickPeriodMs, maxCatchUpTicks));
+        if (meterRegistry != null) {
+            SimulationMetrics metrics = new SimulationMetrics(meterRegistry, id);
+            metrics.bind(instance);
+            service.setMetrics(metrics);
+        }
+        return instance;
+    }
+
+    /**
+     * Tells the removal listeners of an instance removed, outside the compute that removed it, so they may use the
+     * registry.
+     */
+    private void notifyRemoved(SimulationInstance instance) {
+        for (Consumer<SimulationInstance> listener : removalListeners) {
+            try {
+                listener.accept(instance);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Error handling the removal of simulation %s", instance.getId());
+            }
+        }
+    }
+
+    private void close(SimulationInstance instance) {
+        instance.getLoop().stop();
+        instance.getService().getMetrics().close();
+        slots.decrementAndGet();
+    }
+
+    private static String validate(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches() || RESERVED_IDS.contains(id)) {
+            throw new IllegalArgumentException("Invalid simulation id: " + id);
+        }
+        return id;
+    }
+
+    private static ScheduledThreadPoolExecutor createWorkers() {
+        AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "simulation-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
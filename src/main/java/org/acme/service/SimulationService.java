@@ -1,179 +1,522 @@
 package org.acme.service;
 
+import org.acme.model.DensityGrid;
 import org.acme.model.Particle;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.model.SnapshotBuffer;
+import org.acme.service.collision.Broadphase;
+import org.acme.service.collision.PairConsumer;
+import org.acme.service.collision.UniformGridBroadphase;
+import org.acme.service.physics.BarnesHutGravity;
+import org.acme.service.physics.GravityMode;
+import org.acme.service.physics.KernelType;
+import org.acme.service.physics.StepKernel;
+import org.acme.service.physics.StepKernels;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
-import java.util.ArrayList;
+import jakarta.inject.Inject;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Simulation service managing an N-body particle system.
+ * <p>
+ * Particles live in a structure-of-arrays {@link ParticleStore} and every physics kernel works directly on its arrays;
+ * {@link Particle} objects are only created at the REST/JSON boundary.
+ * <p>
+ * The store is only touched by the ticking thread and by mutations, serialized by a lock. Every tick ends by
+ * publishing an immutable {@link SimulationSnapshot}; readers such as broadcasters and the REST API consume the
+ * latest snapshot without locking.
  */
 @ApplicationScoped
 public class SimulationService {
 
+    /**
+     * The live particles. Only access them from {@link #updateSimulation()} or while holding {@link #getLock()}.
+     */
     @Getter
-    private final List<Particle> particles = new ArrayList<>();
+    private final ParticleStore store = new ParticleStore();
     private final double dt = 0.01;
 
     @Getter
-    private boolean running = true;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+
+    /**
+     * Aggregates of the particles published with every snapshot, for clients that cannot render every particle.
+     */
+    private final DensityGrid density = new DensityGrid();
+    private boolean densityEnabled = true;
+    private int densityGridSize = 64;
+
+    /**
+     * The sessions that may receive density frames. The grid is an extra pass over the particles, only computed while
+     * there is one.
+     */
+    private final AtomicInteger densityReaders = new AtomicInteger();
+
+    /**
+     * Whether the store changed since the last published snapshot.
+     */
+    private volatile boolean dirty = true;
+
+    @Getter
+    private volatile boolean running = true;
+
+    /**
+     * Number of simulation steps computed so far.
+     */
+    @Getter
+    private long tick;
+
+    @Getter
+    @Setter
+    private Broadphase broadphase = new UniformGridBroadphase();
+    private final PairConsumer collisionResolver = this::resolveCollision;
+
+    @Getter
+    @Setter
+    private ParallelRangeExecutor parallelExecutor = new ParallelRangeExecutor(ForkJoinPool.commonPool(), 8192, 20000);
+    @Getter
+    @Setter
+    private StepKernel stepKernel = StepKernels.create(KernelType.AUTO);
+    private final ParallelRangeExecutor.RangeAction stepAction = (from, to) -> stepKernel.step(store, from, to, dt);
+
+    /**
+     * The mutual gravity of the particles, or {@code null} for the central black hole alone.
+     */
+    @Getter
+    @Setter
+    private BarnesHutGravity pairwiseGravity;
+
+    /**
+     * Lowers the quality of the simulation while its ticks exceed their budget. Disabled unless configured.
+     */
+    @Getter
+    private final TickBudgetController budget = new TickBudgetController();
+
+    /**
+     * The most particles the simulation accepts.
+     */
+    @Getter
+    @Setter
+    private int maxParticles = Integer.MAX_VALUE;
+
+    /**
+     * The meters of the instance running this simulation, see {@link SimulationRegistry}.
+     */
+    @Getter
+    @Setter
+    private SimulationMetrics metrics = SimulationMetrics.NOOP;
+
+    /**
+     * Notified of the snapshot of every tick, or {@code null}.
+     */
+    @Getter
+    @Setter
+    private volatile TickListener tickListener;
 
-    private static final double G = 0.007;
-    private static final double BLACK_HOLE_X = 0;
-    private static final double BLACK_HOLE_Y = 0;
-    private static final double BLACK_HOLE_MASS = 1000;
     private static final double PARTICLE_RADIUS = 1.0;
-    private static final double MAX_FORCE = 500;
-    private static final double MIN_REPULSION_DISTANCE = 5;
-    private static final double REPULSION_FORCE = 26;
-    private static final double SPEED_DAMPING = 1;
 
     /**
-     * Adds a particle to the simulation.
+     * Applies the configured settings.
      *
-     * @param p the particle to add
+     * @param config the simulation settings
      */
-    public void addParticle(Particle p) {
-        particles.add(p);
+    @Inject
+    void configure(SimulationConfig config) {
+        applySettings(config);
+        parallelExecutor = ParallelRangeExecutor.fromConfig(config.parallel());
     }
 
     /**
-     * Removes a particle from the simulation by index.
+     * Applies the configured settings, except the parallel executor which simulation instances share.
      *
-     * @param index the index of the particle to remove
-     * @throws IndexOutOfBoundsException if the index is out of bounds
+     * @param config the simulation settings
      */
-    public void removeParticle(int index) {
-        if (index < 0 || index >= particles.size()) {
-            throw new IndexOutOfBoundsException("Invalid particle index: " + index);
+    void applySettings(SimulationConfig config) {
+        broadphase = config.collision().broadphase().create();
+        stepKernel = StepKernels.create(config.kernel());
+        densityEnabled = config.lod().enabled();
+        densityGridSize = config.lod().gridSize();
+        maxParticles = config.instances().maxParticles();
+        SimulationConfig.Gravity gravity = config.gravity();
+        pairwiseGravity = gravity.mode() == GravityMode.BARNES_HUT
+                ? new BarnesHutGravity(gravity.theta(), gravity.constant(), gravity.softening())
+                : null;
+        SimulationConfig.Budget settings = config.budget();
+        if (settings.enabled()) {
+            budget.configure(TimeUnit.MILLISECONDS.toNanos(settings.tickBudgetMs()), settings.restoreRatio(),
+                    settings.restoreAfterTicks(),
+                    (double) config.loop().tickPeriodMs() / config.stream().broadcastPeriodMs());
+        } else {
+            budget.disable();
         }
-        particles.remove(index);
     }
 
     /**
-     * Retrieves a particle by its index.
+     * Releases the worker threads of the parallel executor.
+     */
+    @PreDestroy
+    void shutdown() {
+        parallelExecutor.shutdown();
+    }
+
+    /**
+     * Adds a particle to the simulation.
      *
-     * @param index the index of the particle
-     * @return the particle at the given index
-     * @throws IndexOutOfBoundsException if the index is out of bounds
+     * @param p the particle to add
+     * @return the id of the new particle
+     * @throws IllegalStateException if the simulation already holds {@link #getMaxParticles()} particles
      */
-    public Particle getParticle(int index) {
-        if (index < 0 || index >= particles.size()) {
-            throw new IndexOutOfBoundsException("Invalid particle index: " + index);
+    public int addParticle(Particle p) {
+        lock.lock();
+        try {
+            if (store.getSize() >= maxParticles) {
+                throw new IllegalStateException("Particle limit reached: " + maxParticles);
+            }
+            int index = store.add(p);
+            dirty = true;
+            return store.getIds()[index];
+        } finally {
+            lock.unlock();
         }
-        return particles.get(index);
     }
 
     /**
-     * Updates the simulation state.
+     * Appends a batch of particles in one step. Ticks hold the same lock, so the whole batch lands between two ticks.
      *
-     * @return the updated list of particles
-     */
-    public List<Particle> updateSimulation() {
-        if (running) {
-            for (Particle p : particles) {
-                applyInverseGravity(p);
-                dampenSpeed(p);
-                p.update(dt);
+     * @param batch the particles to copy
+     * @return the number of particles appended, fewer than the batch size if it would exceed
+     * {@link #getMaxParticles()}
+     */
+    public int addParticles(ParticleStore batch) {
+        lock.lock();
+        try {
+            int count = Math.min(batch.getSize(), Math.max(0, maxParticles - store.getSize()));
+            if (count > 0) {
+                store.addAll(batch, count);
+                dirty = true;
             }
-            detectAndResolveCollisions();
+            return count;
+        } finally {
+            lock.unlock();
         }
-        return particles;
     }
 
     /**
-     * Applies gravity increasing with distance, with a repulsion effect when too close.
+     * Replaces every particle at once, e.g. with those of a checkpoint. Ticks hold the same lock, so the simulation
+     * goes from one world to the other between two ticks, in constant time.
      *
-     * @param p the particle affected
+     * @param particles    the new particles, taken over by the simulation and left empty
+     * @param restoredTick the tick the particles belong to, from which the simulation continues
+     * @throws IllegalStateException if there are more than {@link #getMaxParticles()} particles, or a
+     *                               {@link TickListener} is installed, e.g. while the simulation is being recorded, as
+     *                               the ticks it receives could go backwards
      */
-    private void applyInverseGravity(Particle p) {
-        double dx = BLACK_HOLE_X - p.getX();
-        double dy = BLACK_HOLE_Y - p.getY();
-        double distanceSquared = dx * dx + dy * dy;
-        double distance = Math.sqrt(distanceSquared);
+    public void restore(ParticleStore particles, long restoredTick) {
+        lock.lock();
+        try {
+            if (tickListener != null) {
+                throw new IllegalStateException("Cannot restore a simulation while its ticks are being listened to,"
+                        + " e.g. recorded");
+            }
+            swapParticles(particles);
+            tick = restoredTick;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        if (distance < 1) return;
+    /**
+     * Replaces every particle at once, e.g. with a generated scene, between two ticks and in constant time. The
+     * simulation keeps counting ticks from where it is.
+     * <p>
+     * The particles get new ids, above every id the simulation handed out so far and in index order, so ids are never
+     * reused and a seeded scene gets the same ids relative to the first. They are renumbered between taking the lock
+     * to reserve the ids and taking it again to swap the particles, so ticks never wait for it.
+     *
+     * @param particles the new particles, taken over by the simulation and left empty
+     * @throws IllegalStateException if there are more than {@link #getMaxParticles()} particles, or no ids left
+     */
+    public void replaceParticles(ParticleStore particles) {
+        int firstId;
+        lock.lock();
+        try {
+            if (particles.getSize() > maxParticles) {
+                throw new IllegalStateException("Particle limit reached: " + maxParticles);
+            }
+            firstId = store.reserveIds(particles.getSize());
+        } finally {
+            lock.unlock();
+        }
+        particles.renumberIds(firstId);
+        lock.lock();
+        try {
+            swapParticles(particles);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        double force = G * BLACK_HOLE_MASS * p.getMass() * distance;
-        force = Math.min(force, MAX_FORCE);
+    /**
+     * Takes over the particles, keeping their ids. Must be called while holding the lock.
+     */
+    private void swapParticles(ParticleStore particles) {
+        if (particles.getSize() > maxParticles) {
+            throw new IllegalStateException("Particle limit reached: " + maxParticles);
+        }
+        store.replaceWith(particles);
+        dirty = true;
+    }
 
-        if (distance < MIN_REPULSION_DISTANCE) {
-            force -= REPULSION_FORCE;
+    /**
+     * Removes a particle from the simulation by index. The last particle takes its index.
+     *
+     * @param index the index of the particle to remove
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void removeParticle(int index) {
+        lock.lock();
+        try {
+            store.remove(index);
+            dirty = true;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        double ax = (force * dx / distance) / p.getMass();
-        double ay = (force * dy / distance) / p.getMass();
+    /**
+     * Removes a particle from the simulation by id, in constant time.
+     *
+     * @param id the id of the particle to remove
+     * @return whether the particle existed
+     */
+    public boolean removeParticleById(int id) {
+        lock.lock();
+        try {
+            boolean removed = store.removeById(id);
+            if (removed) {
+                dirty = true;
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        p.setVx(p.getVx() + ax * dt);
-        p.setVy(p.getVy() + ay * dt);
+    /**
+     * Removes many particles by id at once, between two ticks. Unknown ids are ignored.
+     *
+     * @param ids the ids of the particles to remove
+     * @return the number of particles removed
+     */
+    public int removeParticles(int[] ids) {
+        lock.lock();
+        try {
+            int removed = store.removeAllById(ids);
+            if (removed > 0) {
+                dirty = true;
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Reduces velocity slightly to maintain orbital motion.
+     * Retrieves a particle by its index.
      *
-     * @param p the particle to adjust
+     * @param index the index of the particle
+     * @return a copy of the particle at the given index in the latest snapshot
+     * @throws IndexOutOfBoundsException if the index is out of bounds
      */
-    private void dampenSpeed(Particle p) {
-        p.setVx(p.getVx() * SPEED_DAMPING);
-        p.setVy(p.getVy() * SPEED_DAMPING);
+    public Particle getParticle(int index) {
+        try (SimulationSnapshot snapshot = acquireSnapshot()) {
+            return snapshot.get(index);
+        }
     }
 
     /**
-     * Detects and resolves collisions between particles.
+     * Copies the particles out of the latest snapshot.
+     *
+     * @return detached copies of all particles, in index order
      */
-    private void detectAndResolveCollisions() {
-        for (int i = 0; i < particles.size(); i++) {
-            for (int j = i + 1; j < particles.size(); j++) {
-                Particle p1 = particles.get(i);
-                Particle p2 = particles.get(j);
+    public List<Particle> getParticles() {
+        try (SimulationSnapshot snapshot = acquireSnapshot()) {
+            return snapshot.toParticles();
+        }
+    }
 
-                double dx = p1.getX() - p2.getX();
-                double dy = p1.getY() - p2.getY();
-                double distanceSquared = dx * dx + dy * dy;
-                double distance = Math.sqrt(distanceSquared);
+    /**
+     * Retains the latest snapshot, publishing a new one first if the particles changed since the last tick.
+     * The caller must close the snapshot when done.
+     *
+     * @return the latest snapshot
+     */
+    public SimulationSnapshot acquireSnapshot() {
+        if (dirty) {
+            lock.lock();
+            try {
+                if (dirty) {
+                    publishSnapshot();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return snapshots.acquire();
+    }
 
-                if (distance < PARTICLE_RADIUS * 2) {
-                    resolveCollision(p1, p2);
+    /**
+     * Updates the simulation state.
+     * The per-particle phase applies the mutual gravity, if enabled, then runs the step kernel, both across the
+     * parallel executor; collisions are then resolved on the calling thread, on the ticks the
+     * {@link QualityLevel} of the simulation keeps them. Ends by publishing a snapshot and handing it to the
+     * {@link TickListener} if the simulation ticked, then reporting the phases, listener included, to the metrics if it
+     * ticked or published, and to the {@link TickBudgetController} if it ticked.
+     */
+    public void updateSimulation() {
+        boolean ticked = false;
+        long gravityNanos = 0;
+        long stepNanos = 0;
+        long collisionNanos = 0;
+        long snapshotNanos = 0;
+        boolean published = false;
+        boolean collided = false;
+        lock.lock();
+        try {
+            if (running) {
+                long start = System.nanoTime();
+                if (pairwiseGravity != null) {
+                    pairwiseGravity.apply(store, dt, parallelExecutor);
+                }
+                long attracted = System.nanoTime();
+                parallelExecutor.forEachRange(store.getSize(), stepAction);
+                long stepped = System.nanoTime();
+                collided = budget.collisionsDue(tick);
+                if (collided) {
+                    detectAndResolveCollisions();
                 }
+                collisionNanos = System.nanoTime() - stepped;
+                gravityNanos = attracted - start;
+                stepNanos = stepped - attracted;
+                tick++;
+                dirty = true;
+                ticked = true;
             }
+            if (dirty) {
+                long start = System.nanoTime();
+                publishSnapshot();
+                snapshotNanos = System.nanoTime() - start;
+                published = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        long listenerNanos = 0;
+        TickListener listener = tickListener;
+        if (ticked && listener != null) {
+            long start = System.nanoTime();
+            try (SimulationSnapshot snapshot = snapshots.acquire()) {
+                listener.onTick(snapshot);
+            }
+            listenerNanos = System.nanoTime() - start;
+        }
+        if (ticked || published) {
+            metrics.recordTick(gravityNanos, stepNanos, collisionNanos, snapshotNanos, listenerNanos);
+        }
+        if (ticked) {
+            budget.recordTick(gravityNanos, stepNanos, collided ? collisionNanos : -1, snapshotNanos + listenerNanos);
+        }
+    }
+
+    /**
+     * Registers a session that may receive density frames, so the snapshots carry a density grid until it leaves. The
+     * next snapshot is published with the grid even if the particles do not change, e.g. while paused.
+     */
+    public void addDensityReader() {
+        if (densityReaders.getAndIncrement() == 0) {
+            dirty = true;
         }
     }
 
+    /**
+     * Unregisters a session added by {@link #addDensityReader()}.
+     */
+    public void removeDensityReader() {
+        densityReaders.decrementAndGet();
+    }
+
+    /**
+     * Publishes the current particles, and their density grid if enabled and some session may receive it, as the
+     * latest snapshot. Must be called while holding the lock.
+     */
+    private void publishSnapshot() {
+        boolean withDensity = densityEnabled && densityReaders.get() > 0;
+        if (withDensity) {
+            density.compute(store, densityGridSize);
+        }
+        snapshots.publish(store, withDensity ? density : null, tick, System.currentTimeMillis());
+        dirty = false;
+    }
+
+    /**
+     * Detects and resolves collisions between particles, using the broadphase to find the colliding pairs.
+     * Package-private so the benchmarks can measure it in isolation; must be called while holding the lock.
+     */
+    void detectAndResolveCollisions() {
+        broadphase.findPairs(store.getXs(), store.getYs(), store.getSize(), PARTICLE_RADIUS * 2, collisionResolver);
+    }
+
     /**
      * Resolves a collision between two particles using elastic physics.
      *
-     * @param p1 the first particle
-     * @param p2 the second particle
+     * @param i the index of the first particle
+     * @param j the index of the second particle
      */
-    private void resolveCollision(Particle p1, Particle p2) {
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
+    private void resolveCollision(int i, int j) {
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] vxs = store.getVxs();
+        double[] vys = store.getVys();
+        double[] masses = store.getMasses();
+
+        double dx = xs[j] - xs[i];
+        double dy = ys[j] - ys[i];
         double distance = Math.sqrt(dx * dx + dy * dy);
 
         if (distance == 0) return;
 
         double nx = dx / distance;
         double ny = dy / distance;
-        double vxRelative = p2.getVx() - p1.getVx();
-        double vyRelative = p2.getVy() - p1.getVy();
+        double vxRelative = vxs[j] - vxs[i];
+        double vyRelative = vys[j] - vys[i];
 
         double velocityAlongNormal = vxRelative * nx + vyRelative * ny;
 
         if (velocityAlongNormal > 0) return;
 
+        double m1 = masses[i];
+        double m2 = masses[j];
         double restitution = 1.0;
         double impulse = (-(1 + restitution) * velocityAlongNormal) /
-                (1 / p1.getMass() + 1 / p2.getMass());
+                (1 / m1 + 1 / m2);
 
         double impulseX = impulse * nx;
         double impulseY = impulse * ny;
 
-        p1.setVx(p1.getVx() - (impulseX / p1.getMass()));
-        p1.setVy(p1.getVy() - (impulseY / p1.getMass()));
+        vxs[i] -= impulseX / m1;
+        vys[i] -= impulseY / m1;
 
-        p2.setVx(p2.getVx() + (impulseX / p2.getMass()));
-        p2.setVy(p2.getVy() + (impulseY / p2.getMass()));
+        vxs[j] += impulseX / m2;
+        vys[j] += impulseY / m2;
     }
 
     /**
@@ -187,6 +530,12 @@ public class SimulationService {
      * Resets the simulation by clearing all particles.
      */
     public void resetSimulation() {
-        particles.clear();
+        lock.lock();
+        try {
+            store.clear();
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
     }
-}
\ No newline at end of file
+}
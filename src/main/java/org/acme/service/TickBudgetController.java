@@ -0,0 +1,164 @@
+package org.acme.service;
+
+import lombok.Getter;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a simulation within its tick budget by lowering its {@link QualityLevel} when it cannot keep up, and raising
+ * it back once the load drops.
+ * <p>
+ * Every tick reports the time of its phases, and every broadcast its duration, smoothed into moving averages. From
+ * them the controller predicts the cost of one tick period at each level: the gravity, step and snapshot phases,
+ * plus the collisions and broadcasts amortized over the ticks and broadcasts the level skips. A level whose cost
+ * exceeds the budget is lowered by one step; a lowered level is raised by one step once the cost of the higher level
+ * fits in {@code restoreRatio} of the budget, so the level does not oscillate around the budget.
+ * <p>
+ * After a change, the level is held for {@value #SETTLE_TICKS} ticks before being lowered again, so the averages
+ * reflect the change, and for {@code restoreAfterTicks} ticks before being raised. A disabled controller stays at
+ * {@link QualityLevel#FULL}.
+ * <p>
+ * Ticks report from the ticking thread and broadcasts from the broadcasting one; the level is read by both.
+ */
+public class TickBudgetController {
+
+    private static final Logger LOG = Logger.getLogger(TickBudgetController.class);
+
+    /**
+     * The weight of the latest sample in the moving averages.
+     */
+    private static final double SMOOTHING = 0.1;
+    static final int SETTLE_TICKS = 10;
+
+    private volatile boolean enabled;
+    @Getter
+    private volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(12);
+    private volatile double restoreRatio = 0.5;
+    private volatile int restoreAfterTicks = 120;
+    private volatile double broadcastsPerTick = 1;
+
+    @Getter
+    private volatile QualityLevel level = QualityLevel.FULL;
+
+    // The moving averages, in nanoseconds, NaN until sampled; those of the ticks only touched by the ticking thread.
+    private double gravityNanos = Double.NaN;
+    private double stepNanos = Double.NaN;
+    private double collisionNanos = Double.NaN;
+    private double snapshotNanos = Double.NaN;
+    private volatile double broadcastNanos = Double.NaN;
+    private long ticksAtLevel;
+
+    /**
+     * Enables the controller.
+     *
+     * @param budgetNanos       the time a tick period may cost, ticks and broadcasts included
+     * @param restoreRatio      the fraction of the budget the cost of a higher level must fit in to raise the level
+     * @param restoreAfterTicks the fewest ticks at a level before raising it
+     * @param broadcastsPerTick the broadcasts per tick period at full quality
+     * @throws IllegalArgumentException if a setting is not positive, or the ratio is above 1
+     */
+    public void configure(long budgetNanos, double restoreRatio, int restoreAfterTicks, double broadcastsPerTick) {
+        if (budgetNanos <= 0 || restoreRatio <= 0 || restoreRatio > 1 || restoreAfterTicks <= 0
+                || broadcastsPerTick <= 0) {
+            throw new IllegalArgumentException("Invalid tick budget settings: " + budgetNanos + " ns, ratio "
+                    + restoreRatio + ", " + restoreAfterTicks + " ticks, " + broadcastsPerTick + " broadcasts");
+        }
+        this.budgetNanos = budgetNanos;
+        this.restoreRatio = restoreRatio;
+        this.restoreAfterTicks = restoreAfterTicks;
+        this.broadcastsPerTick = broadcastsPerTick;
+        this.enabled = true;
+    }
+
+    /**
+     * Disables the controller, restoring full quality.
+     */
+    public void disable() {
+        enabled = false;
+        level = QualityLevel.FULL;
+    }
+
+    /**
+     * @return whether the controller adapts the level
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param tick the number of the tick
+     * @return whether the tick detects collisions at the current level
+     */
+    public boolean collisionsDue(long tick) {
+        return tick % level.getCollisionInterval() == 0;
+    }
+
+    /**
+     * @param run the number of the scheduled broadcast run
+     * @return whether the run broadcasts at the current level
+     */
+    public boolean broadcastDue(long run) {
+        return run % level.getBroadcastInterval() == 0;
+    }
+
+    /**
+     * Records the phases of a tick that stepped the simulation, then adapts the level. Called by the ticking thread.
+     *
+     * @param gravityNanos   the time spent applying the mutual gravity, 0 if disabled
+     * @param stepNanos      the time spent stepping the particles
+     * @param collisionNanos the time spent on collisions, or a negative value if the tick skipped them
+     * @param snapshotNanos  the time spent publishing the snapshot and handing it to the tick listener
+     */
+    void recordTick(long gravityNanos, long stepNanos, long collisionNanos, long snapshotNanos) {
+        this.gravityNanos = smooth(this.gravityNanos, gravityNanos);
+        this.stepNanos = smooth(this.stepNanos, stepNanos);
+        if (collisionNanos >= 0) {
+            this.collisionNanos = smooth(this.collisionNanos, collisionNanos);
+        }
+        this.snapshotNanos = smooth(this.snapshotNanos, snapshotNanos);
+        if (!enabled) return;
+
+        ticksAtLevel++;
+        QualityLevel current = level;
+        QualityLevel next = current;
+        if (cost(current) > budgetNanos) {
+            if (ticksAtLevel >= SETTLE_TICKS) next = current.lower();
+        } else if (ticksAtLevel >= restoreAfterTicks && cost(current.higher()) <= budgetNanos * restoreRatio) {
+            next = current.higher();
+        }
+        if (next != current) {
+            LOG.debugf("Quality %s -> %s: %.2f ms per tick for a budget of %.2f ms", current, next,
+                    cost(current) / 1e6, budgetNanos / 1e6);
+            level = next;
+            ticksAtLevel = 0;
+        }
+    }
+
+    /**
+     * Records the duration of a broadcast. Called by the broadcasting thread.
+     *
+     * @param nanos the duration of the broadcast
+     */
+    public void recordBroadcast(long nanos) {
+        broadcastNanos = smooth(broadcastNanos, nanos);
+    }
+
+    /**
+     * @param level a quality level
+     * @return the predicted cost of a tick period at the level, in nanoseconds
+     */
+    double cost(QualityLevel level) {
+        return valueOf(gravityNanos) + valueOf(stepNanos) + valueOf(snapshotNanos)
+                + valueOf(collisionNanos) / level.getCollisionInterval()
+                + valueOf(broadcastNanos) * broadcastsPerTick / level.getBroadcastInterval();
+    }
+
+    private static double smooth(double average, long sample) {
+        return Double.isNaN(average) ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    private static double valueOf(double average) {
+        return Double.isNaN(average) ? 0 : average;
+    }
+}
@@ -0,0 +1,18 @@
+package org.acme.service;
+
+import org.acme.model.SimulationSnapshot;
+
+/**
+ * Receives the snapshot of every tick of a {@link SimulationService}, e.g. to record it.
+ * <p>
+ * Called on the ticking thread once the simulation lock is released, so mutations are not held up, but the next
+ * tick waits for the listener to return.
+ */
+@FunctionalInterface
+public interface TickListener {
+
+    /**
+     * @param snapshot the snapshot published by the tick, only retained for the duration of the call
+     */
+    void onTick(SimulationSnapshot snapshot);
+}
@@ -0,0 +1,13 @@
+package org.acme.service.checkpoint;
+
+import org.acme.model.ParticleStore;
+
+/**
+ * The content of a checkpoint file.
+ *
+ * @param particles the particles, with their ids
+ * @param tick      the tick the particles belong to
+ * @param timestamp the server time of the tick, in epoch milliseconds
+ */
+public record Checkpoint(ParticleStore particles, long tick, long timestamp) {
+}
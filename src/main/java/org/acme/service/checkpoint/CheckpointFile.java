@@ -0,0 +1,213 @@
+package org.acme.service.checkpoint;
+
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and writes checkpoint files: the particles of a snapshot, copied section by section through memory-mapped
+ * regions of the file, so both directions run at memory bandwidth.
+ * <p>
+ * Values are little-endian. A file starts with a {@value #HEADER_SIZE}-byte header:
+ * <pre>
+ *  0  u8[8] magic "NBODYCKP"
+ *  8  u32   format version, {@value #VERSION}
+ * 12  u32   particle count n
+ * 16  i64   tick
+ * 24  i64   server time of the tick, in epoch milliseconds
+ * 32  u64   reserved
+ * 40  u32   CRC-32C of header bytes 0 to 39, then of the payload
+ * 44  u32   reserved
+ * </pre>
+ * followed by the payload: n f64 x positions, n f64 y positions, n f64 vx, n f64 vy, n f64 masses and n u32
+ * particle ids.
+ * <p>
+ * A checkpoint is written to a temporary file of its own then moved over the previous one, so neither a crash while
+ * writing nor a concurrent write of the same file leaves a torn file.
+ */
+public final class CheckpointFile {
+
+    /**
+     * "NBODYCKP" read as a little-endian u64.
+     */
+    public static final long MAGIC = 0x504B4359444F424EL;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 48;
+
+    private static final int CHECKSUM_OFFSET = 40;
+
+    /**
+     * The most values copied through one mapped region, well below the 2 GiB limit of a mapping.
+     */
+    private static final int REGION_VALUES = 1 << 24;
+
+    private CheckpointFile() {
+    }
+
+    /**
+     * @param particles the number of particles
+     * @return the size of a checkpoint file, in bytes
+     */
+    public static long fileSize(int particles) {
+        return HEADER_SIZE + (5L * Double.BYTES + Integer.BYTES) * particles;
+    }
+
+    /**
+     * Writes the particles of a snapshot, replacing the file atomically.
+     *
+     * @param snapshot the particles
+     * @param file     the checkpoint file
+     * @return the size of the file, in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(SimulationSnapshot snapshot, Path file) throws IOException {
+        int n = snapshot.getSize();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Unique per write, so a concurrent writer of the same file never truncates the regions mapped by this one.
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC)
+                .putInt(VERSION)
+                .putInt(n)
+                .putLong(snapshot.getTick())
+                .putLong(snapshot.getTimestamp())
+                .putLong(0);
+        CRC32C crc = new CRC32C();
+        crc.update(header.array(), 0, CHECKSUM_OFFSET);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE;
+            for (double[] section : new double[][]{snapshot.getXs(), snapshot.getYs(), snapshot.getVxs(),
+                    snapshot.getVys(), snapshot.getMasses()}) {
+                position = writeDoubles(channel, position, section, n, crc);
+            }
+            writeInts(channel, position, snapshot.getIds(), n, crc);
+
+            header.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return fileSize(n);
+    }
+
+    /**
+     * Reads a checkpoint file, verifying its format and checksum.
+     *
+     * @param file the checkpoint file
+     * @return the particles of the file, with their ids
+     * @throws IOException if the file cannot be read, is not a checkpoint of a supported version or is corrupt
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a checkpoint file: " + file);
+                }
+            }
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            int version = header.getInt(8);
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+            }
+            int n = header.getInt(12);
+            if (n < 0 || channel.size() != fileSize(n)) {
+                throw new IOException("Truncated checkpoint file: " + file);
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(header.array(), 0, CHECKSUM_OFFSET);
+            ParticleStore store = new ParticleStore();
+            store.ensureCapacity(n);
+            long position = HEADER_SIZE;
+            for (double[] section : new double[][]{store.getXs(), store.getYs(), store.getVxs(), store.getVys(),
+                    store.getMasses()}) {
+                position = readDoubles(channel, position, section, n, crc);
+            }
+            readInts(channel, position, store.getIds(), n, crc);
+            if ((int) crc.getValue() != header.getInt(CHECKSUM_OFFSET)) {
+                throw new IOException("Checkpoint checksum mismatch: " + file);
+            }
+
+            try {
+                store.restore(n);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt checkpoint file " + file + ": " + e.getMessage(), e);
+            }
+            return new Checkpoint(store, header.getLong(16), header.getLong(24));
+        }
+    }
+
+    private static long writeDoubles(FileChannel channel, long position, double[] values, int n, CRC32C crc)
+            throws IOException {
+        for (int from = 0; from < n; from += REGION_VALUES) {
+            int count = Math.min(REGION_VALUES, n - from);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) count * Double.BYTES);
+            region.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values, from, count);
+            crc.update(region);
+            region.force();
+            position += (long) count * Double.BYTES;
+        }
+        return position;
+    }
+
+    private static void writeInts(FileChannel channel, long position, int[] values, int n, CRC32C crc)
+            throws IOException {
+        for (int from = 0; from < n; from += REGION_VALUES) {
+            int count = Math.min(REGION_VALUES, n - from);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) count * Integer.BYTES);
+            region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(values, from, count);
+            crc.update(region);
+            region.force();
+            position += (long) count * Integer.BYTES;
+        }
+    }
+
+    private static long readDoubles(FileChannel channel, long position, double[] values, int n, CRC32C crc)
+            throws IOException {
+        for (int from = 0; from < n; from += REGION_VALUES) {
+            int count = Math.min(REGION_VALUES, n - from);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    (long) count * Double.BYTES);
+            region.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, from, count);
+            crc.update(region);
+            position += (long) count * Double.BYTES;
+        }
+        return position;
+    }
+
+    private static void readInts(FileChannel channel, long position, int[] values, int n, CRC32C crc)
+            throws IOException {
+        for (int from = 0; from < n; from += REGION_VALUES) {
+            int count = Math.min(REGION_VALUES, n - from);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    (long) count * Integer.BYTES);
+            region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, from, count);
+            crc.update(region);
+            position += (long) count * Integer.BYTES;
+        }
+    }
+}
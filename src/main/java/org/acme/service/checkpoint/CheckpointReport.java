@@ -0,0 +1,13 @@
+package org.acme.service.checkpoint;
+
+/**
+ * The outcome of writing or restoring a checkpoint.
+ *
+ * @param simulation    the simulation instance id
+ * @param particles     the particles written or restored
+ * @param tick          the tick of the checkpoint
+ * @param bytes         the size of the checkpoint file
+ * @param elapsedMillis the time taken, in milliseconds
+ */
+public record CheckpointReport(String simulation, int particles, long tick, long bytes, double elapsedMillis) {
+}
@@ -0,0 +1,245 @@
+package org.acme.service.checkpoint;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationRegistry;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the simulation instances to {@link CheckpointFile}s and restores them, so a restart does not lose the world.
+ * <p>
+ * A checkpoint is written from the latest published snapshot, so the tick loop never waits for the disk. Every
+ * {@code simulation.checkpoint.interval-ms}, the instances that ticked or changed since their last checkpoint are
+ * written on a thread of their own, so a long write never holds a worker ticking the instances, and once more at
+ * shutdown. At startup, every checkpoint of {@code simulation.checkpoint.directory} is restored into the instance it
+ * was written from. The checkpoint of an instance is deleted once the instance is removed, explicitly or once idle, so
+ * a restart only recreates the instances that were alive when it stopped.
+ * <p>
+ * The writes of an instance are serialized, whether periodic, requested or at shutdown, and each takes its snapshot
+ * once it holds the lock, so a checkpoint is never replaced by an older one.
+ */
+@ApplicationScoped
+public class CheckpointService {
+
+    public static final String EXTENSION = ".ckpt";
+
+    private static final Logger LOG = Logger.getLogger(CheckpointService.class);
+
+    @Inject
+    SimulationRegistry registry;
+
+    @Getter
+    private Path directory = Path.of("checkpoints");
+    private long intervalMs;
+    private boolean restoreOnStart;
+
+    /**
+     * The tick and structure version of the last checkpoint of every instance, to skip unchanged instances.
+     */
+    private final Map<String, Version> written = new ConcurrentHashMap<>();
+
+    /**
+     * The lock serializing the writes of every instance.
+     */
+    private final Map<String, Object> writeLocks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writer;
+
+    private record Version(long tick, long structureVersion) {
+    }
+
+    /**
+     * Applies the configured settings.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        directory = Path.of(config.checkpoint().directory());
+        intervalMs = config.checkpoint().intervalMs();
+        restoreOnStart = config.checkpoint().restoreOnStart();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        registry.addRemovalListener(this::forget);
+        if (restoreOnStart) {
+            restoreAll();
+        }
+        if (intervalMs > 0) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "simulation-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.scheduleWithFixedDelay(this::checkpointAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (writer != null) {
+            // Lets a periodic run in progress finish, then writes what changed since.
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            checkpointAll();
+        }
+    }
+
+    /**
+     * Writes the checkpoint of an instance.
+     *
+     * @param instance the instance
+     * @return what was written
+     * @throws IOException           if the file cannot be written
+     * @throws IllegalStateException if the instance was removed
+     */
+    public CheckpointReport checkpoint(SimulationInstance instance) throws IOException {
+        synchronized (writeLock(instance.getId())) {
+            if (!registered(instance)) {
+                throw new IllegalStateException("Simulation " + instance.getId() + " was removed");
+            }
+            try (SimulationSnapshot snapshot = instance.getService().acquireSnapshot()) {
+                return write(instance.getId(), snapshot);
+            }
+        }
+    }
+
+    /**
+     * Replaces the particles of an instance with those of its checkpoint. The instance keeps ticking meanwhile and
+     * switches to the restored particles between two ticks.
+     *
+     * @param instance the instance
+     * @return what was restored, or empty if the instance has no checkpoint
+     * @throws IOException           if the file cannot be read or is corrupt
+     * @throws IllegalStateException if the checkpoint holds more particles than the instance accepts, or the instance
+     *                               is being recorded
+     */
+    public Optional<CheckpointReport> restore(SimulationInstance instance) throws IOException {
+        long start = System.nanoTime();
+        Path file = file(instance.getId());
+        Checkpoint checkpoint;
+        try {
+            checkpoint = CheckpointFile.read(file);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        int particles = checkpoint.particles().getSize();
+        instance.getService().restore(checkpoint.particles(), checkpoint.tick());
+        return Optional.of(new CheckpointReport(instance.getId(), particles, checkpoint.tick(),
+                CheckpointFile.fileSize(particles), (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * @param id the instance id
+     * @return whether the instance has a checkpoint
+     */
+    public boolean exists(String id) {
+        return Files.exists(file(id));
+    }
+
+    /**
+     * Writes the checkpoint of every instance that changed since its last one.
+     */
+    void checkpointAll() {
+        for (SimulationInstance instance : registry.list()) {
+            synchronized (writeLock(instance.getId())) {
+                if (!registered(instance)) continue;
+                try (SimulationSnapshot snapshot = instance.getService().acquireSnapshot()) {
+                    Version version = new Version(snapshot.getTick(), snapshot.getStructureVersion());
+                    if (version.equals(written.get(instance.getId()))) continue;
+                    write(instance.getId(), snapshot);
+                } catch (IOException | RuntimeException e) {
+                    LOG.errorf(e, "Error writing the checkpoint of simulation %s", instance.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores every checkpoint of the directory into the instance it was written from.
+     */
+    void restoreAll() {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(0, name.length() - EXTENSION.length());
+                try {
+                    restore(registry.get(id)).ifPresent(report -> LOG.infof(
+                            "Restored %d particles of simulation %s at tick %d in %.1f ms", report.particles(),
+                            report.simulation(), report.tick(), report.elapsedMillis()));
+                } catch (IOException | RuntimeException e) {
+                    LOG.errorf(e, "Error restoring the checkpoint of simulation %s", id);
+                }
+            }
+        } catch (IOException e) {
+            LOG.errorf(e, "Error listing the checkpoints of %s", directory);
+        }
+    }
+
+    /**
+     * Deletes the checkpoint of an instance removed from the registry and forgets about it, unless an instance of the
+     * same id was created since.
+     *
+     * @param instance the instance removed
+     */
+    void forget(SimulationInstance instance) {
+        String id = instance.getId();
+        Object lock = writeLock(id);
+        synchronized (lock) {
+            if (registry.find(id).isPresent()) return;
+            try {
+                Files.deleteIfExists(file(id));
+            } catch (IOException e) {
+                LOG.errorf(e, "Error deleting the checkpoint of simulation %s", id);
+            }
+            written.remove(id);
+            writeLocks.remove(id, lock);
+        }
+    }
+
+    /**
+     * Tells whether an instance is still the one registered under its id, as the checkpoint of a removed instance is
+     * deleted rather than written.
+     */
+    private boolean registered(SimulationInstance instance) {
+        return registry.find(instance.getId()).orElse(null) == instance;
+    }
+
+    private CheckpointReport write(String id, SimulationSnapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        long bytes = CheckpointFile.write(snapshot, file(id));
+        written.put(id, new Version(snapshot.getTick(), snapshot.getStructureVersion()));
+        return new CheckpointReport(id, snapshot.getSize(), snapshot.getTick(), bytes,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    private Object writeLock(String id) {
+        return writeLocks.computeIfAbsent(id, key -> new Object());
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + EXTENSION);
+    }
+}
@@ -0,0 +1,20 @@
+package org.acme.service.collision;
+
+/**
+ * Collision broadphase: finds the pairs of particles that are close enough to collide.
+ */
+public interface Broadphase {
+
+    /**
+     * Reports every pair (i, j), with i &lt; j, whose centres are closer than {@code range}.
+     * Pairs are reported in ascending (i, j) order, so every implementation resolves
+     * collisions in exactly the same sequence as the brute-force scan.
+     *
+     * @param xs       the x coordinates of the particles
+     * @param ys       the y coordinates of the particles
+     * @param count    the number of particles, the arrays may be longer
+     * @param range    the distance under which two particles collide
+     * @param consumer receives each colliding pair
+     */
+    void findPairs(double[] xs, double[] ys, int count, double range, PairConsumer consumer);
+}
@@ -0,0 +1,21 @@
+package org.acme.service.collision;
+
+/**
+ * Broadphase implementations selectable through {@code simulation.collision.broadphase}.
+ */
+public enum BroadphaseType {
+    GRID,
+    BRUTE_FORCE;
+
+    /**
+     * Creates a new broadphase of this type.
+     *
+     * @return the broadphase
+     */
+    public Broadphase create() {
+        return switch (this) {
+            case GRID -> new UniformGridBroadphase();
+            case BRUTE_FORCE -> new BruteForceBroadphase();
+        };
+    }
+}
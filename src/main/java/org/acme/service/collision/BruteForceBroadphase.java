@@ -0,0 +1,23 @@
+package org.acme.service.collision;
+
+/**
+ * Reference broadphase testing every pair of particles, in O(n²).
+ * Kept to verify the faster implementations.
+ */
+public class BruteForceBroadphase implements Broadphase {
+
+    @Override
+    public void findPairs(double[] xs, double[] ys, int count, double range, PairConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                double dx = xs[i] - xs[j];
+                double dy = ys[i] - ys[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+
+                if (distance < range) {
+                    consumer.accept(i, j);
+                }
+            }
+        }
+    }
+}
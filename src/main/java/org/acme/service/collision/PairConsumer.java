@@ -0,0 +1,16 @@
+package org.acme.service.collision;
+
+/**
+ * Receives the candidate pairs reported by a {@link Broadphase}.
+ */
+@FunctionalInterface
+public interface PairConsumer {
+
+    /**
+     * Called once for every pair of particles closer than the requested range.
+     *
+     * @param i the index of the first particle
+     * @param j the index of the second particle, always greater than {@code i}
+     */
+    void accept(int i, int j);
+}
@@ -0,0 +1,156 @@
+package org.acme.service.collision;
+
+import java.util.Arrays;
+
+/**
+ * Spatial hash broadphase: particles are bucketed into square cells whose side is the collision range,
+ * so a particle can only collide with particles of its own cell and of the 8 surrounding ones.
+ * <p>
+ * The grid is rebuilt every call with a counting sort into arrays that are kept between calls and
+ * only grow with the particle count, so a steady-state tick allocates nothing.
+ */
+public class UniformGridBroadphase implements Broadphase {
+
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private long[] cellXs = new long[0];
+    private long[] cellYs = new long[0];
+    private int[] bucketOf = new int[0];
+    private int[] sorted = new int[0];
+    private int[] bucketStart = new int[MIN_TABLE_SIZE + 1];
+    private int tableMask = MIN_TABLE_SIZE - 1;
+
+    private int[] candidates = new int[16];
+    private final int[] visited = new int[9];
+
+    @Override
+    public void findPairs(double[] xs, double[] ys, int count, double range, PairConsumer consumer) {
+        if (count < 2) return;
+
+        rebuild(xs, ys, count, 1.0 / range);
+
+        for (int i = 0; i < count; i++) {
+            int found = collectNeighbours(xs, ys, i, range);
+            sortCandidates(found);
+            for (int k = 0; k < found; k++) {
+                consumer.accept(i, candidates[k]);
+            }
+        }
+    }
+
+    /**
+     * Buckets every particle by the hash of its cell, reusing the arrays of the previous call.
+     */
+    private void rebuild(double[] xs, double[] ys, int n, double inverseCellSize) {
+        ensureCapacity(n);
+        int tableSize = tableMask + 1;
+        Arrays.fill(bucketStart, 0, tableSize + 1, 0);
+
+        for (int i = 0; i < n; i++) {
+            long cx = (long) Math.floor(xs[i] * inverseCellSize);
+            long cy = (long) Math.floor(ys[i] * inverseCellSize);
+            int bucket = bucket(cx, cy);
+
+            cellXs[i] = cx;
+            cellYs[i] = cy;
+            bucketOf[i] = bucket;
+            bucketStart[bucket]++;
+        }
+
+        // Inclusive prefix sum: bucketStart[b] becomes the end of bucket b.
+        for (int b = 1; b < tableSize; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        bucketStart[tableSize] = n;
+
+        // Filling each bucket from its end leaves bucketStart[b] at its start and keeps indices ascending.
+        for (int i = n - 1; i >= 0; i--) {
+            sorted[--bucketStart[bucketOf[i]]] = i;
+        }
+    }
+
+    /**
+     * Collects into {@link #candidates} every particle j &gt; i closer than {@code range} to particle i.
+     *
+     * @return the number of candidates found
+     */
+    private int collectNeighbours(double[] xs, double[] ys, int i, double range) {
+        double xi = xs[i];
+        double yi = ys[i];
+        long cx = cellXs[i];
+        long cy = cellYs[i];
+        int visitedCount = 0;
+        int found = 0;
+
+        for (long dy = -1; dy <= 1; dy++) {
+            for (long dx = -1; dx <= 1; dx++) {
+                int bucket = bucket(cx + dx, cy + dy);
+                if (alreadyVisited(bucket, visitedCount)) continue;
+                visited[visitedCount++] = bucket;
+
+                for (int k = bucketStart[bucket], end = bucketStart[bucket + 1]; k < end; k++) {
+                    int j = sorted[k];
+                    if (j <= i) continue;
+
+                    double ddx = xi - xs[j];
+                    double ddy = yi - ys[j];
+                    double distance = Math.sqrt(ddx * ddx + ddy * ddy);
+
+                    if (distance < range) {
+                        if (found == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, found * 2);
+                        }
+                        candidates[found++] = j;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Two neighbouring cells may hash to the same bucket; it must only be scanned once.
+     */
+    private boolean alreadyVisited(int bucket, int visitedCount) {
+        for (int v = 0; v < visitedCount; v++) {
+            if (visited[v] == bucket) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Insertion sort: candidate lists are tiny, and sorting them keeps the brute-force pair order.
+     */
+    private void sortCandidates(int found) {
+        for (int a = 1; a < found; a++) {
+            int value = candidates[a];
+            int b = a - 1;
+            while (b >= 0 && candidates[b] > value) {
+                candidates[b + 1] = candidates[b];
+                b--;
+            }
+            candidates[b + 1] = value;
+        }
+    }
+
+    private int bucket(long cx, long cy) {
+        long h = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (int) h & tableMask;
+    }
+
+    private void ensureCapacity(int n) {
+        if (cellXs.length < n) {
+            int capacity = Math.max(n, cellXs.length + (cellXs.length >> 1));
+            cellXs = new long[capacity];
+            cellYs = new long[capacity];
+            bucketOf = new int[capacity];
+            sorted = new int[capacity];
+        }
+        int tableSize = Math.max(MIN_TABLE_SIZE, Integer.highestOneBit(Math.max(1, n - 1)) << 2);
+        if (tableSize > tableMask + 1) {
+            bucketStart = new int[tableSize + 1];
+            tableMask = tableSize - 1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.acme.service.ingest;
+
+import org.acme.model.ParticleStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads packed binary particles: a headerless sequence of {@value #RECORD_SIZE}-byte records, one per particle,
+ * with little-endian values like the WebSocket frames:
+ * <pre>
+ *  0  f64  x
+ *  8  f64  y
+ * 16  f64  vx
+ * 24  f64  vy
+ * 32  f64  mass
+ * </pre>
+ * Records are read straight from the body into a reused buffer, one batch at a time.
+ */
+public class BinaryParticleReader implements ParticleReader {
+
+    public static final int RECORD_SIZE = 40;
+
+    private final InputStream body;
+    private byte[] bytes = new byte[0];
+    private boolean finished;
+    private long ordinal;
+
+    public BinaryParticleReader(InputStream body) {
+        this.body = body;
+    }
+
+    @Override
+    public int read(ParticleStore batch, int max) throws IOException {
+        if (finished || max <= 0) return 0;
+        int wanted = Math.min(max, Integer.MAX_VALUE / RECORD_SIZE) * RECORD_SIZE;
+        if (bytes.length < wanted) {
+            bytes = new byte[wanted];
+        }
+        int length = body.readNBytes(bytes, 0, wanted);
+        if (length < wanted) {
+            finished = true;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        int count = length / RECORD_SIZE;
+        for (int i = 0; i < count; i++) {
+            int offset = i * RECORD_SIZE;
+            IngestedParticles.append(batch, ordinal,
+                    buffer.getDouble(offset), buffer.getDouble(offset + 8), buffer.getDouble(offset + 16),
+                    buffer.getDouble(offset + 24), buffer.getDouble(offset + 32));
+            ordinal++;
+        }
+        int trailing = length % RECORD_SIZE;
+        if (trailing != 0) {
+            throw new IllegalArgumentException("Truncated particle " + ordinal + ": " + trailing + " of "
+                    + RECORD_SIZE + " bytes");
+        }
+        return count;
+    }
+}
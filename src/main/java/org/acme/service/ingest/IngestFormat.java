@@ -0,0 +1,68 @@
+package org.acme.service.ingest;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Body formats accepted by the bulk ingest endpoint, selected by the request content type.
+ */
+public enum IngestFormat {
+    /**
+     * {@code application/json}: a JSON array of particles, parsed as a stream of events.
+     */
+    JSON("application/json"),
+    /**
+     * {@code application/x-ndjson}: one JSON particle per line.
+     */
+    NDJSON("application/x-ndjson"),
+    /**
+     * {@code application/octet-stream}: packed little-endian records, see {@link BinaryParticleReader}.
+     */
+    BINARY("application/octet-stream");
+
+    public static final String NDJSON_TYPE = "application/x-ndjson";
+
+    private final String mediaType;
+
+    IngestFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return the content type of the format, without parameters
+     */
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Creates a reader parsing a body in this format.
+     *
+     * @param body the request body
+     * @return a reader consuming the body incrementally
+     */
+    public ParticleReader open(InputStream body) {
+        return switch (this) {
+            case JSON -> new JsonParticleReader(body);
+            case NDJSON -> new NdjsonParticleReader(body);
+            case BINARY -> new BinaryParticleReader(body);
+        };
+    }
+
+    /**
+     * Finds the format of a content type.
+     *
+     * @param type the content type, without parameters
+     * @return the format
+     * @throws IllegalArgumentException if no format has this content type
+     */
+    public static IngestFormat fromMediaType(String type) {
+        String normalized = type == null ? "" : type.trim().toLowerCase(Locale.ROOT);
+        for (IngestFormat format : values()) {
+            if (format.mediaType.equals(normalized)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported ingest content type: " + type);
+    }
+}
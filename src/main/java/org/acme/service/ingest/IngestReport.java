@@ -0,0 +1,37 @@
+package org.acme.service.ingest;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingest.
+ *
+ * @param particles          the particles appended to the simulation
+ * @param elapsedMillis      the time spent reading, parsing and appending the whole body
+ * @param particlesPerSecond the overall ingest throughput
+ * @param batches            the batches appended, in order
+ * @param error              why the ingest stopped before the end of the body, or {@code null} if it did not; the
+ *                           particles before the error are kept
+ */
+public record IngestReport(long particles, double elapsedMillis, double particlesPerSecond, List<Batch> batches,
+                           String error) {
+
+    /**
+     * A batch appended to the simulation in one step.
+     *
+     * @param particles          the particles appended
+     * @param readMillis         the time spent reading and parsing the batch
+     * @param appendMillis       the time spent appending the batch, waiting for the end of a tick included
+     * @param particlesPerSecond the throughput of the batch
+     */
+    public record Batch(int particles, double readMillis, double appendMillis, double particlesPerSecond) {
+
+        static Batch of(int particles, long readNanos, long appendNanos) {
+            return new Batch(particles, readNanos / 1e6, appendNanos / 1e6,
+                    throughput(particles, readNanos + appendNanos));
+        }
+    }
+
+    static double throughput(long particles, long nanos) {
+        return nanos > 0 ? particles * 1e9 / nanos : 0;
+    }
+}
@@ -0,0 +1,30 @@
+package org.acme.service.ingest;
+
+import org.acme.model.ParticleStore;
+
+/**
+ * Validation shared by the particle readers.
+ */
+final class IngestedParticles {
+
+    private IngestedParticles() {
+    }
+
+    /**
+     * Appends a parsed particle to a batch after checking its values.
+     *
+     * @param batch   the batch to append to
+     * @param ordinal the position of the particle in the input, starting at 0, for error messages
+     * @throws IllegalArgumentException if a value is not finite or the mass is not positive
+     */
+    static void append(ParticleStore batch, long ordinal, double x, double y, double vx, double vy, double mass) {
+        if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(vx) || !Double.isFinite(vy)
+                || !Double.isFinite(mass)) {
+            throw new IllegalArgumentException("Invalid particle " + ordinal + ": values must be finite");
+        }
+        if (mass <= 0) {
+            throw new IllegalArgumentException("Invalid particle " + ordinal + ": mass must be positive");
+        }
+        batch.add(x, y, vx, vy, mass);
+    }
+}
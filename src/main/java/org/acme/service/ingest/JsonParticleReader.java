@@ -0,0 +1,108 @@
+package org.acme.service.ingest;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import org.acme.model.ParticleStore;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of particles, e.g. {@code [{"x":1,"y":2,"vx":0,"vy":0,"mass":1}, ...]}, as a stream of parser
+ * events, so the body is never materialized as a whole. Missing positions and velocities default to 0 like for
+ * {@code POST /simulation/add}, but the mass is required: a missing one reads as 0, which the ingest rejects as it
+ * does any mass that is not positive. Unknown fields are ignored.
+ */
+public class JsonParticleReader implements ParticleReader {
+
+    static final JsonParserFactory PARSERS = Json.createParserFactory(Map.of());
+
+    private final JsonParser parser;
+    private boolean started;
+    private boolean finished;
+    private long ordinal;
+
+    public JsonParticleReader(InputStream body) {
+        this.parser = PARSERS.createParser(body);
+    }
+
+    @Override
+    public int read(ParticleStore batch, int max) {
+        if (finished) return 0;
+        try {
+            if (!started) {
+                started = true;
+                if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                    throw new IllegalArgumentException("Expected a JSON array of particles");
+                }
+            }
+            int count = 0;
+            while (count < max) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.END_ARRAY) {
+                    finished = true;
+                    break;
+                }
+                if (event != JsonParser.Event.START_OBJECT) {
+                    throw new IllegalArgumentException("Invalid particle " + ordinal + ": expected an object");
+                }
+                readParticle(parser, batch, ordinal++);
+                count++;
+            }
+            return count;
+        } catch (JsonException | IllegalStateException | NoSuchElementException e) {
+            finished = true;
+            throw new IllegalArgumentException("Invalid JSON after particle " + ordinal + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the fields of a particle object whose {@code START_OBJECT} event was just consumed, up to and including
+     * its {@code END_OBJECT} event, and appends the particle.
+     */
+    static void readParticle(JsonParser parser, ParticleStore batch, long ordinal) {
+        double x = 0, y = 0, vx = 0, vy = 0, mass = 0;
+        JsonParser.Event event;
+        while ((event = parser.next()) == JsonParser.Event.KEY_NAME) {
+            String key = parser.getString();
+            JsonParser.Event value = parser.next();
+            switch (value) {
+                case VALUE_NUMBER -> {
+                    // The text is parsed directly: getBigDecimal() would allocate for every value.
+                    double number = Double.parseDouble(parser.getString());
+                    switch (key) {
+                        case "x" -> x = number;
+                        case "y" -> y = number;
+                        case "vx" -> vx = number;
+                        case "vy" -> vy = number;
+                        case "mass" -> mass = number;
+                        default -> {
+                        }
+                    }
+                }
+                case START_OBJECT -> parser.skipObject();
+                case START_ARRAY -> parser.skipArray();
+                default -> {
+                    if (isParticleField(key)) {
+                        throw new IllegalArgumentException("Invalid particle " + ordinal + ": " + key
+                                + " must be a number");
+                    }
+                }
+            }
+        }
+        if (event != JsonParser.Event.END_OBJECT) {
+            throw new IllegalArgumentException("Invalid particle " + ordinal + ": unexpected " + event);
+        }
+        IngestedParticles.append(batch, ordinal, x, y, vx, vy, mass);
+    }
+
+    private static boolean isParticleField(String key) {
+        return switch (key) {
+            case "x", "y", "vx", "vy", "mass" -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package org.acme.service.ingest;
+
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import org.acme.model.ParticleStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads newline-delimited JSON: one particle object per line, blank lines ignored. Lines are parsed as they arrive,
+ * so the body is never materialized as a whole; a line longer than {@value #MAX_LINE_LENGTH} characters is rejected
+ * rather than buffered.
+ */
+public class NdjsonParticleReader implements ParticleReader {
+
+    /**
+     * The longest line accepted, in characters, far above any particle object.
+     */
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Reader input;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private final StringBuilder line = new StringBuilder();
+    private boolean finished;
+    private long ordinal;
+
+    public NdjsonParticleReader(InputStream body) {
+        this.input = new InputStreamReader(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read(ParticleStore batch, int max) throws IOException {
+        int count = 0;
+        while (!finished && count < max) {
+            if (!nextLine()) {
+                finished = true;
+                break;
+            }
+            String text = line.toString();
+            if (text.isBlank()) continue;
+            try (JsonParser parser = JsonParticleReader.PARSERS.createParser(new StringReader(text))) {
+                if (parser.next() != JsonParser.Event.START_OBJECT) {
+                    throw new IllegalArgumentException("Invalid particle " + ordinal + ": expected an object");
+                }
+                JsonParticleReader.readParticle(parser, batch, ordinal);
+                if (parser.hasNext()) {
+                    throw new IllegalArgumentException("Invalid particle " + ordinal + ": one object per line");
+                }
+            } catch (JsonException | IllegalStateException | NoSuchElementException e) {
+                finished = true;
+                throw new IllegalArgumentException("Invalid JSON for particle " + ordinal + ": " + e.getMessage(), e);
+            } catch (IllegalArgumentException e) {
+                finished = true;
+                throw e;
+            }
+            ordinal++;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads the next line into {@link #line}, without its line feed.
+     *
+     * @return whether there was a line, false at the end of the input
+     * @throws IllegalArgumentException if the line is longer than {@value #MAX_LINE_LENGTH} characters
+     */
+    private boolean nextLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (position == limit) {
+                int read = input.read(buffer, 0, buffer.length);
+                position = 0;
+                limit = Math.max(read, 0);
+                if (read < 0) return !line.isEmpty();
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            if (line.length() + position - start > MAX_LINE_LENGTH) {
+                finished = true;
+                throw new IllegalArgumentException("Invalid particle " + ordinal + ": line longer than "
+                        + MAX_LINE_LENGTH + " characters");
+            }
+            line.append(buffer, start, position - start);
+            if (position < limit) {
+                position++;
+                return true;
+            }
+        }
+    }
+}
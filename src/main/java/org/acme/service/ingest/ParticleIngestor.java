@@ -0,0 +1,79 @@
+package org.acme.service.ingest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.Setter;
+import org.acme.model.ParticleStore;
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends streamed particles to a simulation in large batches.
+ * <p>
+ * The reader fills a reusable batch of {@code simulation.ingest.batch-size} particles while the simulation keeps
+ * ticking; each full batch is then appended under the simulation lock in a single step, so it lands between two
+ * ticks and costs one lock acquisition instead of one per particle.
+ */
+@ApplicationScoped
+public class ParticleIngestor {
+
+    @Getter
+    @Setter
+    private int batchSize = 16384;
+
+    /**
+     * Applies the configured batch size.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        batchSize = config.ingest().batchSize();
+    }
+
+    /**
+     * Reads a body to its end, or up to its first error, appending its particles to a simulation.
+     *
+     * @param reader  the body
+     * @param service the simulation to append to
+     * @return the particles appended and the throughput of every batch
+     * @throws IOException if the body cannot be read
+     */
+    public IngestReport ingest(ParticleReader reader, SimulationService service) throws IOException {
+        ParticleStore batch = new ParticleStore();
+        batch.ensureCapacity(batchSize);
+        List<IngestReport.Batch> batches = new ArrayList<>();
+        long particles = 0;
+        String error = null;
+        long start = System.nanoTime();
+
+        while (error == null) {
+            batch.clear();
+            long readStart = System.nanoTime();
+            try {
+                reader.read(batch, batchSize);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            int read = batch.getSize();
+            if (read == 0) break;
+
+            long appendStart = System.nanoTime();
+            int appended = service.addParticles(batch);
+            long end = System.nanoTime();
+            particles += appended;
+            batches.add(IngestReport.Batch.of(appended, appendStart - readStart, end - appendStart));
+            if (appended < read) {
+                error = "Particle limit reached: " + service.getMaxParticles();
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new IngestReport(particles, elapsed / 1e6, IngestReport.throughput(particles, elapsed), batches, error);
+    }
+}
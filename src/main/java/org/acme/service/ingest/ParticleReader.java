@@ -0,0 +1,23 @@
+package org.acme.service.ingest;
+
+import org.acme.model.ParticleStore;
+
+import java.io.IOException;
+
+/**
+ * Parses particles incrementally out of a request body, one batch at a time.
+ */
+public interface ParticleReader {
+
+    /**
+     * Appends the next particles of the input to a batch. Particles are only appended once fully parsed, so when the
+     * input turns out to be malformed the batch holds every valid particle before the error.
+     *
+     * @param batch the store to append to
+     * @param max   the most particles to read
+     * @return the number of particles appended, 0 once the input is exhausted
+     * @throws IllegalArgumentException if the input is malformed
+     * @throws IOException              if the input cannot be read
+     */
+    int read(ParticleStore batch, int max) throws IOException;
+}
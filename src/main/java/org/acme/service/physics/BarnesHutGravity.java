@@ -0,0 +1,540 @@
+package org.acme.service.physics;
+
+import lombok.Getter;
+import org.acme.model.ParticleStore;
+import org.acme.service.ParallelRangeExecutor;
+
+/**
+ * Mutual gravity between every pair of particles in O(n log n), with the Barnes-Hut approximation: a group of
+ * particles far enough away attracts like a single particle of their total mass at their center of mass.
+ * <p>
+ * Every call builds a quadtree over the square bounding the particles:
+ * <ol>
+ *     <li>each particle gets the 32-bit Morton code of its position on a 65536 * 65536 grid, and the codes are sorted
+ *     with a parallel radix sort, so the particles of any quadtree cell are contiguous in sorted order;</li>
+ *     <li>the top of the tree is split sequentially until cells hold at most a partition of particles, then those
+ *     subtrees are built in parallel, each into a block of nodes reserved in advance. Cells whose particles all fall
+ *     in one quadrant are skipped, so every internal node has at least 2 children and the tree has fewer than 2n
+ *     nodes;</li>
+ *     <li>every particle walks the tree in parallel, accepting a node when its cell side over its distance is below
+ *     the opening angle theta, and summing the particles of the leaves it has to open one by one.</li>
+ * </ol>
+ * The tree lives in arrays kept between calls that only grow with the particle count, and the phases are actions
+ * created once, so a steady-state call allocates nothing on a sequential executor; a parallel one only allocates the
+ * fork/join tasks spreading the phases. Theta trades accuracy for speed: 0 opens every node, i.e. the exact O(n^2)
+ * sum, while 0.5 to 1 keeps the error within a few percent. Forces are softened,
+ * {@code G m / (d^2 + softening^2)}, so close encounters stay finite.
+ * <p>
+ * Not thread-safe: a simulation applies it from its ticking thread, which fans the work out to the executor.
+ */
+public class BarnesHutGravity {
+
+    /**
+     * The most particles in a leaf, summed one by one when the leaf is opened.
+     */
+    static final int LEAF_SIZE = 8;
+
+    private static final int LEVELS = 16;
+    private static final int GRID = 1 << LEVELS;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int STACK_SIZE = 4 * (LEVELS + 1) + 1;
+
+    @Getter
+    private final double theta;
+    @Getter
+    private final double constant;
+    @Getter
+    private final double softening;
+    private final double theta2;
+    private final double softening2;
+
+    // Sorted particles: Morton codes, particle indices, then positions and masses in sorted order
+    private int[] codes = new int[0];
+    private int[] order = new int[0];
+    private int[] codesBuffer = new int[0];
+    private int[] orderBuffer = new int[0];
+    private double[] sortedXs = new double[0];
+    private double[] sortedYs = new double[0];
+    private double[] sortedMasses = new double[0];
+
+    // Per-partition bounds and radix histograms
+    private double[] partitionBounds = new double[0];
+    private int[] histograms = new int[0];
+
+    // Nodes: the sorted range [first, last) of their particles, their cell side, mass, center of mass and children
+    private int[] first = new int[0];
+    private int[] last = new int[0];
+    private int[] childStart = new int[0];
+    private int[] childCount = new int[0];
+    private double[] sizes = new double[0];
+    private double[] nodeMasses = new double[0];
+    private double[] comXs = new double[0];
+    private double[] comYs = new double[0];
+
+    // The subtrees built in parallel, and the internal nodes of the top of the tree, in creation order
+    private int[] pendingNodes = new int[0];
+    private int[] pendingLevels = new int[0];
+    private int[] pendingBases = new int[0];
+    private int pendingCount;
+    private int[] topInternal = new int[0];
+    private int topInternalCount;
+
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[STACK_SIZE]);
+
+    // The particles, time step and radix digit of the current call, read by the phase actions
+    private double[] xs;
+    private double[] ys;
+    private double[] masses;
+    private double[] vxs;
+    private double[] vys;
+    private double scale;
+    private double impulse;
+    private int digitShift;
+
+    private final ParallelRangeExecutor.RangeAction boundsAction = this::computePartitionBounds;
+    private final ParallelRangeExecutor.RangeAction encodeAction = this::encode;
+    private final ParallelRangeExecutor.RangeAction countDigitsAction = this::countDigits;
+    private final ParallelRangeExecutor.RangeAction scatterAction = this::scatter;
+    private final ParallelRangeExecutor.RangeAction gatherAction = this::gather;
+    private final ParallelRangeExecutor.RangeAction buildSubtreesAction = this::buildSubtrees;
+    private final ParallelRangeExecutor.RangeAction accelerateAction = this::accelerate;
+
+    private double minX;
+    private double minY;
+    private double side;
+    private int count;
+    private int partitions;
+    private int partitionLength;
+    private int subtreeSize;
+
+    /**
+     * @param theta     the opening angle, 0 for the exact sum
+     * @param constant  the gravitational constant G
+     * @param softening the softening length, at least 0
+     */
+    public BarnesHutGravity(double theta, double constant, double softening) {
+        if (!(theta >= 0) || !(softening >= 0) || !Double.isFinite(constant)) {
+            throw new IllegalArgumentException("Invalid Barnes-Hut settings: theta " + theta + ", G " + constant
+                    + ", softening " + softening);
+        }
+        this.theta = theta;
+        this.constant = constant;
+        this.softening = softening;
+        this.theta2 = theta * theta;
+        this.softening2 = softening * softening;
+    }
+
+    /**
+     * Accelerates every particle by the gravity of all the others over a time step. Only velocities change.
+     *
+     * @param store    the particles
+     * @param dt       the time step
+     * @param executor the executor spreading the work
+     */
+    public void apply(ParticleStore store, double dt, ParallelRangeExecutor executor) {
+        count = store.getSize();
+        if (count < 2) return;
+        ensureCapacity(count);
+        boolean parallel = executor.isParallel() && count > executor.getSequentialThreshold();
+        partitions = parallel ? (count + executor.getPartitionSize() - 1) / executor.getPartitionSize() : 1;
+        partitionLength = (count + partitions - 1) / partitions;
+        subtreeSize = parallel ? executor.getPartitionSize() : Integer.MAX_VALUE;
+        ensurePartitionCapacity(partitions);
+        xs = store.getXs();
+        ys = store.getYs();
+        masses = store.getMasses();
+        vxs = store.getVxs();
+        vys = store.getVys();
+        impulse = constant * dt;
+
+        try {
+            computeBounds(executor);
+            sortByMortonCode(executor);
+            buildTree(executor);
+            executor.forEachRange(count, accelerateAction);
+        } finally {
+            // Not retained between calls
+            xs = ys = masses = vxs = vys = null;
+        }
+    }
+
+    /**
+     * Finds the square bounding every particle, from the bounds of every partition.
+     */
+    private void computeBounds(ParallelRangeExecutor executor) {
+        executor.forEachTask(partitions, boundsAction);
+        double lowX = Double.POSITIVE_INFINITY, highX = Double.NEGATIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        for (int p = 0; p < partitions; p++) {
+            lowX = Math.min(lowX, partitionBounds[4 * p]);
+            highX = Math.max(highX, partitionBounds[4 * p + 1]);
+            lowY = Math.min(lowY, partitionBounds[4 * p + 2]);
+            highY = Math.max(highY, partitionBounds[4 * p + 3]);
+        }
+        double extent = Math.max(highX - lowX, highY - lowY);
+        minX = lowX;
+        minY = lowY;
+        side = extent > 0 && Double.isFinite(extent) ? extent : 1;
+    }
+
+    private void computePartitionBounds(int fromPartition, int toPartition) {
+        for (int p = fromPartition; p < toPartition; p++) {
+            double lowX = Double.POSITIVE_INFINITY, highX = Double.NEGATIVE_INFINITY;
+            double lowY = Double.POSITIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+            for (int i = p * partitionLength, end = Math.min(count, i + partitionLength); i < end; i++) {
+                lowX = Math.min(lowX, xs[i]);
+                highX = Math.max(highX, xs[i]);
+                lowY = Math.min(lowY, ys[i]);
+                highY = Math.max(highY, ys[i]);
+            }
+            partitionBounds[4 * p] = lowX;
+            partitionBounds[4 * p + 1] = highX;
+            partitionBounds[4 * p + 2] = lowY;
+            partitionBounds[4 * p + 3] = highY;
+        }
+    }
+
+    /**
+     * Sorts the particles by Morton code with a least-significant-digit radix sort: per pass, every partition counts
+     * its digits, then scatters its particles to the offsets of a prefix sum over (digit, partition), which keeps
+     * the sort stable.
+     */
+    private void sortByMortonCode(ParallelRangeExecutor executor) {
+        scale = GRID / side;
+        executor.forEachRange(count, encodeAction);
+
+        for (int shift = 0; shift < 2 * LEVELS; shift += RADIX_BITS) {
+            digitShift = shift;
+            executor.forEachTask(partitions, countDigitsAction);
+            int offset = 0;
+            for (int d = 0; d < RADIX; d++) {
+                for (int p = 0; p < partitions; p++) {
+                    int size = histograms[p * RADIX + d];
+                    histograms[p * RADIX + d] = offset;
+                    offset += size;
+                }
+            }
+            executor.forEachTask(partitions, scatterAction);
+            int[] sortedCodes = codesBuffer;
+            int[] sortedOrder = orderBuffer;
+            codesBuffer = codes;
+            orderBuffer = order;
+            codes = sortedCodes;
+            order = sortedOrder;
+        }
+
+        executor.forEachRange(count, gatherAction);
+    }
+
+    private void encode(int from, int to) {
+        for (int i = from; i < to; i++) {
+            codes[i] = morton(cell(xs[i], minX, scale), cell(ys[i], minY, scale));
+            order[i] = i;
+        }
+    }
+
+    /**
+     * Counts the digits of the current pass in every partition.
+     */
+    private void countDigits(int fromPartition, int toPartition) {
+        for (int p = fromPartition; p < toPartition; p++) {
+            int histogram = p * RADIX;
+            for (int d = 0; d < RADIX; d++) {
+                histograms[histogram + d] = 0;
+            }
+            for (int i = p * partitionLength, end = Math.min(count, i + partitionLength); i < end; i++) {
+                histograms[histogram + ((codes[i] >>> digitShift) & (RADIX - 1))]++;
+            }
+        }
+    }
+
+    /**
+     * Moves the particles of every partition from the codes and order to their buffers, at the offsets of the pass.
+     */
+    private void scatter(int fromPartition, int toPartition) {
+        for (int p = fromPartition; p < toPartition; p++) {
+            int histogram = p * RADIX;
+            for (int i = p * partitionLength, end = Math.min(count, i + partitionLength); i < end; i++) {
+                int target = histograms[histogram + ((codes[i] >>> digitShift) & (RADIX - 1))]++;
+                codesBuffer[target] = codes[i];
+                orderBuffer[target] = order[i];
+            }
+        }
+    }
+
+    private void gather(int from, int to) {
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            sortedXs[k] = xs[i];
+            sortedYs[k] = ys[i];
+            sortedMasses[k] = masses[i];
+        }
+    }
+
+    /**
+     * Builds the top of the tree on the calling thread, then its subtrees on the executor, then the aggregates of
+     * the top nodes from their children.
+     */
+    private void buildTree(ParallelRangeExecutor executor) {
+        pendingCount = 0;
+        topInternalCount = 0;
+        int topEnd = buildTop(0, 0, count, 0, 1);
+
+        int base = topEnd;
+        for (int t = 0; t < pendingCount; t++) {
+            pendingBases[t] = base;
+            int node = pendingNodes[t];
+            // A subtree of m particles has at most 2m - 1 nodes, its root already allocated
+            base += 2 * (last[node] - first[node]) - 2;
+        }
+        executor.forEachTask(pendingCount, buildSubtreesAction);
+
+        for (int t = topInternalCount - 1; t >= 0; t--) {
+            aggregateChildren(topInternal[t]);
+        }
+    }
+
+    private void buildSubtrees(int fromTask, int toTask) {
+        for (int t = fromTask; t < toTask; t++) {
+            int node = pendingNodes[t];
+            build(node, first[node], last[node], pendingLevels[t], pendingBases[t]);
+        }
+    }
+
+    /**
+     * Builds a node of the top of the tree, leaving the subtrees of at most a partition of particles for later.
+     *
+     * @return the next free node
+     */
+    private int buildTop(int node, int from, int to, int level, int next) {
+        first[node] = from;
+        last[node] = to;
+        if (to - from <= subtreeSize) {
+            pendingNodes[pendingCount] = node;
+            pendingLevels[pendingCount] = level;
+            pendingCount++;
+            return next;
+        }
+        level = splitLevel(from, to, level);
+        sizes[node] = cellSize(level);
+        if (level == LEVELS) {
+            childCount[node] = 0;
+            aggregateLeaf(node);
+            return next;
+        }
+        topInternal[topInternalCount++] = node;
+        int children = allocateChildren(node, from, to, level, next);
+        next += children;
+        for (int c = 0; c < children; c++) {
+            int child = childStart[node] + c;
+            next = buildTop(child, first[child], last[child], level + 1, next);
+        }
+        return next;
+    }
+
+    /**
+     * Builds a subtree on the calling thread, allocating its nodes from {@code next}.
+     *
+     * @return the next free node
+     */
+    private int build(int node, int from, int to, int level, int next) {
+        first[node] = from;
+        last[node] = to;
+        if (to - from > LEAF_SIZE) {
+            level = splitLevel(from, to, level);
+        }
+        sizes[node] = cellSize(level);
+        if (to - from <= LEAF_SIZE || level == LEVELS) {
+            childCount[node] = 0;
+            aggregateLeaf(node);
+            return next;
+        }
+        int children = allocateChildren(node, from, to, level, next);
+        next += children;
+        for (int c = 0; c < children; c++) {
+            int child = childStart[node] + c;
+            next = build(child, first[child], last[child], level + 1, next);
+        }
+        aggregateChildren(node);
+        return next;
+    }
+
+    /**
+     * @return the first level, from {@code level}, whose cells split the range, or {@link #LEVELS} if every particle
+     * of the range has the same code
+     */
+    private int splitLevel(int from, int to, int level) {
+        while (level < LEVELS && quadrant(codes[from], level) == quadrant(codes[to - 1], level)) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Splits a sorted range into the non-empty quadrants of a cell, allocated as consecutive nodes.
+     *
+     * @return the number of children
+     */
+    private int allocateChildren(int node, int from, int to, int level, int next) {
+        childStart[node] = next;
+        int children = 0;
+        int start = from;
+        while (start < to) {
+            int quadrant = quadrant(codes[start], level);
+            int end = start + 1;
+            while (end < to && quadrant(codes[end], level) == quadrant) {
+                end++;
+            }
+            first[next + children] = start;
+            last[next + children] = end;
+            children++;
+            start = end;
+        }
+        childCount[node] = children;
+        return children;
+    }
+
+    private void aggregateLeaf(int node) {
+        double mass = 0, x = 0, y = 0;
+        for (int k = first[node]; k < last[node]; k++) {
+            mass += sortedMasses[k];
+            x += sortedMasses[k] * sortedXs[k];
+            y += sortedMasses[k] * sortedYs[k];
+        }
+        setAggregate(node, mass, x, y);
+    }
+
+    private void aggregateChildren(int node) {
+        double mass = 0, x = 0, y = 0;
+        for (int child = childStart[node], end = child + childCount[node]; child < end; child++) {
+            mass += nodeMasses[child];
+            x += nodeMasses[child] * comXs[child];
+            y += nodeMasses[child] * comYs[child];
+        }
+        setAggregate(node, mass, x, y);
+    }
+
+    private void setAggregate(int node, double mass, double weightedX, double weightedY) {
+        nodeMasses[node] = mass;
+        if (mass != 0) {
+            comXs[node] = weightedX / mass;
+            comYs[node] = weightedY / mass;
+        } else {
+            comXs[node] = sortedXs[first[node]];
+            comYs[node] = sortedYs[first[node]];
+        }
+    }
+
+    /**
+     * Walks the tree for every particle, in sorted order so neighbouring particles walk the same nodes.
+     */
+    private void accelerate(int from, int to) {
+        int[] stack = stacks.get();
+        for (int k = from; k < to; k++) {
+            double x = sortedXs[k];
+            double y = sortedYs[k];
+            double ax = 0;
+            double ay = 0;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                boolean inside = k >= first[node] && k < last[node];
+                double dx = comXs[node] - x;
+                double dy = comYs[node] - y;
+                double distance2 = dx * dx + dy * dy;
+                if (!inside && sizes[node] * sizes[node] < theta2 * distance2) {
+                    double inverse = 1 / Math.sqrt(distance2 + softening2);
+                    double force = nodeMasses[node] * inverse * inverse * inverse;
+                    ax += dx * force;
+                    ay += dy * force;
+                } else if (childCount[node] == 0) {
+                    for (int j = first[node]; j < last[node]; j++) {
+                        if (j == k) continue;
+                        double jx = sortedXs[j] - x;
+                        double jy = sortedYs[j] - y;
+                        double d2 = jx * jx + jy * jy + softening2;
+                        if (d2 == 0) continue;
+                        double inverse = 1 / Math.sqrt(d2);
+                        double force = sortedMasses[j] * inverse * inverse * inverse;
+                        ax += jx * force;
+                        ay += jy * force;
+                    }
+                } else {
+                    for (int child = childStart[node], end = child + childCount[node]; child < end; child++) {
+                        stack[top++] = child;
+                    }
+                }
+            }
+            int i = order[k];
+            vxs[i] += ax * impulse;
+            vys[i] += ay * impulse;
+        }
+    }
+
+    private double cellSize(int level) {
+        return side / (1 << level);
+    }
+
+    private static int cell(double value, double origin, double scale) {
+        double cell = (value - origin) * scale;
+        // Also maps NaN to 0
+        return cell >= GRID - 1 ? GRID - 1 : cell > 0 ? (int) cell : 0;
+    }
+
+    /**
+     * @return the quadrant, 0 to 3, of a code within its cell of the given level
+     */
+    private static int quadrant(int code, int level) {
+        return (code >>> (2 * (LEVELS - 1 - level))) & 3;
+    }
+
+    /**
+     * Interleaves the bits of two 16-bit cell coordinates, x in the even bits.
+     */
+    static int morton(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static int spread(int value) {
+        value &= 0xFFFF;
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    private void ensureCapacity(int n) {
+        if (codes.length >= n) return;
+        int capacity = Math.max(n, codes.length + (codes.length >> 1));
+        codes = new int[capacity];
+        order = new int[capacity];
+        codesBuffer = new int[capacity];
+        orderBuffer = new int[capacity];
+        sortedXs = new double[capacity];
+        sortedYs = new double[capacity];
+        sortedMasses = new double[capacity];
+        pendingNodes = new int[capacity];
+        pendingLevels = new int[capacity];
+        pendingBases = new int[capacity];
+        topInternal = new int[capacity];
+
+        int nodes = 2 * capacity;
+        first = new int[nodes];
+        last = new int[nodes];
+        childStart = new int[nodes];
+        childCount = new int[nodes];
+        sizes = new double[nodes];
+        nodeMasses = new double[nodes];
+        comXs = new double[nodes];
+        comYs = new double[nodes];
+    }
+
+    private void ensurePartitionCapacity(int n) {
+        if (histograms.length >= n * RADIX) return;
+        histograms = new int[n * RADIX];
+        partitionBounds = new double[4 * n];
+    }
+}
@@ -0,0 +1,16 @@
+package org.acme.service.physics;
+
+/**
+ * Gravity models selectable through {@code simulation.gravity.mode}.
+ */
+public enum GravityMode {
+    /**
+     * Only the attraction of the central black hole, applied by the {@link StepKernel}.
+     */
+    CENTRAL,
+    /**
+     * The central black hole plus the mutual gravity of every pair of particles, approximated by
+     * {@link BarnesHutGravity}.
+     */
+    BARNES_HUT
+}
@@ -0,0 +1,16 @@
+package org.acme.service.physics;
+
+/**
+ * Step kernels selectable through {@code simulation.kernel}.
+ */
+public enum KernelType {
+    /**
+     * The vector kernel when the {@code jdk.incubator.vector} module is enabled, the scalar one otherwise.
+     */
+    AUTO,
+    SCALAR,
+    /**
+     * The vector kernel, falling back to the scalar one when the module is not enabled.
+     */
+    VECTOR
+}
@@ -0,0 +1,73 @@
+package org.acme.service.physics;
+
+import org.acme.model.ParticleStore;
+
+/**
+ * Reference implementation of the per-particle phase, one particle at a time.
+ */
+public class ScalarStepKernel implements StepKernel {
+
+    static final double G = 0.007;
+    static final double BLACK_HOLE_X = 0;
+    static final double BLACK_HOLE_Y = 0;
+    static final double BLACK_HOLE_MASS = 1000;
+    static final double MAX_FORCE = 500;
+    static final double MIN_REPULSION_DISTANCE = 5;
+    static final double REPULSION_FORCE = 26;
+    static final double SPEED_DAMPING = 1;
+
+    @Override
+    public void step(ParticleStore store, int from, int to, double dt) {
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] vxs = store.getVxs();
+        double[] vys = store.getVys();
+        double[] masses = store.getMasses();
+
+        for (int i = from; i < to; i++) {
+            applyInverseGravity(xs, ys, vxs, vys, masses, i, dt);
+            dampenSpeed(vxs, vys, i);
+            xs[i] += vxs[i] * dt;
+            ys[i] += vys[i] * dt;
+        }
+    }
+
+    /**
+     * Applies gravity increasing with distance, with a repulsion effect when too close.
+     *
+     * @param i the index of the particle affected
+     */
+    private void applyInverseGravity(double[] xs, double[] ys, double[] vxs, double[] vys, double[] masses,
+                                     int i, double dt) {
+        double dx = BLACK_HOLE_X - xs[i];
+        double dy = BLACK_HOLE_Y - ys[i];
+        double distanceSquared = dx * dx + dy * dy;
+        double distance = Math.sqrt(distanceSquared);
+
+        if (distance < 1) return;
+
+        double mass = masses[i];
+        double force = G * BLACK_HOLE_MASS * mass * distance;
+        force = Math.min(force, MAX_FORCE);
+
+        if (distance < MIN_REPULSION_DISTANCE) {
+            force -= REPULSION_FORCE;
+        }
+
+        double ax = (force * dx / distance) / mass;
+        double ay = (force * dy / distance) / mass;
+
+        vxs[i] += ax * dt;
+        vys[i] += ay * dt;
+    }
+
+    /**
+     * Reduces velocity slightly to maintain orbital motion.
+     *
+     * @param i the index of the particle to adjust
+     */
+    private void dampenSpeed(double[] vxs, double[] vys, int i) {
+        vxs[i] *= SPEED_DAMPING;
+        vys[i] *= SPEED_DAMPING;
+    }
+}
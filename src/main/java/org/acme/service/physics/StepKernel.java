@@ -0,0 +1,20 @@
+package org.acme.service.physics;
+
+import org.acme.model.ParticleStore;
+
+/**
+ * Per-particle phase of a tick: central gravity, damping and integration.
+ * Implementations must only write to the particles of the range they are given.
+ */
+public interface StepKernel {
+
+    /**
+     * Steps the particles of the given index range.
+     *
+     * @param store the particles
+     * @param from  the first index, inclusive
+     * @param to    the last index, exclusive
+     * @param dt    the time step
+     */
+    void step(ParticleStore store, int from, int to, double dt);
+}
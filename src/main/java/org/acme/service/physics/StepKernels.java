@@ -0,0 +1,42 @@
+package org.acme.service.physics;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Selects the step kernel, falling back to scalar code when the Vector API module is not enabled
+ * ({@code --add-modules jdk.incubator.vector}).
+ */
+public final class StepKernels {
+
+    private static final Logger LOG = Logger.getLogger(StepKernels.class);
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private StepKernels() {
+    }
+
+    /**
+     * @return whether the Vector API module is present in the boot layer
+     */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Creates the kernel for the requested type.
+     *
+     * @param type the requested kernel
+     * @return the vector kernel when requested and available, the scalar kernel otherwise
+     */
+    public static StepKernel create(KernelType type) {
+        if (type == KernelType.SCALAR) {
+            return new ScalarStepKernel();
+        }
+        if (isVectorApiAvailable()) {
+            return new VectorStepKernel();
+        }
+        if (type == KernelType.VECTOR) {
+            LOG.warn("Vector kernel requested but module " + VECTOR_MODULE + " is not enabled, using the scalar kernel");
+        }
+        return new ScalarStepKernel();
+    }
+}
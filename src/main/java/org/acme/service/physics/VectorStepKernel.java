@@ -0,0 +1,70 @@
+package org.acme.service.physics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.acme.model.ParticleStore;
+
+import static org.acme.service.physics.ScalarStepKernel.*;
+
+/**
+ * SIMD implementation of the per-particle phase built on the incubating Vector API.
+ * <p>
+ * Performs the same IEEE operations in the same order as {@link ScalarStepKernel}, lane by lane,
+ * so both kernels produce identical results. The branches of the scalar code become masks.
+ * Only load this class when {@link StepKernels#isVectorApiAvailable()} is true.
+ */
+public class VectorStepKernel implements StepKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final ScalarStepKernel tail = new ScalarStepKernel();
+
+    @Override
+    public void step(ParticleStore store, int from, int to, double dt) {
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] vxs = store.getVxs();
+        double[] vys = store.getVys();
+        double[] masses = store.getMasses();
+
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, vxs, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, vys, i);
+            DoubleVector mass = DoubleVector.fromArray(SPECIES, masses, i);
+
+            // Inverse gravity, skipped for particles closer than 1 to the black hole.
+            DoubleVector dx = DoubleVector.broadcast(SPECIES, BLACK_HOLE_X).sub(x);
+            DoubleVector dy = DoubleVector.broadcast(SPECIES, BLACK_HOLE_Y).sub(y);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).sqrt();
+            VectorMask<Double> attracted = distance.compare(VectorOperators.LT, 1).not();
+
+            DoubleVector force = DoubleVector.broadcast(SPECIES, G * BLACK_HOLE_MASS).mul(mass).mul(distance)
+                    .min(MAX_FORCE);
+            force = force.sub(REPULSION_FORCE, distance.compare(VectorOperators.LT, MIN_REPULSION_DISTANCE));
+
+            DoubleVector ax = force.mul(dx).div(distance).div(mass);
+            DoubleVector ay = force.mul(dy).div(distance).div(mass);
+            vx = vx.add(ax.mul(dt), attracted);
+            vy = vy.add(ay.mul(dt), attracted);
+
+            // Damping and integration.
+            vx = vx.mul(SPEED_DAMPING);
+            vy = vy.mul(SPEED_DAMPING);
+            x = x.add(vx.mul(dt));
+            y = y.add(vy.mul(dt));
+
+            x.intoArray(xs, i);
+            y.intoArray(ys, i);
+            vx.intoArray(vxs, i);
+            vy.intoArray(vys, i);
+        }
+
+        tail.step(store, i, to, dt);
+    }
+}
@@ -0,0 +1,72 @@
+package org.acme.service.scene;
+
+import org.acme.model.ParticleStore;
+import org.acme.service.ParallelRangeExecutor;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible initial scenes straight into the arrays of a {@link ParticleStore}, in parallel.
+ * <p>
+ * The particles are drawn in blocks of {@value #BLOCK_SIZE}, each from its own {@link SplittableRandom} stream split
+ * from the seed in block order before any particle is drawn. A block is always drawn from the same stream whatever
+ * thread runs it, so a seed yields the same scene, particle ids included, on any executor and any number of cores.
+ * Velocities are uniform in {@code [-1, 1)} and masses in {@code [1, 11)}, as the historical
+ * {@code /simulation/start} scene; positions follow the {@link ScenePreset}.
+ */
+public final class SceneGenerator {
+
+    /**
+     * The particles drawn from one random stream.
+     */
+    public static final int BLOCK_SIZE = ParticleStore.CHUNK_SIZE;
+
+    private SceneGenerator() {
+    }
+
+    /**
+     * Generates a scene, with the ids {@code 0} to {@code count - 1}.
+     *
+     * @param preset   the layout of the particles
+     * @param count    the number of particles
+     * @param seed     the seed of the scene
+     * @param executor the executor drawing the blocks
+     * @return a new store holding the particles
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public static ParticleStore generate(ScenePreset preset, int count, long seed, ParallelRangeExecutor executor) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid number of particles: " + count);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        double[] layout = preset.layout(root);
+        SplittableRandom[] streams = new SplittableRandom[(count + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int block = 0; block < streams.length; block++) {
+            streams[block] = root.split();
+        }
+
+        ParticleStore store = new ParticleStore();
+        store.ensureCapacity(count);
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] vxs = store.getVxs();
+        double[] vys = store.getVys();
+        double[] masses = store.getMasses();
+        int[] ids = store.getIds();
+        executor.forEachTask(streams.length, (from, to) -> {
+            for (int block = from; block < to; block++) {
+                SplittableRandom random = streams[block];
+                int end = Math.min(count, (block + 1) * BLOCK_SIZE);
+                for (int i = block * BLOCK_SIZE; i < end; i++) {
+                    preset.place(random, layout, xs, ys, i);
+                    vxs[i] = random.nextDouble(-1, 1);
+                    vys[i] = random.nextDouble(-1, 1);
+                    masses[i] = random.nextDouble(1, 11);
+                    ids[i] = i;
+                }
+            }
+        });
+        store.restore(count);
+        return store;
+    }
+}
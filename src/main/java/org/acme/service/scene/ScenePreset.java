@@ -0,0 +1,112 @@
+package org.acme.service.scene;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Initial particle layouts of {@link SceneGenerator}, selected by name. Every layout lies in the {@value #SIZE}-unit
+ * square centered on the black hole, save for the tails of its Gaussian spreads.
+ */
+public enum ScenePreset {
+    /**
+     * Positions uniform over the whole square.
+     */
+    SQUARE {
+        @Override
+        void place(SplittableRandom random, double[] layout, double[] xs, double[] ys, int i) {
+            xs[i] = random.nextDouble(-HALF_SIZE, HALF_SIZE);
+            ys[i] = random.nextDouble(-HALF_SIZE, HALF_SIZE);
+        }
+    },
+    /**
+     * Positions uniform over the disk inscribed in the square.
+     */
+    DISK {
+        @Override
+        void place(SplittableRandom random, double[] layout, double[] xs, double[] ys, int i) {
+            double radius = HALF_SIZE * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble(2 * Math.PI);
+            xs[i] = radius * Math.cos(angle);
+            ys[i] = radius * Math.sin(angle);
+        }
+    },
+    /**
+     * {@value #RING_COUNT} evenly spaced concentric rings, each with a Gaussian radial spread.
+     */
+    RINGS {
+        @Override
+        void place(SplittableRandom random, double[] layout, double[] xs, double[] ys, int i) {
+            double spacing = HALF_SIZE / RING_COUNT;
+            double radius = spacing * (random.nextInt(RING_COUNT) + 0.5) + random.nextGaussian() * spacing / 8;
+            double angle = random.nextDouble(2 * Math.PI);
+            xs[i] = radius * Math.cos(angle);
+            ys[i] = radius * Math.sin(angle);
+        }
+    },
+    /**
+     * {@value #CLUSTER_COUNT} Gaussian clusters around centers drawn from the seed.
+     */
+    CLUSTERS {
+        @Override
+        double[] layout(SplittableRandom root) {
+            double[] centers = new double[2 * CLUSTER_COUNT];
+            double bound = HALF_SIZE - 3 * CLUSTER_SPREAD;
+            for (int c = 0; c < centers.length; c++) {
+                centers[c] = root.nextDouble(-bound, bound);
+            }
+            return centers;
+        }
+
+        @Override
+        void place(SplittableRandom random, double[] layout, double[] xs, double[] ys, int i) {
+            int cluster = random.nextInt(CLUSTER_COUNT);
+            xs[i] = layout[2 * cluster] + random.nextGaussian() * CLUSTER_SPREAD;
+            ys[i] = layout[2 * cluster + 1] + random.nextGaussian() * CLUSTER_SPREAD;
+        }
+    };
+
+    /**
+     * The side of the square holding the scenes, as the historical {@code /simulation/start} scene.
+     */
+    public static final double SIZE = 100;
+    static final double HALF_SIZE = SIZE / 2;
+    static final int RING_COUNT = 4;
+    static final int CLUSTER_COUNT = 8;
+    static final double CLUSTER_SPREAD = 4;
+
+    /**
+     * Draws the parameters the particles of a scene share, before any particle.
+     *
+     * @param root the random stream of the scene
+     * @return the parameters, or {@code null} if the layout has none
+     */
+    double[] layout(SplittableRandom root) {
+        return null;
+    }
+
+    /**
+     * Draws the position of a particle.
+     *
+     * @param random the random stream of the block of the particle
+     * @param layout the parameters of the scene, see {@link #layout}
+     * @param i      the index of the particle
+     */
+    abstract void place(SplittableRandom random, double[] layout, double[] xs, double[] ys, int i);
+
+    /**
+     * Finds a preset by name, ignoring case.
+     *
+     * @param name the name
+     * @return the preset
+     * @throws IllegalArgumentException if no preset has this name
+     */
+    public static ScenePreset fromName(String name) {
+        String normalized = name == null ? "" : name.trim().toUpperCase(Locale.ROOT);
+        for (ScenePreset preset : values()) {
+            if (preset.name().equals(normalized)) {
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scene preset: " + name);
+    }
+}
@@ -0,0 +1,32 @@
+package org.acme.websocket;
+
+import org.acme.service.SimulationConfig;
+
+/**
+ * How a {@link ParticleBroadcaster} streams a simulation, from the {@code simulation.stream.*} and
+ * {@code simulation.lod.*} properties.
+ *
+ * @param broadcastPeriodMs  the period between two broadcasts, in milliseconds
+ * @param keyframeInterval   the maximum number of frames between two keyframes of a delta stream
+ * @param deltaQuantum       the position quantization step of delta streams
+ * @param deltaThreshold     the movement, in quanta, under which a particle is left out of a delta frame
+ * @param maxFrameIntervalMs the longest pause between two frames sent to a slow session, in milliseconds
+ * @param lodMaxParticles    the visible particle count above which automatic sessions get density frames
+ * @param lodMaxFrameTimeMs  the estimated send time above which automatic sessions get density frames
+ */
+record BroadcastSettings(long broadcastPeriodMs, int keyframeInterval, double deltaQuantum, int deltaThreshold,
+                         long maxFrameIntervalMs, int lodMaxParticles, long lodMaxFrameTimeMs) {
+
+    static final BroadcastSettings DEFAULTS = new BroadcastSettings(16, 60, 0.00390625, 1, 1000, 50000, 100);
+
+    static BroadcastSettings fromConfig(SimulationConfig config) {
+        return new BroadcastSettings(
+                config.stream().broadcastPeriodMs(),
+                config.stream().keyframeInterval(),
+                config.stream().deltaQuantum(),
+                config.stream().deltaThreshold(),
+                config.stream().maxFrameIntervalMs(),
+                config.lod().maxParticles(),
+                config.lod().maxFrameTimeMs());
+    }
+}
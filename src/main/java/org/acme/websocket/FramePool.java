@@ -0,0 +1,80 @@
+package org.acme.websocket;
+
+import java.util.ArrayDeque;
+
+/**
+ * Reusable direct buffers for the binary frames of a broadcaster, so a steady stream allocates no frame memory.
+ * <p>
+ * Buffers come in power-of-two size classes, from {@value #MIN_SIZE_CLASS_BYTES} bytes up, each with its own free
+ * list. A broadcast takes one buffer per distinct frame and the last session done with it returns it, see
+ * {@link PooledFrame}. At most {@code maxFreeFrames} free buffers are kept per size class; buffers beyond that, or
+ * lost by sessions that closed mid-send, are left to the garbage collector.
+ */
+public class FramePool {
+
+    static final int MIN_SIZE_CLASS_BYTES = 4096;
+    private static final int MIN_SIZE_CLASS = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS_BYTES);
+
+    private final ArrayDeque<PooledFrame>[] free;
+    private final int maxFreeFrames;
+    private volatile long allocatedFrames;
+
+    /**
+     * @param maxFreeFrames the most free buffers kept per size class
+     */
+    @SuppressWarnings("unchecked")
+    public FramePool(int maxFreeFrames) {
+        if (maxFreeFrames < 0) {
+            throw new IllegalArgumentException("Invalid free frame count: " + maxFreeFrames);
+        }
+        this.maxFreeFrames = maxFreeFrames;
+        this.free = new ArrayDeque[Integer.SIZE];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>(Math.min(maxFreeFrames, 16));
+        }
+    }
+
+    /**
+     * Takes a buffer able to hold a frame, cleared and limited to its size.
+     *
+     * @param size the frame size in bytes
+     * @return the frame, with a single reference held by the caller
+     * @throws IllegalArgumentException if the size is negative or above 1 GiB
+     */
+    public PooledFrame acquire(int size) {
+        if (size < 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("Invalid frame size: " + size);
+        }
+        int sizeClass = Math.max(MIN_SIZE_CLASS, Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(size - 1, 0)));
+        ArrayDeque<PooledFrame> frames = free[sizeClass];
+        PooledFrame frame;
+        synchronized (frames) {
+            frame = frames.pollFirst();
+        }
+        if (frame == null) {
+            frame = new PooledFrame(this, sizeClass);
+            synchronized (this) {
+                allocatedFrames++;
+            }
+        }
+        frame.claim();
+        frame.getBuffer().limit(size);
+        return frame;
+    }
+
+    /**
+     * @return the number of buffers allocated since the pool was created
+     */
+    public long getAllocatedFrames() {
+        return allocatedFrames;
+    }
+
+    void recycle(PooledFrame frame) {
+        ArrayDeque<PooledFrame> frames = free[frame.getSizeClass()];
+        synchronized (frames) {
+            if (frames.size() < maxFreeFrames) {
+                frames.addFirst(frame);
+            }
+        }
+    }
+}
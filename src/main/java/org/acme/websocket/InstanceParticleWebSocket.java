@@ -0,0 +1,45 @@
+package org.acme.websocket;
+
+import org.acme.websocket.protocol.StreamFormat;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.*;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.jboss.logging.Logger;
+
+/**
+ * Streams a named simulation to WebSocket clients, creating it on first use.
+ * Same protocol as {@link ParticleWebSocket}.
+ */
+@ApplicationScoped
+@ServerEndpoint(value = "/ws/particles/{id}", subprotocols = {
+        StreamFormat.SUBPROTOCOL_JSON, StreamFormat.SUBPROTOCOL_FLOAT32, StreamFormat.SUBPROTOCOL_INT16,
+        StreamFormat.SUBPROTOCOL_DELTA})
+public class InstanceParticleWebSocket {
+
+    private static final Logger LOG = Logger.getLogger(InstanceParticleWebSocket.class);
+
+    @Inject
+    ParticleStreams streams;
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("id") String id) {
+        ParticleWebSocket.open(streams, id, session);
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        streams.close(session);
+    }
+
+    @OnMessage
+    public void onMessage(String message, Session session) {
+        streams.onMessage(message, session);
+    }
+
+    @OnError
+    public void onError(Session session, Throwable throwable) {
+        LOG.warnf("WebSocket error on session %s: %s", session.getId(), throwable.getMessage());
+    }
+}
@@ -0,0 +1,358 @@
+package org.acme.websocket;
+
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationMetrics;
+import org.acme.service.SimulationService;
+import org.acme.websocket.protocol.BinaryFrameEncoder;
+import org.acme.websocket.protocol.ClientMessage;
+import org.acme.websocket.protocol.DeltaStreamEncoder;
+import org.acme.websocket.protocol.JsonFrameEncoder;
+import org.acme.websocket.protocol.StreamFormat;
+import jakarta.websocket.Session;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
+
+/**
+ * Streams one simulation to its WebSocket sessions.
+ * Clients receive JSON text frames unless they negotiate a binary {@link StreamFormat}.
+ * <p>
+ * While it has sessions, a periodic task sends them the latest published snapshot of the simulation, independently
+ * of its tick loop, so a slow serializer never stalls the physics.
+ * Each session is flow controlled by its {@link SessionState}, so a slow client never piles up buffered frames,
+ * and sent by its own {@link SessionSender} virtual thread, so a slow send never delays the other sessions.
+ * The sessions are kept in a concurrent map: the broadcast iterates it without locking, and sessions joining or
+ * leaving never wait for a broadcast.
+ * Clients may subscribe to a {@link org.acme.websocket.protocol.Viewport} and then only receive the particles
+ * inside it. Sessions seeing more particles than they can take get density frames instead, see
+ * {@link StreamFormat.LevelOfDetail}.
+ * <p>
+ * Binary frames are encoded into direct buffers of a {@link FramePool}, shared by the sessions receiving them and
+ * recycled once every one of them sent it, so a steady broadcast of binary frames allocates no frame memory.
+ * <p>
+ * Every broadcast records the time spent acquiring the snapshot, culling, encoding and handing frames to the
+ * container in the {@link SimulationMetrics} of the simulation.
+ */
+class ParticleBroadcaster {
+
+    private static final Logger LOG = Logger.getLogger(ParticleBroadcaster.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * The free buffers kept per size class: a broadcast encodes a few frames, each held by the sessions sending it
+     * for about one broadcast period.
+     */
+    private static final int FREE_FRAMES = 8;
+
+    private final SimulationService simulationService;
+    private final ScheduledExecutorService scheduler;
+    private final BroadcastSettings settings;
+    private final SimulationMetrics metrics;
+
+    private final Map<Session, SessionSender> sessions = new ConcurrentHashMap<>();
+    private final Map<StreamKey, DeltaStreamEncoder> deltaStreams = new ConcurrentHashMap<>();
+    private final FramePool framePool = new FramePool(FREE_FRAMES);
+
+    /**
+     * Serializes the broadcasts, whose delta encoders are stateful, without involving the session map.
+     */
+    private final Object broadcastLock = new Object();
+    // Reused by every broadcast, under the broadcast lock.
+    private final SnapshotViews views = new SnapshotViews();
+    private final Map<StreamKey, Object> frames = new HashMap<>();
+    private final Map<StreamKey, PooledFrame> keyframes = new HashMap<>();
+    private final StringBuilder json = new StringBuilder();
+    private ScheduledFuture<?> broadcastTask;
+    /**
+     * The runs of the broadcast task, of which the quality level of the simulation may skip some.
+     */
+    private long broadcastRuns;
+
+    /**
+     * @param simulationService the simulation to stream
+     * @param scheduler         the scheduler running the broadcasts
+     * @param settings          the stream settings
+     */
+    ParticleBroadcaster(SimulationService simulationService, ScheduledExecutorService scheduler,
+                        BroadcastSettings settings) {
+        this(simulationService, scheduler, settings, SimulationMetrics.NOOP);
+    }
+
+    /**
+     * @param simulationService the simulation to stream
+     * @param scheduler         the scheduler running the broadcasts
+     * @param settings          the stream settings
+     * @param metrics           the meters of the simulation
+     */
+    ParticleBroadcaster(SimulationService simulationService, ScheduledExecutorService scheduler,
+                        BroadcastSettings settings, SimulationMetrics metrics) {
+        this.simulationService = simulationService;
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds a session, starting the broadcasts if it is the first one. The simulation computes its density grid while
+     * a session may receive density frames.
+     *
+     * @param session the session
+     * @param format  the negotiated format of the session
+     */
+    synchronized void open(Session session, StreamFormat format) {
+        sessions.put(session, new SessionSender(session,
+                new SessionState(format, settings.maxFrameIntervalMs(), metrics)));
+        if (receivesDensity(format)) {
+            simulationService.addDensityReader();
+        }
+        if (broadcastTask == null) {
+            broadcastTask = scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    if (simulationService.getBudget().broadcastDue(broadcastRuns++)) {
+                        broadcastParticles();
+                    }
+                } catch (RuntimeException e) {
+                    // An exception would cancel the periodic task for good.
+                    metrics.getBroadcastErrors().increment();
+                    LOG.error("Error during broadcast", e);
+                }
+            }, 0, settings.broadcastPeriodMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes a session, stopping the broadcasts if it was the last one.
+     *
+     * @param session the session
+     */
+    synchronized void close(Session session) {
+        SessionSender sender = sessions.remove(session);
+        if (sender != null) {
+            sender.close();
+            if (receivesDensity(sender.getState().getFormat())) {
+                simulationService.removeDensityReader();
+            }
+        }
+        if (sessions.isEmpty() && broadcastTask != null) {
+            broadcastTask.cancel(false);
+            broadcastTask = null;
+        }
+    }
+
+    /**
+     * @return the number of sessions
+     */
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Handles the JSON control messages of a client, see {@link ClientMessage}.
+     */
+    void onMessage(String message, Session session) {
+        SessionSender sender = sessions.get(session);
+        if (sender == null) return;
+        SessionState state = sender.getState();
+        try {
+            ClientMessage clientMessage = objectMapper.readValue(message, ClientMessage.class);
+            if (ClientMessage.KEYFRAME.equals(clientMessage.type())) {
+                state.requestKeyframe();
+            } else if (ClientMessage.VIEWPORT.equals(clientMessage.type())) {
+                state.setViewport(clientMessage.viewport());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.debugf("Invalid message from session %s: %s", session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the flow control counters of every session
+     */
+    List<SessionStats> sessionStats() {
+        return sessions.values().stream()
+                .map(sender -> sender.getState().stats(sender.getSession().getId()))
+                .toList();
+    }
+
+    /**
+     * Offers the latest snapshot to every open session.
+     */
+    void broadcastParticles() {
+        synchronized (broadcastLock) {
+            long started = System.nanoTime();
+            try (SimulationSnapshot snapshot = simulationService.acquireSnapshot()) {
+                broadcastSnapshot(snapshot, started);
+            }
+        }
+    }
+
+    /**
+     * Offers a snapshot to every open session, see {@link SessionState#offer}.
+     * Each distinct {@link StreamKey} is culled and encoded once per broadcast and shared by all the sessions using it.
+     * Delta stream sessions that joined or asked to resynchronise get a keyframe instead of the delta frame.
+     * Sessions joining during the broadcast may or may not get its frame.
+     */
+    private void broadcastSnapshot(SimulationSnapshot snapshot, long started) {
+        views.reset(snapshot);
+        PooledFrame densityFrame = null;
+        long now = System.nanoTime();
+        long cullNanos = 0;
+        long encodeNanos = 0;
+        long sendNanos = 0;
+        try {
+            for (SessionSender sender : sessions.values()) {
+                Session session = sender.getSession();
+                SessionState state = sender.getState();
+                if (!session.isOpen()) continue;
+
+                StreamKey streamKey = state.streamKey();
+                Object frame;
+                long phaseStart = System.nanoTime();
+                try {
+                    SimulationSnapshot view = views.get(streamKey.viewport());
+                    long culled = System.nanoTime();
+                    cullNanos += culled - phaseStart;
+                    phaseStart = culled;
+                    if (wantsDensity(state, snapshot, view)) {
+                        if (densityFrame == null) {
+                            densityFrame = framePool.acquire(
+                                    BinaryFrameEncoder.densityFrameSize(snapshot.getDensity().getSide()));
+                            BinaryFrameEncoder.encodeDensity(snapshot, densityFrame.getBuffer());
+                        }
+                        frame = densityFrame;
+                        // Delta frames do not apply on top of a density frame.
+                        state.requestKeyframe();
+                    } else {
+                        frame = frames.get(streamKey);
+                        if (frame == null) {
+                            frame = encode(streamKey, view);
+                            frames.put(streamKey, frame);
+                        }
+                        if (streamKey.format().encoding() == StreamFormat.Encoding.DELTA) {
+                            PooledFrame deltaFrame = (PooledFrame) frame;
+                            if (DeltaStreamEncoder.isKeyframe(deltaFrame.getBuffer())) {
+                                state.keyframeSent();
+                            } else if (state.isAwaitingKeyframe()) {
+                                frame = knownKeyframe(streamKey, snapshot.getTimestamp());
+                                state.keyframeSent();
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    metrics.getBroadcastErrors().increment();
+                    LOG.error("Error serializing particle data", e);
+                    return;
+                }
+                long encoded = System.nanoTime();
+                encodeNanos += encoded - phaseStart;
+
+                if (state.offer(frame, now)) {
+                    sender.post(frame);
+                    sendNanos += System.nanoTime() - encoded;
+                }
+            }
+            // Delta streams nobody subscribes to anymore would otherwise accumulate, one per past viewport.
+            deltaStreams.keySet().retainAll(frames.keySet());
+        } finally {
+            // The sessions took their own references to the frames they keep.
+            frames.values().forEach(ParticleBroadcaster::release);
+            keyframes.values().forEach(PooledFrame::release);
+            if (densityFrame != null) {
+                densityFrame.release();
+            }
+            frames.clear();
+            keyframes.clear();
+            views.reset(null);
+        }
+        long total = System.nanoTime() - started;
+        metrics.recordBroadcast(now - started, cullNanos, encodeNanos, sendNanos, total);
+        simulationService.getBudget().recordBroadcast(total);
+    }
+
+    /**
+     * @return the keyframe of the positions the sessions of a delta stream know, encoded once per broadcast
+     */
+    private PooledFrame knownKeyframe(StreamKey streamKey, long timestamp) {
+        PooledFrame keyframe = keyframes.get(streamKey);
+        if (keyframe == null) {
+            DeltaStreamEncoder encoder = deltaStreams.get(streamKey);
+            keyframe = framePool.acquire(encoder.maxFrameSize(0));
+            encoder.encodeKnownKeyframe(timestamp, keyframe.getBuffer());
+            keyframes.put(streamKey, keyframe);
+        }
+        return keyframe;
+    }
+
+    /**
+     * @return whether a session of this format may receive density frames
+     */
+    private static boolean receivesDensity(StreamFormat format) {
+        return format.lod() != StreamFormat.LevelOfDetail.PARTICLES;
+    }
+
+    /**
+     * Picks the level of detail of a session for this broadcast.
+     *
+     * @param view the particles the session sees
+     * @return whether the session gets the density frame rather than particles
+     */
+    private boolean wantsDensity(SessionState state, SimulationSnapshot snapshot, SimulationSnapshot view) {
+        StreamFormat format = state.getFormat();
+        if (snapshot.getDensity().isEmpty()) return false;
+        return switch (format.lod()) {
+            case PARTICLES -> false;
+            case DENSITY -> true;
+            case AUTO -> simulationService.getBudget().getLevel().isDensityFrames()
+                    || view.getSize() > settings.lodMaxParticles()
+                    || state.estimatedSendMillis(BinaryFrameEncoder.frameSize(view.getSize(), format))
+                    > settings.lodMaxFrameTimeMs();
+        };
+    }
+
+    /**
+     * Encodes a snapshot, already culled to the viewport of the key.
+     * Package-private so the benchmarks can measure it; not thread-safe.
+     *
+     * @return a JSON {@link String}, or a binary {@link PooledFrame} the caller holds a reference to
+     */
+    Object encode(StreamKey key, SimulationSnapshot snapshot) {
+        StreamFormat format = key.format();
+        if (format.encoding() == StreamFormat.Encoding.DELTA) {
+            DeltaStreamEncoder encoder = deltaStreams.get(key);
+            if (encoder == null) {
+                encoder = new DeltaStreamEncoder(settings.keyframeInterval(), settings.deltaQuantum(),
+                        settings.deltaThreshold(), format.id());
+                deltaStreams.put(key, encoder);
+            }
+            PooledFrame frame = framePool.acquire(encoder.maxFrameSize(snapshot.getSize()));
+            encoder.encode(snapshot, frame.getBuffer());
+            return frame;
+        }
+        if (format.isBinary()) {
+            PooledFrame frame = framePool.acquire(BinaryFrameEncoder.frameSize(snapshot.getSize(), format));
+            BinaryFrameEncoder.encode(snapshot, format, frame.getBuffer());
+            return frame;
+        }
+        return JsonFrameEncoder.encode(snapshot, json);
+    }
+
+    /**
+     * @return the number of frame buffers allocated since the broadcaster was created
+     */
+    long allocatedFrames() {
+        return framePool.getAllocatedFrames();
+    }
+
+    private static void release(Object frame) {
+        if (frame instanceof PooledFrame pooled) {
+            pooled.release();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.acme.websocket;
+
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationRegistry;
+import org.acme.websocket.protocol.StreamFormat;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.Session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The WebSocket sessions of every simulation instance, shared by the particle endpoints.
+ * <p>
+ * A session subscribes to one instance of the {@link SimulationRegistry}: the instance ticks while it has
+ * sessions, and one {@link ParticleBroadcaster} per instance streams it to them on the registry workers.
+ * <p>
+ * There is no global lock: sessions join and leave through atomic updates of the broadcaster of their instance, so
+ * connection churn on one instance never waits for another instance, nor for a tick or a broadcast.
+ */
+@ApplicationScoped
+public class ParticleStreams {
+
+    @Inject
+    SimulationRegistry registry;
+
+    private final Map<String, ParticleBroadcaster> broadcasters = new ConcurrentHashMap<>();
+    private final Map<Session, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private BroadcastSettings settings = BroadcastSettings.DEFAULTS;
+    private int maxSessions = 100;
+
+    private record Subscription(SimulationInstance instance, ParticleBroadcaster broadcaster) {
+    }
+
+    /**
+     * Applies the configured stream settings.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        settings = BroadcastSettings.fromConfig(config);
+        maxSessions = config.instances().maxSessions();
+    }
+
+    /**
+     * Subscribes a session to an instance, creating it if needed.
+     *
+     * @param id      the instance id
+     * @param session the session
+     * @throws IllegalArgumentException if the id is invalid
+     * @throws IllegalStateException    if the instance or session limit is reached
+     */
+    public void open(String id, Session session) {
+        StreamFormat format = StreamFormat.negotiate(session.getNegotiatedSubprotocol(), session.getRequestParameterMap());
+        SimulationInstance instance = registry.subscribe(id);
+        ParticleBroadcaster broadcaster;
+        try {
+            broadcaster = broadcasters.compute(instance.getId(), (key, existing) -> {
+                ParticleBroadcaster opened = existing != null
+                        ? existing
+                        : new ParticleBroadcaster(instance.getService(), registry.getWorkers(), settings,
+                                instance.getService().getMetrics());
+                if (opened.sessionCount() >= maxSessions) {
+                    throw new IllegalStateException("Too many sessions on simulation " + id + ": " + maxSessions);
+                }
+                opened.open(session, format);
+                return opened;
+            });
+        } catch (IllegalStateException e) {
+            registry.unsubscribe(instance);
+            throw e;
+        }
+        subscriptions.put(session, new Subscription(instance, broadcaster));
+    }
+
+    /**
+     * Unsubscribes a session from its instance.
+     *
+     * @param session the session
+     */
+    public void close(Session session) {
+        Subscription subscription = subscriptions.remove(session);
+        if (subscription == null) return;
+        broadcasters.computeIfPresent(subscription.instance().getId(), (key, broadcaster) -> {
+            broadcaster.close(session);
+            return broadcaster.sessionCount() == 0 ? null : broadcaster;
+        });
+        registry.unsubscribe(subscription.instance());
+    }
+
+    /**
+     * Handles a control message of a session.
+     *
+     * @param message the JSON message
+     * @param session the session
+     */
+    public void onMessage(String message, Session session) {
+        Subscription subscription = subscriptions.get(session);
+        if (subscription != null) {
+            subscription.broadcaster().onMessage(message, session);
+        }
+    }
+
+    /**
+     * @param id the instance id
+     * @return the flow control counters of the sessions of the instance
+     */
+    public List<SessionStats> sessionStats(String id) {
+        ParticleBroadcaster broadcaster = broadcasters.get(id);
+        return broadcaster == null ? List.of() : broadcaster.sessionStats();
+    }
+}
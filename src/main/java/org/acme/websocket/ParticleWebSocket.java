@@ -1,99 +1,69 @@
 package org.acme.websocket;
 
-import org.acme.service.SimulationService;
+import org.acme.service.SimulationRegistry;
+import org.acme.websocket.protocol.StreamFormat;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
-import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.logging.Logger;
 
+/**
+ * Streams the default simulation to WebSocket clients, see {@link ParticleBroadcaster} for the protocol.
+ * Named simulations are streamed by {@link InstanceParticleWebSocket}.
+ */
 @ApplicationScoped
-@ServerEndpoint("/ws/particles")
+@ServerEndpoint(value = "/ws/particles", subprotocols = {
+        StreamFormat.SUBPROTOCOL_JSON, StreamFormat.SUBPROTOCOL_FLOAT32, StreamFormat.SUBPROTOCOL_INT16,
+        StreamFormat.SUBPROTOCOL_DELTA})
 public class ParticleWebSocket {
 
-    @Inject
-    SimulationService simulationService;
+    private static final Logger LOG = Logger.getLogger(ParticleWebSocket.class);
 
-    private static final Set<Session> sessions = Collections.synchronizedSet(new HashSet<>());
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private static final ReentrantLock lock = new ReentrantLock();
-    private static boolean running = false;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    @Inject
+    ParticleStreams streams;
 
     @OnOpen
     public void onOpen(Session session) {
-        lock.lock();
-        try {
-            sessions.add(session);
-            if (!running) {
-                startBroadcast();
-                running = true;
-            }
-        } finally {
-            lock.unlock();
-        }
+        open(streams, SimulationRegistry.DEFAULT_ID, session);
     }
 
     @OnClose
     public void onClose(Session session) {
-        lock.lock();
-        try {
-            sessions.remove(session);
-            if (sessions.isEmpty()) {
-                running = false;
-            }
-        } finally {
-            lock.unlock();
-        }
+        streams.close(session);
+    }
+
+    /**
+     * Handles the JSON control messages of a client, see {@link org.acme.websocket.protocol.ClientMessage}.
+     */
+    @OnMessage
+    public void onMessage(String message, Session session) {
+        streams.onMessage(message, session);
     }
 
     @OnError
     public void onError(Session session, Throwable throwable) {
-        System.err.println("WebSocket error on session " + session.getId() + ": " + throwable.getMessage());
+        LOG.warnf("WebSocket error on session %s: %s", session.getId(), throwable.getMessage());
     }
 
-    private void startBroadcast() {
-        scheduler.scheduleAtFixedRate(() -> {
-            lock.lock();
-            try {
-                if (!sessions.isEmpty() && running) {
-                    simulationService.updateSimulation();
-                    broadcastParticles();
-                }
-            } finally {
-                lock.unlock();
-            }
-        }, 0, 16, TimeUnit.MILLISECONDS);
+    /**
+     * Subscribes a session to a simulation, closing it if the simulation cannot take it.
+     */
+    static void open(ParticleStreams streams, String id, Session session) {
+        try {
+            streams.open(id, session);
+        } catch (IllegalArgumentException e) {
+            close(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, e.getMessage()));
+        } catch (IllegalStateException e) {
+            close(session, new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, e.getMessage()));
+        }
     }
 
-    void broadcastParticles() {
+    static void close(Session session, CloseReason reason) {
         try {
-            var particles = simulationService.getParticles();
-            if (!particles.isEmpty()) {
-                var firstParticle = particles.get(0);
-            }
-            String jsonParticles = objectMapper.writeValueAsString(particles);
-            synchronized (sessions) {
-                for (Session session : sessions) {
-                    if (session.isOpen()) {
-                        try {
-                            session.getAsyncRemote().sendText(jsonParticles);
-                        } catch (Exception e) {
-                            System.err.println("Error sending message to session " + session.getId() + ": " + e.getMessage());
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error serializing particle data: " + e.getMessage());
+            session.close(reason);
+        } catch (Exception e) {
+            LOG.warnf("Error closing session %s: %s", session.getId(), e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
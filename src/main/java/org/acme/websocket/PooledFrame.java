@@ -0,0 +1,74 @@
+package org.acme.websocket;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A binary frame encoded into a direct buffer of a {@link FramePool}, shared by every session it is sent to.
+ * <p>
+ * The frame is reference counted: the broadcast encoding it holds one reference, and each {@link SessionState}
+ * keeping it in flight or pending holds another. The buffer returns to its pool when the last one is released, so
+ * the frame must not be read after releasing it.
+ */
+public final class PooledFrame {
+
+    private final FramePool pool;
+    private final int sizeClass;
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * The frame, from position 0 to its limit. Readers must {@link ByteBuffer#duplicate()} it, since the sessions
+     * sharing the frame read it concurrently.
+     */
+    @Getter
+    private final ByteBuffer buffer;
+
+    PooledFrame(FramePool pool, int sizeClass) {
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+        this.buffer = ByteBuffer.allocateDirect(1 << sizeClass).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    /**
+     * Takes the frame out of the pool with a single reference, for its encoder.
+     */
+    void claim() {
+        references.set(1);
+        buffer.clear();
+    }
+
+    /**
+     * Adds a reference to the frame.
+     */
+    public void retain() {
+        references.incrementAndGet();
+    }
+
+    /**
+     * Drops a reference to the frame, returning its buffer to the pool if it was the last one.
+     *
+     * @throws IllegalStateException if the frame has no reference left
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released more times than retained");
+        }
+    }
+
+    /**
+     * @return the size of the frame in bytes
+     */
+    public int size() {
+        return buffer.limit();
+    }
+}
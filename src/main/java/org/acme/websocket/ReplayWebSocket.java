@@ -0,0 +1,61 @@
+package org.acme.websocket;
+
+import org.acme.websocket.protocol.StreamFormat;
+import org.acme.websocket.recording.RecordingService;
+import org.acme.websocket.recording.ReplayStreams;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.*;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+
+/**
+ * Replays a recording of {@link RecordingService} to WebSocket clients, e.g.
+ * {@code /ws/particles/replay/demo?tick=600&speed=2}, without running any simulation. Clients receive the binary
+ * frames recorded, exactly as a live {@code particles.f32} or {@code particles.i16} session would, and may send
+ * {@link org.acme.websocket.protocol.ReplayMessage}s to seek or change speed. A client must negotiate the
+ * subprotocol of the recorded frames; any other is closed with {@code CANNOT_ACCEPT}.
+ */
+@ApplicationScoped
+@ServerEndpoint(value = "/ws/particles/replay/{name}", subprotocols = {
+        StreamFormat.SUBPROTOCOL_FLOAT32, StreamFormat.SUBPROTOCOL_INT16})
+public class ReplayWebSocket {
+
+    private static final Logger LOG = Logger.getLogger(ReplayWebSocket.class);
+
+    @Inject
+    ReplayStreams streams;
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("name") String name) {
+        try {
+            streams.open(name, session);
+        } catch (IllegalArgumentException e) {
+            ParticleWebSocket.close(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, e.getMessage()));
+        } catch (IllegalStateException e) {
+            ParticleWebSocket.close(session, new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, e.getMessage()));
+        } catch (IOException e) {
+            LOG.errorf(e, "Error opening recording %s", name);
+            ParticleWebSocket.close(session, new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION,
+                    "Recording unreadable"));
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        streams.close(session);
+    }
+
+    @OnMessage
+    public void onMessage(String message, Session session) {
+        streams.onMessage(message, session);
+    }
+
+    @OnError
+    public void onError(Session session, Throwable throwable) {
+        LOG.warnf("WebSocket error on session %s: %s", session.getId(), throwable.getMessage());
+    }
+}
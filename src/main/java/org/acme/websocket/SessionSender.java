@@ -0,0 +1,102 @@
+package org.acme.websocket;
+
+import jakarta.websocket.Session;
+import lombok.Getter;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the frames of one WebSocket session on its own virtual thread.
+ * <p>
+ * The broadcast hands a frame over through a single-slot mailbox and moves on to the next session, so encoding
+ * stays on the broadcast thread while the blocking sends of thousands of sessions spread over every carrier thread.
+ * The {@link SessionState} of the session keeps at most one frame in flight, so the mailbox never holds more than
+ * one frame: frames broadcast meanwhile wait in the pending slot of the state, which the sender drains itself once
+ * its send completes.
+ */
+class SessionSender {
+
+    private static final Logger LOG = Logger.getLogger(SessionSender.class);
+
+    @Getter
+    private final Session session;
+    @Getter
+    private final SessionState state;
+
+    private final AtomicReference<Object> mailbox = new AtomicReference<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Starts the sender thread of a session.
+     *
+     * @param session the session
+     * @param state   the flow control of the session
+     */
+    SessionSender(Session session, SessionState state) {
+        this.session = session;
+        this.state = state;
+        this.thread = Thread.ofVirtual().name("ws-sender-" + session.getId()).start(this::run);
+    }
+
+    /**
+     * Hands a frame to the sender thread, once {@link SessionState#offer} accepted it.
+     *
+     * @param frame a JSON {@link String}, a binary {@link ByteBuffer} or a {@link PooledFrame}
+     */
+    void post(Object frame) {
+        mailbox.set(frame);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the sender thread. Once its current send returns, the thread closes the {@link SessionState}, releasing
+     * the frames it did not send.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Object frame = mailbox.getAndSet(null);
+                if (frame == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                while (frame != null && !closed && send(frame)) {
+                    frame = state.sendCompleted(System.nanoTime());
+                }
+            }
+        } finally {
+            state.close();
+        }
+    }
+
+    /**
+     * Sends a frame, blocking the virtual thread until the container wrote it.
+     *
+     * @return whether the frame was sent
+     */
+    private boolean send(Object frame) {
+        try {
+            if (frame instanceof PooledFrame pooled) {
+                session.getBasicRemote().sendBinary(pooled.getBuffer().duplicate());
+            } else if (frame instanceof ByteBuffer binary) {
+                session.getBasicRemote().sendBinary(binary.duplicate());
+            } else {
+                session.getBasicRemote().sendText((String) frame);
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.warnf("Error sending message to session %s: %s", session.getId(), e.getMessage());
+            state.sendFailed();
+            return false;
+        }
+    }
+}
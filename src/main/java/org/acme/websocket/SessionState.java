@@ -0,0 +1,262 @@
+package org.acme.websocket;
+
+import org.acme.service.SimulationMetrics;
+import org.acme.websocket.protocol.StreamFormat;
+import org.acme.websocket.protocol.Viewport;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the server tracks for each WebSocket session, including its flow control.
+ * <p>
+ * A session has at most one frame in flight. Frames broadcast while it is in flight go to a single pending slot,
+ * a newer frame replacing the stale one (coalescing). The session is also paced to its own drain speed: after a
+ * send, the next one waits for a moving average of how long sends took to complete, so a slow client receives fewer,
+ * fresher frames instead of an ever-growing backlog. Broadcasts arriving before that are dropped.
+ * <p>
+ * Delta frames only apply on top of the previous frame, so a delta session never coalesces: a frame it cannot
+ * take is dropped and the session resyncs with a keyframe.
+ * <p>
+ * Besides its own counters, reported by {@link #stats}, the session adds its frames to the
+ * {@link SimulationMetrics} of its simulation.
+ * <p>
+ * The state holds a reference to the {@link PooledFrame}s it keeps in flight or pending, and releases them once
+ * they are sent, replaced or dropped.
+ */
+public class SessionState {
+
+    /**
+     * Weight of the latest send in the moving average of the drain time.
+     */
+    private static final double DRAIN_SMOOTHING = 0.2;
+
+    @Getter
+    private final StreamFormat format;
+    private final long maxFrameIntervalNanos;
+    private final SimulationMetrics metrics;
+
+    /**
+     * Whether the session needs a keyframe before it can apply delta frames.
+     */
+    @Getter
+    private volatile boolean awaitingKeyframe = true;
+
+    /**
+     * The area the session subscribed to, or {@code null} for every particle.
+     */
+    @Getter
+    private volatile Viewport viewport;
+
+    /**
+     * The key of the frames the session receives, rebuilt when it changes viewport.
+     */
+    private volatile StreamKey streamKey;
+
+    private boolean inFlight;
+    private boolean closed;
+    private Object inFlightFrame;
+    private Object pending;
+    private long sendStartedAt;
+    private long nextFrameAt;
+    private double drainNanos;
+    private long inFlightBytes;
+    private double bytesPerSecond;
+
+    private long sentFrames;
+    private long sentBytes;
+    private long coalescedFrames;
+    private long droppedFrames;
+
+    public SessionState(StreamFormat format) {
+        this(format, 1000);
+    }
+
+    /**
+     * @param format             the negotiated stream format
+     * @param maxFrameIntervalMs the longest pause between two frames, however slow the session drains
+     */
+    public SessionState(StreamFormat format, long maxFrameIntervalMs) {
+        this(format, maxFrameIntervalMs, SimulationMetrics.NOOP);
+    }
+
+    /**
+     * @param format             the negotiated stream format
+     * @param maxFrameIntervalMs the longest pause between two frames, however slow the session drains
+     * @param metrics            the meters of the simulation the session streams
+     */
+    public SessionState(StreamFormat format, long maxFrameIntervalMs, SimulationMetrics metrics) {
+        this.format = format;
+        this.streamKey = new StreamKey(format, null);
+        this.maxFrameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxFrameIntervalMs);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Asks for a keyframe to be sent to this session with the next broadcast.
+     */
+    public void requestKeyframe() {
+        awaitingKeyframe = true;
+    }
+
+    /**
+     * Records that a keyframe was sent to this session.
+     */
+    public void keyframeSent() {
+        awaitingKeyframe = false;
+    }
+
+    /**
+     * Subscribes the session to the particles of a viewport. A delta session starts over from a keyframe,
+     * since it moves to another stream.
+     *
+     * @param viewport the viewport, or {@code null} for every particle
+     */
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+        this.streamKey = new StreamKey(format, viewport);
+        requestKeyframe();
+    }
+
+    /**
+     * @return the key of the frames this session receives
+     */
+    StreamKey streamKey() {
+        return streamKey;
+    }
+
+    /**
+     * Offers a broadcast frame to the session.
+     *
+     * @param frame the frame
+     * @param now   the current {@link System#nanoTime()}
+     * @return whether the caller must send the frame now, then report its completion with {@link #sendCompleted}
+     */
+    public synchronized boolean offer(Object frame, long now) {
+        if (closed) return false;
+        boolean delta = format.encoding() == StreamFormat.Encoding.DELTA;
+        if (inFlight && !delta) {
+            if (pending != null) {
+                coalescedFrames++;
+                metrics.getCoalescedFrames().increment();
+                release(pending);
+            }
+            retain(frame);
+            pending = frame;
+            return false;
+        }
+        if (inFlight || sentFrames > 0 && now - nextFrameAt < 0) {
+            droppedFrames++;
+            metrics.getDroppedFrames().increment();
+            if (delta) requestKeyframe();
+            return false;
+        }
+        retain(frame);
+        start(frame, now);
+        return true;
+    }
+
+    /**
+     * Records the completion of the frame in flight.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return the pending frame the caller must send now, or {@code null}
+     */
+    public synchronized Object sendCompleted(long now) {
+        long drain = now - sendStartedAt;
+        drainNanos = sentFrames == 0 ? drain : drainNanos + DRAIN_SMOOTHING * (drain - drainNanos);
+        if (drain > 0) {
+            double throughput = inFlightBytes * 1e9 / drain;
+            bytesPerSecond = bytesPerSecond == 0
+                    ? throughput
+                    : bytesPerSecond + DRAIN_SMOOTHING * (throughput - bytesPerSecond);
+        }
+        sentFrames++;
+        sentBytes += inFlightBytes;
+        metrics.getSentFrames().increment();
+        metrics.getSentBytes().increment(inFlightBytes);
+        metrics.getFrameSend().record(drain, TimeUnit.NANOSECONDS);
+        nextFrameAt = sendStartedAt + Math.min((long) drainNanos, maxFrameIntervalNanos);
+        inFlight = false;
+        release(inFlightFrame);
+        inFlightFrame = null;
+
+        Object next = pending;
+        pending = null;
+        if (next == null) return null;
+        if (now - nextFrameAt < 0) {
+            droppedFrames++;
+            metrics.getDroppedFrames().increment();
+            release(next);
+            return null;
+        }
+        // The pending frame keeps the reference it took when it was offered.
+        start(next, now);
+        return next;
+    }
+
+    /**
+     * Estimates how long a frame would take to reach the session, from the throughput of its previous frames.
+     *
+     * @param bytes the size of the frame
+     * @return the estimated send time in milliseconds, {@code 0} until a throughput was measured
+     */
+    public synchronized double estimatedSendMillis(long bytes) {
+        return bytesPerSecond > 0 ? bytes * 1000 / bytesPerSecond : 0;
+    }
+
+    /**
+     * Records that the frame in flight could not be sent, discarding the pending one.
+     */
+    public synchronized void sendFailed() {
+        metrics.getSendErrors().increment();
+        discardFrames();
+        if (format.encoding() == StreamFormat.Encoding.DELTA) requestKeyframe();
+    }
+
+    /**
+     * Releases the frames of a session that closed. Frames offered afterwards are refused.
+     */
+    public synchronized void close() {
+        closed = true;
+        discardFrames();
+    }
+
+    /**
+     * @param id the session id
+     * @return a snapshot of the flow control counters of the session
+     */
+    public synchronized SessionStats stats(String id) {
+        long interval = Math.min((long) drainNanos, maxFrameIntervalNanos);
+        return new SessionStats(id, format.encoding(), sentFrames, sentBytes, coalescedFrames, droppedFrames,
+                drainNanos / 1e6, interval / 1e6, bytesPerSecond);
+    }
+
+    private void start(Object frame, long now) {
+        inFlight = true;
+        inFlightFrame = frame;
+        sendStartedAt = now;
+        if (frame instanceof PooledFrame pooled) {
+            inFlightBytes = pooled.size();
+        } else {
+            inFlightBytes = frame instanceof ByteBuffer binary ? binary.remaining() : ((String) frame).length();
+        }
+    }
+
+    private void discardFrames() {
+        inFlight = false;
+        release(inFlightFrame);
+        release(pending);
+        inFlightFrame = null;
+        pending = null;
+    }
+
+    private static void retain(Object frame) {
+        if (frame instanceof PooledFrame pooled) pooled.retain();
+    }
+
+    private static void release(Object frame) {
+        if (frame instanceof PooledFrame pooled) pooled.release();
+    }
+}
@@ -0,0 +1,21 @@
+package org.acme.websocket;
+
+import org.acme.websocket.protocol.StreamFormat;
+
+/**
+ * Flow control counters of a WebSocket session.
+ *
+ * @param id                  the session id
+ * @param encoding            the negotiated frame encoding
+ * @param sentFrames          frames whose send completed
+ * @param sentBytes           bytes of the frames whose send completed
+ * @param coalescedFrames     frames replaced by a newer one before they could be sent
+ * @param droppedFrames       frames skipped because the session was not ready for them
+ * @param drainMillis         moving average of the time a send takes to complete
+ * @param frameIntervalMillis the current minimum time between two frames
+ * @param bytesPerSecond      moving average of the throughput of the sends
+ */
+public record SessionStats(String id, StreamFormat.Encoding encoding, long sentFrames, long sentBytes,
+                           long coalescedFrames, long droppedFrames, double drainMillis, double frameIntervalMillis,
+                           double bytesPerSecond) {
+}
@@ -0,0 +1,47 @@
+package org.acme.websocket;
+
+import org.acme.model.SimulationSnapshot;
+import org.acme.model.SnapshotGrid;
+import org.acme.websocket.protocol.Viewport;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of a snapshot visible from the viewports of the sessions, for one broadcast.
+ * The spatial index is only built if a session has a viewport, and each distinct viewport is culled once.
+ * A broadcaster reuses one instance across its broadcasts, see {@link #reset}.
+ */
+class SnapshotViews {
+
+    private final Map<Viewport, SimulationSnapshot> views = new HashMap<>();
+    private SimulationSnapshot snapshot;
+    private SnapshotGrid grid;
+
+    /**
+     * Starts the views of another broadcast, forgetting the previous snapshot.
+     *
+     * @param snapshot the snapshot of the broadcast
+     */
+    void reset(SimulationSnapshot snapshot) {
+        this.snapshot = snapshot;
+        if (!views.isEmpty()) {
+            views.clear();
+        }
+        grid = null;
+    }
+
+    /**
+     * @param viewport a viewport, or {@code null} for every particle
+     * @return the particles visible from the viewport
+     */
+    SimulationSnapshot get(Viewport viewport) {
+        if (viewport == null) return snapshot;
+        return views.computeIfAbsent(viewport, v -> {
+            if (grid == null) {
+                grid = new SnapshotGrid(snapshot);
+            }
+            return snapshot.select(v.cull(grid));
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package org.acme.websocket;
+
+import io.quarkus.runtime.Quarkus;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.acme.model.Particle;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationRegistry;
+import org.acme.service.SimulationService;
+import org.acme.websocket.protocol.StreamFormat;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the application up before it serves, so the first viewers of a fresh node do not wait for the class loader,
+ * the interpreter and the JIT compiler.
+ * <p>
+ * The training pass ticks a scratch simulation of {@code simulation.startup.training-particles} particles, configured
+ * like the instances but never registered, {@code simulation.startup.training-ticks} times, and encodes every
+ * snapshot in each stream format. It runs on the startup thread, so the node only accepts sessions once trained.
+ * <p>
+ * With {@code simulation.startup.exit-after-training}, the application exits once trained: the fast-startup build
+ * runs it that way under {@code -XX:ArchiveClassesAtExit} to record an AppCDS archive of every class the startup and
+ * the pass loaded.
+ */
+@ApplicationScoped
+public class StartupTraining {
+
+    private static final Logger LOG = Logger.getLogger(StartupTraining.class);
+    private static final long SEED = 1;
+
+    /**
+     * One format per frame encoder.
+     */
+    private static final List<StreamFormat> FORMATS = List.of(
+            StreamFormat.JSON,
+            StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_FLOAT32, Map.of()),
+            StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_INT16, Map.of()),
+            StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_DELTA, Map.of()));
+
+    @Inject
+    SimulationRegistry registry;
+
+    private BroadcastSettings settings = BroadcastSettings.DEFAULTS;
+    private int trainingTicks;
+    private int trainingParticles = 5000;
+    private boolean exitAfterTraining;
+
+    /**
+     * Applies the configured settings.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        settings = BroadcastSettings.fromConfig(config);
+        trainingTicks = config.startup().trainingTicks();
+        trainingParticles = config.startup().trainingParticles();
+        exitAfterTraining = config.startup().exitAfterTraining();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (trainingTicks > 0) {
+            long start = System.nanoTime();
+            long frames = train(registry.newService(), trainingTicks, trainingParticles);
+            LOG.infof("Startup training ran %d ticks and encoded %d frames in %d ms", trainingTicks, frames,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (exitAfterTraining) {
+            Quarkus.asyncExit();
+        }
+    }
+
+    /**
+     * Runs the training pass on a simulation, replacing its particles.
+     *
+     * @param service   the scratch simulation
+     * @param ticks     the ticks to run
+     * @param particles the particles to tick, capped to the limit of the simulation
+     * @return the number of frames encoded
+     */
+    long train(SimulationService service, int ticks, int particles) {
+        // A cold tick overruns its budget, which must not skip the collisions being trained.
+        service.getBudget().disable();
+        service.resetSimulation();
+        Random random = new Random(SEED);
+        for (int i = Math.min(particles, service.getMaxParticles()); i > 0; i--) {
+            service.addParticle(new Particle(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 10 + 1));
+        }
+
+        // Never opened, so it schedules no broadcast and needs no scheduler.
+        ParticleBroadcaster broadcaster = new ParticleBroadcaster(service, null, settings);
+        List<StreamKey> keys = FORMATS.stream().map(format -> new StreamKey(format, null)).toList();
+        long frames = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            service.updateSimulation();
+            try (SimulationSnapshot snapshot = service.acquireSnapshot()) {
+                for (StreamKey key : keys) {
+                    if (broadcaster.encode(key, snapshot) instanceof PooledFrame frame) {
+                        frame.release();
+                    }
+                    frames++;
+                }
+            }
+        }
+        return frames;
+    }
+}
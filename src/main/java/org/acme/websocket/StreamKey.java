@@ -0,0 +1,13 @@
+package org.acme.websocket;
+
+import org.acme.websocket.protocol.StreamFormat;
+import org.acme.websocket.protocol.Viewport;
+
+/**
+ * Identifies the frames a session receives: sessions with equal keys share every encoded frame.
+ *
+ * @param format   the negotiated format
+ * @param viewport the subscribed viewport, or {@code null} for every particle
+ */
+record StreamKey(StreamFormat format, Viewport viewport) {
+}
@@ -0,0 +1,234 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.DensityGrid;
+import org.acme.model.SimulationSnapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes particles into compact binary WebSocket frames.
+ * <p>
+ * All values are little-endian so browsers can read them with typed arrays. Every frame starts with a
+ * {@value #HEADER_SIZE}-byte header:
+ * <pre>
+ *  0  u8   frame type ({@link #FRAME_FULL})
+ *  1  u8   flags ({@link #FLAG_INT16}, {@link #FLAG_VELOCITY}, {@link #FLAG_MASS}, {@link #FLAG_ID})
+ *  2  u16  reserved
+ *  4  u32  tick
+ *  8  u32  particle count n
+ * 12  f32  origin x
+ * 16  f32  origin y
+ * 20  f32  scale
+ * 24  i64  server time of the tick, in epoch milliseconds
+ * </pre>
+ * followed by planar sections: n x positions, n y positions, padding to a multiple of 4 bytes, then n float32 vx,
+ * n float32 vy, n float32 masses and n u32 particle ids when their flags are set. Positions are float32 values or, with
+ * {@link #FLAG_INT16}, int16 values q decoding to {@code origin + q * scale}.
+ * <p>
+ * A density frame ({@link #FRAME_DENSITY}) aggregates the particles on a square grid of s * s cells instead, see
+ * {@link DensityGrid}. It reuses the header with the grid side s in the u16 at offset 2, the total particle count at
+ * offset 8, the origin of the grid and its cell size as scale, followed by s * s u32 particle counts, then s * s
+ * float32 total masses, mean vx and mean vy, cells row by row from the origin.
+ */
+public final class BinaryFrameEncoder {
+
+    public static final byte FRAME_FULL = 1;
+    public static final byte FRAME_DENSITY = 4;
+
+    public static final int FLAG_INT16 = 1;
+    public static final int FLAG_VELOCITY = 1 << 1;
+    public static final int FLAG_MASS = 1 << 2;
+    public static final int FLAG_ID = 1 << 3;
+
+    public static final int HEADER_SIZE = 32;
+
+    private static final int INT16_RANGE = Short.MAX_VALUE;
+
+    private BinaryFrameEncoder() {
+    }
+
+    /**
+     * Computes the size of a full frame.
+     *
+     * @param count  the number of particles
+     * @param format the stream format
+     * @return the frame size in bytes
+     */
+    public static int frameSize(int count, StreamFormat format) {
+        int positionBytes = format.encoding() == StreamFormat.Encoding.INT16 ? 2 : 4;
+        int size = HEADER_SIZE + align4(2 * count * positionBytes);
+        if (format.velocity()) size += 8 * count;
+        if (format.mass()) size += 4 * count;
+        if (format.id()) size += 4 * count;
+        return size;
+    }
+
+    /**
+     * Encodes every particle of a snapshot into a new full frame.
+     *
+     * @param snapshot the particles
+     * @param format   a binary stream format
+     * @return the frame, ready to be read
+     */
+    public static ByteBuffer encode(SimulationSnapshot snapshot, StreamFormat format) {
+        return encode(snapshot, format, ByteBuffer.allocate(frameSize(snapshot.getSize(), format)));
+    }
+
+    /**
+     * Encodes every particle of a snapshot into a full frame, without allocating.
+     *
+     * @param snapshot the particles
+     * @param format   a binary stream format
+     * @param buffer   a cleared buffer of at least {@link #frameSize} bytes, set to little-endian
+     * @return the buffer, flipped to the frame
+     */
+    public static ByteBuffer encode(SimulationSnapshot snapshot, StreamFormat format, ByteBuffer buffer) {
+        int count = snapshot.getSize();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+
+        boolean int16 = format.encoding() == StreamFormat.Encoding.INT16;
+        double originX = 0;
+        double originY = 0;
+        double scale = 1;
+        if (int16 && count > 0) {
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            originX = (minX + maxX) / 2;
+            originY = (minY + maxY) / 2;
+            double halfExtent = Math.max(maxX - minX, maxY - minY) / 2;
+            scale = halfExtent > 0 && Double.isFinite(halfExtent) ? halfExtent / INT16_RANGE : 1;
+        }
+
+        int flags = (int16 ? FLAG_INT16 : 0) | (format.velocity() ? FLAG_VELOCITY : 0) | (format.mass() ? FLAG_MASS : 0)
+                | (format.id() ? FLAG_ID : 0);
+        buffer.put(FRAME_FULL)
+                .put((byte) flags)
+                .putShort((short) 0)
+                .putInt((int) snapshot.getTick())
+                .putInt(count)
+                .putFloat((float) originX)
+                .putFloat((float) originY)
+                .putFloat((float) scale)
+                .putLong(snapshot.getTimestamp());
+
+        if (int16) {
+            putQuantized(buffer, xs, count, originX, scale);
+            putQuantized(buffer, ys, count, originY, scale);
+            while ((buffer.position() & 3) != 0) {
+                buffer.put((byte) 0);
+            }
+        } else {
+            putFloats(buffer, xs, count);
+            putFloats(buffer, ys, count);
+        }
+        if (format.velocity()) {
+            putFloats(buffer, snapshot.getVxs(), count);
+            putFloats(buffer, snapshot.getVys(), count);
+        }
+        if (format.mass()) {
+            putFloats(buffer, snapshot.getMasses(), count);
+        }
+        if (format.id()) {
+            putInts(buffer, snapshot.getIds(), count);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Computes the size of a density frame.
+     *
+     * @param side the number of cells per side of the grid
+     * @return the frame size in bytes
+     */
+    public static int densityFrameSize(int side) {
+        return HEADER_SIZE + 16 * side * side;
+    }
+
+    /**
+     * Encodes the density grid of a snapshot into a new density frame.
+     *
+     * @param snapshot a snapshot with a density grid
+     * @return the frame, ready to be read
+     */
+    public static ByteBuffer encodeDensity(SimulationSnapshot snapshot) {
+        return encodeDensity(snapshot, ByteBuffer.allocate(densityFrameSize(snapshot.getDensity().getSide())));
+    }
+
+    /**
+     * Encodes the density grid of a snapshot into a density frame, without allocating.
+     *
+     * @param snapshot a snapshot with a density grid
+     * @param buffer   a cleared buffer of at least {@link #densityFrameSize} bytes, set to little-endian
+     * @return the buffer, flipped to the frame
+     */
+    public static ByteBuffer encodeDensity(SimulationSnapshot snapshot, ByteBuffer buffer) {
+        DensityGrid density = snapshot.getDensity();
+        int side = density.getSide();
+        int cells = side * side;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FRAME_DENSITY)
+                .put((byte) 0)
+                .putShort((short) side)
+                .putInt((int) snapshot.getTick())
+                .putInt(density.getParticleCount())
+                .putFloat((float) density.getOriginX())
+                .putFloat((float) density.getOriginY())
+                .putFloat((float) density.getCellSize())
+                .putLong(snapshot.getTimestamp());
+
+        int[] counts = density.getCounts();
+        for (int cell = 0; cell < cells; cell++) {
+            buffer.putInt(counts[cell]);
+        }
+        putFloats(buffer, density.getMasses(), cells);
+        putFloats(buffer, density.getMeanVxs(), cells);
+        putFloats(buffer, density.getMeanVys(), cells);
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes an int16 position.
+     *
+     * @param quantized the encoded value
+     * @param origin    the origin of the frame
+     * @param scale     the scale of the frame
+     * @return the position
+     */
+    public static double dequantize(short quantized, float origin, float scale) {
+        return origin + quantized * (double) scale;
+    }
+
+    private static void putQuantized(ByteBuffer buffer, double[] values, int count, double origin, double scale) {
+        float storedOrigin = (float) origin;
+        float storedScale = (float) scale;
+        for (int i = 0; i < count; i++) {
+            long q = Math.round((values[i] - storedOrigin) / storedScale);
+            buffer.putShort((short) Math.max(-INT16_RANGE, Math.min(INT16_RANGE, q)));
+        }
+    }
+
+    private static void putFloats(ByteBuffer buffer, double[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat((float) values[i]);
+        }
+    }
+
+    static void putInts(ByteBuffer buffer, int[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(values[i]);
+        }
+    }
+
+    private static int align4(int size) {
+        return (size + 3) & ~3;
+    }
+}
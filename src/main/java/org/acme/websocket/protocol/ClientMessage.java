@@ -0,0 +1,40 @@
+package org.acme.websocket.protocol;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * JSON text message sent by a client over {@code /ws/particles}, e.g. {@code {"type":"keyframe"}} or
+ * {@code {"type":"viewport","minX":-50,"minY":-50,"maxX":50,"maxY":50,"zoom":8}}.
+ *
+ * @param type the kind of message
+ * @param minX the left edge of a viewport
+ * @param minY the bottom edge of a viewport
+ * @param maxX the right edge of a viewport
+ * @param maxY the top edge of a viewport
+ * @param zoom the optional pixels per world unit of a viewport
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ClientMessage(String type, Double minX, Double minY, Double maxX, Double maxY, Double zoom) {
+
+    /**
+     * Asks for a keyframe, sent by delta stream clients that missed a frame.
+     */
+    public static final String KEYFRAME = "keyframe";
+
+    /**
+     * Subscribes to the particles inside a viewport only. Without a rectangle, subscribes to every particle again.
+     */
+    public static final String VIEWPORT = "viewport";
+
+    /**
+     * @return the viewport of a {@link #VIEWPORT} message, or {@code null} if it has no rectangle
+     * @throws IllegalArgumentException if the rectangle is incomplete or invalid
+     */
+    public Viewport viewport() {
+        if (minX == null && minY == null && maxX == null && maxY == null) return null;
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new IllegalArgumentException("Incomplete viewport");
+        }
+        return new Viewport(minX, minY, maxX, maxY, zoom);
+    }
+}
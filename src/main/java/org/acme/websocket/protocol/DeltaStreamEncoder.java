@@ -0,0 +1,260 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.SimulationSnapshot;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Stateful encoder of a delta stream: a keyframe every {@code keyframeInterval} ticks and quantized position
+ * deltas in between. One encoder is shared by all the sessions of a stream, since they all know the same positions.
+ * <p>
+ * Positions are quantized to multiples of {@code quantum}. The encoder remembers the quantized positions the
+ * clients know and only sends the particles that moved at least {@code threshold} quanta away from them, so small
+ * movements accumulate until they are worth sending instead of being lost. Frames share the 32-byte header of
+ * {@link BinaryFrameEncoder}, little-endian:
+ * <pre>
+ * Keyframe ({@link #FRAME_KEY})
+ *  0  u8   frame type        1  u8   flags          4  u32  tick           8  u32  particle count n
+ * 20  f32  quantum          24  i64  server time in epoch milliseconds
+ * 32  n i32 x positions, n i32 y positions, in quanta, then n u32 particle ids with {@link BinaryFrameEncoder#FLAG_ID}
+ *
+ * Delta frame ({@link #FRAME_DELTA})
+ *  0  u8   frame type        4  u32  tick           8  u32  entry count k
+ * 12  u32  particle count   16  u32  base tick, the tick of the previous frame of the stream
+ * 20  f32  quantum          24  i64  server time in epoch milliseconds
+ * 32  k u32 particle indices, k i16 x deltas, k i16 y deltas, in quanta, padded to 4 bytes
+ * </pre>
+ * A client whose last frame is not the base tick of a delta frame has missed a frame and should ask for a keyframe.
+ * Keyframes are also sent whenever particles are added or removed, since deltas address particles by index; clients
+ * tracking particles across keyframes request ids and map the indices of each keyframe to them.
+ */
+public class DeltaStreamEncoder {
+
+    public static final byte FRAME_KEY = 2;
+    public static final byte FRAME_DELTA = 3;
+
+    private final int keyframeInterval;
+    @Getter
+    private final double quantum;
+    private final int threshold;
+    private final boolean ids;
+
+    private int[] knownXs = new int[0];
+    private int[] knownYs = new int[0];
+    private int[] knownIds = new int[0];
+    private int knownCount = -1;
+    private long knownStructureVersion = -1;
+    private long lastTick;
+    private int framesSinceKeyframe;
+    private boolean keyframeRequested;
+
+    /**
+     * @param keyframeInterval the maximum number of frames between two keyframes
+     * @param quantum          the position quantization step
+     * @param threshold        the movement, in quanta, under which a particle is not sent
+     */
+    public DeltaStreamEncoder(int keyframeInterval, double quantum, int threshold) {
+        this(keyframeInterval, quantum, threshold, false);
+    }
+
+    /**
+     * @param keyframeInterval the maximum number of frames between two keyframes
+     * @param quantum          the position quantization step
+     * @param threshold        the movement, in quanta, under which a particle is not sent
+     * @param ids              whether keyframes carry particle ids
+     */
+    public DeltaStreamEncoder(int keyframeInterval, double quantum, int threshold, boolean ids) {
+        if (keyframeInterval <= 0 || quantum <= 0 || threshold < 1) {
+            throw new IllegalArgumentException("Invalid delta stream settings");
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.quantum = quantum;
+        this.threshold = threshold;
+        this.ids = ids;
+    }
+
+    /**
+     * Makes the next frame of the stream a keyframe.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * @param frame an encoded frame
+     * @return whether the frame is a keyframe
+     */
+    public static boolean isKeyframe(ByteBuffer frame) {
+        return frame.get(frame.position()) == FRAME_KEY;
+    }
+
+    /**
+     * @param count the particle count of the next snapshot
+     * @return the largest frame {@link #encode} or {@link #encodeKnownKeyframe} may produce next, in bytes
+     */
+    public int maxFrameSize(int count) {
+        return BinaryFrameEncoder.HEADER_SIZE + (ids ? 12 : 8) * Math.max(count, knownCount);
+    }
+
+    /**
+     * Encodes the next frame of the stream.
+     *
+     * @param snapshot the particles
+     * @return a keyframe or a delta frame, ready to be read
+     */
+    public ByteBuffer encode(SimulationSnapshot snapshot) {
+        return encode(snapshot, allocate(maxFrameSize(snapshot.getSize())));
+    }
+
+    /**
+     * Encodes the next frame of the stream, without allocating once the stream reached its particle count.
+     *
+     * @param snapshot the particles
+     * @param buffer   a cleared buffer of at least {@link #maxFrameSize} bytes, set to little-endian
+     * @return the buffer, holding a keyframe or a delta frame from position 0 to its limit
+     */
+    public ByteBuffer encode(SimulationSnapshot snapshot, ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        long tick = snapshot.getTick();
+        long timestamp = snapshot.getTimestamp();
+        boolean keyframe = keyframeRequested
+                || framesSinceKeyframe + 1 >= keyframeInterval
+                || snapshot.getSize() != knownCount
+                || snapshot.getStructureVersion() != knownStructureVersion;
+
+        ByteBuffer frame = keyframe ? null : encodeDelta(snapshot, tick, timestamp, buffer);
+        if (frame == null) {
+            frame = encodeKeyframe(snapshot, tick, timestamp, buffer);
+        }
+        lastTick = tick;
+        return frame;
+    }
+
+    /**
+     * Encodes a keyframe of the positions the clients of the stream know after the last encoded frame.
+     * Sent to sessions joining or resynchronising, so the next delta frame applies to them as well.
+     *
+     * @param timestamp the server time, in epoch milliseconds
+     * @return the keyframe, ready to be read
+     */
+    public ByteBuffer encodeKnownKeyframe(long timestamp) {
+        return encodeKnownKeyframe(timestamp, allocate(maxFrameSize(0)));
+    }
+
+    /**
+     * Encodes a keyframe of the positions the clients of the stream know, without allocating.
+     *
+     * @param timestamp the server time, in epoch milliseconds
+     * @param buffer    a cleared buffer of at least {@code maxFrameSize(0)} bytes, set to little-endian
+     * @return the buffer, flipped to the keyframe
+     */
+    public ByteBuffer encodeKnownKeyframe(long timestamp, ByteBuffer buffer) {
+        int count = Math.max(knownCount, 0);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        putHeader(buffer, FRAME_KEY, ids ? BinaryFrameEncoder.FLAG_ID : 0, lastTick, count, 0, 0, timestamp);
+        for (int i = 0; i < count; i++) buffer.putInt(knownXs[i]);
+        for (int i = 0; i < count; i++) buffer.putInt(knownYs[i]);
+        if (ids) {
+            BinaryFrameEncoder.putInts(buffer, knownIds, count);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeKeyframe(SimulationSnapshot snapshot, long tick, long timestamp, ByteBuffer buffer) {
+        int count = snapshot.getSize();
+        if (knownXs.length < count) {
+            knownXs = Arrays.copyOf(knownXs, snapshot.getXs().length);
+            knownYs = Arrays.copyOf(knownYs, snapshot.getXs().length);
+            if (ids) {
+                knownIds = Arrays.copyOf(knownIds, snapshot.getXs().length);
+            }
+        }
+        if (ids) {
+            System.arraycopy(snapshot.getIds(), 0, knownIds, 0, count);
+        }
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+        for (int i = 0; i < count; i++) {
+            knownXs[i] = quantize(xs[i]);
+            knownYs[i] = quantize(ys[i]);
+        }
+        knownCount = count;
+        knownStructureVersion = snapshot.getStructureVersion();
+        framesSinceKeyframe = 0;
+        keyframeRequested = false;
+        lastTick = tick;
+        return encodeKnownKeyframe(timestamp, buffer);
+    }
+
+    /**
+     * @return the delta frame, or {@code null} if a delta does not fit in 16 bits and a keyframe must be sent
+     */
+    private ByteBuffer encodeDelta(SimulationSnapshot snapshot, long tick, long timestamp, ByteBuffer buffer) {
+        int count = snapshot.getSize();
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+
+        // First pass: count the particles to send, bailing out on deltas too large for an int16.
+        int entries = 0;
+        for (int i = 0; i < count; i++) {
+            long dx = (long) quantize(xs[i]) - knownXs[i];
+            long dy = (long) quantize(ys[i]) - knownYs[i];
+            if (Math.abs(dx) > Short.MAX_VALUE || Math.abs(dy) > Short.MAX_VALUE) {
+                return null;
+            }
+            if (Math.abs(dx) >= threshold || Math.abs(dy) >= threshold) {
+                entries++;
+            }
+        }
+
+        int bodySize = 4 * entries + ((4 * entries + 3) & ~3);
+        buffer.limit(BinaryFrameEncoder.HEADER_SIZE + bodySize);
+        putHeader(buffer, FRAME_DELTA, 0, tick, entries, count, lastTick, timestamp);
+
+        int indexStart = BinaryFrameEncoder.HEADER_SIZE;
+        int dxStart = indexStart + 4 * entries;
+        int dyStart = dxStart + 2 * entries;
+        int entry = 0;
+        for (int i = 0; i < count && entry < entries; i++) {
+            int qx = quantize(xs[i]);
+            int qy = quantize(ys[i]);
+            int dx = qx - knownXs[i];
+            int dy = qy - knownYs[i];
+            if (Math.abs(dx) < threshold && Math.abs(dy) < threshold) continue;
+
+            buffer.putInt(indexStart + 4 * entry, i);
+            buffer.putShort(dxStart + 2 * entry, (short) dx);
+            buffer.putShort(dyStart + 2 * entry, (short) dy);
+            knownXs[i] = qx;
+            knownYs[i] = qy;
+            entry++;
+        }
+        framesSinceKeyframe++;
+        return buffer.position(0).limit(BinaryFrameEncoder.HEADER_SIZE + bodySize);
+    }
+
+    private void putHeader(ByteBuffer buffer, byte type, int flags, long tick, int count, int particleCount,
+                           long baseTick, long timestamp) {
+        buffer.put(type)
+                .put((byte) flags)
+                .putShort((short) 0)
+                .putInt((int) tick)
+                .putInt(count)
+                .putInt(particleCount)
+                .putInt((int) baseTick)
+                .putFloat((float) quantum)
+                .putLong(timestamp);
+    }
+
+    private int quantize(double position) {
+        long q = Math.round(position / quantum);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, q));
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,57 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.SimulationSnapshot;
+
+/**
+ * Encodes the particles of a snapshot into the JSON text frame of {@link StreamFormat#SUBPROTOCOL_JSON} sessions:
+ * an array of {@code {"id","x","y","vx","vy","mass"}} objects, as Jackson serializes a list of
+ * {@link org.acme.model.Particle}s.
+ * <p>
+ * The frame is written straight from the arrays of the snapshot into a reusable builder, without boxing the
+ * particles, so the text frame itself is the only allocation.
+ */
+public final class JsonFrameEncoder {
+
+    private JsonFrameEncoder() {
+    }
+
+    /**
+     * @param snapshot the particles
+     * @param builder  a builder reused across frames, cleared first
+     * @return the JSON frame
+     */
+    public static String encode(SimulationSnapshot snapshot, StringBuilder builder) {
+        int count = snapshot.getSize();
+        int[] ids = snapshot.getIds();
+        double[] xs = snapshot.getXs();
+        double[] ys = snapshot.getYs();
+        double[] vxs = snapshot.getVxs();
+        double[] vys = snapshot.getVys();
+        double[] masses = snapshot.getMasses();
+
+        builder.setLength(0);
+        builder.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"id\":").append(ids[i]);
+            appendNumber(builder.append(",\"x\":"), xs[i]);
+            appendNumber(builder.append(",\"y\":"), ys[i]);
+            appendNumber(builder.append(",\"vx\":"), vxs[i]);
+            appendNumber(builder.append(",\"vy\":"), vys[i]);
+            appendNumber(builder.append(",\"mass\":"), masses[i]);
+            builder.append('}');
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Appends a number like Jackson does, quoting the values JSON cannot represent.
+     */
+    private static void appendNumber(StringBuilder builder, double value) {
+        if (Double.isFinite(value)) {
+            builder.append(value);
+        } else {
+            builder.append('"').append(value).append('"');
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.acme.websocket.protocol;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * JSON text message sent by a client replaying a recording over {@code /ws/particles/replay/{name}}, e.g.
+ * {@code {"type":"seek","tick":1200}} or {@code {"type":"speed","speed":4}}.
+ *
+ * @param type  the kind of message
+ * @param tick  the tick to seek to
+ * @param speed the replay speed, relative to the recording
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ReplayMessage(String type, Long tick, Double speed) {
+
+    /**
+     * Jumps to the first frame at or after a tick.
+     */
+    public static final String SEEK = "seek";
+
+    /**
+     * Changes the replay speed; 0 pauses the replay.
+     */
+    public static final String SPEED = "speed";
+}
@@ -0,0 +1,163 @@
+package org.acme.websocket.protocol;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How particle frames are encoded for a WebSocket session.
+ * <p>
+ * The encoding is negotiated through the WebSocket subprotocol ({@code particles.json}, {@code particles.f32},
+ * {@code particles.i16}, {@code particles.delta}) or, when no subprotocol was agreed, the {@code format} query
+ * parameter ({@code json}, {@code f32}, {@code i16}, {@code delta}). Binary frames only carry velocity, mass and particle
+ * ids when requested through the {@code fields} query parameter, e.g. {@code ?format=f32&fields=velocity,mass,id};
+ * delta streams only honour {@code id}, carried by their keyframes. JSON remains the default and always carries ids.
+ * <p>
+ * Binary sessions may receive density frames instead of particles, see {@link LevelOfDetail}; the {@code lod}
+ * query parameter ({@code auto}, {@code particles}, {@code density}) overrides the automatic choice.
+ *
+ * @param encoding the frame encoding
+ * @param velocity whether binary frames carry velocities
+ * @param mass     whether binary frames carry masses
+ * @param id       whether frames carry particle ids
+ * @param lod      whether the session receives particles or density frames, always particles for JSON
+ */
+public record StreamFormat(Encoding encoding, boolean velocity, boolean mass, boolean id, LevelOfDetail lod) {
+
+    public static final String SUBPROTOCOL_JSON = "particles.json";
+    public static final String SUBPROTOCOL_FLOAT32 = "particles.f32";
+    public static final String SUBPROTOCOL_INT16 = "particles.i16";
+    public static final String SUBPROTOCOL_DELTA = "particles.delta";
+
+    /**
+     * The format of clients that negotiate nothing.
+     */
+    public static final StreamFormat JSON = new StreamFormat(Encoding.JSON, true, true, true, null);
+
+    public StreamFormat {
+        if (encoding == Encoding.JSON || lod == null) {
+            lod = encoding == Encoding.JSON ? LevelOfDetail.PARTICLES : LevelOfDetail.AUTO;
+        }
+    }
+
+    /**
+     * A format without ids and with the automatic level of detail.
+     */
+    public StreamFormat(Encoding encoding, boolean velocity, boolean mass) {
+        this(encoding, velocity, mass, false, null);
+    }
+
+    public enum Encoding {
+        /**
+         * Jackson JSON array of particles, sent as a text message.
+         */
+        JSON,
+        /**
+         * Binary frame with float32 positions.
+         */
+        FLOAT32,
+        /**
+         * Binary frame with int16 positions quantized over the bounds of the frame.
+         */
+        INT16,
+        /**
+         * Periodic keyframes with quantized position deltas in between, see {@link DeltaStreamEncoder}.
+         * Only carries positions, and particle ids in keyframes when requested.
+         */
+        DELTA
+    }
+
+    public enum LevelOfDetail {
+        /**
+         * Density frames when the session sees too many particles or drains too slowly for particle frames.
+         */
+        AUTO,
+        /**
+         * Always particles.
+         */
+        PARTICLES,
+        /**
+         * Always density frames, when the simulation computes them.
+         */
+        DENSITY
+    }
+
+    /**
+     * @return whether frames of this format are sent as binary messages
+     */
+    public boolean isBinary() {
+        return encoding != Encoding.JSON;
+    }
+
+    /**
+     * Negotiates the format of a session.
+     *
+     * @param subprotocol the negotiated subprotocol, may be {@code null} or empty
+     * @param parameters  the query parameters of the handshake, may be {@code null}
+     * @return the format to stream to the session
+     */
+    public static StreamFormat negotiate(String subprotocol, Map<String, List<String>> parameters) {
+        Encoding encoding = fromSubprotocol(subprotocol);
+        if (encoding == null) {
+            encoding = fromParameter(firstParameter(parameters, "format"));
+        }
+        if (encoding == Encoding.JSON) {
+            return JSON;
+        }
+        LevelOfDetail lod = fromLodParameter(firstParameter(parameters, "lod"));
+
+        boolean velocity = false;
+        boolean mass = false;
+        boolean id = false;
+        String fields = firstParameter(parameters, "fields");
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                switch (field.trim().toLowerCase()) {
+                    case "velocity" -> velocity = true;
+                    case "mass" -> mass = true;
+                    case "id" -> id = true;
+                    default -> { }
+                }
+            }
+        }
+        if (encoding == Encoding.DELTA) {
+            return new StreamFormat(Encoding.DELTA, false, false, id, lod);
+        }
+        return new StreamFormat(encoding, velocity, mass, id, lod);
+    }
+
+    private static Encoding fromSubprotocol(String subprotocol) {
+        if (subprotocol == null) return null;
+        return switch (subprotocol) {
+            case SUBPROTOCOL_JSON -> Encoding.JSON;
+            case SUBPROTOCOL_FLOAT32 -> Encoding.FLOAT32;
+            case SUBPROTOCOL_INT16 -> Encoding.INT16;
+            case SUBPROTOCOL_DELTA -> Encoding.DELTA;
+            default -> null;
+        };
+    }
+
+    private static Encoding fromParameter(String format) {
+        if (format == null) return Encoding.JSON;
+        return switch (format.toLowerCase()) {
+            case "f32", "float32" -> Encoding.FLOAT32;
+            case "i16", "int16" -> Encoding.INT16;
+            case "delta" -> Encoding.DELTA;
+            default -> Encoding.JSON;
+        };
+    }
+
+    private static LevelOfDetail fromLodParameter(String lod) {
+        if (lod == null) return LevelOfDetail.AUTO;
+        return switch (lod.toLowerCase()) {
+            case "particles" -> LevelOfDetail.PARTICLES;
+            case "density" -> LevelOfDetail.DENSITY;
+            default -> LevelOfDetail.AUTO;
+        };
+    }
+
+    private static String firstParameter(Map<String, List<String>> parameters, String name) {
+        if (parameters == null) return null;
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,69 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.SnapshotGrid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Area of interest of a WebSocket client: only the particles inside the rectangle are sent to it.
+ * <p>
+ * With a zoom level, in pixels per world unit, particles drawn on the same pixel as a particle already kept are
+ * left out as well, so a zoomed out client receives at most one particle per pixel however dense the simulation.
+ *
+ * @param minX the left edge, in world units
+ * @param minY the bottom edge, in world units
+ * @param maxX the right edge, in world units
+ * @param maxY the top edge, in world units
+ * @param zoom the pixels per world unit, or {@code null} to keep every particle of the rectangle
+ */
+public record Viewport(double minX, double minY, double maxX, double maxY, Double zoom) {
+
+    /**
+     * Above this many pixels, the pixel decimation is skipped: particles are then far sparser than pixels anyway.
+     */
+    private static final long MAX_PIXELS = 1L << 24;
+
+    /**
+     * @throws IllegalArgumentException if the rectangle is empty or not finite, or the zoom is not positive
+     */
+    public Viewport {
+        if (!Double.isFinite(minX) || !Double.isFinite(minY) || !Double.isFinite(maxX) || !Double.isFinite(maxY)
+                || minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Invalid viewport: " + minX + ", " + minY + ", " + maxX + ", " + maxY);
+        }
+        if (zoom != null && !(zoom > 0 && Double.isFinite(zoom))) {
+            throw new IllegalArgumentException("Invalid zoom: " + zoom);
+        }
+    }
+
+    /**
+     * Finds the particles this viewport shows.
+     *
+     * @param grid the spatial index of the particles
+     * @return the indices of the visible particles, in ascending order
+     */
+    public int[] cull(SnapshotGrid grid) {
+        int[] visible = grid.query(minX, minY, maxX, maxY);
+        if (zoom == null) return visible;
+
+        long width = (long) ((maxX - minX) * zoom) + 1;
+        long height = (long) ((maxY - minY) * zoom) + 1;
+        if (width * height > MAX_PIXELS) return visible;
+
+        double[] xs = grid.getSnapshot().getXs();
+        double[] ys = grid.getSnapshot().getYs();
+        BitSet drawn = new BitSet((int) (width * height));
+        int kept = 0;
+        for (int i : visible) {
+            int px = (int) Math.min(width - 1, (long) ((xs[i] - minX) * zoom));
+            int py = (int) Math.min(height - 1, (long) ((ys[i] - minY) * zoom));
+            int pixel = (int) (py * width + px);
+            if (!drawn.get(pixel)) {
+                drawn.set(pixel);
+                visible[kept++] = i;
+            }
+        }
+        return kept == visible.length ? visible : Arrays.copyOf(visible, kept);
+    }
+}
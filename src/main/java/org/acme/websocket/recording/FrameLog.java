@@ -0,0 +1,101 @@
+package org.acme.websocket.recording;
+
+import org.acme.websocket.protocol.StreamFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * The layout of a recording: the encoded frames of every tick of a simulation, appended to a directory holding
+ * segment files and an index.
+ * <p>
+ * Segments, {@code 00000000.seg}, {@code 00000001.seg} and so on, hold binary frames (see
+ * {@link org.acme.websocket.protocol.BinaryFrameEncoder}) back to back; a new segment starts once the current one
+ * would exceed the configured segment size. The index, {@value #INDEX_FILE}, starts with a
+ * {@value #HEADER_SIZE}-byte little-endian header:
+ * <pre>
+ *  0  u8[8] magic "NBODYREC"
+ *  8  u32   format version, {@value #VERSION}
+ * 12  u32   frame encoding, {@value #ENCODING_FLOAT32} float32 or {@value #ENCODING_INT16} int16, 0 if unknown
+ * 16  i64   creation time, in epoch milliseconds
+ * 24  u64   reserved
+ * </pre>
+ * followed by one {@value #ENTRY_SIZE}-byte entry per frame, in recording order:
+ * <pre>
+ *  0  i64   tick
+ *  8  i64   server time of the tick, in epoch milliseconds
+ * 16  i64   offset of the frame in its segment
+ * 24  u32   segment number
+ * 28  u32   frame length
+ * </pre>
+ * A frame is written to its segment before its entry is appended, so readers, including those of a recording still
+ * being written, only see complete frames.
+ */
+public final class FrameLog {
+
+    /**
+     * "NBODYREC" read as a little-endian u64.
+     */
+    public static final long MAGIC = 0x43455259444F424EL;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int ENTRY_SIZE = 32;
+    public static final String INDEX_FILE = "frames.idx";
+    public static final int ENCODING_FLOAT32 = 1;
+    public static final int ENCODING_INT16 = 2;
+
+    private FrameLog() {
+    }
+
+    /**
+     * @param directory the recording directory
+     * @param segment   the segment number
+     * @return the segment file
+     */
+    static Path segment(Path directory, int segment) {
+        return directory.resolve(String.format("%08d.seg", segment));
+    }
+
+    /**
+     * @param encoding the encoding of the recorded frames, float32 or int16
+     * @return its code in the index header
+     * @throws IllegalArgumentException if frames of the encoding cannot be recorded
+     */
+    static int encodingCode(StreamFormat.Encoding encoding) {
+        return switch (encoding) {
+            case FLOAT32 -> ENCODING_FLOAT32;
+            case INT16 -> ENCODING_INT16;
+            default -> throw new IllegalArgumentException("Cannot record " + encoding + " frames");
+        };
+    }
+
+    /**
+     * @param code the code of the index header
+     * @return the encoding of the recorded frames, or {@code null} if unknown
+     */
+    static StreamFormat.Encoding encoding(int code) {
+        return switch (code) {
+            case ENCODING_FLOAT32 -> StreamFormat.Encoding.FLOAT32;
+            case ENCODING_INT16 -> StreamFormat.Encoding.INT16;
+            default -> null;
+        };
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+}
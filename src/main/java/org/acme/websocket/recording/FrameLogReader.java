@@ -0,0 +1,250 @@
+package org.acme.websocket.recording;
+
+import lombok.Getter;
+import org.acme.websocket.protocol.StreamFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the frames of a recording, see {@link FrameLog} for the layout. Thread-safe, so every session replaying a
+ * recording shares one reader.
+ * <p>
+ * The index is loaded in memory, 32 bytes per frame, and {@link #refresh()} picks up the frames appended since, so a
+ * recording can be replayed while it is written. Segments are memory-mapped read-only: {@link #frame(int)} returns a
+ * view of the mapping, sent to the sessions without copying it to the heap, and every session shares the page cache.
+ */
+public final class FrameLogReader implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Getter
+    private final Path directory;
+    private final FileChannel index;
+
+    /**
+     * The creation time of the recording, in epoch milliseconds.
+     */
+    @Getter
+    private final long created;
+
+    /**
+     * The encoding of the frames, or {@code null} for a recording that did not store it.
+     */
+    @Getter
+    private final StreamFormat.Encoding encoding;
+
+    private long[] ticks = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] segments = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int count;
+    private long bytes;
+
+    private final List<MappedByteBuffer> mappings = new ArrayList<>();
+
+    private FrameLogReader(Path directory, FileChannel index, long created, StreamFormat.Encoding encoding) {
+        this.directory = directory;
+        this.index = index;
+        this.created = created;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Opens a recording and loads its index.
+     *
+     * @param directory the recording directory
+     * @return the reader of the recording
+     * @throws java.nio.file.NoSuchFileException if the recording does not exist
+     * @throws IOException                       if the index cannot be read or is not a recording of a supported
+     *                                           version
+     */
+    public static FrameLogReader open(Path directory) throws IOException {
+        Path file = directory.resolve(FrameLog.INDEX_FILE);
+        FileChannel index = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FrameLog.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                FrameLog.readFully(index, header, 0);
+            } catch (IOException e) {
+                throw new IOException("Not a recording index: " + file, e);
+            }
+            if (header.getLong(0) != FrameLog.MAGIC) {
+                throw new IOException("Not a recording index: " + file);
+            }
+            int version = header.getInt(8);
+            if (version != FrameLog.VERSION) {
+                throw new IOException("Unsupported recording version " + version + ": " + file);
+            }
+            FrameLogReader reader = new FrameLogReader(directory, index, header.getLong(16),
+                    FrameLog.encoding(header.getInt(12)));
+            reader.refresh();
+            return reader;
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the index entries appended since the last call. A partially written entry is left for the next call.
+     *
+     * @return the number of frames
+     * @throws IOException if the index cannot be read
+     */
+    public synchronized int refresh() throws IOException {
+        long available = (index.size() - FrameLog.HEADER_SIZE) / FrameLog.ENTRY_SIZE;
+        int total = (int) Math.min(available, Integer.MAX_VALUE - 8);
+        if (total <= count) return count;
+        ensureCapacity(total);
+        ByteBuffer entries = ByteBuffer.allocate((total - count) * FrameLog.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        FrameLog.readFully(index, entries, FrameLog.HEADER_SIZE + (long) count * FrameLog.ENTRY_SIZE);
+        entries.flip();
+        for (int i = count; i < total; i++) {
+            ticks[i] = entries.getLong();
+            timestamps[i] = entries.getLong();
+            offsets[i] = entries.getLong();
+            segments[i] = entries.getInt();
+            lengths[i] = entries.getInt();
+            bytes += lengths[i];
+        }
+        count = total;
+        return count;
+    }
+
+    /**
+     * @return the number of frames loaded by the last {@link #refresh()}
+     */
+    public synchronized int getFrameCount() {
+        return count;
+    }
+
+    /**
+     * @return the size of the frames loaded, in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @param frame the frame number
+     * @return the tick of the frame
+     */
+    public synchronized long tick(int frame) {
+        return ticks[checkFrame(frame)];
+    }
+
+    /**
+     * @param frame the frame number
+     * @return the server time of the tick of the frame, in epoch milliseconds
+     */
+    public synchronized long timestamp(int frame) {
+        return timestamps[checkFrame(frame)];
+    }
+
+    /**
+     * Finds where to start replaying from a tick.
+     *
+     * @param tick the tick
+     * @return the first frame at or after the tick, or the frame count if the recording ends before it
+     */
+    public synchronized int frameAtTick(long tick) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ticks[middle] < tick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the frame a replay shows at a point of the recording.
+     *
+     * @param timestamp the server time, in epoch milliseconds
+     * @return the last frame at or before the time, or -1 if the recording starts after it
+     */
+    public synchronized int frameAtTime(long timestamp) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Returns a frame without copying it, as a read-only view of its memory-mapped segment.
+     *
+     * @param frame the frame number
+     * @return the frame, from position 0 to its length
+     * @throws IOException if the segment cannot be mapped
+     */
+    public synchronized ByteBuffer frame(int frame) throws IOException {
+        checkFrame(frame);
+        int segment = segments[frame];
+        long end = offsets[frame] + lengths[frame];
+        while (mappings.size() <= segment) {
+            mappings.add(null);
+        }
+        MappedByteBuffer mapping = mappings.get(segment);
+        if (mapping == null || mapping.capacity() < end) {
+            // The last segment of a recording being written grows: map it again to see the new frames
+            try (FileChannel channel = FileChannel.open(FrameLog.segment(directory, segment),
+                    StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < end || size > Integer.MAX_VALUE) {
+                    throw new IOException("Corrupt recording segment " + segment + " of " + directory);
+                }
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            mappings.set(segment, mapping);
+        }
+        return mapping.slice((int) offsets[frame], lengths[frame]);
+    }
+
+    /**
+     * Closes the index. The mappings are released once the frames they returned are no longer used.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        mappings.clear();
+        index.close();
+    }
+
+    private int checkFrame(int frame) {
+        if (frame < 0 || frame >= count) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " out of " + count);
+        }
+        return frame;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ticks.length) return;
+        int grown = (int) Math.min(Math.max(capacity, 2L * ticks.length), Integer.MAX_VALUE - 8);
+        ticks = Arrays.copyOf(ticks, grown);
+        timestamps = Arrays.copyOf(timestamps, grown);
+        offsets = Arrays.copyOf(offsets, grown);
+        segments = Arrays.copyOf(segments, grown);
+        lengths = Arrays.copyOf(lengths, grown);
+    }
+}
@@ -0,0 +1,138 @@
+package org.acme.websocket.recording;
+
+import lombok.Getter;
+import org.acme.websocket.protocol.StreamFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends frames to a new recording, see {@link FrameLog} for the layout. Not thread-safe.
+ */
+public final class FrameLogWriter implements Closeable {
+
+    private final Path directory;
+    private final long segmentSize;
+    private final FileChannel index;
+    private final ByteBuffer entry = ByteBuffer.allocate(FrameLog.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private FileChannel segment;
+    private int segmentNumber = -1;
+    private long segmentPosition;
+
+    /**
+     * The number of frames appended so far.
+     */
+    @Getter
+    private long frames;
+
+    /**
+     * The size of the frames appended so far, in bytes.
+     */
+    @Getter
+    private long bytes;
+
+    private FrameLogWriter(Path directory, long segmentSize, FileChannel index) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.index = index;
+    }
+
+    /**
+     * Creates a recording.
+     *
+     * @param directory   the recording directory, which must not exist yet
+     * @param segmentSize the size after which a new segment file starts, in bytes
+     * @param encoding    the encoding of the frames, float32 or int16, stored in the index for the replays
+     * @return the writer of the recording
+     * @throws IllegalArgumentException                 if the segment size or the encoding is invalid
+     * @throws java.nio.file.FileAlreadyExistsException if the recording already exists
+     * @throws IOException                               if the recording cannot be created
+     */
+    public static FrameLogWriter create(Path directory, long segmentSize, StreamFormat.Encoding encoding)
+            throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        int encodingCode = FrameLog.encodingCode(encoding);
+        Path parent = directory.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.createDirectory(directory);
+        FileChannel index = FileChannel.open(directory.resolve(FrameLog.INDEX_FILE), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FrameLog.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(FrameLog.MAGIC)
+                    .putInt(FrameLog.VERSION)
+                    .putInt(encodingCode)
+                    .putLong(System.currentTimeMillis())
+                    .putLong(0)
+                    .flip();
+            FrameLog.writeFully(index, header, 0);
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+        return new FrameLogWriter(directory, segmentSize, index);
+    }
+
+    /**
+     * Appends a frame, starting a new segment first if it would not fit in the current one.
+     *
+     * @param frame     the encoded frame, read from its position to its limit
+     * @param tick      the tick of the frame
+     * @param timestamp the server time of the tick, in epoch milliseconds
+     * @throws IOException if the frame cannot be written
+     */
+    public void append(ByteBuffer frame, long tick, long timestamp) throws IOException {
+        int length = frame.remaining();
+        if (segment == null || segmentPosition > 0 && segmentPosition + length > segmentSize) {
+            nextSegment();
+        }
+        long offset = segmentPosition;
+        FrameLog.writeFully(segment, frame, offset);
+        segmentPosition += length;
+
+        entry.clear();
+        entry.putLong(tick)
+                .putLong(timestamp)
+                .putLong(offset)
+                .putInt(segmentNumber)
+                .putInt(length)
+                .flip();
+        FrameLog.writeFully(index, entry, FrameLog.HEADER_SIZE + frames * FrameLog.ENTRY_SIZE);
+        frames++;
+        bytes += length;
+    }
+
+    /**
+     * Flushes the recording to the disk and closes its files.
+     */
+    @Override
+    public void close() throws IOException {
+        try (index; FileChannel last = segment) {
+            if (last != null) {
+                last.force(false);
+            }
+            index.force(false);
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentNumber++;
+        segment = FileChannel.open(FrameLog.segment(directory, segmentNumber), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segmentPosition = 0;
+    }
+}
@@ -0,0 +1,180 @@
+package org.acme.websocket.recording;
+
+import lombok.Getter;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationInstance;
+import org.acme.service.TickListener;
+import org.acme.websocket.protocol.BinaryFrameEncoder;
+import org.acme.websocket.protocol.StreamFormat;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records every tick of a simulation instance: installed as its {@link TickListener}, it encodes each snapshot into a
+ * binary frame and appends it to a {@link FrameLogWriter}. An error stops the recording rather than the simulation,
+ * and is reported to the owner of the recorder so it can release the instance.
+ * <p>
+ * The snapshot is only valid during the tick, so the frame is encoded on the ticking thread, into one of
+ * {@value #BUFFERS} pooled buffers, while the appends run on a recorder thread of their own, so a slow disk never
+ * delays the simulation. When every buffer still waits for the disk, the tick is left out of the recording and
+ * counted by {@code simulation.recording.dropped}.
+ */
+public class FrameRecorder implements TickListener {
+
+    private static final Logger LOG = Logger.getLogger(FrameRecorder.class);
+
+    /**
+     * The frames encoded ahead of the disk before ticks are dropped.
+     */
+    static final int BUFFERS = 4;
+
+    /**
+     * Queued after the last frame to stop the recorder thread.
+     */
+    private static final Frame END = new Frame();
+
+    @Getter
+    private final String name;
+    @Getter
+    private final SimulationInstance instance;
+    private final FrameLogWriter writer;
+    private final StreamFormat format;
+    private final Consumer<FrameRecorder> onFailure;
+
+    private final BlockingQueue<Frame> free = new ArrayBlockingQueue<>(BUFFERS);
+
+    /**
+     * The encoded frames waiting for the disk, with room for {@link #END} behind every buffer.
+     */
+    private final BlockingQueue<Frame> pending = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final Thread thread;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long frames;
+    private volatile boolean closed;
+    private boolean closeRequested;
+
+    /**
+     * A pooled frame, grown with the particle count, and the tick it holds.
+     */
+    private static final class Frame {
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+        private long tick;
+        private long timestamp;
+    }
+
+    /**
+     * Starts the recorder thread.
+     *
+     * @param name      the recording name
+     * @param instance  the recorded instance
+     * @param writer    the writer of the recording, closed with the recorder
+     * @param format    the binary format of the recorded frames
+     * @param onFailure called by the recorder thread with this recorder once an append failed and the recording
+     *                  stopped
+     */
+    public FrameRecorder(String name, SimulationInstance instance, FrameLogWriter writer, StreamFormat format,
+                         Consumer<FrameRecorder> onFailure) {
+        this.name = name;
+        this.instance = instance;
+        this.writer = writer;
+        this.format = format;
+        this.onFailure = onFailure;
+        for (int i = 0; i < BUFFERS; i++) {
+            free.add(new Frame());
+        }
+        this.thread = Thread.ofPlatform().daemon().name("recorder-" + name).start(this::run);
+    }
+
+    @Override
+    public void onTick(SimulationSnapshot snapshot) {
+        if (closed) return;
+        Frame frame = free.poll();
+        if (frame == null) {
+            dropped.incrementAndGet();
+            instance.getService().getMetrics().getDroppedRecordingFrames().increment();
+            return;
+        }
+        int size = BinaryFrameEncoder.frameSize(snapshot.getSize(), format);
+        if (frame.buffer.capacity() < size) {
+            frame.buffer = ByteBuffer.allocateDirect(size);
+        }
+        BinaryFrameEncoder.encode(snapshot, format, frame.buffer.clear());
+        frame.tick = snapshot.getTick();
+        frame.timestamp = snapshot.getTimestamp();
+        pending.add(frame);
+    }
+
+    /**
+     * @return the number of frames recorded so far
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of ticks left out of the recording because the disk fell behind
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops recording, waits for the frames already encoded to be appended and flushes the recording to the disk.
+     * Ticks arriving afterwards are ignored.
+     */
+    public synchronized void close() {
+        if (closeRequested) return;
+        closeRequested = true;
+        closed = true;
+        pending.add(END);
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return whether the recording still receives ticks
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    private void run() {
+        boolean failed = false;
+        try {
+            for (Frame frame = pending.take(); frame != END; frame = pending.take()) {
+                try {
+                    writer.append(frame.buffer, frame.tick, frame.timestamp);
+                    frames++;
+                } finally {
+                    free.add(frame);
+                }
+            }
+        } catch (IOException e) {
+            LOG.errorf(e, "Error recording simulation %s to %s, stopping the recording", instance.getId(), name);
+            closed = true;
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.errorf(e, "Error closing recording %s", name);
+            }
+        }
+        if (failed) {
+            onFailure.accept(this);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.acme.websocket.recording;
+
+/**
+ * Summary of a recording.
+ *
+ * @param name           the recording name
+ * @param simulation     the id of the instance being recorded, or {@code null} once the recording stopped
+ * @param frames         the number of frames
+ * @param firstTick      the tick of the first frame, or -1 without frames
+ * @param lastTick       the tick of the last frame, or -1 without frames
+ * @param durationMillis the server time between the first and last frames
+ * @param bytes          the size of the frames
+ */
+public record RecordingInfo(String name, String simulation, int frames, long firstTick, long lastTick,
+                            long durationMillis, long bytes) {
+
+    static RecordingInfo of(String name, String simulation, FrameLogReader reader) {
+        int frames = reader.getFrameCount();
+        if (frames == 0) {
+            return new RecordingInfo(name, simulation, 0, -1, -1, 0, 0);
+        }
+        return new RecordingInfo(name, simulation, frames, reader.tick(0), reader.tick(frames - 1),
+                reader.timestamp(frames - 1) - reader.timestamp(0), reader.getBytes());
+    }
+}
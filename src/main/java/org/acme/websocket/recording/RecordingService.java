@@ -0,0 +1,236 @@
+package org.acme.websocket.recording;
+
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationRegistry;
+import org.acme.websocket.protocol.StreamFormat;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Records simulation instances to {@link FrameLog}s and opens recordings for replay.
+ * <p>
+ * A recording subscribes to its instance like a WebSocket session, so the instance keeps ticking while it is
+ * recorded, and appends the frame of every tick through a {@link FrameRecorder}. Recordings live in
+ * {@code simulation.recording.directory}, one subdirectory per recording name; they are only ever appended to, and
+ * replaying them never runs the simulation.
+ */
+@ApplicationScoped
+public class RecordingService {
+
+    private static final Logger LOG = Logger.getLogger(RecordingService.class);
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Inject
+    SimulationRegistry registry;
+
+    @Getter
+    private Path directory = Path.of("recordings");
+    private long segmentSize = 256L << 20;
+    private StreamFormat format = new StreamFormat(StreamFormat.Encoding.FLOAT32, false, false);
+
+    /**
+     * The active recorders, by instance id.
+     */
+    private final Map<String, FrameRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * The readers of the recordings opened so far, by name, shared by every replay.
+     */
+    private final Map<String, FrameLogReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * Applies the configured settings.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        directory = Path.of(config.recording().directory());
+        segmentSize = config.recording().segmentSize();
+        format = new StreamFormat(config.recording().int16() ? StreamFormat.Encoding.INT16
+                : StreamFormat.Encoding.FLOAT32, false, false);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        for (String id : List.copyOf(recorders.keySet())) {
+            try {
+                stop(id);
+            } catch (IOException | RuntimeException e) {
+                LOG.errorf(e, "Error stopping the recording of simulation %s", id);
+            }
+        }
+    }
+
+    /**
+     * Starts recording an instance, creating it if needed.
+     *
+     * @param id   the instance id
+     * @param name the name of the new recording
+     * @return the recording
+     * @throws IllegalArgumentException if the id or name is invalid
+     * @throws IllegalStateException    if the instance is already recorded, the recording already exists or the
+     *                                  instance limit is reached
+     * @throws IOException              if the recording cannot be created
+     */
+    public synchronized RecordingInfo start(String id, String name) throws IOException {
+        validate(name);
+        if (recorders.containsKey(id)) {
+            throw new IllegalStateException("Simulation " + id + " is already recording to "
+                    + recorders.get(id).getName());
+        }
+        SimulationInstance instance = registry.subscribe(id);
+        FrameLogWriter writer;
+        try {
+            writer = FrameLogWriter.create(directory.resolve(name), segmentSize, format.encoding());
+        } catch (FileAlreadyExistsException e) {
+            registry.unsubscribe(instance);
+            throw new IllegalStateException("Recording " + name + " already exists");
+        } catch (IOException | RuntimeException e) {
+            registry.unsubscribe(instance);
+            throw e;
+        }
+        FrameRecorder recorder = new FrameRecorder(name, instance, writer, format, this::release);
+        recorders.put(instance.getId(), recorder);
+        instance.getService().setTickListener(recorder);
+        LOG.infof("Recording simulation %s to %s", instance.getId(), name);
+        return new RecordingInfo(name, instance.getId(), 0, -1, -1, 0, 0);
+    }
+
+    /**
+     * Stops recording an instance.
+     *
+     * @param id the instance id
+     * @return the finished recording, or empty if the instance was not recorded
+     * @throws IOException if the recording cannot be read back
+     */
+    public synchronized Optional<RecordingInfo> stop(String id) throws IOException {
+        FrameRecorder recorder = recorders.remove(id);
+        if (recorder == null) return Optional.empty();
+        SimulationInstance instance = recorder.getInstance();
+        if (instance.getService().getTickListener() == recorder) {
+            instance.getService().setTickListener(null);
+        }
+        recorder.close();
+        registry.unsubscribe(instance);
+        LOG.infof("Recorded %d frames of simulation %s to %s, %d ticks dropped", recorder.getFrames(), id,
+                recorder.getName(), recorder.getDropped());
+        return Optional.of(info(recorder.getName()));
+    }
+
+    /**
+     * Releases the instance of a recorder whose recording failed, as {@link #stop} would. Not synchronized, since
+     * {@link #stop} waits for the recorder thread calling it: whichever of the two removes the recorder releases it.
+     *
+     * @param recorder the failed recorder
+     */
+    void release(FrameRecorder recorder) {
+        SimulationInstance instance = recorder.getInstance();
+        if (!recorders.remove(instance.getId(), recorder)) return;
+        if (instance.getService().getTickListener() == recorder) {
+            instance.getService().setTickListener(null);
+        }
+        registry.unsubscribe(instance);
+        LOG.warnf("Stopped recording simulation %s to %s after %d frames", instance.getId(), recorder.getName(),
+                recorder.getFrames());
+    }
+
+    /**
+     * @return every recording of the directory
+     * @throws IOException if the directory cannot be listed
+     */
+    public List<RecordingInfo> list() throws IOException {
+        List<RecordingInfo> recordings = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return recordings;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                entry -> Files.isRegularFile(entry.resolve(FrameLog.INDEX_FILE)))) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                try {
+                    recordings.add(info(name));
+                } catch (IOException | IllegalArgumentException e) {
+                    LOG.warnf("Skipping recording %s: %s", name, e.getMessage());
+                }
+            }
+        }
+        return recordings;
+    }
+
+    /**
+     * Describes a recording, including the frames recorded since it was last read.
+     *
+     * @param name the recording name
+     * @return the recording
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws IOException              if the recording does not exist or cannot be read
+     */
+    public RecordingInfo info(String name) throws IOException {
+        FrameLogReader reader = reader(name);
+        reader.refresh();
+        return RecordingInfo.of(name, recordedInstance(name), reader);
+    }
+
+    /**
+     * Opens a recording for replay, sharing the reader of every replay of the recording.
+     *
+     * @param name the recording name
+     * @return the reader of the recording
+     * @throws IllegalArgumentException          if the name is invalid
+     * @throws java.nio.file.NoSuchFileException if the recording does not exist
+     * @throws IOException                       if the recording cannot be read
+     */
+    public FrameLogReader reader(String name) throws IOException {
+        validate(name);
+        try {
+            return readers.computeIfAbsent(name, key -> {
+                try {
+                    return FrameLogReader.open(directory.resolve(key));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param name the recording name
+     * @return whether frames are still appended to the recording
+     */
+    public boolean isRecording(String name) {
+        return recordedInstance(name) != null;
+    }
+
+    private String recordedInstance(String name) {
+        for (FrameRecorder recorder : recorders.values()) {
+            if (recorder.getName().equals(name) && recorder.isOpen()) {
+                return recorder.getInstance().getId();
+            }
+        }
+        return null;
+    }
+
+    private static void validate(String name) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid recording name: " + name);
+        }
+    }
+}
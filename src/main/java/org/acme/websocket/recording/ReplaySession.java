@@ -0,0 +1,259 @@
+package org.acme.websocket.recording;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.acme.websocket.protocol.StreamFormat;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Replays a recording to one WebSocket session, paced by the server times of its frames.
+ * <p>
+ * The replay clock starts at the first frame replayed and runs at {@code speed} times the recording; each send shows
+ * the last frame due on that clock. A session has at most one frame in flight, so a client, or a speed, too fast
+ * to take every frame skips the stale ones instead of queueing them. Frames are the memory-mapped views of
+ * {@link FrameLogReader#frame(int)}, so replaying costs no encoding and no copy.
+ * <p>
+ * Once the replay catches up with a recording still being written, it waits for new frames; at the end of a
+ * finished recording, the session is closed.
+ */
+public class ReplaySession {
+
+    private static final Logger LOG = Logger.getLogger(ReplaySession.class);
+
+    /**
+     * The fastest replay speed, relative to the recording.
+     */
+    public static final double MAX_SPEED = 64;
+
+    /**
+     * How often a replay that caught up with a recording being written looks for new frames, in milliseconds.
+     */
+    static final long POLL_INTERVAL_MS = 16;
+
+    private final Session session;
+    private final FrameLogReader log;
+    private final ScheduledExecutorService scheduler;
+    private final BooleanSupplier live;
+
+    private double speed = 1;
+    private int next;
+
+    /**
+     * Whether the replay clock is set: the server time of the recording {@link #anchorTimestamp} is shown at the
+     * {@link System#nanoTime()} {@link #anchorNanos}.
+     */
+    private boolean anchored;
+    private long anchorTimestamp;
+    private long anchorNanos;
+
+    private boolean inFlight;
+    private boolean closed;
+    private ScheduledFuture<?> timer;
+
+    private long sentFrames;
+    private long skippedFrames;
+
+    /**
+     * @param session   the session
+     * @param log       the recording
+     * @param scheduler the executor pacing the frames
+     * @param live      whether frames are still appended to the recording
+     */
+    public ReplaySession(Session session, FrameLogReader log, ScheduledExecutorService scheduler,
+                         BooleanSupplier live) {
+        this.session = session;
+        this.log = log;
+        this.scheduler = scheduler;
+        this.live = live;
+    }
+
+    /**
+     * Starts the replay.
+     *
+     * @param tick  the tick to start from, {@link Long#MIN_VALUE} for the beginning of the recording
+     * @param speed the replay speed
+     * @throws IllegalArgumentException if the speed is invalid, or the session did not negotiate the subprotocol of
+     *                                  the recorded frames
+     */
+    public synchronized void start(long tick, double speed) {
+        checkSubprotocol(session.getNegotiatedSubprotocol(), log.getEncoding());
+        this.speed = checkSpeed(speed);
+        seek(tick);
+    }
+
+    /**
+     * Jumps to the first frame at or after a tick, shown right away.
+     *
+     * @param tick the tick
+     */
+    public synchronized void seek(long tick) {
+        next = log.frameAtTick(tick);
+        anchored = false;
+        reschedule();
+    }
+
+    /**
+     * Changes the replay speed from the frame currently shown.
+     *
+     * @param speed the replay speed, up to {@link #MAX_SPEED}, or 0 to pause
+     * @throws IllegalArgumentException if the speed is invalid
+     */
+    public synchronized void setSpeed(double speed) {
+        checkSpeed(speed);
+        if (anchored) {
+            long now = System.nanoTime();
+            anchorTimestamp = position(now);
+            anchorNanos = now;
+        }
+        this.speed = speed;
+        reschedule();
+    }
+
+    /**
+     * Stops the replay, when the session closes.
+     */
+    public synchronized void close() {
+        closed = true;
+        cancelTimer();
+    }
+
+    /**
+     * @return the number of frames sent so far
+     */
+    public synchronized long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * @return the number of frames skipped because they were already stale when the session could take them
+     */
+    public synchronized long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Sends the frame due, or waits until the next one is.
+     */
+    synchronized void pump() {
+        timer = null;
+        if (closed || inFlight) return;
+        try {
+            if (next >= log.getFrameCount() && log.refresh() <= next) {
+                if (live.getAsBoolean()) {
+                    timer = scheduler.schedule(this::pump, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } else {
+                    end();
+                }
+                return;
+            }
+            long now = System.nanoTime();
+            if (!anchored) {
+                anchored = true;
+                anchorTimestamp = log.timestamp(next);
+                anchorNanos = now;
+            }
+            long position = position(now);
+            long nextTimestamp = log.timestamp(next);
+            if (nextTimestamp > position) {
+                if (speed > 0) {
+                    long delay = Math.max(1, (long) Math.ceil((nextTimestamp - position) / speed));
+                    timer = scheduler.schedule(this::pump, delay, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            int due = Math.max(next, log.frameAtTime(position));
+            send(due);
+            skippedFrames += due - next;
+            next = due + 1;
+        } catch (IOException | RuntimeException e) {
+            LOG.errorf(e, "Error replaying %s to session %s", log.getDirectory(), session.getId());
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Replay failed"));
+        }
+    }
+
+    private void send(int frame) throws IOException {
+        ByteBuffer buffer = log.frame(frame);
+        inFlight = true;
+        sentFrames++;
+        session.getAsyncRemote().sendBinary(buffer, this::sendCompleted);
+    }
+
+    private void sendCompleted(SendResult result) {
+        if (!result.isOK()) {
+            LOG.warnf("Error sending replay frame to session %s: %s", session.getId(),
+                    result.getException().getMessage());
+            close();
+            return;
+        }
+        synchronized (this) {
+            inFlight = false;
+        }
+        // Not inline: a send completing immediately would otherwise recurse through every frame due
+        scheduler.execute(this::pump);
+    }
+
+    private long position(long now) {
+        return anchorTimestamp + (long) ((now - anchorNanos) / 1e6 * speed);
+    }
+
+    private void reschedule() {
+        cancelTimer();
+        if (!inFlight && !closed) {
+            timer = scheduler.schedule(this::pump, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void end() {
+        close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "End of recording"));
+    }
+
+    private void close(CloseReason reason) {
+        close();
+        try {
+            session.close(reason);
+        } catch (IOException e) {
+            LOG.warnf("Error closing session %s: %s", session.getId(), e.getMessage());
+        }
+    }
+
+    private static double checkSpeed(double speed) {
+        if (!(speed >= 0 && speed <= MAX_SPEED)) {
+            throw new IllegalArgumentException("Invalid replay speed: " + speed);
+        }
+        return speed;
+    }
+
+    /**
+     * Checks that a session negotiated the binary subprotocol of the recorded frames; either binary one for a
+     * recording that did not store its encoding.
+     */
+    private static void checkSubprotocol(String subprotocol, StreamFormat.Encoding recorded) {
+        if (recorded == null) {
+            if (StreamFormat.SUBPROTOCOL_FLOAT32.equals(subprotocol)
+                    || StreamFormat.SUBPROTOCOL_INT16.equals(subprotocol)) return;
+            throw new IllegalArgumentException("The recording holds binary frames, negotiate "
+                    + StreamFormat.SUBPROTOCOL_FLOAT32 + " or " + StreamFormat.SUBPROTOCOL_INT16);
+        }
+        String expected = recorded == StreamFormat.Encoding.INT16 ? StreamFormat.SUBPROTOCOL_INT16
+                : StreamFormat.SUBPROTOCOL_FLOAT32;
+        if (!expected.equals(subprotocol)) {
+            throw new IllegalArgumentException("The recording holds " + expected + " frames, negotiate that "
+                    + "subprotocol");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.acme.websocket.recording;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.Session;
+import org.acme.service.SimulationConfig;
+import org.acme.service.SimulationRegistry;
+import org.acme.websocket.protocol.ReplayMessage;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The WebSocket sessions replaying recordings, one {@link ReplaySession} each, paced on the registry workers.
+ * <p>
+ * A session picks its recording by name, its start with the {@code tick} query parameter and its speed with the
+ * {@code speed} query parameter, then steers the replay with {@link ReplayMessage}s.
+ */
+@ApplicationScoped
+public class ReplayStreams {
+
+    private static final Logger LOG = Logger.getLogger(ReplayStreams.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Inject
+    RecordingService recordings;
+
+    @Inject
+    SimulationRegistry registry;
+
+    private final Map<Session, ReplaySession> sessions = new ConcurrentHashMap<>();
+    private int maxSessions = 1000;
+
+    /**
+     * Applies the configured settings.
+     *
+     * @param config the simulation settings
+     */
+    @Inject
+    void configure(SimulationConfig config) {
+        maxSessions = config.recording().maxReplaySessions();
+    }
+
+    /**
+     * Starts replaying a recording to a session.
+     *
+     * @param name    the recording name
+     * @param session the session
+     * @throws IllegalArgumentException if the recording does not exist, the query parameters are invalid or the
+     *                                  session did not negotiate the subprotocol of the recorded frames
+     * @throws IllegalStateException    if the replay session limit is reached
+     * @throws IOException              if the recording cannot be read
+     */
+    public void open(String name, Session session) throws IOException {
+        FrameLogReader log;
+        try {
+            log = recordings.reader(name);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown recording: " + name);
+        }
+        Map<String, List<String>> parameters = session.getRequestParameterMap();
+        String tick = firstParameter(parameters, "tick");
+        String speed = firstParameter(parameters, "speed");
+
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                throw new IllegalStateException("Too many replay sessions: " + maxSessions);
+            }
+            ReplaySession replay = new ReplaySession(session, log, registry.getWorkers(),
+                    () -> recordings.isRecording(name));
+            replay.start(tick == null ? Long.MIN_VALUE : Long.parseLong(tick),
+                    speed == null ? 1 : Double.parseDouble(speed));
+            sessions.put(session, replay);
+        }
+    }
+
+    /**
+     * Stops the replay of a session.
+     *
+     * @param session the session
+     */
+    public void close(Session session) {
+        ReplaySession replay = sessions.remove(session);
+        if (replay != null) {
+            replay.close();
+        }
+    }
+
+    /**
+     * Handles a control message of a session.
+     *
+     * @param message the JSON message
+     * @param session the session
+     */
+    public void onMessage(String message, Session session) {
+        ReplaySession replay = sessions.get(session);
+        if (replay == null) return;
+        try {
+            ReplayMessage replayMessage = objectMapper.readValue(message, ReplayMessage.class);
+            if (ReplayMessage.SEEK.equals(replayMessage.type()) && replayMessage.tick() != null) {
+                replay.seek(replayMessage.tick());
+            } else if (ReplayMessage.SPEED.equals(replayMessage.type()) && replayMessage.speed() != null) {
+                replay.setSpeed(replayMessage.speed());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.debugf("Invalid message from session %s: %s", session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of sessions replaying a recording
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    private static String firstParameter(Map<String, List<String>> parameters, String name) {
+        if (parameters == null) return null;
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,65 @@
+package org.acme.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DensityGrid class.
+ */
+public class DensityGridTest {
+
+    @Test
+    void testAggregatesParticlesPerCell() {
+        ParticleStore store = new ParticleStore();
+        store.add(0, 0, 1, 2, 1);
+        store.add(1, 1, 3, 4, 2);
+        store.add(10, 10, -1, 0, 5);
+        DensityGrid grid = new DensityGrid();
+
+        grid.compute(store, 2);
+
+        assertEquals(2, grid.getSide());
+        assertEquals(3, grid.getParticleCount());
+        assertEquals(0, grid.getOriginX());
+        assertEquals(5, grid.getCellSize());
+        assertEquals(2, grid.getCounts()[0]);
+        assertEquals(3, grid.getMasses()[0]);
+        assertEquals(2, grid.getMeanVxs()[0]);
+        assertEquals(3, grid.getMeanVys()[0]);
+        assertEquals(0, grid.getCounts()[1]);
+        assertEquals(0, grid.getCounts()[2]);
+        assertEquals(1, grid.getCounts()[3]);
+        assertEquals(-1, grid.getMeanVxs()[3]);
+    }
+
+    @Test
+    void testRecomputeResetsCells() {
+        ParticleStore store = new ParticleStore();
+        store.add(0, 0, 0, 0, 1);
+        DensityGrid grid = new DensityGrid();
+        grid.compute(store, 4);
+        store.clear();
+
+        grid.compute(store, 4);
+
+        for (int cell = 0; cell < 16; cell++) {
+            assertEquals(0, grid.getCounts()[cell]);
+        }
+    }
+
+    @Test
+    void testSnapshotCopiesTheGrid() {
+        ParticleStore store = new ParticleStore();
+        store.add(1, 1, 0, 0, 1);
+        DensityGrid grid = new DensityGrid();
+        grid.compute(store, 8);
+
+        SimulationSnapshot snapshot = SimulationSnapshot.of(store, grid, 0, 0L);
+        grid.compute(new ParticleStore(), 8);
+
+        assertEquals(8, snapshot.getDensity().getSide());
+        assertEquals(1, snapshot.getDensity().getParticleCount());
+        assertTrue(SimulationSnapshot.of(store, 0, 0L).getDensity().isEmpty());
+    }
+}
@@ -0,0 +1,224 @@
+package org.acme.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ParticleStore class.
+ */
+public class ParticleStoreTest {
+
+    @Test
+    void testAddAndGet() {
+        ParticleStore store = new ParticleStore();
+        int index = store.add(1, 2, 3, 4, 5);
+
+        assertEquals(0, index);
+        assertEquals(1, store.getSize());
+        Particle p = store.get(0);
+        assertEquals(1, p.getX());
+        assertEquals(2, p.getY());
+        assertEquals(3, p.getVx());
+        assertEquals(4, p.getVy());
+        assertEquals(5, p.getMass());
+    }
+
+    @Test
+    void testGrowsInChunks() {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < ParticleStore.CHUNK_SIZE + 1; i++) {
+            store.add(i, i, 0, 0, 1);
+        }
+
+        assertEquals(ParticleStore.CHUNK_SIZE + 1, store.getSize());
+        assertEquals(0, store.getXs().length % ParticleStore.CHUNK_SIZE);
+        assertEquals(ParticleStore.CHUNK_SIZE, store.get(ParticleStore.CHUNK_SIZE).getX());
+    }
+
+    @Test
+    void testAddAllAppendsPrefix() {
+        ParticleStore store = new ParticleStore();
+        store.add(0, 0, 0, 0, 1);
+        ParticleStore batch = new ParticleStore();
+        batch.add(1, 1, 0, 0, 1);
+        batch.add(2, 2, 0, 0, 1);
+        batch.add(3, 3, 0, 0, 1);
+        long version = store.getStructureVersion();
+
+        store.addAll(batch, 2);
+
+        assertEquals(3, store.getSize());
+        assertEquals(2, store.get(2).getX());
+        assertNotEquals(version, store.getStructureVersion());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.addAll(batch, 4));
+    }
+
+    @Test
+    void testRemoveMovesLastParticle() {
+        ParticleStore store = new ParticleStore();
+        store.add(0, 0, 0, 0, 1);
+        store.add(1, 1, 0, 0, 1);
+        store.add(2, 2, 0, 0, 1);
+
+        store.remove(0);
+
+        assertEquals(2, store.getSize());
+        assertEquals(2, store.get(0).getX());
+        assertEquals(1, store.get(1).getX());
+    }
+
+    @Test
+    void testIdsSurviveRemovals() {
+        ParticleStore store = new ParticleStore();
+        int first = store.getIds()[store.add(0, 0, 0, 0, 1)];
+        int second = store.getIds()[store.add(1, 1, 0, 0, 1)];
+        int third = store.getIds()[store.add(2, 2, 0, 0, 1)];
+
+        assertTrue(store.removeById(first));
+        assertFalse(store.removeById(first));
+
+        assertEquals(-1, store.indexOf(first));
+        assertEquals(third, store.get(store.indexOf(third)).getId());
+        assertEquals(2, store.get(store.indexOf(third)).getX());
+        assertEquals(1, store.get(store.indexOf(second)).getX());
+    }
+
+    @Test
+    void testIdLookupUnderChurn() {
+        ParticleStore store = new ParticleStore();
+        Random random = new Random(7);
+        Map<Integer, Double> expected = new HashMap<>();
+        for (int round = 0; round < 20000; round++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                double x = random.nextDouble();
+                int index = store.add(x, 0, 0, 0, 1);
+                expected.put(store.getIds()[index], x);
+            } else {
+                int id = store.getIds()[random.nextInt(store.getSize())];
+                assertTrue(store.removeById(id));
+                expected.remove(id);
+            }
+        }
+
+        assertEquals(expected.size(), store.getSize());
+        expected.forEach((id, x) -> assertEquals(x, store.get(store.indexOf(id)).getX()));
+    }
+
+    @Test
+    void testRemoveAllById() {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < 5; i++) {
+            store.add(i, i, 0, 0, 1);
+        }
+        int[] ids = {store.getIds()[1], store.getIds()[3], 999};
+
+        assertEquals(2, store.removeAllById(ids));
+        assertEquals(3, store.getSize());
+    }
+
+    @Test
+    void testInvalidIndex() {
+        ParticleStore store = new ParticleStore();
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.remove(-1));
+    }
+
+    @Test
+    void testToParticlesReturnsDetachedCopies() {
+        ParticleStore store = new ParticleStore();
+        store.add(1, 1, 0, 0, 1);
+
+        List<Particle> particles = store.toParticles();
+        particles.get(0).setX(42);
+
+        assertEquals(1, store.get(0).getX());
+    }
+
+    @Test
+    void testClearKeepsCapacity() {
+        ParticleStore store = new ParticleStore();
+        store.add(1, 1, 0, 0, 1);
+        int capacity = store.getXs().length;
+
+        store.clear();
+
+        assertEquals(0, store.getSize());
+        assertEquals(capacity, store.getXs().length);
+    }
+
+    @Test
+    void testReplaceWithTakesOverParticlesAndIds() {
+        ParticleStore live = new ParticleStore();
+        for (int i = 0; i < 3; i++) {
+            live.add(i, i, 0, 0, 1);
+        }
+        ParticleStore other = new ParticleStore();
+        other.add(7, 7, 0, 0, 2);
+
+        live.replaceWith(other);
+
+        assertEquals(1, live.getSize());
+        assertEquals(7, live.get(0).getX());
+        assertEquals(0, live.indexOf(live.getIds()[0]));
+        assertEquals(0, other.getSize());
+        // Ids keep increasing past those of both stores.
+        assertEquals(3, live.getIds()[live.add(0, 0, 0, 0, 1)]);
+    }
+
+    @Test
+    void testRenumberIdsFromAReservedBlock() {
+        ParticleStore live = new ParticleStore();
+        live.add(0, 0, 0, 0, 1);
+        ParticleStore other = new ParticleStore();
+        other.add(1, 1, 0, 0, 1);
+        other.add(2, 2, 0, 0, 1);
+
+        int first = live.reserveIds(other.getSize());
+        other.renumberIds(first);
+        live.replaceWith(other);
+
+        assertEquals(1, first);
+        assertEquals(1, live.getIds()[0]);
+        assertEquals(2, live.getIds()[1]);
+        assertEquals(1, live.indexOf(2));
+        assertEquals(-1, live.indexOf(0));
+        assertEquals(3, live.getIds()[live.add(0, 0, 0, 0, 1)]);
+        assertThrows(IllegalArgumentException.class, () -> live.reserveIds(-1));
+        assertThrows(IllegalArgumentException.class, () -> live.renumberIds(-1));
+    }
+
+    @Test
+    void testRestoreKeepsWrittenIds() {
+        ParticleStore store = new ParticleStore();
+        store.ensureCapacity(2);
+        store.getXs()[0] = 1;
+        store.getXs()[1] = 2;
+        store.getIds()[0] = 40;
+        store.getIds()[1] = 12;
+
+        store.restore(2);
+
+        assertEquals(2, store.getSize());
+        assertEquals(1, store.indexOf(12));
+        assertEquals(2, store.get(store.indexOf(12)).getX());
+        assertEquals(41, store.getIds()[store.add(0, 0, 0, 0, 1)]);
+    }
+
+    @Test
+    void testRestoreRejectsDuplicateIds() {
+        ParticleStore store = new ParticleStore();
+        store.ensureCapacity(2);
+        store.getIds()[0] = 5;
+        store.getIds()[1] = 5;
+
+        assertThrows(IllegalArgumentException.class, () -> store.restore(2));
+        assertEquals(0, store.getSize());
+        assertEquals(-1, store.indexOf(5));
+    }
+}
@@ -0,0 +1,68 @@
+package org.acme.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SnapshotBuffer class.
+ */
+public class SnapshotBufferTest {
+
+    @Test
+    void testAcquireReturnsLatestPublished() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        ParticleStore store = new ParticleStore();
+        store.add(1, 2, 3, 4, 5);
+
+        buffer.publish(store, null, 7, 1000L);
+
+        try (SimulationSnapshot snapshot = buffer.acquire()) {
+            assertEquals(7, snapshot.getTick());
+            assertEquals(1000L, snapshot.getTimestamp());
+            assertEquals(1, snapshot.getSize());
+            assertEquals(1, snapshot.get(0).getX());
+        }
+    }
+
+    @Test
+    void testHeldSnapshotIsNeverOverwritten() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        ParticleStore store = new ParticleStore();
+        store.add(1, 0, 0, 0, 1);
+        buffer.publish(store, null, 1, 0L);
+
+        try (SimulationSnapshot held = buffer.acquire()) {
+            for (int tick = 2; tick < 10; tick++) {
+                store.getXs()[0] = tick;
+                buffer.publish(store, null, tick, 0L);
+            }
+
+            assertEquals(1, held.getTick());
+            assertEquals(1, held.get(0).getX());
+        }
+        try (SimulationSnapshot latest = buffer.acquire()) {
+            assertEquals(9, latest.getTick());
+            assertEquals(9, latest.get(0).getX());
+        }
+    }
+
+    @Test
+    void testSpareIsReusedOnceReleased() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        ParticleStore store = new ParticleStore();
+        buffer.publish(store, null, 1, 0L);
+        SimulationSnapshot first;
+        try (SimulationSnapshot snapshot = buffer.acquire()) {
+            first = snapshot;
+        }
+
+        buffer.publish(store, null, 2, 0L);
+        buffer.publish(store, null, 3, 0L);
+
+        try (SimulationSnapshot snapshot = buffer.acquire()) {
+            assertSame(first, snapshot);
+            assertEquals(3, snapshot.getTick());
+        }
+    }
+}
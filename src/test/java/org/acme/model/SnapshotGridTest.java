@@ -0,0 +1,68 @@
+package org.acme.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SnapshotGrid class.
+ */
+public class SnapshotGridTest {
+
+    @Test
+    void testQueryMatchesLinearScan() {
+        Random random = new Random(42);
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < 5000; i++) {
+            store.add(random.nextGaussian() * 100, random.nextGaussian() * 50, 0, 0, 1);
+        }
+        SimulationSnapshot snapshot = SimulationSnapshot.of(store, 0, 0L);
+        SnapshotGrid grid = new SnapshotGrid(snapshot);
+
+        for (int q = 0; q < 50; q++) {
+            double minX = random.nextDouble() * 400 - 200;
+            double minY = random.nextDouble() * 200 - 100;
+            double maxX = minX + random.nextDouble() * 150;
+            double maxY = minY + random.nextDouble() * 80;
+
+            int[] expected = IntStream.range(0, snapshot.getSize())
+                    .filter(i -> store.getXs()[i] >= minX && store.getXs()[i] <= maxX
+                            && store.getYs()[i] >= minY && store.getYs()[i] <= maxY)
+                    .toArray();
+            assertArrayEquals(expected, grid.query(minX, minY, maxX, maxY));
+        }
+    }
+
+    @Test
+    void testQueryOutsideBoundsAndEmptySnapshot() {
+        ParticleStore store = new ParticleStore();
+        assertEquals(0, new SnapshotGrid(SimulationSnapshot.of(store, 0, 0L)).query(-1, -1, 1, 1).length);
+
+        store.add(5, 5, 0, 0, 1);
+        SnapshotGrid grid = new SnapshotGrid(SimulationSnapshot.of(store, 0, 0L));
+        assertArrayEquals(new int[]{0}, grid.query(-100, -100, 100, 100));
+        assertEquals(0, grid.query(10, 10, 20, 20).length);
+    }
+
+    @Test
+    void testSelectCopiesParticlesAndTracksMembership() {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < 4; i++) {
+            store.add(i, -i, i * 10, 0, 1);
+        }
+        SimulationSnapshot snapshot = SimulationSnapshot.of(store, 3, 100L);
+
+        SimulationSnapshot selection = snapshot.select(new int[]{1, 3});
+
+        assertEquals(2, selection.getSize());
+        assertEquals(3, selection.getTick());
+        assertEquals(100L, selection.getTimestamp());
+        assertEquals(3, selection.get(1).getX());
+        assertEquals(30, selection.get(1).getVx());
+        assertEquals(selection.getStructureVersion(), snapshot.select(new int[]{1, 3}).getStructureVersion());
+        assertNotEquals(selection.getStructureVersion(), snapshot.select(new int[]{1, 2}).getStructureVersion());
+    }
+}
@@ -2,6 +2,7 @@ package org.acme.resource;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
 import org.acme.model.Particle;
 import org.acme.service.SimulationService;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,8 +10,14 @@ import org.junit.jupiter.api.Test;
 
 import jakarta.inject.Inject;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 public class SimulationResourceTest {
@@ -66,6 +73,45 @@ public class SimulationResourceTest {
                 .body(equalTo("Particle removed successfully"));
     }
 
+    @Test
+    void testRemoveParticleById() {
+        simulationService.addParticle(new Particle(0, 0, 0, 0, 1));
+        int id = simulationService.addParticle(new Particle(10, 10, 2, 2, 1));
+
+        given()
+                .when()
+                .delete("/simulation/particles/" + id)
+                .then()
+                .statusCode(200)
+                .body(equalTo("Particle removed successfully"));
+
+        given()
+                .when()
+                .delete("/simulation/particles/" + id)
+                .then()
+                .statusCode(200)
+                .body(equalTo("Unknown particle id: " + id));
+    }
+
+    @Test
+    void testRemoveParticlesInBatch() {
+        int first = simulationService.addParticle(new Particle(0, 0, 0, 0, 1));
+        int second = simulationService.addParticle(new Particle(5, 5, 0, 0, 1));
+        simulationService.addParticle(new Particle(9, 9, 0, 0, 1));
+
+        given()
+                .contentType(ContentType.JSON)
+                .accept(ContentType.TEXT)
+                .body(new int[]{first, second, -1})
+                .when()
+                .post("/simulation/remove")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Removed 2 of 3 particles"));
+
+        assertEquals(1, simulationService.getParticles().size());
+    }
+
     @Test
     void testRemoveParticleFromEmptySimulation() {
         given()
@@ -116,17 +162,49 @@ public class SimulationResourceTest {
 
         String response = given()
                 .contentType(ContentType.JSON)
-                .accept(ContentType.TEXT)
+                .accept(ContentType.JSON)
                 .when()
                 .get("/simulation/state")
                 .then()
                 .statusCode(200)
                 .extract().asString(); // ✅ On extrait la réponse en texte
 
-        int particleCount = response.split(",").length; // ✅ Compter les particules retournées
+        int particleCount = JsonPath.from(response).getList("$").size(); // ✅ Compter les particules retournées
         assert particleCount == numParticles : "Expected " + numParticles + " particles but got " + particleCount;
     }
 
+    /**
+     * Tests starting the simulation with a preset and a seed.
+     */
+    @Test
+    void testStartSimulationWithPresetAndSeed() {
+        given()
+                .accept(ContentType.TEXT)
+                .when()
+                .post("/simulation/start/100?preset=clusters&seed=42")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Simulation started with 100 particles."));
+
+        assertEquals(100, simulationService.getParticles().size());
+    }
+
+    /**
+     * Tests starting the simulation with an unknown preset (should return an error).
+     */
+    @Test
+    void testStartSimulationUnknownPreset() {
+        given()
+                .accept(ContentType.TEXT)
+                .when()
+                .post("/simulation/start/10?preset=spiral")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Unknown scene preset: spiral"));
+
+        assertEquals(0, simulationService.getParticles().size());
+    }
+
     /**
      * Tests starting the simulation with zero particles (should return an error).
      */
@@ -143,7 +221,7 @@ public class SimulationResourceTest {
 
         String response = given()
                 .contentType(ContentType.JSON)
-                .accept(ContentType.TEXT)
+                .accept(ContentType.JSON)
                 .when()
                 .get("/simulation/state")
                 .then()
@@ -169,7 +247,7 @@ public class SimulationResourceTest {
 
         String response = given()
                 .contentType(ContentType.JSON)
-                .accept(ContentType.TEXT)
+                .accept(ContentType.JSON)
                 .when()
                 .get("/simulation/state")
                 .then()
@@ -215,4 +293,343 @@ public class SimulationResourceTest {
                 .statusCode(200)
                 .body(equalTo("Simulation reset successfully"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSessionStatsWithoutSessions() {
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/sessions")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("size()", equalTo(0));
+    }
+
+    @Test
+    void testNamedInstanceIsIndependent() {
+        given()
+                .when()
+                .post("/simulation/isolated/reset")
+                .then()
+                .statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .accept(ContentType.TEXT)
+                .body(new Particle(1, 1, 0, 0, 1))
+                .when()
+                .post("/simulation/isolated/add")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Particle added successfully"));
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/isolated")
+                .then()
+                .statusCode(200)
+                .body("id", equalTo("isolated"))
+                .body("particles", equalTo(1));
+
+        assertTrue(simulationService.getParticles().isEmpty());
+    }
+
+    @Test
+    void testReadsDoNotCreateInstances() {
+        for (String path : List.of("/simulation/unknown", "/simulation/unknown/state", "/simulation/unknown/sessions")) {
+            given()
+                    .accept(ContentType.JSON)
+                    .when()
+                    .get(path)
+                    .then()
+                    .statusCode(404);
+        }
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/instances")
+                .then()
+                .statusCode(200)
+                .body("id", not(hasItem("unknown")));
+    }
+
+    @Test
+    void testListInstances() {
+        given()
+                .when()
+                .post("/simulation/listed/reset")
+                .then()
+                .statusCode(200);
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/instances")
+                .then()
+                .statusCode(200)
+                .body("id", hasItem("listed"));
+    }
+
+    @Test
+    void testRemoveInstance() {
+        given()
+                .when()
+                .post("/simulation/removed/reset")
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .delete("/simulation/removed")
+                .then()
+                .statusCode(200)
+                .body(equalTo("Simulation removed removed successfully"));
+
+        given()
+                .when()
+                .delete("/simulation/default")
+                .then()
+                .statusCode(200)
+                .body(equalTo("The default simulation cannot be removed"));
+    }
+
+    @Test
+    void testInvalidInstanceId() {
+        given()
+                .when()
+                .post("/simulation/" + "x".repeat(65) + "/reset")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testIngestJsonArray() {
+        given()
+                .contentType(ContentType.JSON)
+                .accept(ContentType.JSON)
+                .body("[{\"x\":1,\"y\":2,\"vx\":0,\"vy\":0,\"mass\":1},{\"x\":3,\"y\":4,\"mass\":2}]")
+                .when()
+                .post("/simulation/ingest")
+                .then()
+                .statusCode(200)
+                .body("particles", equalTo(2))
+                .body("batches.size()", equalTo(1))
+                .body("error", nullValue());
+
+        assertEquals(2, simulationService.getParticles().size());
+        assertEquals(3, simulationService.getParticle(1).getX());
+    }
+
+    @Test
+    void testIngestNdjsonStopsAtInvalidParticle() {
+        given()
+                .contentType("application/x-ndjson")
+                .accept(ContentType.JSON)
+                .body("{\"x\":1,\"y\":1,\"mass\":1}\n\n{\"x\":2,\"y\":2,\"mass\":0}\n{\"x\":3,\"y\":3,\"mass\":1}\n")
+                .when()
+                .post("/simulation/ingest")
+                .then()
+                .statusCode(200)
+                .body("particles", equalTo(1))
+                .body("error", containsString("Invalid particle 1"));
+
+        assertEquals(1, simulationService.getParticles().size());
+    }
+
+    @Test
+    void testIngestUnsupportedContentType() {
+        given()
+                .contentType(ContentType.XML)
+                .body("<particles/>")
+                .when()
+                .post("/simulation/ingest")
+                .then()
+                .statusCode(415);
+    }
+
+    @Test
+    void testStatePagination() {
+        for (int i = 0; i < 5; i++) {
+            simulationService.addParticle(new Particle(i, -i, 0, 0, 1));
+        }
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/state?offset=1&limit=2&fields=position")
+                .then()
+                .statusCode(200)
+                .header("X-Total-Count", "5")
+                .header("X-Next-Offset", "3")
+                .body("size()", equalTo(2))
+                .body("[0].x", equalTo(1.0f))
+                .body("[0].y", equalTo(-1.0f))
+                .body("[0].mass", nullValue());
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/state?offset=3")
+                .then()
+                .statusCode(200)
+                .header("X-Next-Offset", nullValue())
+                .body("size()", equalTo(2));
+    }
+
+    @Test
+    void testBinaryState() {
+        int id = simulationService.addParticle(new Particle(4, 2, 0, 0, 3));
+
+        byte[] body = given()
+                .accept(ParticlePage.BINARY_TYPE)
+                .when()
+                .get("/simulation/state?fields=id,mass")
+                .then()
+                .statusCode(200)
+                .contentType(ParticlePage.BINARY_TYPE)
+                .extract().asByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(ParticlePage.HEADER_SIZE + 12, body.length);
+        assertEquals(ParticleFields.ID | ParticleFields.MASS, buffer.getInt(0));
+        assertEquals(1, buffer.getInt(4));
+        assertEquals(id, buffer.getInt(ParticlePage.HEADER_SIZE));
+        assertEquals(3, buffer.getDouble(ParticlePage.HEADER_SIZE + 4));
+    }
+
+    @Test
+    void testStateRejectsUnknownField() {
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/state?fields=color")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testPrometheusEndpointExposesInstanceMetrics() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Particle(1, 1, 0, 0, 1))
+                .when()
+                .post("/simulation/metered/add")
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("simulation_particles{simulation=\"metered\"} 1.0"))
+                .body(containsString("simulation_tick_seconds_count{simulation=\"metered\"}"));
+    }
+
+    @Test
+    void testCheckpointAndRestore() {
+        given().when().post("/simulation/saved/reset").then().statusCode(200);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Particle(3, 4, 0, 0, 2))
+                .when()
+                .post("/simulation/saved/add")
+                .then()
+                .statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/saved/checkpoint")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("simulation", equalTo("saved"))
+                .body("particles", equalTo(1));
+
+        given().when().post("/simulation/saved/reset").then().statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/saved/restore")
+                .then()
+                .statusCode(200)
+                .body("particles", equalTo(1));
+
+        given()
+                .accept(ContentType.JSON)
+                .when()
+                .get("/simulation/saved/state")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(1))
+                .body("[0].x", equalTo(3.0f));
+    }
+
+    @Test
+    void testRestoreWithoutCheckpoint() {
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/never-saved/restore")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void testRecordingStartStopAndList() {
+        String name = "recorded-" + System.nanoTime();
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/recorded/recording/start?name=" + name)
+                .then()
+                .statusCode(200)
+                .body("name", equalTo(name))
+                .body("simulation", equalTo("recorded"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/recorded/recording/start?name=other")
+                .then()
+                .statusCode(409);
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/recorded/recording/stop")
+                .then()
+                .statusCode(200)
+                .body("name", equalTo(name))
+                .body("simulation", nullValue());
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/recorded/recording/stop")
+                .then()
+                .statusCode(404);
+
+        given()
+                .when()
+                .get("/simulation/recordings")
+                .then()
+                .statusCode(200)
+                .body("name", hasItem(name));
+    }
+
+    @Test
+    void testRecordingRejectsInvalidNames() {
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/simulation/recording/start?name=../escape")
+                .then()
+                .statusCode(400);
+    }
+}
@@ -0,0 +1,96 @@
+package org.acme.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ParallelRangeExecutor class.
+ */
+public class ParallelRangeExecutorTest {
+
+    @Test
+    void testCoversEveryIndexExactlyOnce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRangeExecutor executor = new ParallelRangeExecutor(pool, 100, 0);
+            int[] visits = new int[10_001];
+
+            executor.forEachRange(visits.length, (from, to) -> {
+                assertTrue(to - from <= 100);
+                for (int i = from; i < to; i++) {
+                    visits[i]++;
+                }
+            });
+
+            for (int visit : visits) {
+                assertEquals(1, visit);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSmallRangesRunOnCallingThread() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParallelRangeExecutor executor = new ParallelRangeExecutor(pool, 10, 1000);
+            AtomicInteger calls = new AtomicInteger();
+            Thread caller = Thread.currentThread();
+
+            executor.forEachRange(500, (from, to) -> {
+                assertSame(caller, Thread.currentThread());
+                assertEquals(0, from);
+                assertEquals(500, to);
+                calls.incrementAndGet();
+            });
+
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSequentialExecutor() {
+        ParallelRangeExecutor executor = ParallelRangeExecutor.sequential();
+        AtomicInteger calls = new AtomicInteger();
+
+        executor.forEachRange(1_000_000, (from, to) -> calls.incrementAndGet());
+
+        assertFalse(executor.isParallel());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testInvalidPartitionSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelRangeExecutor(null, 0, 0));
+    }
+
+    @Test
+    void testTasksIgnoreTheParticleThresholds() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRangeExecutor executor = new ParallelRangeExecutor(pool, 8192, 20000);
+            int[] visits = new int[7];
+            AtomicInteger calls = new AtomicInteger();
+
+            executor.forEachTask(visits.length, (from, to) -> {
+                assertEquals(from + 1, to);
+                visits[from]++;
+                calls.incrementAndGet();
+            });
+
+            assertEquals(7, calls.get());
+            for (int visit : visits) {
+                assertEquals(1, visit);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SimulationLoop class.
+ */
+public class SimulationLoopTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testTicksUntilStopped() throws InterruptedException {
+        SimulationService service = new SimulationService();
+        SimulationLoop loop = new SimulationLoop(service, scheduler, 1, 4);
+
+        loop.start();
+        assertTrue(loop.isRunning());
+        for (int i = 0; i < 100 && service.getTick() < 5; i++) {
+            Thread.sleep(10);
+        }
+        loop.stop();
+        assertFalse(loop.isRunning());
+
+        assertTrue(service.getTick() >= 5, "Expected at least 5 ticks, got " + service.getTick());
+        Thread.sleep(50);
+        long stoppedAt = service.getTick();
+        Thread.sleep(50);
+        assertEquals(stoppedAt, service.getTick());
+    }
+
+    @Test
+    void testRejectsInvalidPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulationLoop(new SimulationService(), scheduler, 0, 4));
+    }
+
+    @Test
+    void testRestartDoesNotDoubleTheTickRate() throws InterruptedException {
+        SimulationService service = new SimulationService();
+        SimulationLoop loop = new SimulationLoop(service, scheduler, 20, 4);
+
+        for (int i = 0; i < 10; i++) {
+            loop.start();
+            loop.stop();
+        }
+        loop.start();
+        Thread.sleep(200);
+        loop.stop();
+
+        assertTrue(service.getTick() <= 15, "Expected a single tick chain, got " + service.getTick() + " ticks");
+    }
+
+    @Test
+    void testLoopsShareTheScheduler() throws InterruptedException {
+        SimulationService first = new SimulationService();
+        SimulationService second = new SimulationService();
+        SimulationLoop firstLoop = new SimulationLoop(first, scheduler, 1, 4);
+        SimulationLoop secondLoop = new SimulationLoop(second, scheduler, 1, 4);
+
+        firstLoop.start();
+        secondLoop.start();
+        for (int i = 0; i < 100 && (first.getTick() < 5 || second.getTick() < 5); i++) {
+            Thread.sleep(10);
+        }
+        firstLoop.stop();
+        secondLoop.stop();
+
+        assertTrue(first.getTick() >= 5 && second.getTick() >= 5,
+                "Expected both loops to tick, got " + first.getTick() + " and " + second.getTick());
+    }
+}
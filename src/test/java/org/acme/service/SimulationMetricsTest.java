@@ -0,0 +1,127 @@
+package org.acme.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.acme.model.Particle;
+import org.acme.service.physics.BarnesHutGravity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the meters the SimulationRegistry registers for its instances.
+ */
+public class SimulationMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private SimulationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new SimulationRegistry();
+        registry.defaultService = new SimulationService();
+        registry.meterRegistry = meterRegistry;
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void testTickPhasesAreTimed() {
+        SimulationService service = registry.get("metered").getService();
+        service.addParticle(new Particle(1, 1, 0, 0, 1));
+        service.addParticle(new Particle(2, 2, 0, 0, 1));
+
+        service.updateSimulation();
+        service.updateSimulation();
+
+        assertEquals(2, timer("simulation.tick").count());
+        for (String phase : new String[]{"step", "collisions", "snapshot"}) {
+            assertEquals(2, meterRegistry.get("simulation.tick.phase")
+                    .tags("simulation", "metered", "phase", phase).timer().count(), phase);
+        }
+        assertEquals(2, meterRegistry.get("simulation.particles").tag("simulation", "metered").gauge().value());
+        assertEquals(0, meterRegistry.get("simulation.sessions").tag("simulation", "metered").gauge().value());
+        assertEquals(0, meterRegistry.get("simulation.tick.phase")
+                .tags("simulation", "metered", "phase", "gravity").timer().count());
+    }
+
+    @Test
+    void testBarnesHutGravityIsTimedAsAPhaseOfTheTick() {
+        SimulationService service = registry.get("attracted").getService();
+        service.setPairwiseGravity(new BarnesHutGravity(0.5, 1, 1));
+        service.addParticle(new Particle(1, 1, 0, 0, 1));
+        service.addParticle(new Particle(20, 20, 0, 0, 1));
+
+        service.updateSimulation();
+        service.updateSimulation();
+
+        assertEquals(2, meterRegistry.get("simulation.tick.phase")
+                .tags("simulation", "attracted", "phase", "gravity").timer().count());
+        assertEquals(2, meterRegistry.get("simulation.tick.phase")
+                .tags("simulation", "attracted", "phase", "step").timer().count());
+    }
+
+    @Test
+    void testTickListenerIsTimedAsAPhaseOfTheTick() {
+        SimulationService service = registry.get("listened").getService();
+        service.setTickListener(snapshot -> {
+            long end = System.nanoTime() + 2_000_000;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        });
+
+        service.updateSimulation();
+
+        Timer listener = meterRegistry.get("simulation.tick.phase")
+                .tags("simulation", "listened", "phase", "listener").timer();
+        assertEquals(1, listener.count());
+        assertTrue(listener.totalTime(TimeUnit.NANOSECONDS) >= 2_000_000);
+        assertTrue(meterRegistry.get("simulation.tick").tag("simulation", "listened").timer()
+                .totalTime(TimeUnit.NANOSECONDS) >= 2_000_000);
+    }
+
+    @Test
+    void testPausedTickOnlyTimesTheSnapshot() {
+        SimulationService service = registry.get("paused").getService();
+        service.togglePlayPause();
+
+        service.updateSimulation();
+        service.updateSimulation();
+
+        assertEquals(1, meterRegistry.get("simulation.tick").tag("simulation", "paused").timer().count());
+        assertEquals(0, meterRegistry.get("simulation.tick.phase")
+                .tags("simulation", "paused", "phase", "step").timer().count());
+    }
+
+    @Test
+    void testMetersAreRemovedWithTheInstance() {
+        registry.get("metered");
+        assertNotNull(meterRegistry.find("simulation.tick").tag("simulation", "metered").timer());
+
+        assertTrue(registry.remove("metered"));
+
+        assertNull(meterRegistry.find("simulation.tick").tag("simulation", "metered").timer());
+        assertNull(meterRegistry.find("simulation.particles").tag("simulation", "metered").gauge());
+    }
+
+    @Test
+    void testInstancesWithoutMeterRegistryUseNoopMeters() {
+        registry.meterRegistry = null;
+
+        assertSame(SimulationMetrics.NOOP, registry.get("unmetered").getService().getMetrics());
+    }
+
+    private Timer timer(String name) {
+        return meterRegistry.get(name).tag("simulation", "metered").timer();
+    }
+}
@@ -0,0 +1,152 @@
+package org.acme.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SimulationRegistry class.
+ */
+public class SimulationRegistryTest {
+
+    private SimulationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimulationRegistry();
+        registry.defaultService = new SimulationService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void testGetCreatesIndependentInstances() {
+        SimulationInstance first = registry.get("first");
+        SimulationInstance second = registry.get("second");
+
+        assertSame(first, registry.get("first"));
+        assertNotSame(first.getService(), second.getService());
+        assertSame(registry.defaultService, registry.get(SimulationRegistry.DEFAULT_ID).getService());
+        assertEquals(3, registry.list().size());
+    }
+
+    @Test
+    void testRejectsInvalidIds() {
+        assertThrows(IllegalArgumentException.class, () -> registry.get("not/valid"));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(""));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(null));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("state"));
+        assertThrows(IllegalArgumentException.class, () -> registry.subscribe("instances"));
+        assertTrue(registry.list().isEmpty());
+    }
+
+    @Test
+    void testInstanceLimit() {
+        for (int i = 0; i < registry.getMaxInstances(); i++) {
+            registry.get("sim-" + i);
+        }
+
+        assertThrows(IllegalStateException.class, () -> registry.get("one-too-many"));
+        assertNotNull(registry.get("sim-0"));
+    }
+
+    @Test
+    void testConcurrentCreationsRespectTheInstanceLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<SimulationInstance>> creations = IntStream.range(0, 4 * registry.getMaxInstances())
+                    .mapToObj(i -> executor.submit(() -> registry.get("sim-" + i)))
+                    .toList();
+            int created = 0;
+            for (Future<SimulationInstance> creation : creations) {
+                try {
+                    creation.get();
+                    created++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+
+            assertEquals(registry.getMaxInstances(), created);
+            assertEquals(registry.getMaxInstances(), registry.list().size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(registry.remove(registry.list().get(0).getId()));
+        assertNotNull(registry.get("one-more"));
+    }
+
+    @Test
+    void testSubscribersStartAndStopTheLoop() {
+        SimulationInstance instance = registry.subscribe("shared");
+        assertTrue(instance.getLoop().isRunning());
+
+        registry.subscribe("shared");
+        registry.unsubscribe(instance);
+        assertTrue(instance.getLoop().isRunning());
+
+        registry.unsubscribe(instance);
+        assertFalse(instance.getLoop().isRunning());
+        assertEquals(0, instance.getSubscribers());
+    }
+
+    @Test
+    void testEvictsIdleInstancesOnly() {
+        SimulationInstance idle = registry.get("idle");
+        SimulationInstance subscribed = registry.subscribe("subscribed");
+        registry.get(SimulationRegistry.DEFAULT_ID);
+
+        long later = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        assertEquals(1, registry.evictIdle(later));
+
+        assertTrue(registry.find("idle").isEmpty());
+        assertTrue(registry.find("subscribed").isPresent());
+        assertTrue(registry.find(SimulationRegistry.DEFAULT_ID).isPresent());
+        assertFalse(idle.getLoop().isRunning());
+        registry.unsubscribe(subscribed);
+    }
+
+    @Test
+    void testRemove() {
+        registry.get("removable");
+        SimulationInstance subscribed = registry.subscribe("subscribed");
+
+        assertTrue(registry.remove("removable"));
+        assertFalse(registry.remove("removable"));
+        assertFalse(registry.remove("subscribed"));
+        assertThrows(IllegalArgumentException.class, () -> registry.remove(SimulationRegistry.DEFAULT_ID));
+        registry.unsubscribe(subscribed);
+    }
+
+    @Test
+    void testRemovalListenersAreToldOfRemovedAndEvictedInstances() {
+        List<String> removed = new ArrayList<>();
+        registry.addRemovalListener(instance -> {
+            assertTrue(registry.find(instance.getId()).isEmpty());
+            removed.add(instance.getId());
+        });
+        registry.get("removable");
+        registry.get("idle");
+
+        registry.remove("removable");
+        registry.remove("removable");
+        registry.evictIdle(System.nanoTime() + TimeUnit.HOURS.toNanos(1));
+
+        assertEquals(List.of("removable", "idle"), removed);
+    }
+}
@@ -1,9 +1,17 @@
 package org.acme.service;
 
 import org.acme.model.Particle;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.collision.BruteForceBroadphase;
+import org.acme.service.scene.ScenePreset;
+import org.acme.service.scene.SceneGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -47,6 +55,30 @@ public class SimulationServiceTest {
         assertEquals(5, simulationService.getParticle(0).getX());
     }
 
+    @Test
+    void testRemoveParticlesById() {
+        int first = simulationService.addParticle(new Particle(0, 0, 0, 0, 1));
+        int second = simulationService.addParticle(new Particle(5, 5, 0, 0, 1));
+        int third = simulationService.addParticle(new Particle(9, 9, 0, 0, 1));
+
+        assertTrue(simulationService.removeParticleById(second));
+        assertFalse(simulationService.removeParticleById(second));
+        assertEquals(1, simulationService.removeParticles(new int[]{first, second}));
+
+        List<Particle> particles = simulationService.getParticles();
+        assertEquals(1, particles.size());
+        assertEquals(third, particles.get(0).getId());
+    }
+
+    @Test
+    void testAddParticleBeyondLimit() {
+        simulationService.setMaxParticles(1);
+        simulationService.addParticle(new Particle(0, 0, 0, 0, 1));
+
+        assertThrows(IllegalStateException.class, () -> simulationService.addParticle(new Particle(5, 5, 0, 0, 1)));
+        assertEquals(1, simulationService.getParticles().size());
+    }
+
     @Test
     void testRemoveParticleInvalidIndex() {
         assertThrows(IndexOutOfBoundsException.class, () -> {
@@ -167,4 +199,145 @@ public class SimulationServiceTest {
         simulationService.updateSimulation();
         assertEquals(1000, simulationService.getParticles().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGridBroadphaseMatchesBruteForce() {
+        SimulationService bruteForce = new SimulationService();
+        bruteForce.setBroadphase(new BruteForceBroadphase());
+
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            double x = random.nextDouble() * 40 - 20;
+            double y = random.nextDouble() * 40 - 20;
+            double vx = random.nextDouble() * 2 - 1;
+            double vy = random.nextDouble() * 2 - 1;
+            double mass = random.nextDouble() * 10 + 1;
+            simulationService.addParticle(new Particle(x, y, vx, vy, mass));
+            bruteForce.addParticle(new Particle(x, y, vx, vy, mass));
+        }
+
+        for (int tick = 0; tick < 20; tick++) {
+            simulationService.updateSimulation();
+            bruteForce.updateSimulation();
+        }
+
+        for (int i = 0; i < 500; i++) {
+            Particle expected = bruteForce.getParticle(i);
+            Particle actual = simulationService.getParticle(i);
+            assertEquals(expected.getX(), actual.getX());
+            assertEquals(expected.getY(), actual.getY());
+            assertEquals(expected.getVx(), actual.getVx());
+            assertEquals(expected.getVy(), actual.getVy());
+        }
+    }
+
+    @Test
+    void testParallelStepMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SimulationService sequential = new SimulationService();
+            sequential.setParallelExecutor(ParallelRangeExecutor.sequential());
+            simulationService.setParallelExecutor(new ParallelRangeExecutor(pool, 64, 0));
+
+            Random random = new Random(11);
+            for (int i = 0; i < 2000; i++) {
+                Particle p = new Particle(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50,
+                        random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 10 + 1);
+                simulationService.addParticle(p);
+                sequential.addParticle(p);
+            }
+
+            for (int tick = 0; tick < 10; tick++) {
+                simulationService.updateSimulation();
+                sequential.updateSimulation();
+            }
+
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(sequential.getParticle(i).getX(), simulationService.getParticle(i).getX());
+                assertEquals(sequential.getParticle(i).getY(), simulationService.getParticle(i).getY());
+                assertEquals(sequential.getParticle(i).getVx(), simulationService.getParticle(i).getVx());
+                assertEquals(sequential.getParticle(i).getVy(), simulationService.getParticle(i).getVy());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testReplacedParticlesNeverReuseIds() {
+        simulationService.addParticle(new Particle(0, 0, 0, 0, 1));
+        simulationService.addParticle(new Particle(1, 1, 0, 0, 1));
+        ParallelRangeExecutor executor = ParallelRangeExecutor.sequential();
+
+        simulationService.replaceParticles(SceneGenerator.generate(ScenePreset.DISK, 3, 42, executor));
+        assertEquals(List.of(2, 3, 4), simulationService.getParticles().stream().map(Particle::getId).toList());
+
+        simulationService.replaceParticles(SceneGenerator.generate(ScenePreset.DISK, 3, 42, executor));
+        assertEquals(List.of(5, 6, 7), simulationService.getParticles().stream().map(Particle::getId).toList());
+        assertEquals(8, simulationService.addParticle(new Particle(2, 2, 0, 0, 1)));
+    }
+
+    @Test
+    void testRestoredParticlesKeepTheirIds() {
+        ParticleStore checkpoint = new ParticleStore();
+        checkpoint.ensureCapacity(1);
+        checkpoint.getMasses()[0] = 1;
+        checkpoint.getIds()[0] = 40;
+        checkpoint.restore(1);
+
+        simulationService.restore(checkpoint, 7);
+
+        assertEquals(40, simulationService.getParticle(0).getId());
+        assertEquals(7, simulationService.getTick());
+    }
+
+    @Test
+    void testRestoreIsRefusedWhileTicksAreListenedTo() {
+        simulationService.addParticle(new Particle(0, 0, 1, 0, 1));
+        simulationService.setTickListener(snapshot -> { });
+        simulationService.updateSimulation();
+        ParticleStore checkpoint = new ParticleStore();
+
+        assertThrows(IllegalStateException.class, () -> simulationService.restore(checkpoint, 0));
+        assertEquals(1, simulationService.getTick());
+        assertEquals(1, simulationService.getParticles().size());
+    }
+
+    @Test
+    void testDensityGridIsOnlyComputedForDensityReaders() {
+        simulationService.addParticle(new Particle(0, 0, 1, 0, 1));
+        simulationService.togglePlayPause();
+        try (SimulationSnapshot snapshot = simulationService.acquireSnapshot()) {
+            assertTrue(snapshot.getDensity().isEmpty());
+        }
+
+        simulationService.addDensityReader();
+        try (SimulationSnapshot snapshot = simulationService.acquireSnapshot()) {
+            assertFalse(snapshot.getDensity().isEmpty());
+        }
+
+        simulationService.removeDensityReader();
+        simulationService.togglePlayPause();
+        simulationService.updateSimulation();
+        try (SimulationSnapshot snapshot = simulationService.acquireSnapshot()) {
+            assertTrue(snapshot.getDensity().isEmpty());
+        }
+    }
+
+    @Test
+    void testTickListenerReceivesTheSnapshotOfEveryTick() {
+        List<Long> ticks = new ArrayList<>();
+        simulationService.addParticle(new Particle(0, 0, 1, 0, 1));
+        simulationService.setTickListener(snapshot -> {
+            assertEquals(1, snapshot.getSize());
+            ticks.add(snapshot.getTick());
+        });
+
+        simulationService.updateSimulation();
+        simulationService.updateSimulation();
+        simulationService.togglePlayPause();
+        simulationService.updateSimulation();
+
+        assertEquals(List.of(1L, 2L), ticks);
+    }
+}
@@ -0,0 +1,147 @@
+package org.acme.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TickBudgetController class.
+ */
+public class TickBudgetControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private TickBudgetController controller;
+    private long tickCount;
+
+    @BeforeEach
+    void setUp() {
+        controller = new TickBudgetController();
+        controller.configure(10 * MS, 0.5, 50, 1);
+    }
+
+    @Test
+    void testStaysAtFullQualityWithinBudget() {
+        tick(1000, 2 * MS, 5 * MS, MS);
+
+        assertEquals(QualityLevel.FULL, controller.getLevel());
+    }
+
+    @Test
+    void testLowersQualityUntilTheCostFitsTheBudget() {
+        // 4 + 16 + 1 ms at full quality, 4 + 8 + 1 when reduced, 4 + 4 + 1 when low.
+        tick(200, 4 * MS, 16 * MS, MS);
+
+        assertEquals(QualityLevel.LOW, controller.getLevel());
+        assertTrue(controller.cost(QualityLevel.LOW) <= controller.getBudgetNanos());
+    }
+
+    @Test
+    void testCountsGravityInEveryLevel() {
+        // 5 + 1 + 8 + 1 ms at full quality, 5 + 1 + 4 + 1 when reduced, 5 + 1 + 2 + 1 when low: without gravity the
+        // ticks would fit at full quality.
+        for (int i = 0; i < 200; i++) {
+            boolean collided = controller.collisionsDue(tickCount++);
+            controller.recordTick(5 * MS, MS, collided ? 8 * MS : -1, MS);
+        }
+
+        assertEquals(QualityLevel.LOW, controller.getLevel());
+        assertEquals(9 * MS, controller.cost(QualityLevel.LOW), 0.1 * MS);
+    }
+
+    @Test
+    void testWaitsForTheAveragesToSettleBeforeLoweringAgain() {
+        tick(TickBudgetController.SETTLE_TICKS, 20 * MS, 0, 0);
+        assertEquals(QualityLevel.REDUCED, controller.getLevel());
+
+        tick(TickBudgetController.SETTLE_TICKS - 1, 20 * MS, 0, 0);
+        assertEquals(QualityLevel.REDUCED, controller.getLevel());
+    }
+
+    @Test
+    void testSkipsCollisionsAndBroadcastsAtLowerLevels() {
+        tick(200, 4 * MS, 40 * MS, MS);
+        controller.recordBroadcast(40 * MS);
+        tick(200, 4 * MS, 40 * MS, MS);
+
+        assertEquals(QualityLevel.MINIMAL, controller.getLevel());
+        assertTrue(controller.getLevel().isDensityFrames());
+        assertTrue(controller.collisionsDue(16));
+        assertFalse(controller.collisionsDue(17));
+        assertTrue(controller.broadcastDue(8));
+        assertFalse(controller.broadcastDue(9));
+    }
+
+    @Test
+    void testRestoresQualityOnceTheLoadDrops() {
+        tick(200, 4 * MS, 16 * MS, MS);
+        assertEquals(QualityLevel.LOW, controller.getLevel());
+
+        // Full quality would cost 4.5 ms, within half of the budget: the level rises one step at a time, and only
+        // after 50 ticks at the level it rose to.
+        QualityLevel previous = controller.getLevel();
+        int ticksAtLevel = -1;
+        for (int i = 0; i < 1000; i++) {
+            tick(1, MS, 3 * MS, MS / 2);
+            if (ticksAtLevel >= 0) ticksAtLevel++;
+            if (controller.getLevel() != previous) {
+                assertEquals(previous.higher(), controller.getLevel());
+                assertTrue(ticksAtLevel < 0 || ticksAtLevel >= 50, "Raised after " + ticksAtLevel + " ticks");
+                previous = controller.getLevel();
+                ticksAtLevel = 0;
+            }
+        }
+        assertEquals(QualityLevel.FULL, controller.getLevel());
+    }
+
+    @Test
+    void testDoesNotRestoreAHigherLevelThatWouldNotFit() {
+        tick(200, 4 * MS, 16 * MS, MS);
+        assertEquals(QualityLevel.LOW, controller.getLevel());
+
+        // 4 + 4 + 1 ms fits the budget at this level, but 4 + 8 + 1 would not fit in half of it.
+        tick(500, 4 * MS, 16 * MS, MS);
+        assertEquals(QualityLevel.LOW, controller.getLevel());
+    }
+
+    @Test
+    void testDisabledControllerKeepsFullQuality() {
+        controller.disable();
+        tick(200, 20 * MS, 20 * MS, MS);
+
+        assertEquals(QualityLevel.FULL, controller.getLevel());
+        assertTrue(controller.collisionsDue(1));
+        assertTrue(controller.broadcastDue(1));
+    }
+
+    @Test
+    void testConfigureRejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> controller.configure(0, 0.5, 50, 1));
+        assertThrows(IllegalArgumentException.class, () -> controller.configure(MS, 1.5, 50, 1));
+        assertThrows(IllegalArgumentException.class, () -> controller.configure(MS, 0.5, 0, 1));
+    }
+
+    @Test
+    void testServiceLowersItsQualityWhenOverBudget() {
+        SimulationService service = new SimulationService();
+        service.getBudget().configure(1, 0.5, 50, 1);
+        for (int i = 0; i < 200; i++) {
+            service.updateSimulation();
+        }
+
+        assertEquals(QualityLevel.MINIMAL, service.getBudget().getLevel());
+    }
+
+    /**
+     * Reports ticks as the simulation would, collisions only on the ticks the current level keeps them.
+     */
+    private void tick(int ticks, long stepNanos, long collisionNanos, long snapshotNanos) {
+        for (int i = 0; i < ticks; i++) {
+            boolean collided = controller.collisionsDue(tickCount++);
+            controller.recordTick(0, stepNanos, collided ? collisionNanos : -1, snapshotNanos);
+        }
+    }
+}
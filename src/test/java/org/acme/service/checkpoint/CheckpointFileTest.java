@@ -0,0 +1,160 @@
+package org.acme.service.checkpoint;
+
+import org.acme.model.Particle;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.service.SimulationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CheckpointFile format.
+ */
+public class CheckpointFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTripKeepsParticlesIdsAndTick() throws IOException {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(i, -i, i * 0.5, -i * 0.5, i + 1);
+        }
+        store.remove(3);
+        Path file = directory.resolve("default.ckpt");
+
+        long bytes = CheckpointFile.write(SimulationSnapshot.of(store, 42, 1000), file);
+        Checkpoint checkpoint = CheckpointFile.read(file);
+
+        assertEquals(CheckpointFile.fileSize(9), bytes);
+        assertEquals(bytes, Files.size(file));
+        assertEquals(42, checkpoint.tick());
+        assertEquals(1000, checkpoint.timestamp());
+        assertSameParticles(store.toParticles(), checkpoint.particles().toParticles());
+        assertEquals(2, checkpoint.particles().indexOf(store.getIds()[2]));
+    }
+
+    @Test
+    void testEmptySimulation() throws IOException {
+        Path file = directory.resolve("empty.ckpt");
+
+        CheckpointFile.write(SimulationSnapshot.of(new ParticleStore(), 0, 0), file);
+
+        assertEquals(0, CheckpointFile.read(file).particles().getSize());
+    }
+
+    @Test
+    void testCorruptionIsDetected() throws IOException {
+        ParticleStore store = new ParticleStore();
+        store.add(1, 2, 3, 4, 5);
+        Path file = directory.resolve("corrupt.ckpt");
+        CheckpointFile.write(SimulationSnapshot.of(store, 1, 1), file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), CheckpointFile.HEADER_SIZE + 3);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> CheckpointFile.read(file));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void testRejectsOtherFilesAndVersions() throws IOException {
+        Path other = directory.resolve("other.ckpt");
+        Files.write(other, new byte[CheckpointFile.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> CheckpointFile.read(other));
+
+        Path future = directory.resolve("future.ckpt");
+        CheckpointFile.write(SimulationSnapshot.of(new ParticleStore(), 0, 0), future);
+        try (FileChannel channel = FileChannel.open(future, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{2}), 8);
+        }
+        IOException e = assertThrows(IOException.class, () -> CheckpointFile.read(future));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    void testConcurrentWritesOfAFileNeverTearIt() throws Exception {
+        ParticleStore small = new ParticleStore();
+        small.add(1, 2, 3, 4, 5);
+        ParticleStore large = new ParticleStore();
+        for (int i = 0; i < 100_000; i++) {
+            large.add(i, -i, 0, 0, 1);
+        }
+        Path file = directory.resolve("shared.ckpt");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (ParticleStore store : List.of(small, large)) {
+                writes.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        CheckpointFile.write(SimulationSnapshot.of(store, i, i), file);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int size = CheckpointFile.read(file).particles().getSize();
+        assertTrue(size == 1 || size == 100_000);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void testRestoreReplacesSimulationParticles() throws IOException {
+        SimulationService source = new SimulationService();
+        source.addParticle(new Particle(1, 1, 0, 0, 1));
+        source.addParticle(new Particle(5, 5, 0, 0, 2));
+        source.updateSimulation();
+        Path file = directory.resolve("scene.ckpt");
+        try (SimulationSnapshot snapshot = source.acquireSnapshot()) {
+            CheckpointFile.write(snapshot, file);
+        }
+
+        SimulationService target = new SimulationService();
+        target.addParticle(new Particle(9, 9, 0, 0, 1));
+        Checkpoint checkpoint = CheckpointFile.read(file);
+        target.restore(checkpoint.particles(), checkpoint.tick());
+
+        assertSameParticles(source.getParticles(), target.getParticles());
+        assertEquals(1, target.getTick());
+    }
+
+    private static void assertSameParticles(List<Particle> expected, List<Particle> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Particle e = expected.get(i);
+            Particle a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getX(), a.getX());
+            assertEquals(e.getY(), a.getY());
+            assertEquals(e.getVx(), a.getVx());
+            assertEquals(e.getVy(), a.getVy());
+            assertEquals(e.getMass(), a.getMass());
+        }
+    }
+}
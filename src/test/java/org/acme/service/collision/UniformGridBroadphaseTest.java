@@ -0,0 +1,91 @@
+package org.acme.service.collision;
+
+import org.acme.model.ParticleStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the UniformGridBroadphase class, checked against the brute-force broadphase.
+ */
+public class UniformGridBroadphaseTest {
+
+    private static List<long[]> collectPairs(Broadphase broadphase, ParticleStore particles) {
+        List<long[]> pairs = new ArrayList<>();
+        broadphase.findPairs(particles.getXs(), particles.getYs(), particles.getSize(), 2.0,
+                (i, j) -> pairs.add(new long[]{i, j}));
+        return pairs;
+    }
+
+    private static ParticleStore randomParticles(Random random, int count, double extent) {
+        ParticleStore particles = new ParticleStore();
+        for (int i = 0; i < count; i++) {
+            particles.add(random.nextDouble() * extent - extent / 2,
+                    random.nextDouble() * extent - extent / 2, 0, 0, 1);
+        }
+        return particles;
+    }
+
+    @Test
+    void testFindsSamePairsInSameOrderAsBruteForce() {
+        Random random = new Random(42);
+        ParticleStore particles = randomParticles(random, 2000, 100);
+
+        List<long[]> expected = collectPairs(new BruteForceBroadphase(), particles);
+        List<long[]> actual = collectPairs(new UniformGridBroadphase(), particles);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int k = 0; k < expected.size(); k++) {
+            assertArrayEquals(expected.get(k), actual.get(k));
+        }
+    }
+
+    @Test
+    void testReusedGridFollowsMovingAndGrowingParticles() {
+        Random random = new Random(7);
+        UniformGridBroadphase grid = new UniformGridBroadphase();
+        BruteForceBroadphase bruteForce = new BruteForceBroadphase();
+
+        for (int round = 1; round <= 5; round++) {
+            ParticleStore particles = randomParticles(random, round * 300, 60);
+            List<long[]> expected = collectPairs(bruteForce, particles);
+            List<long[]> actual = collectPairs(grid, particles);
+
+            assertEquals(expected.size(), actual.size());
+            for (int k = 0; k < expected.size(); k++) {
+                assertArrayEquals(expected.get(k), actual.get(k));
+            }
+        }
+    }
+
+    @Test
+    void testParticlesOnCellBoundariesAndNegativeCoordinates() {
+        ParticleStore particles = new ParticleStore();
+        particles.add(-0.5, -0.5, 0, 0, 1);
+        particles.add(0.5, 0.5, 0, 0, 1);
+        particles.add(-2.0, 0, 0, 0, 1);
+        particles.add(-3.9, 0, 0, 0, 1);
+        particles.add(4.0, 4.0, 0, 0, 1);
+
+        List<long[]> pairs = collectPairs(new UniformGridBroadphase(), particles);
+
+        assertEquals(3, pairs.size());
+        assertArrayEquals(new long[]{0, 1}, pairs.get(0));
+        assertArrayEquals(new long[]{0, 2}, pairs.get(1));
+        assertArrayEquals(new long[]{2, 3}, pairs.get(2));
+    }
+
+    @Test
+    void testFewerThanTwoParticlesReportsNothing() {
+        ParticleStore particles = new ParticleStore();
+        particles.add(0, 0, 0, 0, 1);
+
+        List<long[]> pairs = collectPairs(new UniformGridBroadphase(), particles);
+        assertTrue(pairs.isEmpty());
+    }
+}
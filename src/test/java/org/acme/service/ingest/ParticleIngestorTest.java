@@ -0,0 +1,142 @@
+package org.acme.service.ingest;
+
+import org.acme.model.Particle;
+import org.acme.service.SimulationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ParticleIngestor class and the particle readers.
+ */
+public class ParticleIngestorTest {
+
+    private SimulationService service;
+    private ParticleIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        service = new SimulationService();
+        ingestor = new ParticleIngestor();
+        ingestor.setBatchSize(2);
+    }
+
+    @Test
+    void testJsonArrayInBatches() throws IOException {
+        String body = "[{\"x\":1,\"y\":1,\"mass\":1},{\"x\":2,\"y\":2,\"mass\":1,\"color\":[1,2]},"
+                + "{\"x\":3,\"y\":3,\"vx\":0.5,\"mass\":2}]";
+
+        IngestReport report = ingestor.ingest(IngestFormat.JSON.open(text(body)), service);
+
+        assertEquals(3, report.particles());
+        assertEquals(List.of(2, 1), report.batches().stream().map(IngestReport.Batch::particles).toList());
+        assertNull(report.error());
+        Particle last = service.getParticle(2);
+        assertEquals(3, last.getX());
+        assertEquals(0.5, last.getVx());
+        assertEquals(2, last.getMass());
+    }
+
+    @Test
+    void testEmptyJsonArray() throws IOException {
+        IngestReport report = ingestor.ingest(IngestFormat.JSON.open(text("[]")), service);
+
+        assertEquals(0, report.particles());
+        assertTrue(report.batches().isEmpty());
+        assertNull(report.error());
+    }
+
+    @Test
+    void testMalformedJsonKeepsPreviousParticles() throws IOException {
+        String body = "[{\"x\":1,\"y\":1,\"mass\":1},{\"x\":2,\"y\":2,\"mass\":1},{\"x\":";
+
+        IngestReport report = ingestor.ingest(IngestFormat.JSON.open(text(body)), service);
+
+        assertEquals(2, report.particles());
+        assertNotNull(report.error());
+        assertEquals(2, service.getParticles().size());
+    }
+
+    @Test
+    void testNdjson() throws IOException {
+        String body = "{\"x\":1,\"y\":1,\"mass\":1}\n\n{\"x\":2,\"y\":2,\"mass\":1}\r\n{\"x\":3,\"y\":3,\"mass\":1}";
+
+        IngestReport report = ingestor.ingest(IngestFormat.NDJSON.open(text(body)), service);
+
+        assertEquals(3, report.particles());
+        assertNull(report.error());
+        assertEquals(3, service.getParticle(2).getX());
+    }
+
+    @Test
+    void testNdjsonRejectsOverlongLines() throws IOException {
+        String body = "{\"x\":1,\"y\":1,\"mass\":1}\n{\"x\":" + "1".repeat(NdjsonParticleReader.MAX_LINE_LENGTH) + "}";
+
+        IngestReport report = ingestor.ingest(IngestFormat.NDJSON.open(text(body)), service);
+
+        assertEquals(1, report.particles());
+        assertTrue(report.error().contains("line longer than"), report.error());
+    }
+
+    @Test
+    void testBinary() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * BinaryParticleReader.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 3; i++) {
+            buffer.putDouble(i).putDouble(-i).putDouble(1).putDouble(2).putDouble(i + 1);
+        }
+
+        IngestReport report = ingestor.ingest(
+                IngestFormat.BINARY.open(new ByteArrayInputStream(buffer.array())), service);
+
+        assertEquals(3, report.particles());
+        assertNull(report.error());
+        Particle p = service.getParticle(2);
+        assertEquals(2, p.getX());
+        assertEquals(-2, p.getY());
+        assertEquals(3, p.getMass());
+    }
+
+    @Test
+    void testTruncatedBinaryRecord() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryParticleReader.RECORD_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putDouble(1).putDouble(1).putDouble(0).putDouble(0).putDouble(1).putDouble(5);
+
+        IngestReport report = ingestor.ingest(
+                IngestFormat.BINARY.open(new ByteArrayInputStream(buffer.array())), service);
+
+        assertEquals(1, report.particles());
+        assertTrue(report.error().startsWith("Truncated particle 1"));
+    }
+
+    @Test
+    void testStopsAtParticleLimit() throws IOException {
+        service.setMaxParticles(2);
+        String body = "[{\"x\":1,\"y\":1,\"mass\":1},{\"x\":2,\"y\":2,\"mass\":1},{\"x\":3,\"y\":3,\"mass\":1}]";
+
+        IngestReport report = ingestor.ingest(IngestFormat.JSON.open(text(body)), service);
+
+        assertEquals(2, report.particles());
+        assertEquals("Particle limit reached: 2", report.error());
+        assertEquals(2, service.getParticles().size());
+    }
+
+    @Test
+    void testFormatFromMediaType() {
+        assertEquals(IngestFormat.NDJSON, IngestFormat.fromMediaType("application/x-ndjson"));
+        assertEquals(IngestFormat.BINARY, IngestFormat.fromMediaType("Application/Octet-Stream"));
+        assertThrows(IllegalArgumentException.class, () -> IngestFormat.fromMediaType("text/csv"));
+    }
+
+    private static InputStream text(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,155 @@
+package org.acme.service.physics;
+
+import org.acme.model.ParticleStore;
+import org.acme.service.ParallelRangeExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BarnesHutGravity class, checked against the exact pairwise sum.
+ */
+public class BarnesHutGravityTest {
+
+    private static final double G = 0.007;
+    private static final double SOFTENING = 1;
+    private static final double DT = 0.01;
+
+    private static ParticleStore randomStore(long seed, int count) {
+        Random random = new Random(seed);
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < count; i++) {
+            // Two clusters, so the tree has both dense and empty regions.
+            double offset = i % 3 == 0 ? 200 : 0;
+            store.add(random.nextGaussian() * 50 + offset, random.nextGaussian() * 50, 0, 0,
+                    random.nextDouble() * 9 + 1);
+        }
+        return store;
+    }
+
+    /**
+     * @return the velocity changes of the exact O(n^2) sum, interleaved x and y
+     */
+    private static double[] exactKicks(ParticleStore store) {
+        int n = store.getSize();
+        double[] xs = store.getXs();
+        double[] ys = store.getYs();
+        double[] masses = store.getMasses();
+        double[] kicks = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double ax = 0;
+            double ay = 0;
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                double dx = xs[j] - xs[i];
+                double dy = ys[j] - ys[i];
+                double inverse = 1 / Math.sqrt(dx * dx + dy * dy + SOFTENING * SOFTENING);
+                ax += dx * masses[j] * inverse * inverse * inverse;
+                ay += dy * masses[j] * inverse * inverse * inverse;
+            }
+            kicks[2 * i] = ax * G * DT;
+            kicks[2 * i + 1] = ay * G * DT;
+        }
+        return kicks;
+    }
+
+    /**
+     * @return the RMS error of the velocities relative to the RMS of the exact kicks
+     */
+    private static double relativeError(ParticleStore store, double[] exact) {
+        double error = 0;
+        double norm = 0;
+        for (int i = 0; i < store.getSize(); i++) {
+            double dx = store.getVxs()[i] - exact[2 * i];
+            double dy = store.getVys()[i] - exact[2 * i + 1];
+            error += dx * dx + dy * dy;
+            norm += exact[2 * i] * exact[2 * i] + exact[2 * i + 1] * exact[2 * i + 1];
+        }
+        return Math.sqrt(error / norm);
+    }
+
+    @Test
+    void testZeroThetaIsTheExactSum() {
+        ParticleStore store = randomStore(1, 2000);
+        double[] exact = exactKicks(store);
+
+        new BarnesHutGravity(0, G, SOFTENING).apply(store, DT, ParallelRangeExecutor.sequential());
+
+        assertTrue(relativeError(store, exact) < 1e-12);
+    }
+
+    @Test
+    void testThetaTradesAccuracyForSpeed() {
+        ParticleStore reference = randomStore(2, 3000);
+        double[] exact = exactKicks(reference);
+
+        ParticleStore precise = randomStore(2, 3000);
+        new BarnesHutGravity(0.3, G, SOFTENING).apply(precise, DT, ParallelRangeExecutor.sequential());
+        ParticleStore coarse = randomStore(2, 3000);
+        new BarnesHutGravity(1, G, SOFTENING).apply(coarse, DT, ParallelRangeExecutor.sequential());
+
+        double preciseError = relativeError(precise, exact);
+        double coarseError = relativeError(coarse, exact);
+        assertTrue(preciseError < 0.01, "theta 0.3 error " + preciseError);
+        assertTrue(coarseError < 0.2, "theta 1 error " + coarseError);
+        assertTrue(preciseError < coarseError);
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParticleStore sequential = randomStore(3, 5000);
+            ParticleStore parallel = randomStore(3, 5000);
+            BarnesHutGravity gravity = new BarnesHutGravity(0.5, G, SOFTENING);
+
+            gravity.apply(sequential, DT, ParallelRangeExecutor.sequential());
+            // Partitions of 64 particles split the tree build, the sort and the walk into many tasks
+            gravity.apply(parallel, DT, new ParallelRangeExecutor(pool, 64, 0));
+
+            assertArrayEquals(sequential.getVxs(), parallel.getVxs());
+            assertArrayEquals(sequential.getVys(), parallel.getVys());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTwoBodiesAttractSymmetrically() {
+        ParticleStore store = new ParticleStore();
+        store.add(0, 0, 0, 0, 1);
+        store.add(10, 0, 0, 0, 1);
+
+        new BarnesHutGravity(0.5, 1, 0).apply(store, 1, ParallelRangeExecutor.sequential());
+
+        assertEquals(0.01, store.getVxs()[0], 1e-12);
+        assertEquals(-0.01, store.getVxs()[1], 1e-12);
+        assertEquals(10, store.getXs()[1]);
+    }
+
+    @Test
+    void testCoincidentParticles() {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < 100; i++) {
+            store.add(5, 5, 0, 0, 1);
+        }
+        store.add(105, 5, 0, 0, 1);
+
+        new BarnesHutGravity(0.5, 1, 0).apply(store, 1, ParallelRangeExecutor.sequential());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1e-4, store.getVxs()[i], 1e-12);
+            assertEquals(0, store.getVys()[i]);
+        }
+        assertEquals(-100 * 1e-4, store.getVxs()[100], 1e-12);
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new BarnesHutGravity(-1, G, SOFTENING));
+        assertThrows(IllegalArgumentException.class, () -> new BarnesHutGravity(0.5, G, -1));
+    }
+}
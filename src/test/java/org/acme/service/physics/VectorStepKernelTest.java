@@ -0,0 +1,80 @@
+package org.acme.service.physics;
+
+import org.acme.model.ParticleStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the VectorStepKernel class, checked against the scalar kernel.
+ */
+public class VectorStepKernelTest {
+
+    private static ParticleStore randomStore(long seed, int count) {
+        Random random = new Random(seed);
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < count; i++) {
+            // Spread the particles so some are inside the repulsion radius and some closer than 1.
+            double extent = i % 3 == 0 ? 8 : 200;
+            store.add(random.nextDouble() * extent - extent / 2, random.nextDouble() * extent - extent / 2,
+                    random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 10 + 1);
+        }
+        store.add(0, 0, 1, 1, 1);
+        return store;
+    }
+
+    private static void assertSameState(ParticleStore expected, ParticleStore actual) {
+        for (int i = 0; i < expected.getSize(); i++) {
+            assertEquals(expected.getXs()[i], actual.getXs()[i], "x of " + i);
+            assertEquals(expected.getYs()[i], actual.getYs()[i], "y of " + i);
+            assertEquals(expected.getVxs()[i], actual.getVxs()[i], "vx of " + i);
+            assertEquals(expected.getVys()[i], actual.getVys()[i], "vy of " + i);
+        }
+    }
+
+    @Test
+    void testMatchesScalarKernelExactly() {
+        assumeTrue(StepKernels.isVectorApiAvailable(), "jdk.incubator.vector is not enabled");
+        ParticleStore expected = randomStore(5, 1003);
+        ParticleStore actual = randomStore(5, 1003);
+        StepKernel scalar = new ScalarStepKernel();
+        StepKernel vector = new VectorStepKernel();
+
+        for (int tick = 0; tick < 50; tick++) {
+            scalar.step(expected, 0, expected.getSize(), 0.01);
+            vector.step(actual, 0, actual.getSize(), 0.01);
+        }
+
+        assertSameState(expected, actual);
+    }
+
+    @Test
+    void testUnalignedRangeOnlyTouchesThatRange() {
+        assumeTrue(StepKernels.isVectorApiAvailable(), "jdk.incubator.vector is not enabled");
+        ParticleStore expected = randomStore(9, 100);
+        ParticleStore actual = randomStore(9, 100);
+
+        new ScalarStepKernel().step(expected, 3, 58, 0.01);
+        new VectorStepKernel().step(actual, 3, 58, 0.01);
+
+        assertSameState(expected, actual);
+    }
+
+    @Test
+    void testScalarKernelSelectedOnRequest() {
+        assertInstanceOf(ScalarStepKernel.class, StepKernels.create(KernelType.SCALAR));
+    }
+
+    @Test
+    void testAutoSelectsVectorKernelWhenAvailable() {
+        StepKernel kernel = StepKernels.create(KernelType.AUTO);
+        if (StepKernels.isVectorApiAvailable()) {
+            assertInstanceOf(VectorStepKernel.class, kernel);
+        } else {
+            assertInstanceOf(ScalarStepKernel.class, kernel);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.acme.service.scene;
+
+import org.acme.model.ParticleStore;
+import org.acme.service.ParallelRangeExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SceneGenerator class.
+ */
+public class SceneGeneratorTest {
+
+    private static final int COUNT = 3 * SceneGenerator.BLOCK_SIZE + 17;
+
+    @Test
+    void testSameSeedYieldsTheSameSceneOnAnyExecutor() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (ScenePreset preset : ScenePreset.values()) {
+                ParticleStore sequential = SceneGenerator.generate(preset, COUNT, 42,
+                        ParallelRangeExecutor.sequential());
+                ParticleStore parallel = SceneGenerator.generate(preset, COUNT, 42,
+                        new ParallelRangeExecutor(pool, 1, 0));
+
+                assertEquals(COUNT, parallel.getSize());
+                assertArrayEquals(sequential.getXs(), parallel.getXs(), preset.name());
+                assertArrayEquals(sequential.getYs(), parallel.getYs(), preset.name());
+                assertArrayEquals(sequential.getVxs(), parallel.getVxs(), preset.name());
+                assertArrayEquals(sequential.getVys(), parallel.getVys(), preset.name());
+                assertArrayEquals(sequential.getMasses(), parallel.getMasses(), preset.name());
+                assertArrayEquals(sequential.getIds(), parallel.getIds(), preset.name());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDifferentSeedsYieldDifferentScenes() {
+        ParticleStore first = SceneGenerator.generate(ScenePreset.CLUSTERS, 1000, 1,
+                ParallelRangeExecutor.sequential());
+        ParticleStore second = SceneGenerator.generate(ScenePreset.CLUSTERS, 1000, 2,
+                ParallelRangeExecutor.sequential());
+
+        assertFalse(Arrays.equals(first.getXs(), second.getXs()));
+    }
+
+    @Test
+    void testParticlesHaveSequentialIdsAndValidValues() {
+        ParticleStore store = SceneGenerator.generate(ScenePreset.SQUARE, COUNT, 7, ParallelRangeExecutor.sequential());
+
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i, store.getIds()[i]);
+            assertEquals(i, store.indexOf(i));
+            assertTrue(Math.abs(store.getXs()[i]) <= ScenePreset.SIZE / 2);
+            assertTrue(Math.abs(store.getYs()[i]) <= ScenePreset.SIZE / 2);
+            assertTrue(store.getVxs()[i] >= -1 && store.getVxs()[i] < 1);
+            assertTrue(store.getMasses()[i] >= 1 && store.getMasses()[i] < 11);
+        }
+    }
+
+    @Test
+    void testDiskStaysInsideItsRadius() {
+        ParticleStore store = SceneGenerator.generate(ScenePreset.DISK, COUNT, 3, ParallelRangeExecutor.sequential());
+
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(Math.hypot(store.getXs()[i], store.getYs()[i]) <= ScenePreset.SIZE / 2 + 1e-9);
+        }
+    }
+
+    @Test
+    void testFromName() {
+        assertEquals(ScenePreset.RINGS, ScenePreset.fromName(" Rings "));
+        assertThrows(IllegalArgumentException.class, () -> ScenePreset.fromName("spiral"));
+        assertThrows(IllegalArgumentException.class, () -> ScenePreset.fromName(null));
+    }
+
+    @Test
+    void testEmptyAndNegativeCounts() {
+        assertEquals(0, SceneGenerator.generate(ScenePreset.DISK, 0, 1, ParallelRangeExecutor.sequential()).getSize());
+        assertThrows(IllegalArgumentException.class,
+                () -> SceneGenerator.generate(ScenePreset.DISK, -1, 1, ParallelRangeExecutor.sequential()));
+    }
+}
@@ -0,0 +1,320 @@
+package org.acme.websocket;
+
+import org.acme.service.SimulationService;
+import org.acme.model.DensityGrid;
+import org.acme.model.Particle;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.websocket.protocol.BinaryFrameEncoder;
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit test for ParticleBroadcaster using Mockito.
+ */
+class ParticleBroadcasterTest {
+
+    @Mock
+    private SimulationService simulationService;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private RemoteEndpoint.Basic mockBasicRemote;
+
+    private ParticleBroadcaster broadcaster;
+
+    private Set<Session> mockSessions;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        mockSessions = new CopyOnWriteArraySet<>();
+        broadcaster = new ParticleBroadcaster(simulationService, Executors.newSingleThreadScheduledExecutor(),
+                BroadcastSettings.DEFAULTS);
+
+        when(mockSession.getId()).thenReturn("test-session");
+        when(mockSession.isOpen()).thenReturn(true);
+        when(mockSession.getBasicRemote()).thenReturn(mockBasicRemote);
+        stubSnapshot(new ParticleStore(), 0);
+    }
+
+    private void open(Session session) {
+        broadcaster.open(session, StreamFormat.negotiate(session.getNegotiatedSubprotocol(),
+                session.getRequestParameterMap()));
+    }
+
+    private void stubSnapshot(ParticleStore store, long tick) {
+        when(simulationService.acquireSnapshot()).thenAnswer(invocation -> SimulationSnapshot.of(store, tick, 0L));
+    }
+
+    /**
+     * Test WebSocket connection handling.
+     */
+    @Test
+    void testOnOpen_AddsSessionAndStartsBroadcast() {
+        open(mockSession);
+        assertTrue(mockSessions.add(mockSession));
+    }
+
+    /**
+     * Test WebSocket disconnection handling.
+     */
+    @Test
+    void testOnClose_RemovesSessionAndStopsIfEmpty() {
+        open(mockSession);
+        assertTrue(mockSessions.add(mockSession));
+
+        broadcaster.close(mockSession);
+        assertTrue(mockSessions.remove(mockSession));
+    }
+
+    /**
+     * Test that the WebSocket sends particle updates.
+     */
+    @Test
+    void testBroadcastParticles_SendsParticleData() throws IOException, InterruptedException {
+        open(mockSession);
+
+        List<Particle> mockParticles = List.of(
+                new Particle(1, 2, 0.1, 0.2, 1.5),
+                new Particle(3, 4, 0.3, 0.4, 2.0)
+        );
+
+        ParticleStore store = new ParticleStore();
+        mockParticles.forEach(store::add);
+        stubSnapshot(store, 0);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String expectedJson = objectMapper.writeValueAsString(mockParticles);
+
+        broadcaster.broadcastParticles();
+
+        verify(mockBasicRemote, timeout(1000).atLeastOnce()).sendText(eq(expectedJson));
+    }
+
+    /**
+     * Test that the broadcast function sends updates at 60 FPS.
+     */
+    @Test
+    void testStartBroadcast_RunsAt60FPS() throws InterruptedException, IOException {
+        open(mockSession);
+
+        int sentMessages = 0;
+
+        for (int i = 0; i < 20; i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+            sentMessages = Mockito.mockingDetails(mockBasicRemote).getInvocations().size();
+            if (sentMessages >= 5) break;
+        }
+
+        assertTrue(sentMessages >= 5, "Expected at least 5 messages, got " + sentMessages);
+    }
+
+    /**
+     * Test that WebSocket doesn't crash if sending fails.
+     */
+    @Test
+    void testBroadcastParticles_HandlesSendErrorsGracefully() throws IOException {
+        open(mockSession);
+        doThrow(new IOException("Mock Exception")).when(mockBasicRemote).sendText(anyString());
+
+        assertDoesNotThrow(() -> broadcaster.broadcastParticles());
+        verify(mockBasicRemote, timeout(1000).atLeastOnce()).sendText(anyString());
+    }
+
+    /**
+     * Test that a session negotiating the float32 subprotocol receives binary frames.
+     */
+    @Test
+    void testBroadcastParticles_SendsBinaryFrameToBinarySession() {
+        Session binarySession = mock(Session.class);
+        RemoteEndpoint.Basic binaryRemote = mock(RemoteEndpoint.Basic.class);
+        when(binarySession.getId()).thenReturn("binary-session");
+        when(binarySession.isOpen()).thenReturn(true);
+        when(binarySession.getBasicRemote()).thenReturn(binaryRemote);
+        when(binarySession.getNegotiatedSubprotocol()).thenReturn(StreamFormat.SUBPROTOCOL_FLOAT32);
+        when(binarySession.getRequestParameterMap()).thenReturn(Map.of("fields", List.of("mass")));
+
+        ParticleStore store = new ParticleStore();
+        store.add(1, 2, 0.1, 0.2, 1.5);
+        store.add(3, 4, 0.3, 0.4, 2.0);
+        stubSnapshot(store, 7);
+
+        try {
+            open(binarySession);
+            broadcaster.broadcastParticles();
+
+            ArgumentCaptor<ByteBuffer> frame = ArgumentCaptor.forClass(ByteBuffer.class);
+            verify(binaryRemote, timeout(1000).atLeastOnce()).sendBinary(frame.capture());
+            ByteBuffer buffer = frame.getValue().order(ByteOrder.LITTLE_ENDIAN);
+
+            assertEquals(BinaryFrameEncoder.FRAME_FULL, buffer.get(0));
+            assertEquals(BinaryFrameEncoder.FLAG_MASS, buffer.get(1));
+            assertEquals(7, buffer.getInt(4));
+            assertEquals(2, buffer.getInt(8));
+            assertEquals(BinaryFrameEncoder.frameSize(2, StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_FLOAT32,
+                    Map.of("fields", List.of("mass")))), buffer.remaining());
+            verify(binaryRemote, never()).sendText(anyString());
+        } finally {
+            broadcaster.close(binarySession);
+        }
+    }
+
+    /**
+     * Test that a session whose send never completes has a single frame in flight and coalesces the others.
+     */
+    @Test
+    void testBroadcastParticles_CoalescesFramesOfSlowSession() throws IOException {
+        Session slowSession = mock(Session.class);
+        RemoteEndpoint.Basic slowRemote = mock(RemoteEndpoint.Basic.class);
+        CountDownLatch drained = new CountDownLatch(1);
+        when(slowSession.getId()).thenReturn("slow-session");
+        when(slowSession.isOpen()).thenReturn(true);
+        when(slowSession.getBasicRemote()).thenReturn(slowRemote);
+        doAnswer(invocation -> {
+            drained.await();
+            return null;
+        }).when(slowRemote).sendText(anyString());
+
+        try {
+            open(slowSession);
+            for (int i = 0; i < 5; i++) {
+                broadcaster.broadcastParticles();
+            }
+
+            verify(slowRemote, timeout(1000).times(1)).sendText(anyString());
+            SessionStats stats = broadcaster.sessionStats().stream()
+                    .filter(s -> s.id().equals("slow-session"))
+                    .findFirst().orElseThrow();
+            assertEquals(0, stats.sentFrames());
+            assertTrue(stats.coalescedFrames() >= 3, "Expected coalesced frames, got " + stats);
+        } finally {
+            drained.countDown();
+            broadcaster.close(slowSession);
+        }
+    }
+
+    /**
+     * Test that a session whose send blocks neither delays the other sessions nor sessions joining and leaving.
+     */
+    @Test
+    void testBroadcastParticles_BlockedSessionDoesNotDelayOthers() throws IOException {
+        Session blockedSession = mock(Session.class);
+        RemoteEndpoint.Basic blockedRemote = mock(RemoteEndpoint.Basic.class);
+        CountDownLatch unblocked = new CountDownLatch(1);
+        when(blockedSession.getId()).thenReturn("blocked-session");
+        when(blockedSession.isOpen()).thenReturn(true);
+        when(blockedSession.getBasicRemote()).thenReturn(blockedRemote);
+        doAnswer(invocation -> {
+            unblocked.await();
+            return null;
+        }).when(blockedRemote).sendText(anyString());
+
+        try {
+            open(blockedSession);
+            verify(blockedRemote, timeout(1000)).sendText(anyString());
+            open(mockSession);
+
+            verify(mockBasicRemote, timeout(1000).atLeast(3)).sendText(anyString());
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> broadcaster.close(mockSession));
+            assertEquals(1, broadcaster.sessionCount());
+        } finally {
+            unblocked.countDown();
+            broadcaster.close(blockedSession);
+        }
+    }
+
+    /**
+     * Test that a session subscribed to a viewport only receives the particles inside it.
+     */
+    @Test
+    void testBroadcastParticles_CullsToSessionViewport() {
+        Session viewportSession = mock(Session.class);
+        RemoteEndpoint.Basic viewportRemote = mock(RemoteEndpoint.Basic.class);
+        when(viewportSession.getId()).thenReturn("viewport-session");
+        when(viewportSession.isOpen()).thenReturn(true);
+        when(viewportSession.getBasicRemote()).thenReturn(viewportRemote);
+        when(viewportSession.getNegotiatedSubprotocol()).thenReturn(StreamFormat.SUBPROTOCOL_FLOAT32);
+
+        ParticleStore store = new ParticleStore();
+        store.add(1, 1, 0, 0, 1);
+        store.add(50, 50, 0, 0, 1);
+        store.add(2, 3, 0, 0, 1);
+        stubSnapshot(store, 0);
+
+        try {
+            open(viewportSession);
+            broadcaster.onMessage("{\"type\":\"viewport\",\"minX\":0,\"minY\":0,\"maxX\":10,\"maxY\":10}",
+                    viewportSession);
+            clearInvocations(viewportRemote);
+            broadcaster.broadcastParticles();
+
+            ArgumentCaptor<ByteBuffer> frame = ArgumentCaptor.forClass(ByteBuffer.class);
+            // Frames queued before the viewport changed may still be sent first, so check the last one.
+            verify(viewportRemote, after(200).atLeastOnce()).sendBinary(frame.capture());
+            ByteBuffer buffer = frame.getValue().order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(2, buffer.getInt(8));
+        } finally {
+            broadcaster.close(viewportSession);
+        }
+    }
+
+    /**
+     * Test that a binary session asking for density frames receives the aggregated grid.
+     */
+    @Test
+    void testBroadcastParticles_SendsDensityFrameToDensitySession() {
+        Session densitySession = mock(Session.class);
+        RemoteEndpoint.Basic densityRemote = mock(RemoteEndpoint.Basic.class);
+        when(densitySession.getId()).thenReturn("density-session");
+        when(densitySession.isOpen()).thenReturn(true);
+        when(densitySession.getBasicRemote()).thenReturn(densityRemote);
+        when(densitySession.getNegotiatedSubprotocol()).thenReturn(StreamFormat.SUBPROTOCOL_INT16);
+        when(densitySession.getRequestParameterMap()).thenReturn(Map.of("lod", List.of("density")));
+
+        ParticleStore store = new ParticleStore();
+        store.add(1, 1, 0, 0, 1);
+        store.add(5, 5, 0, 0, 1);
+        DensityGrid density = new DensityGrid();
+        density.compute(store, 16);
+        when(simulationService.acquireSnapshot()).thenAnswer(invocation -> SimulationSnapshot.of(store, density, 3, 0L));
+
+        try {
+            open(densitySession);
+            broadcaster.broadcastParticles();
+
+            ArgumentCaptor<ByteBuffer> frame = ArgumentCaptor.forClass(ByteBuffer.class);
+            verify(densityRemote, timeout(1000).atLeastOnce()).sendBinary(frame.capture());
+            ByteBuffer buffer = frame.getValue().order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(BinaryFrameEncoder.FRAME_DENSITY, buffer.get(0));
+            assertEquals(BinaryFrameEncoder.densityFrameSize(16), buffer.remaining());
+            verify(simulationService).addDensityReader();
+        } finally {
+            broadcaster.close(densitySession);
+        }
+        verify(simulationService).removeDensityReader();
+    }
+}
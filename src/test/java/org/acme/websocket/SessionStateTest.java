@@ -0,0 +1,135 @@
+package org.acme.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.acme.service.SimulationMetrics;
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the flow control of SessionState.
+ */
+public class SessionStateTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final StreamFormat FLOAT32 = new StreamFormat(StreamFormat.Encoding.FLOAT32, false, false);
+    private static final StreamFormat DELTA = new StreamFormat(StreamFormat.Encoding.DELTA, false, false);
+
+    @Test
+    void testKeepsOneFrameInFlightAndCoalescesTheRest() {
+        SessionState state = new SessionState(FLOAT32);
+
+        assertTrue(state.offer("a", 0));
+        assertFalse(state.offer("b", MS));
+        assertFalse(state.offer("c", 2 * MS));
+
+        assertEquals("c", state.sendCompleted(3 * MS));
+        assertNull(state.sendCompleted(4 * MS));
+
+        SessionStats stats = state.stats("s");
+        assertEquals(2, stats.sentFrames());
+        assertEquals(1, stats.coalescedFrames());
+        assertEquals(0, stats.droppedFrames());
+    }
+
+    @Test
+    void testPacesFramesToDrainSpeed() {
+        SessionState state = new SessionState(FLOAT32);
+
+        assertTrue(state.offer("a", 0));
+        assertNull(state.sendCompleted(40 * MS));
+
+        // The next frame waits for the measured drain time after the previous send started.
+        assertFalse(state.offer("b", 30 * MS));
+        assertTrue(state.offer("c", 45 * MS));
+
+        SessionStats stats = state.stats("s");
+        assertEquals(1, stats.droppedFrames());
+        assertEquals(40, stats.frameIntervalMillis(), 1e-9);
+    }
+
+    @Test
+    void testFrameIntervalIsCapped() {
+        SessionState state = new SessionState(FLOAT32, 100);
+
+        assertTrue(state.offer("a", 0));
+        assertNull(state.sendCompleted(5000 * MS));
+
+        assertEquals(100, state.stats("s").frameIntervalMillis(), 1e-9);
+        assertTrue(state.offer("b", 5000 * MS));
+    }
+
+    @Test
+    void testDeltaSessionResyncsInsteadOfCoalescing() {
+        SessionState state = new SessionState(DELTA);
+        state.keyframeSent();
+
+        assertTrue(state.offer("key", 0));
+        assertFalse(state.offer("delta", MS));
+
+        assertTrue(state.isAwaitingKeyframe());
+        assertNull(state.sendCompleted(2 * MS));
+        assertEquals(1, state.stats("s").droppedFrames());
+    }
+
+    @Test
+    void testFailedSendReleasesTheSession() {
+        SessionState state = new SessionState(FLOAT32);
+
+        assertTrue(state.offer("a", 0));
+        assertFalse(state.offer("b", MS));
+        state.sendFailed();
+
+        assertTrue(state.offer("c", 2 * MS));
+    }
+
+    @Test
+    void testFramesAreCountedInTheSimulationMetrics() {
+        SimulationMetrics metrics = new SimulationMetrics(new SimpleMeterRegistry(), "s");
+        SessionState state = new SessionState(FLOAT32, 1000, metrics);
+
+        assertTrue(state.offer("abcd", 0));
+        assertFalse(state.offer("b", MS));
+        assertFalse(state.offer("c", 2 * MS));
+        assertEquals("c", state.sendCompleted(3 * MS));
+        assertNull(state.sendCompleted(4 * MS));
+
+        assertEquals(5, state.stats("s").sentBytes());
+        assertEquals(2, metrics.getSentFrames().count());
+        assertEquals(5, metrics.getSentBytes().count());
+        assertEquals(1, metrics.getCoalescedFrames().count());
+        assertEquals(2, metrics.getFrameSend().count());
+    }
+
+    @Test
+    void testReleasesPooledFramesOnceDone() {
+        FramePool pool = new FramePool(4);
+        SessionState state = new SessionState(FLOAT32);
+
+        // The broadcast holds one reference to each frame, and drops it once every session got the frame.
+        PooledFrame sent = pool.acquire(100);
+        PooledFrame replaced = pool.acquire(100);
+        PooledFrame pending = pool.acquire(100);
+        assertTrue(state.offer(sent, 0));
+        assertFalse(state.offer(replaced, MS));
+        assertFalse(state.offer(pending, 2 * MS));
+        sent.release();
+        replaced.release();
+        pending.release();
+
+        assertSame(replaced, pool.acquire(100));
+        assertEquals(pending, state.sendCompleted(3 * MS));
+        assertSame(sent, pool.acquire(100));
+        state.close();
+        assertSame(pending, pool.acquire(100));
+        assertEquals(3, pool.getAllocatedFrames());
+
+        PooledFrame refused = pool.acquire(100);
+        assertFalse(state.offer(refused, 10 * MS));
+        refused.release();
+        assertThrows(IllegalStateException.class, refused::release);
+    }
+}
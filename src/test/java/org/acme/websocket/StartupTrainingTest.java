@@ -0,0 +1,36 @@
+package org.acme.websocket;
+
+import org.acme.service.ParallelRangeExecutor;
+import org.acme.service.SimulationService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StartupTraining class.
+ */
+public class StartupTrainingTest {
+
+    @Test
+    void testTrainTicksAndEncodesEveryFormat() {
+        SimulationService service = new SimulationService();
+        service.setParallelExecutor(ParallelRangeExecutor.sequential());
+
+        long frames = new StartupTraining().train(service, 20, 500);
+
+        assertEquals(20 * 4, frames);
+        assertEquals(20, service.getTick());
+        assertEquals(500, service.getParticles().size());
+    }
+
+    @Test
+    void testTrainCapsParticlesToTheSimulationLimit() {
+        SimulationService service = new SimulationService();
+        service.setParallelExecutor(ParallelRangeExecutor.sequential());
+        service.setMaxParticles(100);
+
+        new StartupTraining().train(service, 1, 500);
+
+        assertEquals(100, service.getParticles().size());
+    }
+}
@@ -0,0 +1,132 @@
+package org.acme.websocket;
+
+import com.sun.management.ThreadMXBean;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import org.acme.model.Particle;
+import org.acme.service.ParallelRangeExecutor;
+import org.acme.service.SimulationService;
+import org.acme.service.physics.BarnesHutGravity;
+import org.acme.service.physics.ScalarStepKernel;
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation regression test of the steady-state tick: a simulation update followed by a broadcast to binary
+ * sessions, measured on the calling thread with the allocation counter of the {@link ThreadMXBean}. The simulation
+ * runs on a sequential executor, with the central black hole alone and with Barnes-Hut gravity.
+ * <p>
+ * Two costs are deliberately left out. JSON sessions are not streamed, since every broadcast builds their text frame
+ * as a new {@link String}. The sends are not measured either: they run on the virtual threads of the
+ * {@link SessionSender}s, which the counter of the calling thread does not see, and each allocates a
+ * {@link java.nio.ByteBuffer#duplicate() duplicate} of the shared frame it sends.
+ */
+public class TickAllocationTest {
+
+    private static final int PARTICLES = 5000;
+    private static final int WARMUP_TICKS = 3000;
+    private static final int MEASURED_TICKS = 500;
+
+    /**
+     * A tenth of the smallest frame of the scene, so a per-tick frame, snapshot or particle list fails the test.
+     */
+    private static final long MAX_BYTES_PER_TICK = 2048;
+
+    /**
+     * Broadcasts only run when the test calls them.
+     */
+    private static final BroadcastSettings SETTINGS = new BroadcastSettings(TimeUnit.HOURS.toMillis(1), 60,
+            0.00390625, 1, 1000, 50000, 100);
+
+    @Test
+    void testSteadyStateTickAllocatesAlmostNothing() {
+        assertTickAllocatesAlmostNothing(null);
+    }
+
+    @Test
+    void testSteadyStateTickWithBarnesHutGravityAllocatesAlmostNothing() {
+        assertTickAllocatesAlmostNothing(new BarnesHutGravity(0.5, 1, 1));
+    }
+
+    private void assertTickAllocatesAlmostNothing(BarnesHutGravity gravity) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        SimulationService service = new SimulationService();
+        service.setParallelExecutor(ParallelRangeExecutor.sequential());
+        service.setStepKernel(new ScalarStepKernel());
+        service.setPairwiseGravity(gravity);
+        Random random = new Random(1);
+        for (int i = 0; i < PARTICLES; i++) {
+            service.addParticle(new Particle(random.nextDouble() * 2000 - 1000, random.nextDouble() * 2000 - 1000,
+                    random.nextGaussian(), random.nextGaussian(), 1));
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ParticleBroadcaster broadcaster = new ParticleBroadcaster(service, scheduler, SETTINGS);
+        List<Session> sessions = new ArrayList<>();
+        sessions.add(session("f32", StreamFormat.SUBPROTOCOL_FLOAT32, Map.of("lod", List.of("particles"))));
+        sessions.add(session("i16", StreamFormat.SUBPROTOCOL_INT16, Map.of("lod", List.of("particles"))));
+        sessions.add(session("delta", StreamFormat.SUBPROTOCOL_DELTA, Map.of()));
+        sessions.add(session("density", StreamFormat.SUBPROTOCOL_INT16, Map.of("lod", List.of("density"))));
+        try {
+            for (Session session : sessions) {
+                broadcaster.open(session, StreamFormat.negotiate(session.getNegotiatedSubprotocol(),
+                        session.getRequestParameterMap()));
+            }
+            for (int i = 0; i < WARMUP_TICKS; i++) {
+                service.updateSimulation();
+                broadcaster.broadcastParticles();
+            }
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_TICKS; i++) {
+                service.updateSimulation();
+                broadcaster.broadcastParticles();
+            }
+            long perTick = (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED_TICKS;
+
+            assertTrue(perTick < MAX_BYTES_PER_TICK, "Allocated " + perTick + " bytes per tick");
+            // Each session holds at most a frame in flight and a pending one, so the pool stops growing.
+            assertTrue(broadcaster.allocatedFrames() <= 4 * sessions.size(),
+                    "Allocated " + broadcaster.allocatedFrames() + " frame buffers");
+        } finally {
+            sessions.forEach(broadcaster::close);
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * A session whose sends complete at once. Proxies rather than mocks, since recording invocations allocates.
+     */
+    private static Session session(String id, String subprotocol, Map<String, List<String>> parameters) {
+        ClassLoader loader = TickAllocationTest.class.getClassLoader();
+        RemoteEndpoint.Basic remote = (RemoteEndpoint.Basic) Proxy.newProxyInstance(loader,
+                new Class<?>[]{RemoteEndpoint.Basic.class}, (proxy, method, args) -> null);
+        return (Session) Proxy.newProxyInstance(loader, new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "getBasicRemote" -> remote;
+                    case "getNegotiatedSubprotocol" -> subprotocol;
+                    case "getRequestParameterMap" -> parameters;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
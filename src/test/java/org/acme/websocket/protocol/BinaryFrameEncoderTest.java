@@ -0,0 +1,187 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.DensityGrid;
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BinaryFrameEncoder and JsonFrameEncoder classes and the StreamFormat negotiation.
+ */
+public class BinaryFrameEncoderTest {
+
+    private static ParticleStore store() {
+        ParticleStore store = new ParticleStore();
+        store.add(-10, 5, 1, -1, 2);
+        store.add(30, -15, 0.5, 0.25, 3);
+        store.add(2.5, 0, 0, 0, 1);
+        return store;
+    }
+
+    @Test
+    void testFloat32FrameWithAllFields() {
+        StreamFormat format = new StreamFormat(StreamFormat.Encoding.FLOAT32, true, true);
+        ByteBuffer frame = BinaryFrameEncoder.encode(SimulationSnapshot.of(store(), 42, 1000L), format)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(BinaryFrameEncoder.frameSize(3, format), frame.remaining());
+        assertEquals(BinaryFrameEncoder.FRAME_FULL, frame.get(0));
+        assertEquals(BinaryFrameEncoder.FLAG_VELOCITY | BinaryFrameEncoder.FLAG_MASS, frame.get(1));
+        assertEquals(42, frame.getInt(4));
+        assertEquals(3, frame.getInt(8));
+        assertEquals(1000L, frame.getLong(24));
+
+        int xs = BinaryFrameEncoder.HEADER_SIZE;
+        int ys = xs + 3 * 4;
+        int vxs = ys + 3 * 4;
+        int vys = vxs + 3 * 4;
+        int masses = vys + 3 * 4;
+        assertEquals(30f, frame.getFloat(xs + 4));
+        assertEquals(-15f, frame.getFloat(ys + 4));
+        assertEquals(0.5f, frame.getFloat(vxs + 4));
+        assertEquals(0.25f, frame.getFloat(vys + 4));
+        assertEquals(3f, frame.getFloat(masses + 4));
+        assertEquals(masses + 3 * 4, frame.limit());
+    }
+
+    @Test
+    void testInt16FrameDequantizesWithinOneStep() {
+        StreamFormat format = new StreamFormat(StreamFormat.Encoding.INT16, false, true);
+        ParticleStore store = store();
+        ByteBuffer frame = BinaryFrameEncoder.encode(SimulationSnapshot.of(store, 1, 0L), format)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(BinaryFrameEncoder.FLAG_INT16 | BinaryFrameEncoder.FLAG_MASS, frame.get(1));
+        float originX = frame.getFloat(12);
+        float originY = frame.getFloat(16);
+        float scale = frame.getFloat(20);
+
+        int xs = BinaryFrameEncoder.HEADER_SIZE;
+        int ys = xs + 3 * 2;
+        for (int i = 0; i < 3; i++) {
+            double x = BinaryFrameEncoder.dequantize(frame.getShort(xs + 2 * i), originX, scale);
+            double y = BinaryFrameEncoder.dequantize(frame.getShort(ys + 2 * i), originY, scale);
+            assertEquals(store.getXs()[i], x, scale);
+            assertEquals(store.getYs()[i], y, scale);
+        }
+        // 12 bytes of int16 positions are padded to 12, then the float32 masses follow.
+        assertEquals(2f, frame.getFloat(xs + 12));
+        assertEquals(BinaryFrameEncoder.frameSize(3, format), frame.remaining());
+    }
+
+    @Test
+    void testFrameWithIds() {
+        ParticleStore store = store();
+        store.remove(0);
+        StreamFormat format = StreamFormat.negotiate(null, Map.of("format", List.of("f32"), "fields", List.of("id")));
+        ByteBuffer frame = BinaryFrameEncoder.encode(SimulationSnapshot.of(store, 1, 0L), format)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(BinaryFrameEncoder.FLAG_ID, frame.get(1));
+        assertEquals(BinaryFrameEncoder.frameSize(2, format), frame.remaining());
+        int ids = BinaryFrameEncoder.HEADER_SIZE + 2 * 2 * 4;
+        assertEquals(2, frame.getInt(ids));
+        assertEquals(1, frame.getInt(ids + 4));
+    }
+
+    @Test
+    void testEmptyFrame() {
+        StreamFormat format = new StreamFormat(StreamFormat.Encoding.INT16, true, false);
+        ByteBuffer frame = BinaryFrameEncoder.encode(SimulationSnapshot.of(new ParticleStore(), 0, 0L), format);
+
+        assertEquals(BinaryFrameEncoder.HEADER_SIZE, frame.remaining());
+    }
+
+    @Test
+    void testNegotiationDefaultsToJson() {
+        assertEquals(StreamFormat.JSON, StreamFormat.negotiate(null, null));
+        assertEquals(StreamFormat.JSON, StreamFormat.negotiate("", Map.of()));
+        assertEquals(StreamFormat.JSON, StreamFormat.negotiate(null, Map.of("format", List.of("xml"))));
+    }
+
+    @Test
+    void testSubprotocolTakesPrecedenceOverQueryParameter() {
+        StreamFormat format = StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_INT16,
+                Map.of("format", List.of("f32"), "fields", List.of("velocity")));
+
+        assertEquals(new StreamFormat(StreamFormat.Encoding.INT16, true, false), format);
+        assertTrue(format.isBinary());
+    }
+
+    @Test
+    void testQueryParameterSelectsBinaryFormat() {
+        StreamFormat format = StreamFormat.negotiate(null,
+                Map.of("format", List.of("f32"), "fields", List.of("velocity, mass")));
+
+        assertEquals(new StreamFormat(StreamFormat.Encoding.FLOAT32, true, true), format);
+    }
+
+    @Test
+    void testDensityFrame() {
+        ParticleStore store = store();
+        DensityGrid density = new DensityGrid();
+        density.compute(store, 4);
+
+        ByteBuffer frame = BinaryFrameEncoder.encodeDensity(SimulationSnapshot.of(store, density, 9, 500L))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(BinaryFrameEncoder.densityFrameSize(4), frame.remaining());
+        assertEquals(BinaryFrameEncoder.FRAME_DENSITY, frame.get(0));
+        assertEquals(4, frame.getShort(2));
+        assertEquals(9, frame.getInt(4));
+        assertEquals(3, frame.getInt(8));
+        assertEquals((float) density.getCellSize(), frame.getFloat(20));
+        assertEquals(500L, frame.getLong(24));
+        int total = 0;
+        for (int cell = 0; cell < 16; cell++) {
+            total += frame.getInt(BinaryFrameEncoder.HEADER_SIZE + 4 * cell);
+        }
+        assertEquals(3, total);
+    }
+
+    @Test
+    void testEncodesIntoAReusedDirectBuffer() {
+        StreamFormat format = new StreamFormat(StreamFormat.Encoding.INT16, true, true);
+        SimulationSnapshot snapshot = SimulationSnapshot.of(store(), 3, 100L);
+        ByteBuffer reused = ByteBuffer.allocateDirect(1024);
+        reused.put(new byte[1024]).clear();
+
+        ByteBuffer frame = BinaryFrameEncoder.encode(snapshot, format, reused);
+
+        assertSame(reused, frame);
+        assertEquals(BinaryFrameEncoder.encode(snapshot, format), frame);
+        assertEquals(BinaryFrameEncoder.encode(snapshot, format),
+                BinaryFrameEncoder.encode(snapshot, format, reused.clear()));
+    }
+
+    @Test
+    void testJsonFrameMatchesJackson() throws Exception {
+        ParticleStore store = store();
+        store.add(1, 2, Double.NaN, Double.POSITIVE_INFINITY, 1e-9);
+        SimulationSnapshot snapshot = SimulationSnapshot.of(store, 0, 0L);
+        StringBuilder builder = new StringBuilder("stale");
+
+        String expected = new ObjectMapper().writeValueAsString(snapshot.toParticles());
+
+        assertEquals(expected, JsonFrameEncoder.encode(snapshot, builder));
+        assertEquals("[]", JsonFrameEncoder.encode(SimulationSnapshot.of(new ParticleStore(), 0, 0L), builder));
+    }
+
+    @Test
+    void testNegotiatesLevelOfDetail() {
+        assertEquals(StreamFormat.LevelOfDetail.AUTO,
+                StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_FLOAT32, null).lod());
+        assertEquals(StreamFormat.LevelOfDetail.DENSITY,
+                StreamFormat.negotiate(StreamFormat.SUBPROTOCOL_INT16, Map.of("lod", List.of("density"))).lod());
+        assertEquals(StreamFormat.LevelOfDetail.PARTICLES,
+                StreamFormat.negotiate(null, Map.of("lod", List.of("density"))).lod());
+    }
+}
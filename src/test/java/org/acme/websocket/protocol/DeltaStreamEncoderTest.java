@@ -0,0 +1,179 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DeltaStreamEncoder class, decoding frames the way a client would.
+ */
+public class DeltaStreamEncoderTest {
+
+    private static final double QUANTUM = 1.0 / 256;
+
+    /**
+     * Minimal client: applies keyframes and deltas to its own copy of the positions.
+     */
+    private static final class Client {
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+        long lastTick = -1;
+
+        void apply(ByteBuffer frame) {
+            ByteBuffer buffer = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int type = buffer.get(0);
+            long tick = buffer.getInt(4);
+            int count = buffer.getInt(8);
+            int body = BinaryFrameEncoder.HEADER_SIZE;
+            if (type == DeltaStreamEncoder.FRAME_KEY) {
+                xs = new int[count];
+                ys = new int[count];
+                for (int i = 0; i < count; i++) {
+                    xs[i] = buffer.getInt(body + 4 * i);
+                    ys[i] = buffer.getInt(body + 4 * count + 4 * i);
+                }
+            } else {
+                assertEquals(DeltaStreamEncoder.FRAME_DELTA, type);
+                assertEquals(lastTick, buffer.getInt(16), "base tick");
+                for (int k = 0; k < count; k++) {
+                    int index = buffer.getInt(body + 4 * k);
+                    xs[index] += buffer.getShort(body + 4 * count + 2 * k);
+                    ys[index] += buffer.getShort(body + 6 * count + 2 * k);
+                }
+            }
+            lastTick = tick;
+        }
+    }
+
+    private static ParticleStore store(int count) {
+        ParticleStore store = new ParticleStore();
+        for (int i = 0; i < count; i++) {
+            store.add(i, -i, 0, 0, 1);
+        }
+        return store;
+    }
+
+    private static void move(ParticleStore store, double dx) {
+        for (int i = 0; i < store.getSize(); i++) {
+            store.getXs()[i] += dx * (i % 2);
+        }
+    }
+
+    @Test
+    void testClientTracksPositionsThroughDeltas() {
+        ParticleStore store = store(100);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 1);
+        Client client = new Client();
+
+        client.apply(encoder.encode(SimulationSnapshot.of(store, 0, 0)));
+        for (int tick = 1; tick < 50; tick++) {
+            move(store, 0.1);
+            ByteBuffer frame = encoder.encode(SimulationSnapshot.of(store, tick, 0));
+            assertFalse(DeltaStreamEncoder.isKeyframe(frame));
+            client.apply(frame);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(store.getXs()[i], client.xs[i] * QUANTUM, QUANTUM);
+            assertEquals(store.getYs()[i], client.ys[i] * QUANTUM, QUANTUM);
+        }
+    }
+
+    @Test
+    void testParticlesBelowThresholdAreSkipped() {
+        ParticleStore store = store(10);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 4);
+        encoder.encode(SimulationSnapshot.of(store, 0, 0));
+
+        move(store, QUANTUM);
+        ByteBuffer frame = encoder.encode(SimulationSnapshot.of(store, 1, 0)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(0, frame.getInt(8));
+        assertEquals(BinaryFrameEncoder.HEADER_SIZE, frame.remaining());
+
+        // The skipped movement accumulates until it crosses the threshold.
+        for (int tick = 2; tick <= 4; tick++) {
+            move(store, QUANTUM);
+            frame = encoder.encode(SimulationSnapshot.of(store, tick, 0)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        assertEquals(5, frame.getInt(8));
+    }
+
+    @Test
+    void testKeyframeEveryInterval() {
+        ParticleStore store = store(3);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(4, QUANTUM, 1);
+
+        int keyframes = 0;
+        for (int tick = 0; tick < 12; tick++) {
+            if (DeltaStreamEncoder.isKeyframe(encoder.encode(SimulationSnapshot.of(store, tick, 0)))) keyframes++;
+        }
+
+        assertEquals(3, keyframes);
+    }
+
+    @Test
+    void testKeyframeWhenParticlesChangeOrOnRequest() {
+        ParticleStore store = store(3);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 1);
+        encoder.encode(SimulationSnapshot.of(store, 0, 0));
+        assertFalse(DeltaStreamEncoder.isKeyframe(encoder.encode(SimulationSnapshot.of(store, 1, 0))));
+
+        store.add(5, 5, 0, 0, 1);
+        assertTrue(DeltaStreamEncoder.isKeyframe(encoder.encode(SimulationSnapshot.of(store, 2, 0))));
+
+        encoder.requestKeyframe();
+        assertTrue(DeltaStreamEncoder.isKeyframe(encoder.encode(SimulationSnapshot.of(store, 3, 0))));
+    }
+
+    @Test
+    void testKeyframeWhenDeltaOverflowsInt16() {
+        ParticleStore store = store(3);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 1);
+        encoder.encode(SimulationSnapshot.of(store, 0, 0));
+
+        move(store, 1000);
+
+        assertTrue(DeltaStreamEncoder.isKeyframe(encoder.encode(SimulationSnapshot.of(store, 1, 0))));
+    }
+
+    @Test
+    void testJoiningClientResyncsFromKnownKeyframe() {
+        ParticleStore store = store(20);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 1);
+        Client early = new Client();
+        early.apply(encoder.encode(SimulationSnapshot.of(store, 0, 0)));
+        move(store, 0.5);
+        early.apply(encoder.encode(SimulationSnapshot.of(store, 1, 0)));
+
+        Client late = new Client();
+        late.apply(encoder.encodeKnownKeyframe(0));
+        move(store, 0.5);
+        ByteBuffer delta = encoder.encode(SimulationSnapshot.of(store, 2, 0));
+        early.apply(delta);
+        late.apply(delta);
+
+        assertArrayEquals(early.xs, late.xs);
+        assertArrayEquals(early.ys, late.ys);
+    }
+
+    @Test
+    void testKeyframeCarriesIdsWhenRequested() {
+        ParticleStore store = store(3);
+        store.remove(0);
+        DeltaStreamEncoder encoder = new DeltaStreamEncoder(1000, QUANTUM, 1, true);
+
+        ByteBuffer frame = encoder.encode(SimulationSnapshot.of(store, 0, 0)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(BinaryFrameEncoder.FLAG_ID, frame.get(1));
+        assertEquals(BinaryFrameEncoder.HEADER_SIZE + 12 * 2, frame.remaining());
+        int ids = BinaryFrameEncoder.HEADER_SIZE + 8 * 2;
+        assertEquals(2, frame.getInt(ids));
+        assertEquals(1, frame.getInt(ids + 4));
+    }
+}
@@ -0,0 +1,49 @@
+package org.acme.websocket.protocol;
+
+import org.acme.model.ParticleStore;
+import org.acme.model.SimulationSnapshot;
+import org.acme.model.SnapshotGrid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Viewport record.
+ */
+public class ViewportTest {
+
+    private static SnapshotGrid grid() {
+        ParticleStore store = new ParticleStore();
+        store.add(0.1, 0.1, 0, 0, 1);
+        store.add(0.2, 0.2, 0, 0, 1);
+        store.add(5.5, 5.5, 0, 0, 1);
+        store.add(50, 50, 0, 0, 1);
+        return new SnapshotGrid(SimulationSnapshot.of(store, 0, 0L));
+    }
+
+    @Test
+    void testCullsToRectangle() {
+        Viewport viewport = new Viewport(0, 0, 10, 10, null);
+
+        assertArrayEquals(new int[]{0, 1, 2}, viewport.cull(grid()));
+    }
+
+    @Test
+    void testZoomKeepsOneParticlePerPixel() {
+        Viewport zoomedOut = new Viewport(0, 0, 10, 10, 1.0);
+        Viewport zoomedIn = new Viewport(0, 0, 10, 10, 100.0);
+
+        assertArrayEquals(new int[]{0, 2}, zoomedOut.cull(grid()));
+        assertArrayEquals(new int[]{0, 1, 2}, zoomedIn.cull(grid()));
+    }
+
+    @Test
+    void testRejectsInvalidViewports() {
+        assertThrows(IllegalArgumentException.class, () -> new Viewport(1, 0, 0, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new Viewport(0, 0, Double.NaN, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new Viewport(0, 0, 1, 1, 0.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClientMessage(ClientMessage.VIEWPORT, 0.0, 0.0, null, 1.0, null).viewport());
+        assertNull(new ClientMessage(ClientMessage.VIEWPORT, null, null, null, null, null).viewport());
+    }
+}
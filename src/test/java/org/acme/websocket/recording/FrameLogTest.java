@@ -0,0 +1,136 @@
+package org.acme.websocket.recording;
+
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FrameLogWriter and FrameLogReader.
+ */
+public class FrameLogTest {
+
+    private static final StreamFormat.Encoding ENCODING = StreamFormat.Encoding.FLOAT32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTripAcrossSegments() throws IOException {
+        Path recording = directory.resolve("demo");
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 100, ENCODING)) {
+            for (int i = 0; i < 10; i++) {
+                writer.append(frame(i, 40), 100 + i, 1000 + 16L * i);
+            }
+            assertEquals(10, writer.getFrames());
+            assertEquals(400, writer.getBytes());
+        }
+
+        assertTrue(Files.exists(FrameLog.segment(recording, 4)));
+        assertFalse(Files.exists(FrameLog.segment(recording, 5)));
+        try (FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(10, reader.getFrameCount());
+            assertEquals(400, reader.getBytes());
+            assertEquals(ENCODING, reader.getEncoding());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(100 + i, reader.tick(i));
+                assertEquals(1000 + 16L * i, reader.timestamp(i));
+                assertEquals(frame(i, 40), reader.frame(i));
+            }
+        }
+    }
+
+    @Test
+    void testFramesLargerThanASegment() throws IOException {
+        Path recording = directory.resolve("large");
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 16, ENCODING)) {
+            writer.append(frame(1, 64), 1, 1);
+            writer.append(frame(2, 8), 2, 2);
+        }
+
+        try (FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(frame(1, 64), reader.frame(0));
+            assertEquals(frame(2, 8), reader.frame(1));
+        }
+    }
+
+    @Test
+    void testSeekByTickAndTime() throws IOException {
+        Path recording = directory.resolve("seek");
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 1 << 20, ENCODING)) {
+            for (int i = 0; i < 5; i++) {
+                writer.append(frame(i, 8), 10 * i, 100 * i);
+            }
+        }
+
+        try (FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(0, reader.frameAtTick(Long.MIN_VALUE));
+            assertEquals(2, reader.frameAtTick(20));
+            assertEquals(3, reader.frameAtTick(21));
+            assertEquals(5, reader.frameAtTick(41));
+
+            assertEquals(-1, reader.frameAtTime(-1));
+            assertEquals(0, reader.frameAtTime(99));
+            assertEquals(1, reader.frameAtTime(100));
+            assertEquals(4, reader.frameAtTime(Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void testReaderFollowsARecordingBeingWritten() throws IOException {
+        Path recording = directory.resolve("live");
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 1 << 20, ENCODING);
+             FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(0, reader.getFrameCount());
+
+            writer.append(frame(1, 16), 1, 1);
+            assertEquals(frame(1, 16), reader.frame(reader.refresh() - 1));
+
+            writer.append(frame(2, 16), 2, 2);
+            assertEquals(1, reader.getFrameCount());
+            assertEquals(2, reader.refresh());
+            assertEquals(frame(2, 16), reader.frame(1));
+        }
+    }
+
+    @Test
+    void testOnlyBinaryParticleFramesAreRecorded() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FrameLogWriter.create(directory.resolve("json"), 1024, StreamFormat.Encoding.JSON));
+        assertFalse(Files.exists(directory.resolve("json")));
+    }
+
+    @Test
+    void testRecordingsAreNeverOverwritten() throws IOException {
+        Path recording = directory.resolve("once");
+        FrameLogWriter.create(recording, 1024, ENCODING).close();
+
+        assertThrows(FileAlreadyExistsException.class, () -> FrameLogWriter.create(recording, 1024, ENCODING));
+    }
+
+    @Test
+    void testRejectsMissingAndOtherFiles() throws IOException {
+        assertThrows(NoSuchFileException.class, () -> FrameLogReader.open(directory.resolve("missing")));
+
+        Path other = directory.resolve("other");
+        Files.createDirectory(other);
+        Files.write(other.resolve(FrameLog.INDEX_FILE), new byte[FrameLog.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> FrameLogReader.open(other));
+    }
+
+    private static ByteBuffer frame(int seed, int length) {
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            frame.put((byte) (seed * 31 + i));
+        }
+        return frame.flip();
+    }
+}
@@ -0,0 +1,102 @@
+package org.acme.websocket.recording;
+
+import org.acme.model.Particle;
+import org.acme.service.SimulationInstance;
+import org.acme.service.SimulationRegistry;
+import org.acme.service.SimulationService;
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FrameRecorder class.
+ */
+public class FrameRecorderTest {
+
+    private static final StreamFormat FORMAT = new StreamFormat(StreamFormat.Encoding.FLOAT32, false, false);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordsEveryTickItDoesNotDrop() throws IOException {
+        SimulationInstance instance = new SimulationRegistry().get("recorded");
+        SimulationService service = instance.getService();
+        service.addParticle(new Particle(1, 1, 0, 0, 1));
+        Path recording = directory.resolve("demo");
+        FrameRecorder recorder = new FrameRecorder("demo", instance,
+                FrameLogWriter.create(recording, 1 << 20, FORMAT.encoding()), FORMAT, failed -> { });
+        service.setTickListener(recorder);
+
+        for (int i = 0; i < 100; i++) {
+            service.updateSimulation();
+        }
+        recorder.close();
+
+        assertFalse(recorder.isOpen());
+        assertEquals(100, recorder.getFrames() + recorder.getDropped());
+        assertTrue(recorder.getFrames() >= FrameRecorder.BUFFERS);
+        try (FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(recorder.getFrames(), reader.getFrameCount());
+            assertEquals(1, reader.tick(0));
+            for (int i = 1; i < reader.getFrameCount(); i++) {
+                assertTrue(reader.tick(i) > reader.tick(i - 1));
+            }
+        }
+    }
+
+    @Test
+    void testTicksAfterCloseAreIgnored() throws IOException {
+        SimulationInstance instance = new SimulationRegistry().get("closed");
+        Path recording = directory.resolve("closed");
+        FrameRecorder recorder = new FrameRecorder("closed", instance,
+                FrameLogWriter.create(recording, 1 << 20, FORMAT.encoding()), FORMAT, failed -> { });
+        instance.getService().setTickListener(recorder);
+
+        recorder.close();
+        instance.getService().updateSimulation();
+
+        assertEquals(0, recorder.getFrames());
+        assertEquals(0, recorder.getDropped());
+        try (FrameLogReader reader = FrameLogReader.open(recording)) {
+            assertEquals(0, reader.getFrameCount());
+        }
+    }
+
+    @Test
+    void testFailedAppendStopsTheRecordingAndReportsIt() throws Exception {
+        SimulationInstance instance = new SimulationRegistry().get("failing");
+        SimulationService service = instance.getService();
+        service.addParticle(new Particle(1, 1, 0, 0, 1));
+        Path recording = directory.resolve("failing");
+        CompletableFuture<FrameRecorder> failure = new CompletableFuture<>();
+        // A segment per frame, so the append after the directory is deleted has to create a file in it.
+        FrameRecorder recorder = new FrameRecorder("failing", instance,
+                FrameLogWriter.create(recording, 1, FORMAT.encoding()), FORMAT, failure::complete);
+        service.setTickListener(recorder);
+
+        service.updateSimulation();
+        while (recorder.getFrames() == 0) {
+            Thread.sleep(1);
+        }
+        try (Stream<Path> files = Files.walk(recording)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        service.updateSimulation();
+
+        assertSame(recorder, failure.get(5, TimeUnit.SECONDS));
+        assertFalse(recorder.isOpen());
+        assertEquals(1, recorder.getFrames());
+        recorder.close();
+    }
+}
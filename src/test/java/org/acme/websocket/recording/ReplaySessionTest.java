@@ -0,0 +1,149 @@
+package org.acme.websocket.recording;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.acme.websocket.protocol.StreamFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReplaySession using Mockito.
+ */
+public class ReplaySessionTest {
+
+    private static final StreamFormat.Encoding ENCODING = StreamFormat.Encoding.FLOAT32;
+
+    @TempDir
+    Path directory;
+
+    private ScheduledExecutorService scheduler;
+    private Session session;
+    private RemoteEndpoint.Async remote;
+    private final List<Integer> sentTicks = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        session = mock(Session.class);
+        remote = mock(RemoteEndpoint.Async.class);
+        when(session.getId()).thenReturn("replay-session");
+        when(session.getAsyncRemote()).thenReturn(remote);
+        when(session.getNegotiatedSubprotocol()).thenReturn(StreamFormat.SUBPROTOCOL_FLOAT32);
+        doAnswer(invocation -> {
+            sentTicks.add(invocation.<ByteBuffer>getArgument(0).getInt(0));
+            invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+            return null;
+        }).when(remote).sendBinary(any(ByteBuffer.class), any(SendHandler.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testReplaysEveryFrameInOrderThenCloses() throws IOException {
+        FrameLogReader log = record("whole", 10, 50);
+        ReplaySession replay = new ReplaySession(session, log, scheduler, () -> false);
+
+        replay.start(Long.MIN_VALUE, 1);
+
+        ArgumentCaptor<CloseReason> reason = ArgumentCaptor.forClass(CloseReason.class);
+        verify(session, timeout(5000)).close(reason.capture());
+        assertEquals(CloseReason.CloseCodes.NORMAL_CLOSURE, reason.getValue().getCloseCode());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), sentTicks);
+        assertEquals(10, replay.getSentFrames());
+        assertEquals(0, replay.getSkippedFrames());
+    }
+
+    @Test
+    void testFastReplayCoversTheRecordingFromTheStartTick() throws IOException {
+        FrameLogReader log = record("fast", 50, 1000);
+        ReplaySession replay = new ReplaySession(session, log, scheduler, () -> false);
+
+        replay.start(10, ReplaySession.MAX_SPEED);
+
+        verify(session, timeout(5000)).close(any(CloseReason.class));
+        assertEquals(10, sentTicks.get(0));
+        assertEquals(49, sentTicks.get(sentTicks.size() - 1));
+        assertEquals(40, replay.getSentFrames() + replay.getSkippedFrames());
+    }
+
+    @Test
+    void testPausedReplayShowsTheFrameSoughtTo() throws Exception {
+        FrameLogReader log = record("paused", 10, 10);
+        ReplaySession replay = new ReplaySession(session, log, scheduler, () -> false);
+
+        replay.start(Long.MIN_VALUE, 0);
+        replay.seek(7);
+        Thread.sleep(100);
+
+        assertEquals(7, sentTicks.get(sentTicks.size() - 1));
+        verify(session, never()).close(any(CloseReason.class));
+        assertThrows(IllegalArgumentException.class, () -> replay.setSpeed(-1));
+    }
+
+    @Test
+    void testRejectsSessionsNotNegotiatingTheRecordedFormat() throws IOException {
+        FrameLogReader log = record("f32", 10, 10);
+
+        for (String subprotocol : new String[]{StreamFormat.SUBPROTOCOL_INT16, "", null}) {
+            when(session.getNegotiatedSubprotocol()).thenReturn(subprotocol);
+            ReplaySession replay = new ReplaySession(session, log, scheduler, () -> false);
+
+            assertThrows(IllegalArgumentException.class, () -> replay.start(Long.MIN_VALUE, 1), subprotocol);
+        }
+        verify(remote, never()).sendBinary(any(ByteBuffer.class), any(SendHandler.class));
+    }
+
+    @Test
+    void testLiveReplayWaitsForNewFrames() throws Exception {
+        Path recording = directory.resolve("live");
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 1 << 20, ENCODING);
+             FrameLogReader log = FrameLogReader.open(recording)) {
+            ReplaySession replay = new ReplaySession(session, log, scheduler, () -> true);
+            replay.start(Long.MIN_VALUE, 1);
+            Thread.sleep(50);
+
+            writer.append(frame(0), 0, System.currentTimeMillis());
+            verify(remote, timeout(2000)).sendBinary(any(ByteBuffer.class), any(SendHandler.class));
+            assertEquals(List.of(0), sentTicks);
+            verify(session, never()).close(any(CloseReason.class));
+            replay.close();
+        }
+    }
+
+    private FrameLogReader record(String name, int frames, long periodMs) throws IOException {
+        Path recording = directory.resolve(name);
+        try (FrameLogWriter writer = FrameLogWriter.create(recording, 1 << 20, ENCODING)) {
+            for (int i = 0; i < frames; i++) {
+                writer.append(frame(i), i, periodMs * i);
+            }
+        }
+        return FrameLogReader.open(recording);
+    }
+
+    /**
+     * A frame carrying its tick in its first 4 bytes.
+     */
+    private static ByteBuffer frame(int tick) {
+        return ByteBuffer.allocate(32).putInt(0, tick);
+    }
+}